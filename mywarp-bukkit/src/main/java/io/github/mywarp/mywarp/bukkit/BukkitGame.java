@@ -54,6 +54,11 @@ public class BukkitGame implements Game {
     return executor;
   }
 
+  @Override
+  public Executor getAsyncExecutor() {
+    return runnable -> Bukkit.getScheduler().runTaskAsynchronously(plugin, runnable);
+  }
+
   @Override
   public Optional<LocalWorld> getWorld(String worldName) {
     World world = Bukkit.getWorld(worldName);
@@ -24,11 +24,14 @@ import com.google.common.collect.MutableClassToInstanceMap;
 import io.github.mywarp.mywarp.bukkit.settings.BukkitSettings;
 import io.github.mywarp.mywarp.bukkit.settings.DurationBundle;
 import io.github.mywarp.mywarp.bukkit.settings.FeeBundle;
+import io.github.mywarp.mywarp.bukkit.util.BukkitChunkPreloadCapability;
 import io.github.mywarp.mywarp.bukkit.util.CubicSafetyValidationCapability;
+import io.github.mywarp.mywarp.bukkit.util.SafePositionCache;
 import io.github.mywarp.mywarp.bukkit.util.jdbc.JdbcConfiguration;
 import io.github.mywarp.mywarp.bukkit.util.permission.BundleProvider;
 import io.github.mywarp.mywarp.platform.InvalidFormatException;
 import io.github.mywarp.mywarp.platform.Platform;
+import io.github.mywarp.mywarp.platform.capability.ChunkPreloadCapability;
 import io.github.mywarp.mywarp.platform.capability.EconomyCapability;
 import io.github.mywarp.mywarp.platform.capability.LimitCapability;
 import io.github.mywarp.mywarp.platform.capability.PositionValidationCapability;
@@ -52,6 +55,7 @@ public class BukkitPlatform implements Platform {
   private static final Logger log = MyWarpLogger.getLogger(BukkitPlatform.class);
 
   private final MyWarpPlugin plugin;
+  private final File dataFolder;
 
   private final BukkitSettings settings;
   private final BukkitGame game;
@@ -61,6 +65,7 @@ public class BukkitPlatform implements Platform {
 
   BukkitPlatform(MyWarpPlugin plugin, File dataFolder, FileConfiguration defaultConfig) {
     this.plugin = plugin;
+    this.dataFolder = dataFolder;
 
     //initialize platform support
     this.settings = new BukkitSettings(new File(dataFolder, "config.yml"), defaultConfig);
@@ -84,6 +89,11 @@ public class BukkitPlatform implements Platform {
     return profileCache;
   }
 
+  @Override
+  public File getDataFolder() {
+    return dataFolder;
+  }
+
   @Override
   @SuppressWarnings("unchecked")
   public <C> Optional<C> getCapability(Class<C> capabilityClass) {
@@ -111,6 +121,7 @@ public class BukkitPlatform implements Platform {
           BundleProvider<FeeBundle>
               feeProvider =
               new BundleProvider<>(settings.getEconomyConfiguredFeeBundles(), settings.getEconomyDefaultFeeBundle());
+          feeProvider.registerEvents(plugin);
           economyCapability = new BukkitEconomyCapability(serviceProvider.getProvider(), feeProvider, settings);
         } else {
           log.error("Failed to hook into Vault (Economy is null). Economy support will not be available.");
@@ -132,16 +143,35 @@ public class BukkitPlatform implements Platform {
           new BundleProvider<>(settings.getTimersConfiguredDurationBundles(), settings
 
               .getTimersDefaultDurationBundle());
+      durationProvider.registerEvents(plugin);
       TimerCapability timerCapability = new BukkitTimerCapability(plugin, durationProvider, settings);
       registeredCapabilities.putInstance(TimerCapability.class, timerCapability);
       registered = (C) timerCapability;
     }
 
+    //ChunkPreloadCapability
+    if (capabilityClass.isAssignableFrom(ChunkPreloadCapability.class)) {
+      // the safety search reads all chunks within its radius
+      ChunkPreloadCapability
+          chunkPreloadCapability =
+          new BukkitChunkPreloadCapability(plugin, settings.isSafetyEnabled() ? settings.getSafetySearchRadius() : 0);
+      registeredCapabilities.putInstance(ChunkPreloadCapability.class, chunkPreloadCapability);
+      registered = (C) chunkPreloadCapability;
+    }
+
     //PositionSafetyCapability
     if (capabilityClass.isAssignableFrom(PositionValidationCapability.class) && settings.isSafetyEnabled()) {
       PositionValidationCapability
           positionValidationCapability =
-          new CubicSafetyValidationCapability(settings.getSafetySearchRadius(), plugin.createMaterialInformation());
+          new CubicSafetyValidationCapability(settings.getSafetySearchRadius(), plugin.createMaterialInformation(),
+              game.getExecutor(), game.getAsyncExecutor());
+      if (settings.isSafetyCacheEnabled()) {
+        SafePositionCache
+            safePositionCache =
+            new SafePositionCache(positionValidationCapability, settings.getSafetySearchRadius(), plugin);
+        safePositionCache.registerEvents(plugin);
+        positionValidationCapability = safePositionCache;
+      }
       registeredCapabilities.putInstance(PositionValidationCapability.class, positionValidationCapability);
       registered = (C) positionValidationCapability;
     }
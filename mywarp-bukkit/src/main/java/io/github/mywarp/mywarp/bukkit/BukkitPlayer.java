@@ -142,6 +142,13 @@ public class BukkitPlayer extends BukkitActor implements LocalPlayer {
         bukkitLoc =
         new Location(BukkitAdapter.adapt(world), position.getX(), position.getY(), position.getZ(), rotation.getY(),
             rotation.getX());
+
+    // load the chunk if needed, usually it has already been loaded asynchronously
+    Chunk chunk = Objects.requireNonNull(bukkitLoc.getWorld()).getChunkAt(bukkitLoc);
+    if (!chunk.isLoaded()) {
+      chunk.load();
+    }
+
     teleportRecursive(getWrapped(), bukkitLoc, teleportTamedHorse);
   }
 
@@ -154,12 +161,6 @@ public class BukkitPlayer extends BukkitActor implements LocalPlayer {
     }
     toTeleport.leaveVehicle();
 
-    // load the chunk if needed
-    Chunk chunk = Objects.requireNonNull(bukkitLoc.getWorld()).getChunkAt(bukkitLoc);
-    if (!chunk.isLoaded()) {
-      chunk.load();
-    }
-
     // teleport the entity
     toTeleport.teleport(bukkitLoc, PlayerTeleportEvent.TeleportCause.PLUGIN);
 
@@ -40,6 +40,8 @@ public class BukkitTimerCapability implements TimerCapability {
 
   BukkitTimerCapability(MyWarpPlugin plugin, BundleProvider<DurationBundle> durationProvider, BukkitSettings settings) {
     this.timerHandler = new BukkitTimerHandler(plugin);
+    // warmups are aborted by move and damage events
+    this.timerHandler.registerEvents(plugin);
     this.durationProvider = durationProvider;
     this.settings = settings;
   }
@@ -32,6 +32,8 @@ import io.github.mywarp.mywarp.util.i18n.DynamicMessages;
 import io.github.mywarp.mywarp.warp.PlaceholderResolver;
 import io.github.mywarp.mywarp.warp.Warp;
 import io.github.mywarp.mywarp.warp.event.WarpAdditionEvent;
+import io.github.mywarp.mywarp.warp.event.WarpBulkAdditionEvent;
+import io.github.mywarp.mywarp.warp.event.WarpBulkDeletionEvent;
 import io.github.mywarp.mywarp.warp.event.WarpDeletionEvent;
 import io.github.mywarp.mywarp.warp.event.WarpEvent;
 import io.github.mywarp.mywarp.warp.event.WarpUpdateEvent;
@@ -166,6 +168,30 @@ public class DynmapMarker {
     deleteMarker(event.getWarp());
   }
 
+  /**
+   * Called when several Warps are added at once.
+   *
+   * @param event the event
+   * @deprecated will be privatized once support for old Guava versions is removed
+   */
+  @Deprecated
+  @Subscribe
+  public void onWarpBulkAddition(WarpBulkAdditionEvent event) {
+    addMarker(event.getWarps());
+  }
+
+  /**
+   * Called when several Warps are deleted at once.
+   *
+   * @param event the event
+   * @deprecated will be privatized once support for old Guava versions is removed
+   */
+  @Deprecated
+  @Subscribe
+  public void onWarpBulkDeletion(WarpBulkDeletionEvent event) {
+    deleteMarker(event.getWarps());
+  }
+
   /**
    * Called when a Warp is updated.
    *
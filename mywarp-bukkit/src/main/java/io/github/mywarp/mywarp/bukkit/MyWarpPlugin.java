@@ -21,17 +21,20 @@ package io.github.mywarp.mywarp.bukkit;
 
 import io.github.mywarp.mywarp.MyWarp;
 import io.github.mywarp.mywarp.bukkit.settings.BukkitSettings;
+import io.github.mywarp.mywarp.bukkit.util.SafePositionCache;
 import io.github.mywarp.mywarp.bukkit.util.conversation.AcceptancePromptFactory;
 import io.github.mywarp.mywarp.bukkit.util.conversation.WelcomeEditorFactory;
 import io.github.mywarp.mywarp.bukkit.util.jdbc.JdbcConfiguration;
 import io.github.mywarp.mywarp.bukkit.util.material.ConfigurableMaterialInfo;
 import io.github.mywarp.mywarp.bukkit.util.material.MaterialInfo;
 import io.github.mywarp.mywarp.bukkit.util.permission.BukkitPermissionsRegistration;
+import io.github.mywarp.mywarp.bukkit.util.permission.PermissionRecalculationRegistration;
 import io.github.mywarp.mywarp.bukkit.util.permission.group.GroupResolver;
 import io.github.mywarp.mywarp.bukkit.util.permission.group.GroupResolverFactory;
 import io.github.mywarp.mywarp.platform.Actor;
 import io.github.mywarp.mywarp.platform.InvalidFormatException;
 import io.github.mywarp.mywarp.platform.LocalPlayer;
+import io.github.mywarp.mywarp.platform.capability.PositionValidationCapability;
 import io.github.mywarp.mywarp.platform.capability.TimerCapability;
 import io.github.mywarp.mywarp.util.MyWarpLogger;
 import io.github.mywarp.mywarp.util.i18n.DynamicMessages;
@@ -39,6 +42,7 @@ import io.github.mywarp.mywarp.util.i18n.FolderSourcedControl;
 import io.github.mywarp.mywarp.util.i18n.LocaleManager;
 import io.github.mywarp.mywarp.warp.storage.SqlDataService;
 import io.github.mywarp.mywarp.warp.storage.TableInitializationException;
+import io.github.mywarp.mywarp.warp.storage.WarpQuery;
 import io.github.mywarp.mywarp.warp.storage.UnsupportedDialectException;
 import org.apache.commons.lang.text.StrBuilder;
 import org.bukkit.Bukkit;
@@ -52,6 +56,7 @@ import org.bukkit.event.HandlerList;
 import org.bukkit.permissions.Permission;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
 import org.dynmap.DynmapCommonAPI;
 import org.slf4j.Logger;
 
@@ -75,6 +80,8 @@ public final class MyWarpPlugin extends JavaPlugin {
   public static final int CONVERSATION_TIMEOUT = 60;
 
   private static final Logger log = MyWarpLogger.getLogger(MyWarpPlugin.class);
+  private static final long PRUNE_DELAY_TICKS = 60L * 20L;
+  private static final long PRUNE_INTERVAL_TICKS = 60L * 60L * 20L;
 
   private final ResourceBundle.Control control = new FolderSourcedControl(new File(getDataFolder(), "lang"));
   private final Set<AutoCloseable> closeables = Collections.newSetFromMap(new WeakHashMap<AutoCloseable, Boolean>());
@@ -87,6 +94,14 @@ public final class MyWarpPlugin extends JavaPlugin {
 
   @Nullable
   private DynmapMarker marker;
+  @Nullable
+  private SafePositionCache safePositionCache;
+  @Nullable
+  private BukkitTask snapshotTask;
+  @Nullable
+  private BukkitTask syncTask;
+  @Nullable
+  private BukkitTask pruneTask;
 
   @Override
   public void onEnable() {
@@ -129,6 +144,11 @@ public final class MyWarpPlugin extends JavaPlugin {
   public void onDisable() {
     unregister();
 
+    //queue the snapshot before the storage is closed
+    if (myWarp != null) {
+      myWarp.saveSnapshot();
+    }
+
     //close any registered Closables
     for (AutoCloseable closeable : closeables) {
       try {
@@ -137,6 +157,11 @@ public final class MyWarpPlugin extends JavaPlugin {
         log.warn("Failed to close " + closeable.getClass().getCanonicalName(), e);
       }
     }
+
+    //close the journal once all pending writes are executed
+    if (myWarp != null) {
+      myWarp.close();
+    }
   }
 
   /**
@@ -158,6 +183,32 @@ public final class MyWarpPlugin extends JavaPlugin {
           .registerEvents(this);
     }
 
+    //schedule periodic snapshots
+    if (snapshotTask != null) {
+      snapshotTask.cancel();
+      snapshotTask = null;
+    }
+    if (getSettings().isStorageSnapshotEnabled() && getSettings().getStorageSnapshotInterval() > 0) {
+      long ticks = getSettings().getStorageSnapshotInterval() * 60L * 20L;
+      snapshotTask = Bukkit.getScheduler().runTaskTimer(this, myWarp::saveSnapshot, ticks, ticks);
+    }
+
+    //schedule synchronization with other servers
+    if (syncTask != null) {
+      syncTask.cancel();
+      syncTask = null;
+    }
+    if (getSettings().isStorageSyncEnabled() && getSettings().getStorageSyncInterval() > 0) {
+      long ticks = getSettings().getStorageSyncInterval() * 20L;
+      syncTask = Bukkit.getScheduler().runTaskTimer(this, myWarp::synchronizeWarps, ticks, ticks);
+    }
+
+    //prune the change-log, which grows with every write even if synchronization is disabled
+    if (pruneTask != null) {
+      pruneTask.cancel();
+    }
+    pruneTask = Bukkit.getScheduler().runTaskTimer(this, myWarp::pruneChanges, PRUNE_DELAY_TICKS, PRUNE_INTERVAL_TICKS);
+
     // register world access permissions
     for (World loadedWorld : Bukkit.getWorlds()) {
       Permission perm = new Permission("mywarp.world-access." + loadedWorld.getName());
@@ -171,12 +222,59 @@ public final class MyWarpPlugin extends JavaPlugin {
    * any).
    */
   void notifyWarpAvailability() {
+    //warps may be made available again, e.g. if a snapshot turns out to be outdated
+    if (marker != null) {
+      marker.clear();
+      myWarp.getEventBus().unregister(marker);
+      marker = null;
+    }
+
+    //valid positions of the most visited warps are computed in the background
+    if (safePositionCache != null) {
+      myWarp.getEventBus().unregister(safePositionCache);
+      safePositionCache = null;
+    }
+    Optional<PositionValidationCapability>
+        positionValidation =
+        platform.getCapability(PositionValidationCapability.class);
+    if (positionValidation.isPresent() && positionValidation.get() instanceof SafePositionCache) {
+      SafePositionCache cache = (SafePositionCache) positionValidation.get();
+      safePositionCache = cache;
+      myWarp.getEventBus().register(cache);
+
+      // other warps are computed when they are requested
+      WarpQuery mostVisited = WarpQuery.builder().orderBy(WarpQuery.Order.MOST_VISITED)
+          .page(0, SafePositionCache.PRECOMPUTED_WARPS).build();
+      myWarp.queryWarps(mostVisited).whenCompleteAsync((page, ex) -> {
+        if (ex != null) {
+          log.warn("Failed to read the most visited warps.", ex);
+        } else if (safePositionCache == cache) {
+          cache.precompute(page.getWarps());
+        }
+      }, platform.getGame().getExecutor());
+    }
+
     if (getSettings().isDynmapEnabled()) {
       Plugin dynmap = getServer().getPluginManager().getPlugin("dynmap");
       if (dynmap != null && dynmap.isEnabled() && dynmap instanceof DynmapCommonAPI) {
-        marker = new DynmapMarker((DynmapCommonAPI) dynmap, this, platform, getSettings().getDynmapShowTypes());
-        marker.addMarker(myWarp.getWarpManager().getAll(warp -> true));
-        myWarp.getEventBus().register(marker);
+        DynmapMarker dynmapMarker =
+            new DynmapMarker((DynmapCommonAPI) dynmap, this, platform, getSettings().getDynmapShowTypes());
+        marker = dynmapMarker;
+        if (getSettings().isStorageCacheEnabled()) {
+          // not all warps are kept in memory, so they are read chunk by chunk in the background
+          myWarp.readWarpsInChunks(chunk -> {
+            if (marker == dynmapMarker) {
+              dynmapMarker.addMarker(chunk);
+            }
+          }).whenComplete((count, ex) -> {
+            if (ex != null) {
+              log.warn("Failed to read warps for Dynmap markers.", ex);
+            }
+          });
+        } else {
+          dynmapMarker.addMarker(myWarp.getWarpManager().getAll(warp -> true));
+        }
+        myWarp.getEventBus().register(dynmapMarker);
       } else {
         log.error("Failed to hook into Dynmap. Disabling Dynmap support.");
       }
@@ -309,11 +407,13 @@ public final class MyWarpPlugin extends JavaPlugin {
   }
 
   /**
-   * Unregisters all permissions registered by MyWarp, all active event-listeners and all created markers (if any).
+   * Unregisters all permissions registered by MyWarp, all active event-listeners, all hooks into permission plugins and
+   * all created markers (if any).
    */
   void unregister() {
     HandlerList.unregisterAll(this);
     BukkitPermissionsRegistration.INSTANCE.unregisterAll();
+    PermissionRecalculationRegistration.INSTANCE.unregisterAll();
 
     if (marker != null) {
       marker.clear();
@@ -321,7 +421,8 @@ public final class MyWarpPlugin extends JavaPlugin {
   }
 
   SqlDataService createDataService(JdbcConfiguration configuration) {
-    SqlDataService ret = new SingleConnectionDataService(configuration);
+    SqlDataService ret = new SingleConnectionDataService(configuration, getSettings().getStorageQueueCapacity(),
+        getSettings().getStorageQueueOverflowPolicy());
 
     //add weak reference so it can be closed on shutdown if not done by the caller
     registerClosable(ret);
@@ -19,13 +19,12 @@
 
 package io.github.mywarp.mywarp.bukkit;
 
-import com.google.common.util.concurrent.ListeningExecutorService;
-import com.google.common.util.concurrent.MoreExecutors;
 import io.github.mywarp.mywarp.bukkit.util.jdbc.DataSourceFactory;
 import io.github.mywarp.mywarp.bukkit.util.jdbc.JdbcConfiguration;
 import io.github.mywarp.mywarp.bukkit.util.jdbc.SingleConnectionDataSource;
 import io.github.mywarp.mywarp.util.MyWarpLogger;
 import io.github.mywarp.mywarp.warp.storage.SqlDataService;
+import io.github.mywarp.mywarp.warp.storage.SqlWorkQueue;
 import org.slf4j.Logger;
 
 import javax.annotation.Nullable;
@@ -34,7 +33,6 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -45,19 +43,26 @@ public class SingleConnectionDataService implements SqlDataService {
   private static final Logger log = MyWarpLogger.getLogger(SingleConnectionDataService.class);
 
   private final JdbcConfiguration config;
+  private final int queueCapacity;
+  private final SqlWorkQueue.OverflowPolicy overflowPolicy;
 
   @Nullable
   private SingleConnectionDataSource dataSource;
   @Nullable
-  private ListeningExecutorService executorService;
+  private SqlWorkQueue executorService;
 
   /**
-   * Creates an instance that uses the given {@code config}.
+   * Creates an instance that uses the given {@code config}. Queries are queued in a {@link SqlWorkQueue} with the
+   * given {@code queueCapacity} and {@code overflowPolicy}.
    *
-   * @param config the config
+   * @param config         the config
+   * @param queueCapacity  the maximum number of queued queries
+   * @param overflowPolicy the policy applied when the queue is full
    */
-  SingleConnectionDataService(JdbcConfiguration config) {
+  SingleConnectionDataService(JdbcConfiguration config, int queueCapacity, SqlWorkQueue.OverflowPolicy overflowPolicy) {
     this.config = config;
+    this.queueCapacity = queueCapacity;
+    this.overflowPolicy = overflowPolicy;
   }
 
   @Override
@@ -81,11 +86,16 @@ public class SingleConnectionDataService implements SqlDataService {
   @Override
   public ExecutorService getExecutorService() {
     if (executorService == null) {
-      executorService = MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor());
+      executorService = new SqlWorkQueue(queueCapacity, overflowPolicy);
     }
     return executorService;
   }
 
+  @Override
+  public SqlDataService duplicate() {
+    return new SingleConnectionDataService(config, queueCapacity, overflowPolicy);
+  }
+
   /**
    * Initiates an shutdown that closes the {@code ExecutorService} and the {@code DataSource}, blocking until either all
    * remaining tasks are executed or 30 seconds have passed or the thread is interrupted.
@@ -93,13 +103,14 @@ public class SingleConnectionDataService implements SqlDataService {
   @Override
   public void close() {
     if (executorService != null) {
+      log.debug("Closing SQL executor: {}", executorService);
       executorService.shutdown();
 
       try {
         if (!executorService.awaitTermination(30, TimeUnit.SECONDS)) {
           List<Runnable> droppedTasks = executorService.shutdownNow();
           log.warn("SQL executor did not terminate within 30 seconds and is terminated. {} tasks will not be "
-              + "executed, recent changes may be missing in the database.", droppedTasks.size());
+              + "executed now, recent changes are replayed from the journal on the next start.", droppedTasks.size());
         }
       } catch (InterruptedException e) {
         log.error("Failed to terminate SQL executor as the process was interrupted.", e);
@@ -27,6 +27,8 @@ import io.github.mywarp.mywarp.util.MyWarpLogger;
 import io.github.mywarp.mywarp.util.WarpUtils;
 import io.github.mywarp.mywarp.warp.Warp;
 import io.github.mywarp.mywarp.warp.Warp.Type;
+import io.github.mywarp.mywarp.warp.storage.SqlWorkQueue;
+import io.github.mywarp.mywarp.warp.storage.WarpStorageBuilder;
 import org.apache.commons.lang.LocaleUtils;
 import org.bukkit.configuration.Configuration;
 import org.bukkit.configuration.ConfigurationSection;
@@ -125,6 +127,11 @@ public class BukkitSettings implements Settings {
     return config.getBoolean("settings.showTeleportEffect");
   }
 
+  @Override
+  public int getTeleportTickBudget() {
+    return Math.max(1, config.getInt("settings.teleportTickBudget"));
+  }
+
   @Override
   public boolean isCaseSensitiveWarpNames() {
     return config.getBoolean("settings.caseSensitiveWarpNames");
@@ -163,6 +170,15 @@ public class BukkitSettings implements Settings {
     return config.getInt("teleportSafety.searchRadius");
   }
 
+  /**
+   * Returns whether safe locations should be cached until the blocks around them change.
+   *
+   * @return {@code true} if safe locations should be cached
+   */
+  public boolean isSafetyCacheEnabled() {
+    return config.getBoolean("teleportSafety.cache.enabled");
+  }
+
   @Override
   public boolean isWarpSignsEnabled() {
     return config.getBoolean("warpSigns.enabled");
@@ -333,6 +349,83 @@ public class BukkitSettings implements Settings {
     return JdbcConfiguration.fromConfig(config.getConfigurationSection("storage"));
   }
 
+  @Override
+  public WarpStorageBuilder.Backend getStorageBackend() {
+    String backend = config.getString("storage.backend");
+    try {
+      return WarpStorageBuilder.Backend.valueOf(backend.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException | NullPointerException e) {
+      log.warn("Unknown backend '{}' for 'storage.backend'. Using 'sql' instead.", backend);
+      return WarpStorageBuilder.Backend.SQL;
+    }
+  }
+
+  @Override
+  public boolean isStorageSnapshotEnabled() {
+    return config.getBoolean("storage.snapshot.enabled");
+  }
+
+  @Override
+  public boolean isStorageCacheEnabled() {
+    return config.getBoolean("storage.cache.enabled");
+  }
+
+  @Override
+  public int getStorageCacheCapacity() {
+    return Math.max(1, config.getInt("storage.cache.capacity"));
+  }
+
+  /**
+   * Gets the interval in minutes in which the snapshot of all warps is written.
+   *
+   * @return the snapshot interval in minutes
+   */
+  public int getStorageSnapshotInterval() {
+    return config.getInt("storage.snapshot.interval");
+  }
+
+  /**
+   * Returns whether warps should be synchronized with changes made by other servers that share the same database.
+   *
+   * @return {@code true} if synchronization is enabled
+   */
+  public boolean isStorageSyncEnabled() {
+    return config.getBoolean("storage.sync.enabled");
+  }
+
+  /**
+   * Gets the interval in seconds in which warps are synchronized with changes made by other servers.
+   *
+   * @return the synchronization interval in seconds
+   */
+  public int getStorageSyncInterval() {
+    return config.getInt("storage.sync.interval");
+  }
+
+  /**
+   * Gets the maximum number of queued database queries.
+   *
+   * @return the capacity of the query queue
+   */
+  public int getStorageQueueCapacity() {
+    return Math.max(1, config.getInt("storage.queue.capacity"));
+  }
+
+  /**
+   * Gets the policy that is applied when the queue of database queries is full.
+   *
+   * @return the overflow policy
+   */
+  public SqlWorkQueue.OverflowPolicy getStorageQueueOverflowPolicy() {
+    String policy = config.getString("storage.queue.overflowPolicy");
+    try {
+      return SqlWorkQueue.OverflowPolicy.valueOf(policy.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException | NullPointerException e) {
+      log.warn("Unknown policy '{}' for 'storage.queue.overflowPolicy'. Using 'spill' instead.", policy);
+      return SqlWorkQueue.OverflowPolicy.SPILL;
+    }
+  }
+
   @Override
   public boolean isInformPlayerOnInvitation() {
     return config.getBoolean("settings.informPlayersOnInvitation");
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.bukkit.util;
+
+import com.flowpowered.math.vector.Vector3d;
+import com.flowpowered.math.vector.Vector3i;
+import io.github.mywarp.mywarp.bukkit.BukkitAdapter;
+import io.github.mywarp.mywarp.bukkit.util.versionsupport.ChunkLoader;
+import io.github.mywarp.mywarp.bukkit.util.versionsupport.VersionSupport;
+import io.github.mywarp.mywarp.platform.LocalWorld;
+import io.github.mywarp.mywarp.platform.capability.ChunkPreloadCapability;
+import io.github.mywarp.mywarp.util.MyWarpLogger;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Loads the chunks around a position via the best {@link ChunkLoader} available on the running server.
+ *
+ * <p>On servers that support asynchronous chunk loading, chunks are loaded without blocking the main thread. If loading
+ * takes longer than the timeout, the returned future completes anyway, so that callers can fall back to loading the
+ * chunks synchronously.</p>
+ */
+public class BukkitChunkPreloadCapability implements ChunkPreloadCapability {
+
+  private static final Logger log = MyWarpLogger.getLogger(BukkitChunkPreloadCapability.class);
+
+  private static final long TIMEOUT_TICKS = 5 * 20;
+
+  private final Plugin plugin;
+  private final int radius;
+  private final ChunkLoader chunkLoader = VersionSupport.getChunkLoader();
+
+  /**
+   * Creates an instance that loads all chunks within the given horizontal {@code radius} around a position.
+   *
+   * @param plugin the plugin that schedules the timeout
+   * @param radius the radius in blocks
+   */
+  public BukkitChunkPreloadCapability(Plugin plugin, int radius) {
+    this.plugin = plugin;
+    this.radius = radius;
+  }
+
+  @Override
+  public CompletableFuture<Void> preload(LocalWorld world, Vector3d position) {
+    World bukkitWorld = BukkitAdapter.adapt(world);
+    Vector3i center = position.toInt();
+
+    List<CompletableFuture<Void>> chunks = new ArrayList<>();
+    for (int chunkX = (center.getX() - radius) >> 4; chunkX <= (center.getX() + radius) >> 4; chunkX++) {
+      for (int chunkZ = (center.getZ() - radius) >> 4; chunkZ <= (center.getZ() + radius) >> 4; chunkZ++) {
+        CompletableFuture<Void> chunk = chunkLoader.load(bukkitWorld, chunkX, chunkZ);
+        if (!chunk.isDone()) {
+          chunks.add(chunk);
+        }
+      }
+    }
+    if (chunks.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    CompletableFuture<Void> ret = new CompletableFuture<>();
+    BukkitTask timeout = plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
+      if (ret.complete(null)) {
+        log.debug("Loading the chunks around {} timed out.", position);
+      }
+    }, TIMEOUT_TICKS);
+
+    CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0])).whenComplete((v, ex) -> {
+      if (ex != null) {
+        log.debug(String.format("Failed to load the chunks around %s.", position), ex);
+      }
+      timeout.cancel();
+      // the future must complete on the main thread
+      if (plugin.getServer().isPrimaryThread()) {
+        ret.complete(null);
+      } else {
+        plugin.getServer().getScheduler().runTask(plugin, () -> ret.complete(null));
+      }
+    });
+    return ret;
+  }
+}
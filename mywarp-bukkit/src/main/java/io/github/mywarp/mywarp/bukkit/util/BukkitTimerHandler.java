@@ -19,31 +19,66 @@
 
 package io.github.mywarp.mywarp.bukkit.util;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
+import com.flowpowered.math.vector.Vector3d;
 import io.github.mywarp.mywarp.bukkit.MyWarpPlugin;
+import io.github.mywarp.mywarp.platform.LocalPlayer;
 import io.github.mywarp.mywarp.platform.capability.TimerCapability;
 import io.github.mywarp.mywarp.service.teleport.timer.AbortableTimerAction;
 import io.github.mywarp.mywarp.service.teleport.timer.TimerAction;
 import io.github.mywarp.mywarp.util.McUtil;
-import org.bukkit.scheduler.BukkitRunnable;
+import io.github.mywarp.mywarp.util.MyWarpLogger;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.event.vehicle.VehicleMoveEvent;
+import org.bukkit.scheduler.BukkitTask;
+import org.slf4j.Logger;
 
 import javax.annotation.Nullable;
 import java.time.Duration;
-import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
 /**
  * Handles timers on Bukkit.
+ *
+ * <p>All timers are kept in a single hashed timing wheel that is advanced by one repeating task per tick. Each tick,
+ * the timers of the current slot whose deadline has passed are executed. Deadlines are stored as tick numbers, so the
+ * remaining time of a timer is computed without allocations.</p>
+ *
+ * <p>{@link AbortableTimerAction}s are not polled. Instead, they are indexed by their subject and checked when the
+ * player with the subject's unique identifier moves to another block, alone or as a passenger of a vehicle, is
+ * teleported or takes damage. This handler must be registered as a Listener to do so.</p>
+ *
+ * <p>This class is not thread-safe, all methods must be called on the server's main thread.</p>
  */
-public class BukkitTimerHandler {
+public class BukkitTimerHandler extends AbstractListener {
+
+  private static final Logger log = MyWarpLogger.getLogger(BukkitTimerHandler.class);
+
+  private static final int WHEEL_SIZE = 1024;
+  private static final int WHEEL_MASK = WHEEL_SIZE - 1;
 
-  private final Table<Object, Class<? extends TimerAction>, SelfRunningRunnable>
-      runningTimers =
-      HashBasedTable.create();
+  // timer classes are few, so timers are grouped by class to look them up without creating a key
+  private final Map<Class<?>, Map<Object, Timer>> runningTimers = new HashMap<>();
+  // abortable timers run on the unique identifier of a player
+  private final Map<Object, Timer> abortableTimers = new HashMap<>();
+  private final Timer[] wheel = new Timer[WHEEL_SIZE];
   private final MyWarpPlugin plugin;
 
+  @Nullable
+  private BukkitTask task;
+  private long currentTick;
+  private int size;
+
   /**
    * Creates an instance.
    *
@@ -62,10 +97,18 @@ public class BukkitTimerHandler {
    * @param <T>          the type of the subject
    */
   public <T> void start(T timedSubject, Duration duration, TimerAction<T> timer) {
-    checkArgument(!has(timedSubject, timer.getClass()).isTimerRunning(),
+    checkArgument(getRemainingTicks(timedSubject, timer.getClass()) < 0,
         "A timer of the type " + timer.getClass() + " is already running for " + timedSubject);
 
-    runningTimers.put(timedSubject, timer.getClass(), new SelfRunningRunnable<T>(timer, duration));
+    boolean abortable = timer instanceof AbortableTimerAction && ((AbortableTimerAction<?>) timer).isAbortable();
+    Timer entry = new Timer(timedSubject, timer, currentTick + Math.max(1, McUtil.toTicks(duration)), abortable);
+    runningTimers.computeIfAbsent(timer.getClass(), c -> new HashMap<>()).put(timedSubject, entry);
+    link(entry);
+    size++;
+
+    if (task == null) {
+      task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1, 1);
+    }
   }
 
   /**
@@ -76,96 +119,248 @@ public class BukkitTimerHandler {
    * @return the result of the evaluation
    */
   public TimerCapability.EvaluationResult has(Object timedSubject, Class<? extends TimerAction> timerClass) {
-    SelfRunningRunnable action = runningTimers.get(timedSubject, timerClass);
-    if (action != null) {
-      return new TimerCapability.EvaluationResult(true, action.getRemainingTime(), action.runnable);
+    Timer timer = get(timedSubject, timerClass);
+    if (timer != null) {
+      return new TimerCapability.EvaluationResult(true, McUtil.fromTicks(timer.deadline - currentTick), timer.action);
     }
     return TimerCapability.EvaluationResult.noRunningTimer();
   }
 
-  private void cancel(Object timedSubject, Class<? extends TimerAction> clazz) {
-    BukkitRunnable runnable = runningTimers.remove(timedSubject, clazz);
-    if (runnable != null) {
-      runnable.cancel();
+  /**
+   * Gets the number of ticks until the timer of the given class that runs on the given subject is executed.
+   *
+   * @param timedSubject the subject to check
+   * @param timerClass   the class of the timer
+   * @return the number of remaining ticks or {@code -1} if no such timer is running
+   */
+  public long getRemainingTicks(Object timedSubject, Class<? extends TimerAction> timerClass) {
+    Timer timer = get(timedSubject, timerClass);
+    if (timer != null) {
+      return timer.deadline - currentTick;
+    }
+    return -1;
+  }
+
+  @Nullable
+  private Timer get(Object timedSubject, Class<?> timerClass) {
+    Map<Object, Timer> timers = runningTimers.get(timerClass);
+    if (timers == null) {
+      return null;
+    }
+    return timers.get(timedSubject);
+  }
+
+  private void tick() {
+    currentTick++;
+
+    Timer timer = wheel[(int) (currentTick & WHEEL_MASK)];
+    while (timer != null) {
+      // the action might start or remove timers of this slot, removed timers keep their link to the next one
+      Timer next = timer.next;
+      if (timer.deadline <= currentTick && remove(timer)) {
+        run(timer);
+      }
+      timer = next;
+    }
+
+    if (size == 0 && task != null) {
+      task.cancel();
+      task = null;
+    }
+  }
+
+  private void run(Timer timer) {
+    try {
+      timer.action.run();
+    } catch (RuntimeException e) {
+      log.error(String.format("Failed to execute the timer %s.", timer.action.getClass().getSimpleName()), e);
     }
   }
 
   /**
-   * A BukkitRunnable that starts itself after creation.
+   * Called when a player moves.
    *
-   * @param <T> the type of the instance the timer runs on
+   * @param event the event
    */
-  private class SelfRunningRunnable<T> extends BukkitRunnable {
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onPlayerMove(PlayerMoveEvent event) {
+    if (abortableTimers.isEmpty()) {
+      return;
+    }
+    // most move events only change the rotation or the position within a block
+    Location from = event.getFrom();
+    Location to = event.getTo();
+    if (to == null || (from.getBlockX() == to.getBlockX() && from.getBlockY() == to.getBlockY()
+                       && from.getBlockZ() == to.getBlockZ())) {
+      return;
+    }
+    abortOnMove(event.getPlayer(), to);
+  }
 
-    private final TimerAction<T> runnable;
-    private final Instant start;
-    private final Duration duration;
+  /**
+   * Called when a player is teleported.
+   *
+   * @param event the event
+   */
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onPlayerTeleport(PlayerTeleportEvent event) {
+    if (abortableTimers.isEmpty() || event.getTo() == null) {
+      return;
+    }
+    abortOnMove(event.getPlayer(), event.getTo());
+  }
 
-    @Nullable
-    private final BukkitRunnable abortingCheck;
-
-    /**
-     * Creates an instance. The given Runnable will be submitted for execution after the given Duration.
-     *
-     * @param runnable the Runnable
-     * @param duration the Duration
-     */
-    protected SelfRunningRunnable(TimerAction<T> runnable, Duration duration) {
-      this.runnable = runnable;
-      this.duration = duration;
-      this.start = Instant.now();
-
-      runTaskLater(plugin, McUtil.toTicks(duration));
-
-      if (runnable instanceof AbortableTimerAction) {
-        abortingCheck = new BukkitRunnable() {
-
-          @Override
-          public void run() {
-            if (((AbortableTimerAction<T>) SelfRunningRunnable.this.runnable).abort()) {
-              SelfRunningRunnable.this.cancel();
-            }
-          }
-
-        };
-        abortingCheck
-            .runTaskTimer(plugin, AbortableTimerAction.CHECK_INTERVAL_TICKS, AbortableTimerAction.CHECK_INTERVAL_TICKS);
-      } else {
-        abortingCheck = null;
+  /**
+   * Called when a vehicle moves.
+   *
+   * @param event the event
+   */
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onVehicleMove(VehicleMoveEvent event) {
+    if (abortableTimers.isEmpty()) {
+      return;
+    }
+    // the passenger API of newer versions is not available on older ones
+    @SuppressWarnings("deprecation") Entity passenger = event.getVehicle().getPassenger();
+    if (!(passenger instanceof Player)) {
+      return;
+    }
+    Location from = event.getFrom();
+    Location to = event.getTo();
+    if (from.getBlockX() == to.getBlockX() && from.getBlockY() == to.getBlockY()
+        && from.getBlockZ() == to.getBlockZ()) {
+      return;
+    }
+    abortOnMove((Player) passenger, to);
+  }
+
+  /**
+   * Called when an entity takes damage.
+   *
+   * @param event the event
+   */
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onEntityDamage(EntityDamageEvent event) {
+    if (abortableTimers.isEmpty() || !(event.getEntity() instanceof Player) || event.getFinalDamage() <= 0) {
+      return;
+    }
+    Player player = (Player) event.getEntity();
+    if (!abortableTimers.containsKey(player.getUniqueId())) {
+      return;
+    }
+    // the damage is applied after the event
+    double health = player.getHealth() - event.getFinalDamage();
+    abort(player, (action, localPlayer) -> action.abortOnDamage(localPlayer, health));
+  }
+
+  private void abortOnMove(Player player, Location to) {
+    if (!abortableTimers.containsKey(player.getUniqueId())) {
+      return;
+    }
+    Vector3d position = new Vector3d(to.getX(), to.getY(), to.getZ());
+    abort(player, (action, localPlayer) -> action.abortOnMove(localPlayer, position));
+  }
+
+  private void abort(Player player, BiPredicate<AbortableTimerAction<?>, LocalPlayer> check) {
+    Timer timer = abortableTimers.get(player.getUniqueId());
+    if (timer == null) {
+      return;
+    }
+    LocalPlayer localPlayer = plugin.wrap(player);
+    while (timer != null) {
+      Timer next = timer.nextAbortable;
+      if (abort(timer, localPlayer, check)) {
+        remove(timer);
       }
+      timer = next;
     }
+  }
 
-    /**
-     * Gets the time remaining until this Runnable is executed.
-     *
-     * <p> The returned Duration might not be entirely exact, since Minecraft's internal clock may run faster or slower
-     * than real-world time. </p>
-     *
-     * @return the time remaining
-     */
-    protected Duration getRemainingTime() {
-      return Duration.between(Instant.now(), start.plus(duration));
+  private boolean abort(Timer timer, LocalPlayer player, BiPredicate<AbortableTimerAction<?>, LocalPlayer> check) {
+    try {
+      return check.test((AbortableTimerAction<?>) timer.action, player);
+    } catch (RuntimeException e) {
+      log.error(String.format("Failed to check the timer %s.", timer.action.getClass().getSimpleName()), e);
+      return true;
     }
+  }
 
-    @Override
-    public void run() {
-      BukkitTimerHandler.this.cancel(runnable.getTimedSuject(), runnable.getClass());
-      cancelAbortingCheck();
-      runnable.run();
+  private void link(Timer timer) {
+    int slot = (int) (timer.deadline & WHEEL_MASK);
+    timer.next = wheel[slot];
+    if (timer.next != null) {
+      timer.next.prev = timer;
     }
+    wheel[slot] = timer;
 
-    @Override
-    public void cancel() {
-      BukkitTimerHandler.this.cancel(runnable.getTimedSuject(), runnable.getClass());
-      cancelAbortingCheck();
-      super.cancel();
+    if (timer.abortable) {
+      timer.nextAbortable = abortableTimers.put(timer.subject, timer);
+      if (timer.nextAbortable != null) {
+        timer.nextAbortable.prevAbortable = timer;
+      }
     }
+  }
 
-    private void cancelAbortingCheck() {
-      if (abortingCheck != null) {
-        abortingCheck.cancel();
+  /**
+   * Removes the given {@code timer}, returning whether it was still registered.
+   */
+  private boolean remove(Timer timer) {
+    Map<Object, Timer> timers = runningTimers.get(timer.action.getClass());
+    if (timers == null || timers.get(timer.subject) != timer) {
+      return false;
+    }
+    timers.remove(timer.subject);
+    size--;
+
+    if (timer.prev != null) {
+      timer.prev.next = timer.next;
+    } else {
+      wheel[(int) (timer.deadline & WHEEL_MASK)] = timer.next;
+    }
+    if (timer.next != null) {
+      timer.next.prev = timer.prev;
+    }
+
+    if (timer.abortable) {
+      if (timer.prevAbortable != null) {
+        timer.prevAbortable.nextAbortable = timer.nextAbortable;
+      } else if (timer.nextAbortable != null) {
+        abortableTimers.put(timer.subject, timer.nextAbortable);
+      } else {
+        abortableTimers.remove(timer.subject);
+      }
+      if (timer.nextAbortable != null) {
+        timer.nextAbortable.prevAbortable = timer.prevAbortable;
       }
     }
+    return true;
+  }
 
+  /**
+   * A running timer, linked into its slot of the wheel and, if abortable, into the list of abortable timers of its
+   * subject.
+   */
+  private static final class Timer {
+
+    private final Object subject;
+    private final TimerAction<?> action;
+    private final long deadline;
+    private final boolean abortable;
+
+    @Nullable
+    private Timer prev;
+    @Nullable
+    private Timer next;
+    @Nullable
+    private Timer prevAbortable;
+    @Nullable
+    private Timer nextAbortable;
+
+    Timer(Object subject, TimerAction<?> action, long deadline, boolean abortable) {
+      this.subject = subject;
+      this.action = action;
+      this.deadline = deadline;
+      this.abortable = abortable;
+    }
   }
 }
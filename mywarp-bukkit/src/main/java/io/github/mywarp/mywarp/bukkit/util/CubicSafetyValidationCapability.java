@@ -20,174 +20,341 @@
 package io.github.mywarp.mywarp.bukkit.util;
 
 import com.flowpowered.math.vector.Vector3d;
+import com.flowpowered.math.vector.Vector3i;
+import io.github.mywarp.mywarp.bukkit.BukkitAdapter;
 import io.github.mywarp.mywarp.bukkit.util.material.MaterialInfo;
-import io.github.mywarp.mywarp.bukkit.util.material.MaterialUtil;
+import io.github.mywarp.mywarp.bukkit.util.material.MaterialSnapshot;
+import io.github.mywarp.mywarp.bukkit.util.versionsupport.ChunkLoader;
+import io.github.mywarp.mywarp.bukkit.util.versionsupport.ChunkMaterialReader;
+import io.github.mywarp.mywarp.bukkit.util.versionsupport.VersionSupport;
 import io.github.mywarp.mywarp.platform.LocalWorld;
 import io.github.mywarp.mywarp.platform.capability.PositionValidationCapability;
+import org.bukkit.Material;
+import org.bukkit.World;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Searches for positions that are safe for a normal entity within a cube surrounding a given center position.
+ *
+ * <p>If the center itself is safe and its chunk is loaded, it is returned immediately after reading three blocks.
+ * Otherwise, the chunks around the center are loaded via the best {@link ChunkLoader} available on the running server.
+ * Once they are loaded, they are captured as chunk snapshots on the server's main thread, or block by block on servers
+ * that cannot read Materials from chunk snapshots. The search itself runs on the given Executor. Searches work on
+ * integer offsets from the center block and read each column of blocks only once, so that no objects are allocated
+ * per probed position.</p>
  */
 public class CubicSafetyValidationCapability implements PositionValidationCapability {
 
   private final int searchRadius;
   private final MaterialInfo materialInfo;
+  private final Executor gameExecutor;
+  private final Executor executor;
+  private final ChunkLoader chunkLoader = VersionSupport.getChunkLoader();
+  private final Optional<ChunkMaterialReader> chunkMaterialReader = VersionSupport.getChunkMaterialReader();
+  private final ThreadLocal<Search> searches = ThreadLocal.withInitial(Search::new);
 
   /**
    * Creates an instance that searches for safe positions within the given radius.
    *
    * @param searchRadius the radius within safe positions are searched
    * @param materialInfo the MaterialInfo instance used to classify blocks as safe or unsafe
+   * @param gameExecutor the Executor that runs tasks on the server's main thread
+   * @param executor     the Executor that runs searches
    */
-  public CubicSafetyValidationCapability(int searchRadius, MaterialInfo materialInfo) {
+  public CubicSafetyValidationCapability(int searchRadius, MaterialInfo materialInfo, Executor gameExecutor,
+      Executor executor) {
     this.searchRadius = searchRadius;
     this.materialInfo = materialInfo;
+    this.gameExecutor = gameExecutor;
+    this.executor = executor;
   }
 
   @Override
-  public Optional<Vector3d> getValidPosition(Vector3d originalPosition, LocalWorld world) {
-    if (isSafe(world, originalPosition)) {
-      return Optional.of(originalPosition);
+  public CompletableFuture<Optional<Vector3d>> getValidPosition(Vector3d originalPosition, LocalWorld world) {
+    World bukkitWorld = BukkitAdapter.adapt(world);
+    Vector3i center = originalPosition.toInt();
+    if (bukkitWorld.isChunkLoaded(center.getX() >> 4, center.getZ() >> 4)
+        && isSafe(MaterialSnapshot.capture(bukkitWorld, center.sub(0, 1, 0), center.add(0, 1, 0)), center)) {
+      return CompletableFuture.completedFuture(Optional.of(originalPosition));
     }
-    Optional<Vector3d> safePosition; // never modify the given location!
 
-    for (int i = 2; i <= searchRadius; i++) {
-      safePosition = checkCubeSurface(world, originalPosition, i);
-      if (safePosition.isPresent()) {
-        return safePosition;
-      }
+    // the search reads the block below and the block above every candidate
+    int extent = Math.max(searchRadius, 1) - 1;
+    Vector3i min = center.sub(extent, extent + 1, extent);
+    Vector3i max = center.add(extent, extent + 1, extent);
+
+    CompletableFuture<Void> loaded = load(bukkitWorld, min, max);
+    if (loaded.isDone()) {
+      MaterialSnapshot snapshot = capture(bukkitWorld, min, max);
+      return CompletableFuture.supplyAsync(() -> getValidPosition(originalPosition, snapshot), executor);
+    }
+    // if loading fails, the remaining chunks are loaded synchronously when the blocks are captured
+    return loaded.handleAsync((v, ex) -> capture(bukkitWorld, min, max), gameExecutor)
+        .thenApplyAsync(snapshot -> getValidPosition(originalPosition, snapshot), executor);
+  }
+
+  /**
+   * Returns whether the given position is safe, judging by the blocks at, below and above it within the given
+   * snapshot. This matches the test the search applies to each candidate.
+   */
+  private boolean isSafe(MaterialSnapshot snapshot, Vector3i position) {
+    Material below = snapshot.getMaterial(position.getX(), position.getY() - 1, position.getZ());
+    Material above = snapshot.getMaterial(position.getX(), position.getY() + 1, position.getZ());
+    return materialInfo.safeToStandOn(below) && !materialInfo.dangerousToStandWithin(snapshot.getMaterial(position))
+           && !materialInfo.dangerousToStandWithin(above);
+  }
+
+  private MaterialSnapshot capture(World world, Vector3i min, Vector3i max) {
+    if (chunkMaterialReader.isPresent()) {
+      return MaterialSnapshot.capture(world, min, max, chunkMaterialReader.get());
     }
-    return Optional.empty();
+    return MaterialSnapshot.capture(world, min, max);
   }
 
   /**
-   * Gets an Optional containing the first safe position from the cube surface of the given half-edge-length centered at
-   * the given position in the given world, if such a position exits.
+   * Loads all chunks that contain blocks within the cuboid between the given positions.
    *
-   * @param world          the world where the position is placed it
-   * @param center         the central position vector
-   * @param halfEdgeLength half of the effective edge length, including the block in the center
-   * @return the first safe location found, or {@code Optional#absent()} if none could be found
+   * @param world the world
+   * @param min   the minimum corner of the cuboid
+   * @param max   the maximum corner of the cuboid
+   * @return a future that completes once all chunks are loaded
    */
-  private Optional<Vector3d> checkCubeSurface(LocalWorld world, Vector3d center, int halfEdgeLength) {
-    Optional<Vector3d> safePosition;
-
-    int diameter = getEdgeLength(halfEdgeLength);
-    for (int i = 0; i < diameter; i++) {
-      // makes the location 'swing' up/down (+1, -2, +3, -4...)
-      center = center.add(0, i % 2 == 0 ? -i : i, 0);
-      if (i < diameter - 2) {
-        // if we are more than 2 steps away from the ending, we are in
-        // the "middle" of the cube and only need to check the outline
-        safePosition = checkHorizontalSquareOutline(world, center, halfEdgeLength);
-      } else {
-        // check bottom and top areas
-        safePosition = checkHorizontalSquare(world, center, halfEdgeLength);
-      }
-      if (safePosition.isPresent()) {
-        return safePosition;
+  private CompletableFuture<Void> load(World world, Vector3i min, Vector3i max) {
+    List<CompletableFuture<Void>> chunks = new ArrayList<>();
+    for (int chunkX = min.getX() >> 4; chunkX <= max.getX() >> 4; chunkX++) {
+      for (int chunkZ = min.getZ() >> 4; chunkZ <= max.getZ() >> 4; chunkZ++) {
+        CompletableFuture<Void> chunk = chunkLoader.load(world, chunkX, chunkZ);
+        if (!chunk.isDone()) {
+          chunks.add(chunk);
+        }
       }
     }
-    return Optional.empty();
+    if (chunks.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0]));
   }
 
   /**
-   * Gets an Optional with the first safe position from a horizontal square with the given half-edge-length centered at
-   * the given position in the given world, if such a position exits.
+   * Returns an Optional containing the first safe position starting from the given {@code originalPosition} within the
+   * given {@code snapshot} or {@code Optional.absent()} if no such position exists.
    *
-   * @param world          the world where the position is placed it
-   * @param center         the central position vector
-   * @param halfEdgeLength half of the effective edge length, including the block in the center
-   * @return the first safe position, or {@code Optional#absent()} if none could be found
+   * <p>The snapshot must contain all blocks within the search radius plus the block below and above. This method is
+   * package-private for testing only.</p>
+   *
+   * @param originalPosition the original position
+   * @param snapshot         the snapshot of the blocks around the original position
+   * @return the first safe position
    */
-  private Optional<Vector3d> checkHorizontalSquare(LocalWorld world, Vector3d center, int halfEdgeLength) {
-    if (isSafe(world, center)) {
-      return Optional.of(center);
-    }
-    Optional<Vector3d> checkPosition;
-
-    // loop through surrounding blocks, starting with a half-edge-length of
-    // 2 (1 would just be the central block)
-    for (int i = 2; i <= halfEdgeLength; i++) {
-      checkPosition = checkHorizontalSquareOutline(world, center, i);
-      if (checkPosition.isPresent()) {
-        return checkPosition;
+  Optional<Vector3d> getValidPosition(Vector3d originalPosition, MaterialSnapshot snapshot) {
+    Search search = searches.get();
+    try {
+      if (search.find(snapshot, originalPosition.toInt())) {
+        // never modify the given location!
+        return Optional.of(originalPosition.add(search.foundX, search.foundY, search.foundZ));
       }
+      return Optional.empty();
+    } finally {
+      search.snapshot = null;
     }
-    return Optional.empty();
   }
 
   /**
-   * Gets an Optional with the first safe position from the outline of horizontal square with the given half-edge-length
-   * centered at the given position in the given world, if such a position exits.
+   * Gets the edge length of a square with the given half-edge-length. The later is expected to include the block at the
+   * center, e.g. the half-edge-length '2' would result in a edge-length of '3'.
    *
-   * @param world          the world where the position is placed it
-   * @param center         the central position vector
    * @param halfEdgeLength half of the effective edge length, including the block in the center
-   * @return the first safe position, or {@code Optional#absent()} if none could be found
+   * @return the edge length
    */
-  private Optional<Vector3d> checkHorizontalSquareOutline(LocalWorld world, Vector3d center, int halfEdgeLength) {
-    int blockSteps = getEdgeLength(halfEdgeLength) - 1;
-    Vector3d checkPosition = center.add(halfEdgeLength - 1, 0, halfEdgeLength - 1);
-
-    for (int i = 0; i < blockSteps; i++) {
-      checkPosition = checkPosition.add(-1, 0, 0);
-      if (isSafe(world, checkPosition)) {
-        return Optional.of(checkPosition);
+  private static int getEdgeLength(int halfEdgeLength) {
+    return (halfEdgeLength - 1) * 2 + 1;
+  }
+
+  /**
+   * A reusable search for safe positions around a center block. All positions are handled as integer offsets from the
+   * center block.
+   *
+   * <p>Each column of blocks within the search volume is read once, when it is probed for the first time. The
+   * safety of all candidates within a column is then evaluated with a single pass over the column: a candidate is safe
+   * if the block below is safe to stand on and neither the candidate's block nor the block above are dangerous to
+   * stand within.</p>
+   *
+   * <p>Instances are not thread-safe and are kept per thread.</p>
+   */
+  private final class Search {
+
+    /**
+     * The maximal offset of a candidate from the center in each direction.
+     */
+    private final int extent = Math.max(searchRadius, 1) - 1;
+    private final int width = extent * 2 + 1;
+    private final boolean[] columnRead = new boolean[width * width];
+    private final boolean[] safe = new boolean[width * width * width];
+
+    private MaterialSnapshot snapshot;
+    private int centerX;
+    private int centerY;
+    private int centerZ;
+
+    private int foundX;
+    private int foundY;
+    private int foundZ;
+
+    /**
+     * Searches the first safe position around the given center. If this method returns {@code true}, the offset of the
+     * safe position from the center is stored in {@link #foundX}, {@link #foundY} and {@link #foundZ}.
+     *
+     * @param snapshot the snapshot that contains all blocks around the center
+     * @param center   the center block
+     * @return {@code true} if a safe position was found
+     */
+    boolean find(MaterialSnapshot snapshot, Vector3i center) {
+      this.snapshot = snapshot;
+      this.centerX = center.getX();
+      this.centerY = center.getY();
+      this.centerZ = center.getZ();
+      Arrays.fill(columnRead, false);
+
+      if (probe(0, 0, 0)) {
+        return true;
       }
+      for (int i = 2; i <= searchRadius; i++) {
+        if (checkCubeSurface(i)) {
+          return true;
+        }
+      }
+      return false;
     }
 
-    for (int i = 0; i < blockSteps; i++) {
-      checkPosition = checkPosition.add(0, 0, -1);
-      if (isSafe(world, checkPosition)) {
-        return Optional.of(checkPosition);
+    /**
+     * Probes the cube surface of the given half-edge-length, starting with the center layer and swinging up and down
+     * (+1, -2, +3, -4...).
+     *
+     * @param halfEdgeLength half of the effective edge length, including the block in the center
+     * @return {@code true} if a safe position was found
+     */
+    private boolean checkCubeSurface(int halfEdgeLength) {
+      int diameter = getEdgeLength(halfEdgeLength);
+      int offsetY = 0;
+      for (int i = 0; i < diameter; i++) {
+        offsetY += i % 2 == 0 ? -i : i;
+        // if we are more than 2 steps away from the ending, we are in
+        // the "middle" of the cube and only need to check the outline
+        boolean found =
+            i < diameter - 2 ? checkHorizontalSquareOutline(offsetY, halfEdgeLength)
+                             : checkHorizontalSquare(offsetY, halfEdgeLength);
+        if (found) {
+          return true;
+        }
       }
+      return false;
     }
 
-    for (int i = 0; i < blockSteps; i++) {
-      checkPosition = checkPosition.add(1, 0, 0);
-      if (isSafe(world, checkPosition)) {
-        return Optional.of(checkPosition);
+    /**
+     * Probes the horizontal square of the given half-edge-length on the layer with the given offset, starting with the
+     * block in the center.
+     *
+     * @param offsetY        the vertical offset of the layer
+     * @param halfEdgeLength half of the effective edge length, including the block in the center
+     * @return {@code true} if a safe position was found
+     */
+    private boolean checkHorizontalSquare(int offsetY, int halfEdgeLength) {
+      if (probe(0, offsetY, 0)) {
+        return true;
       }
-    }
-    for (int i = 0; i < blockSteps; i++) {
-      checkPosition = checkPosition.add(0, 0, 1);
-      if (isSafe(world, checkPosition)) {
-        return Optional.of(checkPosition);
+      for (int i = 2; i <= halfEdgeLength; i++) {
+        if (checkHorizontalSquareOutline(offsetY, i)) {
+          return true;
+        }
       }
+      return false;
     }
-    return Optional.empty();
-  }
 
-  /**
-   * Returns whether the given {@code position} on the given {@code world} is safe for a regular entity to be teleported
-   * to.
-   *
-   * @param world    the world to check
-   * @param position the position to check
-   * @return {@code true} is the position is safe
-   */
-  private boolean isSafe(LocalWorld world, Vector3d position) {
-    if (MaterialUtil.test(world, position.add(0, 1, 0).toInt(), materialInfo::dangerousToStandWithin)) {
+    /**
+     * Probes the outline of the horizontal square of the given half-edge-length on the layer with the given offset.
+     *
+     * @param offsetY        the vertical offset of the layer
+     * @param halfEdgeLength half of the effective edge length, including the block in the center
+     * @return {@code true} if a safe position was found
+     */
+    private boolean checkHorizontalSquareOutline(int offsetY, int halfEdgeLength) {
+      int blockSteps = getEdgeLength(halfEdgeLength) - 1;
+      int offsetX = halfEdgeLength - 1;
+      int offsetZ = halfEdgeLength - 1;
+
+      for (int i = 0; i < blockSteps; i++) {
+        if (probe(--offsetX, offsetY, offsetZ)) {
+          return true;
+        }
+      }
+      for (int i = 0; i < blockSteps; i++) {
+        if (probe(offsetX, offsetY, --offsetZ)) {
+          return true;
+        }
+      }
+      for (int i = 0; i < blockSteps; i++) {
+        if (probe(++offsetX, offsetY, offsetZ)) {
+          return true;
+        }
+      }
+      for (int i = 0; i < blockSteps; i++) {
+        if (probe(offsetX, offsetY, ++offsetZ)) {
+          return true;
+        }
+      }
       return false;
     }
-    if (MaterialUtil.test(world, position.toInt(), materialInfo::dangerousToStandWithin)) {
-      return false;
+
+    /**
+     * Returns whether the candidate at the given offset is safe and stores the offset if it is.
+     */
+    private boolean probe(int offsetX, int offsetY, int offsetZ) {
+      int column = (offsetX + extent) * width + offsetZ + extent;
+      if (!columnRead[column]) {
+        readColumn(column, offsetX, offsetZ);
+      }
+      if (!safe[column * width + offsetY + extent]) {
+        return false;
+      }
+      foundX = offsetX;
+      foundY = offsetY;
+      foundZ = offsetZ;
+      return true;
     }
-    return MaterialUtil.test(world, position.sub(0, 1, 0).toInt(), materialInfo::safeToStandOn);
-  }
 
-  /**
-   * Gets the edge length of a square with the given half-edge-length. The later is expected to include the block at the
-   * center, e.g. the half-edge-length '2' would result in a edge-length of '3'.
-   *
-   * @param halfEdgeLength half of the effective edge length, including the block in the center
-   * @return the edge length
-   */
-  private int getEdgeLength(int halfEdgeLength) {
-    return (halfEdgeLength - 1) * 2 + 1;
-  }
+    /**
+     * Reads the column with the given offset from bottom to top and evaluates the safety of all candidates within it.
+     */
+    private void readColumn(int column, int offsetX, int offsetZ) {
+      int x = centerX + offsetX;
+      int z = centerZ + offsetZ;
+      int bottom = centerY - extent - 1;
+
+      // the window covers the two blocks below the current one
+      boolean safeToStandOnTwoBelow = false;
+      boolean safeToStandOnOneBelow = false;
+      boolean dangerousOneBelow = false;
+
+      for (int y = bottom; y <= centerY + extent + 1; y++) {
+        Material material = snapshot.getMaterial(x, y, z);
+        boolean dangerous = materialInfo.dangerousToStandWithin(material);
 
+        if (y >= bottom + 2) {
+          // the candidate is the block below the current one
+          safe[column * width + y - bottom - 2] = safeToStandOnTwoBelow && !dangerousOneBelow && !dangerous;
+        }
+
+        safeToStandOnTwoBelow = safeToStandOnOneBelow;
+        safeToStandOnOneBelow = materialInfo.safeToStandOn(material);
+        dangerousOneBelow = dangerous;
+      }
+      columnRead[column] = true;
+    }
+  }
 }
@@ -0,0 +1,578 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.bukkit.util;
+
+import com.flowpowered.math.vector.Vector3d;
+import com.flowpowered.math.vector.Vector3i;
+import com.google.common.eventbus.Subscribe;
+import io.github.mywarp.mywarp.bukkit.BukkitAdapter;
+import io.github.mywarp.mywarp.platform.LocalWorld;
+import io.github.mywarp.mywarp.platform.capability.PositionValidationCapability;
+import io.github.mywarp.mywarp.warp.Warp;
+import io.github.mywarp.mywarp.warp.event.WarpAdditionEvent;
+import io.github.mywarp.mywarp.warp.event.WarpBulkAdditionEvent;
+import io.github.mywarp.mywarp.warp.event.WarpBulkDeletionEvent;
+import io.github.mywarp.mywarp.warp.event.WarpDeletionEvent;
+import io.github.mywarp.mywarp.warp.event.WarpUpdateEvent;
+import io.github.mywarp.mywarp.warp.storage.WarpQuery;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFadeEvent;
+import org.bukkit.event.block.BlockFormEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockIgniteEvent;
+import org.bukkit.event.block.BlockPhysicsEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.block.BlockSpreadEvent;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.codehaus.mojo.animal_sniffer.IgnoreJRERequirement;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the valid positions found by another {@link PositionValidationCapability}.
+ *
+ * <p>Results are cached per world and position. A result is invalidated once a block within the volume the search
+ * might have read is changed by any of the block changes Bukkit reports, e.g. by players, physics, explosions, fire,
+ * flowing liquids, pistons or entities. As other plugins, e.g. WorldEdit, may change blocks without any event,
+ * results also expire after {@link #ENTRY_TTL_MINUTES} minutes. Valid positions of warps are computed in the background
+ * when warps are added or moved and, for the most visited warps, when warps are loaded, so that teleports to popular
+ * warps usually hit the cache. Warps whose surroundings are not loaded are skipped, they are computed on the first
+ * teleport instead.</p>
+ *
+ * <p>Instances must only be used on the server's main thread. Listeners for MyWarp's events must be registered on
+ * MyWarp's EventBus separately.</p>
+ */
+public class SafePositionCache extends AbstractListener implements PositionValidationCapability {
+
+  /**
+   * The maximum number of warps whose valid positions are queued for precomputation. Further warps are computed on
+   * their first teleport.
+   */
+  public static final int PRECOMPUTED_WARPS = 128;
+
+  private static final int MAX_ENTRIES = 4096;
+  private static final long ENTRY_TTL_MINUTES = 2;
+  private static final int PRECOMPUTATIONS_PER_TICK = 10;
+
+  private final PositionValidationCapability delegate;
+  private final int searchRadius;
+  private final Plugin plugin;
+  private final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+      if (size() <= MAX_ENTRIES) {
+        return false;
+      }
+      unindex(eldest.getValue());
+      return true;
+    }
+  };
+  private final Map<UUID, Map<Long, Set<Entry>>> index = new HashMap<>();
+  private final Queue<Warp> pending = new ArrayDeque<>();
+
+  @Nullable
+  private BukkitTask precomputationTask;
+
+  /**
+   * Creates an instance that caches the results of the given {@code delegate}.
+   *
+   * @param delegate     the capability that searches valid positions
+   * @param searchRadius the radius within the delegate searches valid positions
+   * @param plugin       the plugin that schedules background computations
+   */
+  public SafePositionCache(PositionValidationCapability delegate, int searchRadius, Plugin plugin) {
+    this.delegate = delegate;
+    this.searchRadius = searchRadius;
+    this.plugin = plugin;
+  }
+
+  @Override
+  public CompletableFuture<Optional<Vector3d>> getValidPosition(Vector3d originalPosition, LocalWorld world) {
+    Key key = new Key(world.getUniqueId(), originalPosition);
+    Entry entry = entries.get(key);
+
+    if (entry != null && (entry.result.isCompletedExceptionally() || entry.isExpired())) {
+      remove(entry);
+      entry = null;
+    }
+    if (entry == null) {
+      entry = new Entry(key, delegate.getValidPosition(originalPosition, world));
+      entries.put(key, entry);
+      index(entry);
+    }
+    return entry.result;
+  }
+
+  /**
+   * Called when a Warp is added.
+   *
+   * @param event the event
+   * @deprecated will be privatized once support for old Guava versions is removed
+   */
+  @Deprecated
+  @Subscribe
+  public void onWarpAddition(WarpAdditionEvent event) {
+    precompute(event.getWarp());
+  }
+
+  /**
+   * Called when several Warps are added at once.
+   *
+   * @param event the event
+   * @deprecated will be privatized once support for old Guava versions is removed
+   */
+  @Deprecated
+  @Subscribe
+  public void onWarpBulkAddition(WarpBulkAdditionEvent event) {
+    precompute(event.getWarps());
+  }
+
+  /**
+   * Called when a Warp is updated.
+   *
+   * @param event the event
+   * @deprecated will be privatized once support for old Guava versions is removed
+   */
+  @Deprecated
+  @Subscribe
+  public void onWarpUpdate(WarpUpdateEvent event) {
+    if (event.getType() == WarpUpdateEvent.UpdateType.LOCATION) {
+      precompute(event.getWarp());
+    }
+  }
+
+  /**
+   * Called when a Warp is deleted.
+   *
+   * @param event the event
+   * @deprecated will be privatized once support for old Guava versions is removed
+   */
+  @Deprecated
+  @Subscribe
+  public void onWarpDeletion(WarpDeletionEvent event) {
+    forget(event.getWarp());
+  }
+
+  /**
+   * Called when several Warps are deleted at once.
+   *
+   * @param event the event
+   * @deprecated will be privatized once support for old Guava versions is removed
+   */
+  @Deprecated
+  @Subscribe
+  public void onWarpBulkDeletion(WarpBulkDeletionEvent event) {
+    event.getWarps().forEach(this::forget);
+  }
+
+  /**
+   * Called when a block is placed.
+   *
+   * @param event the event
+   */
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onBlockPlace(BlockPlaceEvent event) {
+    invalidate(event.getBlock());
+  }
+
+  /**
+   * Called when a block is broken.
+   *
+   * @param event the event
+   */
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onBlockBreak(BlockBreakEvent event) {
+    invalidate(event.getBlock());
+  }
+
+  /**
+   * Called when a block is changed by physics.
+   *
+   * @param event the event
+   */
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onBlockPhysics(BlockPhysicsEvent event) {
+    invalidate(event.getBlock());
+  }
+
+  /**
+   * Called when an entity explodes.
+   *
+   * @param event the event
+   */
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onEntityExplode(EntityExplodeEvent event) {
+    event.blockList().forEach(this::invalidate);
+  }
+
+  /**
+   * Called when an entity changes a block, e.g. when sand falls or an enderman picks up a block.
+   *
+   * @param event the event
+   */
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onEntityChangeBlock(EntityChangeBlockEvent event) {
+    invalidate(event.getBlock());
+  }
+
+  /**
+   * Called when a liquid flows into a block.
+   *
+   * @param event the event
+   */
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onBlockFromTo(BlockFromToEvent event) {
+    invalidate(event.getToBlock());
+  }
+
+  /**
+   * Called when a block is set on fire.
+   *
+   * @param event the event
+   */
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onBlockIgnite(BlockIgniteEvent event) {
+    invalidate(event.getBlock());
+  }
+
+  /**
+   * Called when a block is destroyed by fire.
+   *
+   * @param event the event
+   */
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onBlockBurn(BlockBurnEvent event) {
+    invalidate(event.getBlock());
+  }
+
+  /**
+   * Called when a block spreads, e.g. fire.
+   *
+   * @param event the event
+   */
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onBlockSpread(BlockSpreadEvent event) {
+    invalidate(event.getBlock());
+  }
+
+  /**
+   * Called when a block forms, e.g. ice or snow.
+   *
+   * @param event the event
+   */
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onBlockForm(BlockFormEvent event) {
+    invalidate(event.getBlock());
+  }
+
+  /**
+   * Called when a block fades, e.g. melting ice or burnt out fire.
+   *
+   * @param event the event
+   */
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onBlockFade(BlockFadeEvent event) {
+    invalidate(event.getBlock());
+  }
+
+  /**
+   * Called when a piston extends.
+   *
+   * @param event the event
+   */
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onBlockPistonExtend(BlockPistonExtendEvent event) {
+    invalidate(event.getBlock().getRelative(event.getDirection()));
+    for (Block block : event.getBlocks()) {
+      invalidate(block);
+      invalidate(block.getRelative(event.getDirection()));
+    }
+  }
+
+  /**
+   * Called when a piston retracts.
+   *
+   * @param event the event
+   */
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onBlockPistonRetract(BlockPistonRetractEvent event) {
+    // before 1.8, pistons pull at most the block in front of their head
+    for (int distance = 1; distance <= 2; distance++) {
+      invalidate(event.getBlock().getRelative(event.getDirection(), distance));
+      invalidate(event.getBlock().getRelative(event.getDirection().getOppositeFace(), distance));
+    }
+  }
+
+  @Override
+  public void registerEvents(Plugin plugin) {
+    super.registerEvents(plugin);
+    try {
+      Class.forName("org.bukkit.event.block.BlockExplodeEvent");
+    } catch (ClassNotFoundException e) {
+      // exploding blocks and pistons that move several blocks only exist since 1.8
+      return;
+    }
+    plugin.getServer().getPluginManager().registerEvents(new BlockMovementListener(), plugin);
+  }
+
+  /**
+   * Queues the valid positions of the most visited of the given warps for computation. At most {@link
+   * #PRECOMPUTED_WARPS} warps are queued at once.
+   *
+   * @param warps the warps
+   * @see #precompute(Warp)
+   */
+  public void precompute(Collection<Warp> warps) {
+    warps.stream().sorted(WarpQuery.Order.MOST_VISITED).limit(PRECOMPUTED_WARPS).forEach(this::precompute);
+  }
+
+  /**
+   * Queues the valid position of the given warp for computation. Queued warps are computed over several ticks, so
+   * that loading many warps at once does not stall the server.
+   *
+   * @param warp the warp
+   */
+  private void precompute(Warp warp) {
+    if (pending.size() >= PRECOMPUTED_WARPS) {
+      return;
+    }
+    pending.add(warp);
+    if (precomputationTask == null) {
+      precomputationTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::precomputePending, 1, 1);
+    }
+  }
+
+  private void precomputePending() {
+    for (int i = 0; i < PRECOMPUTATIONS_PER_TICK && !pending.isEmpty(); i++) {
+      Warp warp = pending.poll();
+      @Nullable World world = plugin.getServer().getWorld(warp.getWorldIdentifier());
+      if (world != null && isLoaded(world, warp.getPosition().toInt())) {
+        getValidPosition(warp.getPosition(), BukkitAdapter.adapt(world));
+      }
+    }
+    if (pending.isEmpty() && precomputationTask != null) {
+      precomputationTask.cancel();
+      precomputationTask = null;
+    }
+  }
+
+  private boolean isLoaded(World world, Vector3i center) {
+    for (int chunkX = (center.getX() - searchRadius) >> 4; chunkX <= (center.getX() + searchRadius) >> 4; chunkX++) {
+      for (int chunkZ = (center.getZ() - searchRadius) >> 4; chunkZ <= (center.getZ() + searchRadius) >> 4; chunkZ++) {
+        if (!world.isChunkLoaded(chunkX, chunkZ)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private void forget(Warp warp) {
+    Entry entry = entries.get(new Key(warp.getWorldIdentifier(), warp.getPosition()));
+    if (entry != null) {
+      remove(entry);
+    }
+  }
+
+  private void invalidate(Block block) {
+    if (entries.isEmpty()) {
+      return;
+    }
+    Map<Long, Set<Entry>> chunks = index.get(block.getWorld().getUID());
+    if (chunks == null) {
+      return;
+    }
+    Set<Entry> candidates = chunks.get(chunkKey(block.getX() >> 4, block.getZ() >> 4));
+    if (candidates == null) {
+      return;
+    }
+
+    List<Entry> invalidated = new ArrayList<>();
+    for (Entry entry : candidates) {
+      if (entry.contains(block.getX(), block.getY(), block.getZ())) {
+        invalidated.add(entry);
+      }
+    }
+    invalidated.forEach(this::remove);
+  }
+
+  private void remove(Entry entry) {
+    entries.remove(entry.key);
+    unindex(entry);
+  }
+
+  private void index(Entry entry) {
+    Map<Long, Set<Entry>> chunks = index.computeIfAbsent(entry.key.world, world -> new HashMap<>());
+    for (int chunkX = entry.minX >> 4; chunkX <= entry.maxX >> 4; chunkX++) {
+      for (int chunkZ = entry.minZ >> 4; chunkZ <= entry.maxZ >> 4; chunkZ++) {
+        chunks.computeIfAbsent(chunkKey(chunkX, chunkZ), key -> new HashSet<>()).add(entry);
+      }
+    }
+  }
+
+  private void unindex(Entry entry) {
+    Map<Long, Set<Entry>> chunks = index.get(entry.key.world);
+    if (chunks == null) {
+      return;
+    }
+    for (int chunkX = entry.minX >> 4; chunkX <= entry.maxX >> 4; chunkX++) {
+      for (int chunkZ = entry.minZ >> 4; chunkZ <= entry.maxZ >> 4; chunkZ++) {
+        long chunkKey = chunkKey(chunkX, chunkZ);
+        Set<Entry> indexed = chunks.get(chunkKey);
+        if (indexed != null && indexed.remove(entry) && indexed.isEmpty()) {
+          chunks.remove(chunkKey);
+        }
+      }
+    }
+    if (chunks.isEmpty()) {
+      index.remove(entry.key.world);
+    }
+  }
+
+  private static long chunkKey(int chunkX, int chunkZ) {
+    return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Listens for block changes that are only reported since Minecraft 1.8.
+   */
+  @IgnoreJRERequirement
+  private final class BlockMovementListener implements Listener {
+
+    /**
+     * Called when a block explodes.
+     *
+     * @param event the event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+      event.blockList().forEach(SafePositionCache.this::invalidate);
+    }
+
+    /**
+     * Called when a piston retracts.
+     *
+     * @param event the event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPistonRetract(BlockPistonRetractEvent event) {
+      for (Block block : event.getBlocks()) {
+        invalidate(block);
+        invalidate(block.getRelative(event.getDirection()));
+      }
+    }
+  }
+
+  /**
+   * Identifies a cached position.
+   */
+  private static final class Key {
+
+    private final UUID world;
+    private final Vector3d position;
+
+    Key(UUID world, Vector3d position) {
+      this.world = world;
+      this.position = position;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key that = (Key) o;
+      return world.equals(that.world) && position.equals(that.position);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(world, position);
+    }
+  }
+
+  /**
+   * A cached result together with the volume the search might have read.
+   */
+  private final class Entry {
+
+    private final Key key;
+    private final CompletableFuture<Optional<Vector3d>> result;
+    private final long created = System.nanoTime();
+    private final int minX;
+    private final int maxX;
+    private final int minY;
+    private final int maxY;
+    private final int minZ;
+    private final int maxZ;
+
+    Entry(Key key, CompletableFuture<Optional<Vector3d>> result) {
+      this.key = key;
+      this.result = result;
+
+      // the search reads one block above and below each candidate
+      Vector3i center = key.position.toInt();
+      this.minX = center.getX() - searchRadius;
+      this.maxX = center.getX() + searchRadius;
+      this.minY = center.getY() - searchRadius - 1;
+      this.maxY = center.getY() + searchRadius + 1;
+      this.minZ = center.getZ() - searchRadius;
+      this.maxZ = center.getZ() + searchRadius;
+    }
+
+    boolean isExpired() {
+      return System.nanoTime() - created > TimeUnit.MINUTES.toNanos(ENTRY_TTL_MINUTES);
+    }
+
+    boolean contains(int x, int y, int z) {
+      return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+    }
+  }
+}
@@ -76,17 +76,20 @@ import javax.annotation.Nullable;
  * </tr>
  * </table>
  * See the bundled {@code material.info.yml} for examples.</p>
+ *
+ * <p>All information is computed for every Material once the configuration is loaded and stored in a table of flags
+ * indexed by {@link Material#ordinal()}, so that each test is a single lookup.</p>
  */
 public class ConfigurableMaterialInfo implements MaterialInfo {
 
   private static final Logger log = MyWarpLogger.getLogger(ConfigurableMaterialInfo.class);
 
-  private final ImmutableSet<Material> dangerousToStandOn;
-  private final ImmutableSet<Material> safeToStandOn;
-  private final ImmutableSet<Material> dangerousToStandWithin;
-  private final ImmutableSet<Material> safeToStandWithin;
-  private final ImmutableSet<Material> clickable;
-  private final ImmutableSet<Material> triggerable;
+  private static final byte SAFE_TO_STAND_ON = 1;
+  private static final byte DANGEROUS_TO_STAND_WITHIN = 1 << 1;
+  private static final byte CLICKABLE = 1 << 2;
+  private static final byte TRIGGERABLE = 1 << 3;
+
+  private final byte[] flags;
 
   /**
    * Creates an instance using the given configuration.
@@ -94,12 +97,32 @@ public class ConfigurableMaterialInfo implements MaterialInfo {
    * @param config the configuration
    */
   public ConfigurableMaterialInfo(Configuration config) {
-    dangerousToStandOn = fromConfig("standOn.dangerous", config);
-    safeToStandOn = fromConfig("standOn.safe", config);
-    dangerousToStandWithin = fromConfig("standWithin.dangerous", config);
-    safeToStandWithin = fromConfig("standWithin.safe", config);
-    clickable = fromConfig("clickable", config);
-    triggerable = fromConfig("triggerable", config);
+    ImmutableSet<Material> dangerousToStandOn = fromConfig("standOn.dangerous", config);
+    ImmutableSet<Material> safeToStandOn = fromConfig("standOn.safe", config);
+    ImmutableSet<Material> dangerousToStandWithin = fromConfig("standWithin.dangerous", config);
+    ImmutableSet<Material> safeToStandWithin = fromConfig("standWithin.safe", config);
+    ImmutableSet<Material> clickable = fromConfig("clickable", config);
+    ImmutableSet<Material> triggerable = fromConfig("triggerable", config);
+
+    Material[] materials = Material.values();
+    flags = new byte[materials.length];
+    for (Material material : materials) {
+      byte materialFlags = 0;
+      if (!dangerousToStandOn.contains(material) && (safeToStandOn.contains(material) || material.isSolid())) {
+        materialFlags |= SAFE_TO_STAND_ON;
+      }
+      if (dangerousToStandWithin.contains(material) || (!safeToStandWithin.contains(material) && material
+          .isSolid())) {
+        materialFlags |= DANGEROUS_TO_STAND_WITHIN;
+      }
+      if (clickable.contains(material)) {
+        materialFlags |= CLICKABLE;
+      }
+      if (triggerable.contains(material)) {
+        materialFlags |= TRIGGERABLE;
+      }
+      flags[material.ordinal()] = materialFlags;
+    }
   }
 
   private static ImmutableSet<Material> fromConfig(String path, ConfigurationSection config) {
@@ -117,33 +140,21 @@ public class ConfigurableMaterialInfo implements MaterialInfo {
 
   @Override
   public boolean safeToStandOn(Material toTest) {
-    if (dangerousToStandOn.contains(toTest)) {
-      return false;
-    }
-    if (safeToStandOn.contains(toTest)) {
-      return true;
-    }
-    return toTest.isSolid();
+    return (flags[toTest.ordinal()] & SAFE_TO_STAND_ON) != 0;
   }
 
   @Override
   public boolean dangerousToStandWithin(Material toTest) {
-    if (dangerousToStandWithin.contains(toTest)) {
-      return true;
-    }
-    if (safeToStandWithin.contains(toTest)) {
-      return false;
-    }
-    return toTest.isSolid();
+    return (flags[toTest.ordinal()] & DANGEROUS_TO_STAND_WITHIN) != 0;
   }
 
   @Override
   public boolean isClickable(Material toTest) {
-    return clickable.contains(toTest);
+    return (flags[toTest.ordinal()] & CLICKABLE) != 0;
   }
 
   @Override
   public boolean isTriggerable(Material toTest) {
-    return triggerable.contains(toTest);
+    return (flags[toTest.ordinal()] & TRIGGERABLE) != 0;
   }
 }
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.bukkit.util.material;
+
+import com.flowpowered.math.vector.Vector3i;
+import io.github.mywarp.mywarp.bukkit.util.versionsupport.ChunkMaterialReader;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+import javax.annotation.Nullable;
+import java.util.function.Predicate;
+
+/**
+ * An immutable snapshot of the Materials of all blocks within a cuboid of a world.
+ *
+ * <p>Instances must be captured on the server's main thread, but can be read from any thread afterwards. Snapshots
+ * either copy the Materials of the captured blocks one by one or keep {@link ChunkSnapshot}s of all chunks that
+ * contain them, which are read once the Materials are requested.</p>
+ */
+public class MaterialSnapshot {
+
+  @Nullable
+  private final Material[] materials;
+  @Nullable
+  private final ChunkSnapshot[] chunks;
+  @Nullable
+  private final ChunkMaterialReader reader;
+  private final Vector3i min;
+  private final int sizeX;
+  private final int sizeY;
+  private final int sizeZ;
+  private final int minHeight;
+  private final int maxHeight;
+
+  private MaterialSnapshot(@Nullable Material[] materials, @Nullable ChunkSnapshot[] chunks,
+                           @Nullable ChunkMaterialReader reader, Vector3i min, int sizeX, int sizeY, int sizeZ,
+                           int minHeight, int maxHeight) {
+    this.materials = materials;
+    this.chunks = chunks;
+    this.reader = reader;
+    this.min = min;
+    this.sizeX = sizeX;
+    this.sizeY = sizeY;
+    this.sizeZ = sizeZ;
+    this.minHeight = minHeight;
+    this.maxHeight = maxHeight;
+  }
+
+  /**
+   * Captures the blocks within the cuboid between the given positions, both inclusive.
+   *
+   * <p>This method must be called on the server's main thread. Chunks should be loaded before, as chunks that are not
+   * loaded are loaded synchronously.</p>
+   *
+   * @param world the world
+   * @param min   the minimum corner of the cuboid
+   * @param max   the maximum corner of the cuboid
+   * @return the snapshot
+   */
+  public static MaterialSnapshot capture(World world, Vector3i min, Vector3i max) {
+    int sizeX = max.getX() - min.getX() + 1;
+    int sizeY = max.getY() - min.getY() + 1;
+    int sizeZ = max.getZ() - min.getZ() + 1;
+    int minHeight = minHeight(world);
+    int maxHeight = world.getMaxHeight();
+
+    Material[] materials = new Material[sizeX * sizeY * sizeZ];
+    for (int x = 0; x < sizeX; x++) {
+      for (int z = 0; z < sizeZ; z++) {
+        for (int y = 0; y < sizeY; y++) {
+          int blockY = min.getY() + y;
+          Material material = Material.AIR;
+          if (blockY >= minHeight && blockY < maxHeight) {
+            material = world.getBlockAt(min.getX() + x, blockY, min.getZ() + z).getType();
+          }
+          materials[(x * sizeZ + z) * sizeY + y] = material;
+        }
+      }
+    }
+    return new MaterialSnapshot(materials, null, null, min, sizeX, sizeY, sizeZ, minHeight, maxHeight);
+  }
+
+  /**
+   * Captures the blocks within the cuboid between the given positions, both inclusive, by taking a {@link
+   * ChunkSnapshot} of every chunk that contains some of them. The Materials are read from the snapshots via the given
+   * {@code reader} once they are requested.
+   *
+   * <p>This method must be called on the server's main thread. Chunks should be loaded before, as chunks that are not
+   * loaded are loaded synchronously.</p>
+   *
+   * @param world  the world
+   * @param min    the minimum corner of the cuboid
+   * @param max    the maximum corner of the cuboid
+   * @param reader the reader that reads Materials from the snapshots
+   * @return the snapshot
+   */
+  public static MaterialSnapshot capture(World world, Vector3i min, Vector3i max, ChunkMaterialReader reader) {
+    int chunksX = (max.getX() >> 4) - (min.getX() >> 4) + 1;
+    int chunksZ = (max.getZ() >> 4) - (min.getZ() >> 4) + 1;
+    ChunkSnapshot[] chunks = new ChunkSnapshot[chunksX * chunksZ];
+    for (int x = 0; x < chunksX; x++) {
+      for (int z = 0; z < chunksZ; z++) {
+        chunks[x * chunksZ + z] =
+            world.getChunkAt((min.getX() >> 4) + x, (min.getZ() >> 4) + z).getChunkSnapshot(false, false, false);
+      }
+    }
+    return new MaterialSnapshot(null, chunks, reader, min, max.getX() - min.getX() + 1, max.getY() - min.getY() + 1,
+                                max.getZ() - min.getZ() + 1, minHeight(world), world.getMaxHeight());
+  }
+
+  /**
+   * Gets the {@code Material} of the block at the given position. Positions above or below the world are made of air.
+   *
+   * @param position the position
+   * @return the Material of the block at the given position
+   * @throws IllegalArgumentException if the position is outside of the captured area
+   */
+  public Material getMaterial(Vector3i position) {
+    return getMaterial(position.getX(), position.getY(), position.getZ());
+  }
+
+  /**
+   * Gets the {@code Material} of the block at the given coordinates. Positions above or below the world are made of
+   * air.
+   *
+   * @param x the x coordinate
+   * @param y the y coordinate
+   * @param z the z coordinate
+   * @return the Material of the block at the given coordinates
+   * @throws IllegalArgumentException if the coordinates are outside of the captured area
+   */
+  public Material getMaterial(int x, int y, int z) {
+    if (y < minHeight || y >= maxHeight) {
+      return Material.AIR;
+    }
+    int offsetX = x - min.getX();
+    int offsetY = y - min.getY();
+    int offsetZ = z - min.getZ();
+    if (offsetX < 0 || offsetX >= sizeX || offsetY < 0 || offsetY >= sizeY || offsetZ < 0 || offsetZ >= sizeZ) {
+      throw new IllegalArgumentException(String.format("The position (%d, %d, %d) has not been captured.", x, y, z));
+    }
+    if (materials != null) {
+      return materials[(offsetX * sizeZ + offsetZ) * sizeY + offsetY];
+    }
+    int chunksZ = ((min.getZ() + sizeZ - 1) >> 4) - (min.getZ() >> 4) + 1;
+    ChunkSnapshot chunk = chunks[((x >> 4) - (min.getX() >> 4)) * chunksZ + (z >> 4) - (min.getZ() >> 4)];
+    return reader.getMaterial(chunk, x & 15, y, z & 15);
+  }
+
+  /**
+   * Tests whether the {@code Material} at the block at the given position fulfills the given {@code Predicate}.
+   *
+   * @param position  the position
+   * @param predicate the predicate
+   * @return true if the Material at the given position fulfills the given Predicate
+   */
+  public boolean test(Vector3i position, Predicate<Material> predicate) {
+    return predicate.test(getMaterial(position));
+  }
+
+  private static int minHeight(World world) {
+    try {
+      return world.getMinHeight();
+    } catch (NoSuchMethodError e) {
+      // worlds start at zero before 1.17
+      return 0;
+    }
+  }
+}
@@ -19,12 +19,22 @@
 
 package io.github.mywarp.mywarp.bukkit.util.permission;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableSortedSet;
+import io.github.mywarp.mywarp.bukkit.util.AbstractListener;
 import io.github.mywarp.mywarp.platform.LocalPlayer;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.permissions.Permission;
 import org.bukkit.permissions.PermissionDefault;
+import org.bukkit.plugin.Plugin;
 
 import java.util.SortedSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Provides a managed access to {@link ValueBundle}s.
@@ -34,12 +44,22 @@ import java.util.SortedSet;
  * the first bundle for which the player has the permission. If he does not have a permission for any bundle, the
  * default one is returned.</p>
  *
+ * <p>The bundle resolved for a player is cached, so repeated requests do not check permissions again. If this
+ * provider is registered as Listener, cached bundles are invalidated once the player changes the world or quits and
+ * whenever a supported permission plugin recalculates the player's permissions (see
+ * {@link PermissionRecalculationRegistration}). As Bukkit itself does not notify about recalculated permissions,
+ * cached bundles expire after a few seconds if no such plugin is installed. A reload creates new providers.</p>
+ *
  * @param <B> the type of ValueBundle this provider provides
  */
-public class BundleProvider<B extends ValueBundle> {
+public class BundleProvider<B extends ValueBundle> extends AbstractListener {
+
+  private static final long EXPIRE_AFTER_SECONDS = 10;
 
   private final SortedSet<B> configuredBundles;
   private final B defaultBundle;
+  private volatile Cache<UUID, B> resolvedBundles =
+      CacheBuilder.newBuilder().expireAfterWrite(EXPIRE_AFTER_SECONDS, TimeUnit.SECONDS).build();
 
   /**
    * Creates an instance.
@@ -56,6 +76,17 @@ public class BundleProvider<B extends ValueBundle> {
     }
   }
 
+  @Override
+  public void registerEvents(Plugin plugin) {
+    super.registerEvents(plugin);
+
+    if (PermissionRecalculationRegistration.INSTANCE
+        .register(plugin, uniqueId -> resolvedBundles.invalidate(uniqueId))) {
+      // recalculations are reported, so the expiry is no longer needed
+      resolvedBundles = CacheBuilder.newBuilder().build();
+    }
+  }
+
   /**
    * Gets the bundle applicable for the given {@code player}.
    *
@@ -63,6 +94,15 @@ public class BundleProvider<B extends ValueBundle> {
    * @return the applicable bundle
    */
   public B getBundle(LocalPlayer player) {
+    B bundle = resolvedBundles.getIfPresent(player.getUniqueId());
+    if (bundle == null) {
+      bundle = resolveBundle(player);
+      resolvedBundles.put(player.getUniqueId(), bundle);
+    }
+    return bundle;
+  }
+
+  private B resolveBundle(LocalPlayer player) {
     for (B bundle : configuredBundles) {
       if (player.hasPermission(bundle.getPermission())) {
         return bundle;
@@ -71,4 +111,25 @@ public class BundleProvider<B extends ValueBundle> {
     return defaultBundle;
   }
 
+  /**
+   * Called when a player changes the world.
+   *
+   * @param event the event
+   */
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+    // permissions might be world specific
+    resolvedBundles.invalidate(event.getPlayer().getUniqueId());
+  }
+
+  /**
+   * Called when a player quits.
+   *
+   * @param event the event
+   */
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onPlayerQuit(PlayerQuitEvent event) {
+    resolvedBundles.invalidate(event.getPlayer().getUniqueId());
+  }
+
 }
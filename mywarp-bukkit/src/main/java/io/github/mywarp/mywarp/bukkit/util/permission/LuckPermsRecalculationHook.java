@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.github.mywarp.mywarp.bukkit.util.permission;
+
+import net.luckperms.api.LuckPerms;
+import net.luckperms.api.event.EventSubscription;
+import net.luckperms.api.event.user.UserDataRecalculateEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Reports permission recalculations done by LuckPerms.
+ *
+ * <p>All references to the LuckPerms API are kept within this class, so it is only loaded if LuckPerms is
+ * installed.</p>
+ */
+class LuckPermsRecalculationHook implements AutoCloseable {
+
+  private final EventSubscription<UserDataRecalculateEvent> subscription;
+
+  /**
+   * Creates an instance that subscribes to the given LuckPerms instance.
+   *
+   * @param luckPerms the LuckPerms instance
+   * @param plugin    the plugin that owns the subscription
+   * @param listener  the listener called with the unique identifier of each player whose permissions are recalculated
+   */
+  LuckPermsRecalculationHook(LuckPerms luckPerms, Plugin plugin, Consumer<UUID> listener) {
+    // LuckPerms posts this event asynchronously
+    subscription =
+        luckPerms.getEventBus()
+            .subscribe(plugin, UserDataRecalculateEvent.class, event -> listener.accept(event.getUser().getUniqueId()));
+  }
+
+  @Override
+  public void close() {
+    subscription.close();
+  }
+
+}
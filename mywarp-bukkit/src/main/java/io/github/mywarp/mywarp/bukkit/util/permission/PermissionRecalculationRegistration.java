@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.github.mywarp.mywarp.bukkit.util.permission;
+
+import io.github.mywarp.mywarp.util.MyWarpLogger;
+import net.luckperms.api.LuckPerms;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.RegisteredServiceProvider;
+import org.slf4j.Logger;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+/**
+ * Controls listeners that are notified when the permissions of a player are recalculated.
+ *
+ * <p>Bukkit itself does not report recalculated permissions, so this registration hooks into supported permission
+ * plugins. Currently only LuckPerms is supported, Vault does not expose recalculations.</p>
+ */
+public enum PermissionRecalculationRegistration {
+
+  /**
+   * The singleton instance.
+   */
+  INSTANCE;
+
+  private static final Logger log = MyWarpLogger.getLogger(PermissionRecalculationRegistration.class);
+
+  private final Set<Consumer<UUID>> listeners = new CopyOnWriteArraySet<Consumer<UUID>>();
+  private AutoCloseable hook;
+
+  /**
+   * Registers the given listener. It is called with the unique identifier of each player whose permissions are
+   * recalculated, possibly from an asynchronous thread.
+   *
+   * <p>Returns {@code false} if no supported permission plugin is installed, so the listener will never be
+   * called.</p>
+   *
+   * @param plugin   the plugin that owns the hook into the permission plugin
+   * @param listener the listener
+   * @return {@code true} if recalculations are reported
+   */
+  public synchronized boolean register(Plugin plugin, Consumer<UUID> listener) {
+    if (hook == null) {
+      hook = createHook(plugin);
+      if (hook == null) {
+        return false;
+      }
+    }
+    listeners.add(listener);
+    return true;
+  }
+
+  /**
+   * Unregisters all previously registered listeners and removes the hook into the permission plugin.
+   */
+  public synchronized void unregisterAll() {
+    listeners.clear();
+
+    if (hook != null) {
+      try {
+        hook.close();
+      } catch (Exception e) {
+        log.warn("Failed to unsubscribe from permission recalculations.", e);
+      }
+      hook = null;
+    }
+  }
+
+  private AutoCloseable createHook(Plugin plugin) {
+    try {
+      RegisteredServiceProvider<LuckPerms> provider = Bukkit.getServicesManager().getRegistration(LuckPerms.class);
+      if (provider != null) {
+        log.info("Using LuckPerms to invalidate cached permission values.");
+        return new LuckPermsRecalculationHook(provider.getProvider(), plugin, this::notifyListeners);
+      }
+    } catch (NoClassDefFoundError e) {
+      // the class is not in the classpath (perhaps LuckPerms is not installed), so we continue.
+    }
+    return null;
+  }
+
+  private void notifyListeners(UUID uniqueId) {
+    for (Consumer<UUID> listener : listeners) {
+      listener.accept(uniqueId);
+    }
+  }
+
+}
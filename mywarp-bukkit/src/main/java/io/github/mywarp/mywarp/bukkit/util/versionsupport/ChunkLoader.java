@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.mywarp.mywarp.bukkit.util.versionsupport;
+
+import org.bukkit.World;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Loads chunks.
+ */
+public interface ChunkLoader extends VersionSupportable {
+
+  /**
+   * Loads the chunk at the given chunk coordinates within the given world, if it is not already loaded.
+   *
+   * <p>This method must be called on the server's main thread. Depending on the implementation, the chunk is either
+   * loaded immediately or asynchronously. The returned future may complete on any thread.</p>
+   *
+   * @param world  the world
+   * @param chunkX the x coordinate of the chunk
+   * @param chunkZ the z coordinate of the chunk
+   * @return a future that completes once the chunk is loaded
+   */
+  CompletableFuture<Void> load(World world, int chunkX, int chunkZ);
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.bukkit.util.versionsupport;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+
+/**
+ * Reads the Materials of blocks from {@link ChunkSnapshot}s.
+ */
+public interface ChunkMaterialReader extends VersionSupportable {
+
+  /**
+   * Gets the Material of the block at the given coordinates within the chunk of the given snapshot.
+   *
+   * <p>This method may be called on any thread.</p>
+   *
+   * @param snapshot the snapshot of the chunk
+   * @param x        the x coordinate within the chunk, between 0 and 15
+   * @param y        the y coordinate
+   * @param z        the z coordinate within the chunk, between 0 and 15
+   * @return the Material of the block
+   */
+  Material getMaterial(ChunkSnapshot snapshot, int x, int y, int z);
+}
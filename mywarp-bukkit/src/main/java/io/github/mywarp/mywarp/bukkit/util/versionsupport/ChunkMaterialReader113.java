@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.bukkit.util.versionsupport;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.codehaus.mojo.animal_sniffer.IgnoreJRERequirement;
+
+/**
+ * Reads Materials by using {@link ChunkSnapshot#getBlockType(int, int, int)}.
+ */
+@IgnoreJRERequirement
+class ChunkMaterialReader113 implements ChunkMaterialReader {
+
+  static ChunkMaterialReader create() throws NoSuchMethodException {
+    // before 1.13, snapshots only provide numerical block IDs
+    ChunkSnapshot.class.getMethod("getBlockType", int.class, int.class, int.class);
+    return new ChunkMaterialReader113();
+  }
+
+  @Override
+  public Material getMaterial(ChunkSnapshot snapshot, int x, int y, int z) {
+    return snapshot.getBlockType(x, y, z);
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.mywarp.mywarp.bukkit.util.versionsupport;
+
+import io.github.mywarp.mywarp.util.MyWarpLogger;
+import org.bukkit.World;
+import org.slf4j.Logger;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Loads chunks asynchronously by using {@code World#getChunkAtAsync(int, int)} from the Paper API (using reflection).
+ */
+class PaperChunkLoader extends LegacyChunkLoader {
+
+  private static final Logger log = MyWarpLogger.getLogger(PaperChunkLoader.class);
+
+  private static final String METHOD_NAME = "getChunkAtAsync";
+
+  private final Method method;
+
+  private PaperChunkLoader(Method method) {
+    this.method = method;
+  }
+
+  static PaperChunkLoader create() throws NoSuchMethodException {
+    Method method = World.class.getMethod(METHOD_NAME, int.class, int.class);
+    if (!CompletableFuture.class.isAssignableFrom(method.getReturnType())) {
+      throw new NoSuchMethodException(METHOD_NAME + " does not return a CompletableFuture.");
+    }
+    return new PaperChunkLoader(method);
+  }
+
+  @Override
+  public CompletableFuture<Void> load(World world, int chunkX, int chunkZ) {
+    if (world.isChunkLoaded(chunkX, chunkZ)) {
+      return CompletableFuture.completedFuture(null);
+    }
+    try {
+      return ((CompletableFuture<?>) method.invoke(world, chunkX, chunkZ)).thenApply(chunk -> null);
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      log.debug("Failed to load the chunk asynchronously.", e);
+      return super.load(world, chunkX, chunkZ);
+    }
+  }
+}
@@ -25,6 +25,7 @@ import org.bukkit.entity.Player;
 import org.slf4j.Logger;
 
 import javax.annotation.Nullable;
+import java.util.Optional;
 import java.util.function.Predicate;
 
 /**
@@ -40,6 +41,11 @@ public final class VersionSupport {
   private static Predicate<Entity> horseChecker;
   @Nullable
   private static BlockFaceResolver blockFaceResolver;
+  @Nullable
+  private static ChunkLoader chunkLoader;
+  @Nullable
+  private static ChunkMaterialReader chunkMaterialReader;
+  private static boolean chunkMaterialReaderResolved;
 
   /**
    * Gets a {@link LocaleResolver} implementation.
@@ -102,4 +108,42 @@ public final class VersionSupport {
     return blockFaceResolver;
   }
 
+  /**
+   * Gets a {@link ChunkLoader} implementation.
+   *
+   * @return a working chunk loader
+   */
+  public static ChunkLoader getChunkLoader() {
+    if (chunkLoader == null) {
+      try {
+        chunkLoader = PaperChunkLoader.create();
+        log.debug("Using PaperChunkLoader.");
+      } catch (NoSuchMethodException e) {
+        chunkLoader = new LegacyChunkLoader();
+        log.debug("Using LegacyChunkLoader, chunks will be loaded synchronously.");
+      }
+    }
+    return chunkLoader;
+  }
+
+  /**
+   * Gets a {@link ChunkMaterialReader} implementation, if the running server supports reading Materials from chunk
+   * snapshots.
+   *
+   * @return a working chunk material reader, if any
+   */
+  public static Optional<ChunkMaterialReader> getChunkMaterialReader() {
+    if (!chunkMaterialReaderResolved) {
+      chunkMaterialReaderResolved = true;
+      try {
+        chunkMaterialReader = ChunkMaterialReader113.create();
+        log.debug("Using ChunkMaterialReader113.");
+      } catch (NoSuchMethodException e) {
+        log.debug("Chunk snapshots cannot be read, blocks will be read one by one.");
+      }
+    }
+    return Optional.ofNullable(chunkMaterialReader);
+  }
+
+
 }
@@ -0,0 +1,322 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.github.mywarp.mywarp.bukkit.util;
+
+import com.flowpowered.math.vector.Vector3d;
+import com.flowpowered.math.vector.Vector3i;
+import io.github.mywarp.mywarp.bukkit.util.material.MaterialInfo;
+import io.github.mywarp.mywarp.bukkit.util.material.MaterialSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests {@link CubicSafetyValidationCapability}.
+ *
+ * <p>The search is compared with a naive search that probes every position separately, as the capability did before
+ * it was rewritten on primitive offsets. {@link #benchmarkSearch()} measures both searches and only runs if the system
+ * property {@code mywarp.benchmark} is set, e.g. via {@code gradlew :mywarp-bukkit:test -Pbenchmark}.</p>
+ */
+public class CubicSafetyValidationCapabilityTest {
+
+  private static final int SEARCH_RADIUS = 5;
+  private static final int CENTERS = 256;
+
+  private static final int WARMUP_ROUNDS = 5;
+  private static final int MEASURED_ROUNDS = 10;
+  private static final int SEARCHES_PER_ROUND = 100_000;
+
+  private static final MaterialInfo MATERIAL_INFO = new MaterialInfo() {
+    @Override
+    public boolean safeToStandOn(Material toTest) {
+      return toTest == Material.STONE;
+    }
+
+    @Override
+    public boolean dangerousToStandWithin(Material toTest) {
+      return toTest == Material.STONE || toTest == Material.LAVA;
+    }
+
+    @Override
+    public boolean isClickable(Material toTest) {
+      return false;
+    }
+
+    @Override
+    public boolean isTriggerable(Material toTest) {
+      return false;
+    }
+  };
+
+  private final CubicSafetyValidationCapability capability =
+      new CubicSafetyValidationCapability(SEARCH_RADIUS, MATERIAL_INFO, Runnable::run, Runnable::run);
+  private final NaiveSearch naiveSearch = new NaiveSearch(SEARCH_RADIUS, MATERIAL_INFO);
+
+  /**
+   * A terrain that assigns a Material to every block.
+   */
+  private interface Terrain {
+
+    Material getMaterial(int x, int y, int z);
+  }
+
+  /**
+   * A random terrain where only few positions are safe.
+   */
+  private static Material scattered(int x, int y, int z) {
+    int hash = (x * 73856093) ^ (y * 19349663) ^ (z * 83492791);
+    hash *= 0x9E3779B1;
+    hash ^= hash >>> 15;
+    switch ((hash >>> 8) & 7) {
+      case 0:
+      case 1:
+      case 2:
+        return Material.STONE;
+      case 3:
+        return Material.LAVA;
+      default:
+        return Material.AIR;
+    }
+  }
+
+  /**
+   * A terrain without any safe position, so every search probes the whole volume.
+   */
+  private static Material air(int x, int y, int z) {
+    return Material.AIR;
+  }
+
+  private static World world(Terrain terrain) {
+    return (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class<?>[]{World.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getMinHeight":
+              return -64;
+            case "getMaxHeight":
+              return 320;
+            case "getBlockAt":
+              Material material = terrain.getMaterial((Integer) args[0], (Integer) args[1], (Integer) args[2]);
+              return block(material);
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+
+  private static Block block(Material material) {
+    return (Block) Proxy.newProxyInstance(Block.class.getClassLoader(), new Class<?>[]{Block.class},
+        (proxy, method, args) -> {
+          if (method.getName().equals("getType")) {
+            return material;
+          }
+          throw new UnsupportedOperationException(method.getName());
+        });
+  }
+
+  private static List<Vector3d> centers(long seed) {
+    Random random = new Random(seed);
+    List<Vector3d> centers = new ArrayList<>();
+    for (int i = 0; i < CENTERS; i++) {
+      // Vector3d.toInt() truncates, so the searches are only compared on positive horizontal coordinates
+      centers.add(new Vector3d(random.nextInt(2000) + 100.5, random.nextInt(300) - 60, random.nextInt(2000) + 100.5));
+    }
+    return centers;
+  }
+
+  private static List<MaterialSnapshot> capture(World world, List<Vector3d> centers) {
+    // the same volume the capability captures
+    int extent = SEARCH_RADIUS - 1;
+    List<MaterialSnapshot> snapshots = new ArrayList<>();
+    for (Vector3d center : centers) {
+      Vector3i block = center.toInt();
+      Vector3i min = block.sub(extent, extent + 1, extent);
+      Vector3i max = block.add(extent, extent + 1, extent);
+      snapshots.add(MaterialSnapshot.capture(world, min, max));
+    }
+    return snapshots;
+  }
+
+  @Test
+  public void findsTheSamePositionsAsNaiveSearch() {
+    for (Terrain terrain : new Terrain[]{CubicSafetyValidationCapabilityTest::scattered,
+        CubicSafetyValidationCapabilityTest::air}) {
+      List<Vector3d> centers = centers(42);
+      List<MaterialSnapshot> snapshots = capture(world(terrain), centers);
+
+      for (int i = 0; i < centers.size(); i++) {
+        assertEquals("center " + centers.get(i), naiveSearch.getValidPosition(centers.get(i), snapshots.get(i)),
+            capability.getValidPosition(centers.get(i), snapshots.get(i)));
+      }
+    }
+  }
+
+  @Test
+  public void benchmarkSearch() {
+    assumeTrue("Benchmarks are disabled.", Boolean.getBoolean("mywarp.benchmark"));
+
+    List<Vector3d> centers = centers(7);
+    benchmark("scattered", centers, capture(world(CubicSafetyValidationCapabilityTest::scattered), centers));
+    benchmark("no safe position", centers, capture(world(CubicSafetyValidationCapabilityTest::air), centers));
+  }
+
+  private void benchmark(String scenario, List<Vector3d> centers, List<MaterialSnapshot> snapshots) {
+    double naive = measure(centers, snapshots, naiveSearch::getValidPosition);
+    double current = measure(centers, snapshots, capability::getValidPosition);
+    System.out.printf("Safety search (%s, radius %d): naive %.0f ns/op, current %.0f ns/op (%.1fx)%n", scenario,
+        SEARCH_RADIUS, naive, current, naive / current);
+  }
+
+  /**
+   * Measures the average duration of a search in nanoseconds.
+   */
+  private static double measure(List<Vector3d> centers, List<MaterialSnapshot> snapshots, Search search) {
+    long found = 0;
+    for (int round = 0; round < WARMUP_ROUNDS; round++) {
+      found += run(centers, snapshots, search);
+    }
+    long start = System.nanoTime();
+    for (int round = 0; round < MEASURED_ROUNDS; round++) {
+      found += run(centers, snapshots, search);
+    }
+    long elapsed = System.nanoTime() - start;
+
+    // consume the result, so the searches cannot be eliminated
+    if (found < 0) {
+      throw new AssertionError();
+    }
+    return (double) elapsed / (MEASURED_ROUNDS * SEARCHES_PER_ROUND);
+  }
+
+  private static long run(List<Vector3d> centers, List<MaterialSnapshot> snapshots, Search search) {
+    long found = 0;
+    for (int i = 0; i < SEARCHES_PER_ROUND; i++) {
+      int index = i % centers.size();
+      if (search.getValidPosition(centers.get(index), snapshots.get(index)).isPresent()) {
+        found++;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * A search for safe positions.
+   */
+  private interface Search {
+
+    Optional<Vector3d> getValidPosition(Vector3d originalPosition, MaterialSnapshot snapshot);
+  }
+
+  /**
+   * Searches safe positions by probing every position separately.
+   */
+  private static class NaiveSearch {
+
+    private final int searchRadius;
+    private final MaterialInfo materialInfo;
+
+    NaiveSearch(int searchRadius, MaterialInfo materialInfo) {
+      this.searchRadius = searchRadius;
+      this.materialInfo = materialInfo;
+    }
+
+    Optional<Vector3d> getValidPosition(Vector3d originalPosition, MaterialSnapshot snapshot) {
+      if (isSafe(snapshot, originalPosition)) {
+        return Optional.of(originalPosition);
+      }
+      for (int i = 2; i <= searchRadius; i++) {
+        Optional<Vector3d> safePosition = checkCubeSurface(snapshot, originalPosition, i);
+        if (safePosition.isPresent()) {
+          return safePosition;
+        }
+      }
+      return Optional.empty();
+    }
+
+    private Optional<Vector3d> checkCubeSurface(MaterialSnapshot snapshot, Vector3d center, int halfEdgeLength) {
+      int diameter = getEdgeLength(halfEdgeLength);
+      for (int i = 0; i < diameter; i++) {
+        center = center.add(0, i % 2 == 0 ? -i : i, 0);
+        Optional<Vector3d> safePosition =
+            i < diameter - 2 ? checkHorizontalSquareOutline(snapshot, center, halfEdgeLength)
+                             : checkHorizontalSquare(snapshot, center, halfEdgeLength);
+        if (safePosition.isPresent()) {
+          return safePosition;
+        }
+      }
+      return Optional.empty();
+    }
+
+    private Optional<Vector3d> checkHorizontalSquare(MaterialSnapshot snapshot, Vector3d center, int halfEdgeLength) {
+      if (isSafe(snapshot, center)) {
+        return Optional.of(center);
+      }
+      for (int i = 2; i <= halfEdgeLength; i++) {
+        Optional<Vector3d> safePosition = checkHorizontalSquareOutline(snapshot, center, i);
+        if (safePosition.isPresent()) {
+          return safePosition;
+        }
+      }
+      return Optional.empty();
+    }
+
+    private Optional<Vector3d> checkHorizontalSquareOutline(MaterialSnapshot snapshot, Vector3d center,
+        int halfEdgeLength) {
+      int blockSteps = getEdgeLength(halfEdgeLength) - 1;
+      Vector3d position = center.add(halfEdgeLength - 1, 0, halfEdgeLength - 1);
+      Vector3d[] directions = {new Vector3d(-1, 0, 0), new Vector3d(0, 0, -1), new Vector3d(1, 0, 0),
+          new Vector3d(0, 0, 1)};
+
+      for (Vector3d direction : directions) {
+        for (int i = 0; i < blockSteps; i++) {
+          position = position.add(direction);
+          if (isSafe(snapshot, position)) {
+            return Optional.of(position);
+          }
+        }
+      }
+      return Optional.empty();
+    }
+
+    private boolean isSafe(MaterialSnapshot snapshot, Vector3d position) {
+      if (snapshot.test(position.add(0, 1, 0).toInt(), materialInfo::dangerousToStandWithin)) {
+        return false;
+      }
+      if (snapshot.test(position.toInt(), materialInfo::dangerousToStandWithin)) {
+        return false;
+      }
+      return snapshot.test(position.sub(0, 1, 0).toInt(), materialInfo::safeToStandOn);
+    }
+
+    private static int getEdgeLength(int halfEdgeLength) {
+      return (halfEdgeLength - 1) * 2 + 1;
+    }
+  }
+}
@@ -19,12 +19,14 @@
 
 package io.github.mywarp.mywarp;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.eventbus.EventBus;
 import io.github.mywarp.mywarp.command.CommandHandler;
 import io.github.mywarp.mywarp.platform.Game;
 import io.github.mywarp.mywarp.platform.Platform;
 import io.github.mywarp.mywarp.platform.PlayerNameResolver;
 import io.github.mywarp.mywarp.platform.Settings;
+import io.github.mywarp.mywarp.platform.capability.ChunkPreloadCapability;
 import io.github.mywarp.mywarp.platform.capability.EconomyCapability;
 import io.github.mywarp.mywarp.platform.capability.PositionValidationCapability;
 import io.github.mywarp.mywarp.platform.capability.TimerCapability;
@@ -34,6 +36,7 @@ import io.github.mywarp.mywarp.util.MyWarpLogger;
 import io.github.mywarp.mywarp.util.i18n.DynamicMessages;
 import io.github.mywarp.mywarp.util.teleport.StrategicTeleportHandler;
 import io.github.mywarp.mywarp.util.teleport.TeleportHandler;
+import io.github.mywarp.mywarp.util.teleport.TeleportScheduler;
 import io.github.mywarp.mywarp.warp.*;
 import io.github.mywarp.mywarp.warp.authorization.AuthorizationResolver;
 import io.github.mywarp.mywarp.warp.authorization.PermissionAuthorizationStrategy;
@@ -43,8 +46,23 @@ import io.github.mywarp.mywarp.warp.storage.*;
 import org.slf4j.Logger;
 
 import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
 
 /**
  * Entry point and container for a working MyWarp implementation.
@@ -55,28 +73,46 @@ import java.util.concurrent.CompletableFuture;
 public final class MyWarp {
 
   private static final Logger log = MyWarpLogger.getLogger(MyWarp.class);
+  private static final String SNAPSHOT_FILE_NAME = "warps.snapshot";
+  private static final String JOURNAL_FILE_NAME = "warps.journal";
+  private static final String EMBEDDED_STORAGE_FILE_NAME = "warps.mvstore";
 
   private final Platform platform;
   private final SqlDataService dataService;
   private final WarpStorage warpStorage;
+  @Nullable
+  private final Closeable journal;
+  @Nullable
+  private final WarpStorage embeddedStorage;
   private final PopulatableWarpManager warpManager;
   private final EventBus eventBus;
   private final AuthorizationResolver authorizationResolver;
+  private final Path snapshotFile;
+  private final WarpSynchronizer synchronizer;
+  private final Set<SqlDataService> bulkReadServices = ConcurrentHashMap.newKeySet();
 
   private CommandHandler commandHandler;
-  private TeleportHandler teleportHandler;
+  private TeleportScheduler teleportHandler;
 
   @Nullable
   private InvitationInformationListener invitationInformationListener;
+  private boolean warpsLoaded;
 
-  private MyWarp(Platform platform, SqlDataService dataService, WarpStorage warpStorage,
-      PopulatableWarpManager warpManager, EventBus eventBus, AuthorizationResolver authorizationResolver) {
+  private MyWarp(Platform platform, SqlDataService dataService, WarpStorage warpStorage, @Nullable Closeable journal,
+      @Nullable WarpStorage embeddedStorage, PopulatableWarpManager warpManager, EventBus eventBus,
+      AuthorizationResolver authorizationResolver) {
     this.platform = platform;
     this.dataService = dataService;
     this.warpStorage = warpStorage;
+    this.journal = journal;
+    this.embeddedStorage = embeddedStorage;
     this.warpManager = warpManager;
     this.eventBus = eventBus;
     this.authorizationResolver = authorizationResolver;
+    this.snapshotFile = platform.getDataFolder().toPath().resolve(SNAPSHOT_FILE_NAME);
+    this.synchronizer =
+        new WarpSynchronizer(warpManager, warpStorage, dataService.getExecutorService(),
+            platform.getGame().getExecutor(), eventBus);
   }
 
   /**
@@ -88,7 +124,13 @@ public final class MyWarp {
    * thus be ready to operate.</p>
    *
    * <p>Warps might no yet be available, but are scheduled to be loaded from the storage system. Once they are
-   * available, {@link Platform#onWarpsLoaded()} will be called on {@code platform}.</p>
+   * available, {@link Platform#onWarpsLoaded()} will be called on {@code platform}. If snapshots are enabled and a
+   * snapshot exists, warps are loaded from the snapshot immediately and the snapshot is validated against the storage
+   * system in the background. If the bounded cache is enabled, only the names of all warps are loaded and warps are
+   * read from the storage system when they are accessed.</p>
+   *
+   * <p>If the embedded storage backend is configured, warps are stored in a file in the platform's data folder and
+   * {@code dataService} is only used for its executor; no connection to its database is ever opened.</p>
    *
    * @param platform    the platform MyWarp will run on
    * @param dataService the SqlDataService warps are stored in
@@ -99,10 +141,24 @@ public final class MyWarp {
    */
   public static MyWarp initialize(Platform platform, SqlDataService dataService)
       throws UnsupportedDialectException, SQLException, TableInitializationException {
-    WarpStorage
-        warpStorage =
-        new AsyncWritingWarpStorage(WarpStorageBuilder.using(dataService).initTables().build(),
-            dataService.getExecutorService());
+    WarpStorage storage;
+    WarpStorage embeddedStorage = null;
+    if (platform.getSettings().getStorageBackend() == WarpStorageBuilder.Backend.EMBEDDED) {
+      storage = WarpStorageBuilder.buildEmbedded(platform.getDataFolder().toPath().resolve(EMBEDDED_STORAGE_FILE_NAME));
+      embeddedStorage = storage;
+    } else {
+      storage = WarpStorageBuilder.using(dataService).initTables().build();
+    }
+    WarpJournal journal = openJournal(platform.getDataFolder().toPath().resolve(JOURNAL_FILE_NAME), storage);
+
+    WarpStorage warpStorage;
+    JournalingWarpStorage journalingStorage = null;
+    if (journal != null) {
+      journalingStorage = new JournalingWarpStorage(storage, journal, dataService.getExecutorService());
+      warpStorage = journalingStorage;
+    } else {
+      warpStorage = new AsyncWritingWarpStorage(storage, dataService.getExecutorService());
+    }
 
     EventBus eventBus = new EventBus();
 
@@ -110,6 +166,11 @@ public final class MyWarp {
         warpManager =
         new EventfulPopulatableWarpManager(
             new StoragePopulatableWarpManager(new MemoryPopulatableWarpManager(), warpStorage), eventBus);
+    if (platform.getSettings().isStorageCacheEnabled()) {
+      warpManager =
+          new ReadThroughPopulatableWarpManager(warpManager, warpStorage, dataService.getExecutorService(),
+              platform.getGame().getExecutor(), platform.getSettings().getStorageCacheCapacity());
+    }
 
     AuthorizationResolver
         authorizationResolver =
@@ -117,7 +178,10 @@ public final class MyWarp {
             new WorldAccessAuthorizationStrategy(new WarpPropertiesAuthorizationStrategy(), platform.getGame(),
                 platform.getSettings())));
 
-    MyWarp myWarp = new MyWarp(platform, dataService, warpStorage, warpManager, eventBus, authorizationResolver);
+    MyWarp
+        myWarp =
+        new MyWarp(platform, dataService, warpStorage, journalingStorage, embeddedStorage, warpManager, eventBus,
+            authorizationResolver);
     myWarp.initializeMutableFields();
     myWarp.loadWarps();
     return myWarp;
@@ -126,13 +190,15 @@ public final class MyWarp {
   /**
    * Reloads MyWarp.
    *
-   * <p>Reloading will remove all loaded warps from the active PopulatableWarpManager and reload them from the
-   * configured storage. Interaction models (commands, signs...) are newly created. The platform running MyWarp may
-   * reload the user configuration from disk.</p>
+   * <p>Reloading will reload all warps from the configured storage in the background. Loaded warps remain available
+   * until then and only warps that changed are replaced in the active PopulatableWarpManager. Interaction models
+   * (commands, signs...) are newly created. The platform running MyWarp may reload the user configuration from
+   * disk.</p>
    */
   public void reload() {
     // cleanup
-    warpManager.depopulate();
+    warpsLoaded = false;
+    synchronizer.invalidate();
     DynamicMessages.clearCache();
     if (invitationInformationListener != null) {
       eventBus.unregister(invitationInformationListener);
@@ -146,6 +212,201 @@ public final class MyWarp {
     loadWarps();
   }
 
+  /**
+   * Writes a snapshot of all loaded warps to the data folder, so that they are available immediately on the next
+   * start.
+   *
+   * <p>Warps are captured when this method is called. The snapshot itself is written asynchronously once the storage
+   * system has executed all pending writes. If snapshots are disabled or warps are not yet fully loaded, calling this
+   * method has no effect.</p>
+   */
+  public void saveSnapshot() {
+    if (!getSettings().isStorageSnapshotEnabled() || !warpsLoaded || isReadThrough()) {
+      return;
+    }
+    WarpSnapshot.Capture capture = WarpSnapshot.capture(warpManager.getAll(warp -> true));
+
+    SqlWorkQueue.runAsync(() -> {
+      try {
+        capture.write(snapshotFile, warpStorage.getFingerprint());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, dataService.getExecutorService()).whenComplete((v, ex) -> {
+      if (ex != null) {
+        log.warn("Failed to write the warp snapshot.", ex);
+      } else {
+        log.debug("Snapshot of {} warps written.", capture.getWarpCount());
+      }
+    });
+  }
+
+  /**
+   * Exports all warps stored in the storage system to the given {@code file} in the given {@code format}.
+   *
+   * <p>Warps are streamed from the storage system in the background, so the export neither blocks the game's thread
+   * nor holds all warps in memory. The export runs on its own connection, so it does not delay other queries. The
+   * given {@code progress} consumer is called from the background thread.</p>
+   *
+   * @param format     the format of the export
+   * @param compressed whether the file should be compressed using gzip
+   * @param file       the file to write to
+   * @param progress   receives the number of warps exported so far, in regular intervals
+   * @return a future that completes with the number of exported warps once the file has been written
+   */
+  public CompletableFuture<Integer> exportWarps(WarpExport.Format format, boolean compressed, Path file,
+                                                IntConsumer progress) {
+    return readInBulk(storage -> {
+      try {
+        return WarpExport.of(storage, format, compressed).writeTo(file, progress);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  /**
+   * Queries the page of warps matching the given {@code query} from the storage system.
+   *
+   * <p>The query is evaluated by the storage system in the background, so that only the warps of the requested page
+   * are read. Returned warps are copies that are not managed by the WarpManager.</p>
+   *
+   * @param query the query
+   * @return a future that completes with the requested page
+   */
+  public CompletableFuture<WarpPage> queryWarps(WarpQuery query) {
+    return SqlWorkQueue.supplyAsync(() -> warpStorage.getWarps(query), dataService.getExecutorService());
+  }
+
+  /**
+   * Reads all warps from the storage system and passes them to the given {@code consumer} on the game's thread, chunk
+   * by chunk.
+   *
+   * <p>Unlike {@link #queryWarps(WarpQuery)}, this method does not read all warps at once, so that it can be used even
+   * if not all warps are kept in memory. Like {@link #exportWarps(WarpExport.Format, boolean, Path, IntConsumer)},
+   * warps are read on their own connection. Passed warps are copies that are not managed by the WarpManager.</p>
+   *
+   * @param consumer the consumer that receives each chunk
+   * @return a future that completes with the number of read warps once all chunks have been read
+   */
+  public CompletableFuture<Integer> readWarpsInChunks(Consumer<? super List<Warp>> consumer) {
+    return readInBulk(
+        storage -> storage.forEachChunk(null, chunk -> getGame().getExecutor().execute(() -> consumer.accept(chunk))));
+  }
+
+  /**
+   * Gets the names of those of the given warps that are stored in the storage system.
+   *
+   * <p>The names are read after all writes that were submitted before this method was called have been executed, so
+   * a name is only contained in the result once the storage system acknowledged the warp.</p>
+   *
+   * @param names the names of the warps
+   * @return a future that completes with the names of the stored warps
+   */
+  public CompletableFuture<Set<String>> getStoredWarpNames(Collection<String> names) {
+    return SqlWorkQueue.supplyAsync(
+        () -> warpStorage.getWarps(names).stream().map(Warp::getName).collect(Collectors.toSet()),
+        dataService.getExecutorService());
+  }
+
+  /**
+   * Gets the identifiers of all groups that are invited to at least one warp from the storage system.
+   *
+   * @return a future that completes with the identifiers of all invited groups
+   */
+  public CompletableFuture<Set<String>> getInvitedGroups() {
+    return SqlWorkQueue.supplyAsync(warpStorage::getInvitedGroups, dataService.getExecutorService());
+  }
+
+  /**
+   * Synchronizes the loaded warps with changes that other instances made to the same storage system.
+   *
+   * <p>Only changed warps are reloaded from the storage system. This method should be called periodically on the
+   * game's thread, e.g. if several servers share the same database. It has no effect until warps are fully
+   * loaded.</p>
+   */
+  public void synchronizeWarps() {
+    synchronizer.synchronize();
+  }
+
+  /**
+   * Removes old entries from the change-log of the storage system, which records every write so that other instances
+   * can synchronize with it.
+   *
+   * <p>This method should be called periodically, regardless of whether warps are synchronized.</p>
+   */
+  public void pruneChanges() {
+    synchronizer.pruneChanges();
+  }
+
+  /**
+   * Closes the journal that records writes to the storage system (if any), the embedded storage (if used) and the
+   * connections of running bulk reads, such as exports.
+   *
+   * <p>This method should be called once MyWarp is shut down, after the {@link SqlDataService} given on initialization
+   * has been closed. Writes that have not been executed by then remain in the journal and are replayed on the next
+   * start.</p>
+   */
+  public void close() {
+    bulkReadServices.forEach(SqlDataService::close);
+    if (journal != null) {
+      try {
+        journal.close();
+      } catch (IOException e) {
+        log.warn("Failed to close the warp journal.", e);
+      }
+    }
+    if (embeddedStorage instanceof Closeable) {
+      try {
+        ((Closeable) embeddedStorage).close();
+      } catch (IOException e) {
+        log.warn("Failed to close the warp storage.", e);
+      }
+    }
+  }
+
+  /**
+   * Runs the given {@code read} in the background, on a storage that uses its own connection and executor, so that
+   * long reads do not delay the queries of the storage system. The read starts once all writes that were submitted
+   * before this method was called have been executed.
+   */
+  private <T> CompletableFuture<T> readInBulk(Function<WarpStorage, T> read) {
+    // the latest change is only read once all previously submitted writes have been executed
+    return SqlWorkQueue.supplyAsync(warpStorage::getLatestChangeId, dataService.getExecutorService())
+        .thenCompose(changeId -> {
+          SqlDataService bulkReadService = dataService.duplicate();
+          bulkReadServices.add(bulkReadService);
+          return SqlWorkQueue.supplyAsync(() -> read.apply(openBulkReadStorage(bulkReadService)),
+              bulkReadService.getExecutorService()).whenCompleteAsync((result, ex) -> {
+                // closing blocks until the executor terminated, so it must not run on the executor itself
+                bulkReadServices.remove(bulkReadService);
+                bulkReadService.close();
+              });
+        });
+  }
+
+  private WarpStorage openBulkReadStorage(SqlDataService bulkReadService) {
+    if (embeddedStorage != null) {
+      // the embedded storage supports concurrent reads and has no connection of its own
+      return embeddedStorage;
+    }
+    try {
+      return WarpStorageBuilder.using(bulkReadService).build();
+    } catch (SQLException | UnsupportedDialectException | TableInitializationException e) {
+      throw new CompletionException(e);
+    }
+  }
+
+  /**
+   * Returns whether warps are read from the storage system when they are accessed, because the bounded cache is
+   * enabled. If not, all warps are kept in memory.
+   *
+   * @return {@code true} if warps are read from the storage system when they are accessed
+   */
+  public boolean isReadThrough() {
+    return warpManager instanceof ReadThroughPopulatableWarpManager;
+  }
+
   /**
    * Gets the CommandHandler that holds and executes all of MyWarp's commands.
    *
@@ -218,6 +479,15 @@ public final class MyWarp {
     return teleportHandler;
   }
 
+  /**
+   * Gets the TeleportScheduler instance of this MyWarp instance. It also acts as this instance's TeleportHandler.
+   *
+   * @return the TeleportScheduler
+   */
+  public TeleportScheduler getTeleportScheduler() {
+    return teleportHandler;
+  }
+
   /**
    * Creates a new WarpSignHandler that hooks into the PopulatableWarpManager configured for this MyWarp instance.
    *
@@ -230,8 +500,10 @@ public final class MyWarp {
 
   private void initializeMutableFields() {
     teleportHandler =
-        new StrategicTeleportHandler(getSettings(), getGame(),
-            platform.getCapability(PositionValidationCapability.class).orElse(null));
+        new TeleportScheduler(new StrategicTeleportHandler(getSettings(), getGame(),
+            platform.getCapability(PositionValidationCapability.class).orElse(null),
+            platform.getCapability(ChunkPreloadCapability.class).orElse(null)), getGame(),
+            Duration.ofMillis(getSettings().getTeleportTickBudget()));
 
     commandHandler = new CommandHandler(this, platform);
 
@@ -241,14 +513,109 @@ public final class MyWarp {
     }
   }
 
+  @Nullable
+  private static WarpJournal openJournal(Path file, WarpStorage storage) {
+    try {
+      WarpJournal journal = WarpJournal.open(file);
+      try {
+        int replayed = journal.replay(storage);
+        if (replayed > 0) {
+          log.info("{} pending writes replayed from the journal.", replayed);
+        }
+      } catch (IOException e) {
+        journal.close();
+        throw e;
+      }
+      return journal;
+    } catch (IOException e) {
+      log.warn(String.format("Failed to open the warp journal '%s', writes will not be journaled.", file), e);
+      return null;
+    }
+  }
+
+
   private void loadWarps() {
-    CompletableFuture.supplyAsync(warpStorage::getWarps, dataService.getExecutorService()).thenAcceptAsync(warps -> {
-      warpManager.populate(warps);
+    if (isReadThrough()) {
+      indexWarps((ReadThroughPopulatableWarpManager) warpManager);
+      return;
+    }
 
-      //notify platform
-      platform.onWarpsLoaded();
+    Optional<WarpSnapshot> snapshot = Optional.empty();
+    // on reloads, loaded warps remain available and are only replaced by the changed warps from the storage
+    if (getSettings().isStorageSnapshotEnabled() && warpManager.getNumberOfAllWarps() == 0) {
+      snapshot = WarpSnapshot.read(snapshotFile);
+    }
 
-      log.info("{} warps loaded.", warpManager.getNumberOfAllWarps());
-    });
+    if (snapshot.isPresent()) {
+      loadWarpsFromSnapshot(snapshot.get());
+    } else {
+      loadWarpsFromStorage();
+    }
+  }
+
+  private void loadWarpsFromSnapshot(WarpSnapshot snapshot) {
+    warpManager.populate(snapshot.getWarps());
+
+    //notify platform
+    platform.onWarpsLoaded();
+
+    log.info("{} warps loaded from snapshot.", warpManager.getNumberOfAllWarps());
+
+    // the storage executes queries in order, so the fingerprint is not affected by any later changes
+    CompletableFuture<Long> changeId =
+        SqlWorkQueue.supplyAsync(warpStorage::getLatestChangeId, dataService.getExecutorService());
+    SqlWorkQueue.supplyAsync(warpStorage::getFingerprint, dataService.getExecutorService())
+        .thenCombine(changeId, (fingerprint, id) -> fingerprint.equals(snapshot.getFingerprint()) ? id : -1L)
+        .whenCompleteAsync((id, ex) -> {
+          if (ex != null) {
+            log.warn("Failed to validate the warp snapshot, warps will be reloaded from the storage.", ex);
+          } else if (id < 0) {
+            log.info("The warp snapshot is outdated, warps will be reloaded from the storage.");
+          } else {
+            warpsLoaded = true;
+            synchronizer.reset(id);
+            return;
+          }
+          loadWarpsFromStorage();
+        }, getGame().getExecutor());
+  }
+
+  private void indexWarps(ReadThroughPopulatableWarpManager readThrough) {
+    // warps are read when they are accessed, so only their names are loaded
+    CompletableFuture<Long> changeId =
+        SqlWorkQueue.supplyAsync(warpStorage::getLatestChangeId, dataService.getExecutorService());
+    SqlWorkQueue.supplyAsync(warpStorage::getWarpNames, dataService.getExecutorService())
+        .thenCombineAsync(changeId, (names, id) -> {
+          readThrough.index(names);
+          warpsLoaded = true;
+          synchronizer.reset(id);
+
+          //notify platform
+          platform.onWarpsLoaded();
+
+          log.info("{} warps indexed.", readThrough.getNumberOfAllWarps());
+          return null;
+        }, getGame().getExecutor());
+  }
+
+  private void loadWarpsFromStorage() {
+    // loaded warps are modified on the game's thread while the diff is computed
+    ImmutableList<Warp> current = WarpDiff.snapshot(warpManager.getAll(warp -> true));
+
+    CompletableFuture<Long> changeId =
+        SqlWorkQueue.supplyAsync(warpStorage::getLatestChangeId, dataService.getExecutorService());
+    SqlWorkQueue.supplyAsync(warpStorage::getWarps, dataService.getExecutorService())
+        .thenApplyAsync(warps -> WarpDiff.compute(current, warps), getGame().getAsyncExecutor())
+        .thenCombineAsync(changeId, (diff, id) -> {
+          diff.apply(warpManager, eventBus);
+          warpsLoaded = true;
+          synchronizer.reset(id);
+
+          //notify platform
+          platform.onWarpsLoaded();
+
+          log.info("{} warps loaded, {} changed.", warpManager.getNumberOfAllWarps(), diff.size());
+          return null;
+        }, getGame().getExecutor());
   }
 }
@@ -117,7 +117,8 @@ public final class CommandHandler {
     //...usage service used by '/warp <warp>'
     TeleportService usageService = basic;
     if (economyOptional.isPresent()) {
-      usageService = new EconomyTeleportService(basic, new EconomyService(economyOptional.get()), FeeType.WARP_TO);
+      usageService = new EconomyTeleportService(basic, new EconomyService(economyOptional.get()), FeeType.WARP_TO,
+          game);
     }
     Optional<TimerCapability> timerOptional = platform.getCapability(TimerCapability.class);
     if (timerOptional.isPresent()) {
@@ -138,11 +139,12 @@ public final class CommandHandler {
     //register commands
     dispatcher = new CommandGraph().builder(builder).commands().registerMethods(usageCmd).group(ROOT_COMMANDS)
         .registerMethods(defaultUsageCmd).registerMethods(
-            new InformativeCommands(warpManager, limitService, authorizationResolver, platform, playerNameResolver,
-                game)).registerMethods(new ManagementCommands(warpManager, limitService))
+            new InformativeCommands(myWarp, warpManager, limitService, authorizationResolver, platform,
+                playerNameResolver, game)).registerMethods(new ManagementCommands(warpManager, limitService))
         .registerMethods(new SocialCommands(game, playerNameResolver, limitService))
-        .registerMethods(new UtilityCommands(myWarp, this, basic, platform, game)).group("import", "migrate")
-        .registerMethods(new ImportCommands(warpManager, playerNameResolver, game)).graph().getDispatcher();
+        .registerMethods(new UtilityCommands(myWarp, this, basic, platform, game))
+        .registerMethods(new ExportCommands(myWarp, platform, game)).group("import", "migrate")
+        .registerMethods(new ImportCommands(myWarp, playerNameResolver, game, platform)).graph().getDispatcher();
   }
 
   /**
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.command;
+
+import com.sk89q.intake.Command;
+import com.sk89q.intake.Require;
+import com.sk89q.intake.parametric.annotation.Switch;
+import io.github.mywarp.mywarp.MyWarp;
+import io.github.mywarp.mywarp.platform.Actor;
+import io.github.mywarp.mywarp.platform.Game;
+import io.github.mywarp.mywarp.platform.Platform;
+import io.github.mywarp.mywarp.util.MyWarpLogger;
+import io.github.mywarp.mywarp.util.i18n.DynamicMessages;
+import io.github.mywarp.mywarp.warp.storage.WarpExport;
+import org.slf4j.Logger;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Bundles commands used to export Warps to an external file.
+ */
+public final class ExportCommands {
+
+  private static final Logger log = MyWarpLogger.getLogger(ExportCommands.class);
+  private static final DynamicMessages msg = new DynamicMessages(CommandHandler.RESOURCE_BUNDLE_NAME);
+  private static final String EXPORT_FOLDER_NAME = "exports";
+  private static final DateTimeFormatter FILE_NAME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+  private final MyWarp myWarp;
+  private final Platform platform;
+  private final Game game;
+
+  /**
+   * Creates an instance.
+   *
+   * @param myWarp   the MyWarp instance used in commands
+   * @param platform the Platform instance used in commands
+   * @param game     the Game used by commands
+   */
+  ExportCommands(MyWarp myWarp, Platform platform, Game game) {
+    this.myWarp = myWarp;
+    this.platform = platform;
+    this.game = game;
+  }
+
+  @Command(aliases = {"export"}, desc = "export.description", help = "export.help")
+  @Require("mywarp.cmd.export")
+  public void export(Actor actor, @Switch('c') boolean csv, @Switch('z') boolean compress) {
+    WarpExport.Format format = csv ? WarpExport.Format.CSV : WarpExport.Format.JSON_LINES;
+    String fileName = "warps-" + LocalDateTime.now().format(FILE_NAME_FORMATTER) + "." + format.getExtension();
+    if (compress) {
+      fileName += ".gz";
+    }
+    Path file = platform.getDataFolder().toPath().resolve(EXPORT_FOLDER_NAME).resolve(fileName);
+
+    actor.sendMessage(msg.getString("export.started"));
+
+    myWarp.exportWarps(format, compress, file, count -> game.getExecutor()
+        .execute(() -> actor.sendMessage(msg.getString("export.progress", count)))).whenCompleteAsync((count, ex) -> {
+          if (ex != null) {
+            log.error("Failed to export warps.", ex);
+            actor.sendError(msg.getString("export.failed", ex.getMessage()));
+          } else {
+            actor.sendMessage(msg.getString("export.export-successful", count, file.getFileName()));
+          }
+        }, game.getExecutor());
+  }
+
+}
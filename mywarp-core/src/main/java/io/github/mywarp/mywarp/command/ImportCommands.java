@@ -22,48 +22,64 @@ package io.github.mywarp.mywarp.command;
 import com.sk89q.intake.Command;
 import com.sk89q.intake.Require;
 import com.sk89q.intake.parametric.annotation.OptArg;
+import io.github.mywarp.mywarp.MyWarp;
+import io.github.mywarp.mywarp.command.util.ImportJob;
 import io.github.mywarp.mywarp.platform.Actor;
 import io.github.mywarp.mywarp.platform.Game;
 import io.github.mywarp.mywarp.platform.LocalWorld;
+import io.github.mywarp.mywarp.platform.Platform;
 import io.github.mywarp.mywarp.platform.PlayerNameResolver;
 import io.github.mywarp.mywarp.util.Message;
+import io.github.mywarp.mywarp.util.MyWarpLogger;
 import io.github.mywarp.mywarp.util.i18n.DynamicMessages;
-import io.github.mywarp.mywarp.warp.Warp;
-import io.github.mywarp.mywarp.warp.WarpManager;
 import io.github.mywarp.mywarp.warp.storage.*;
+import org.slf4j.Logger;
 
+import javax.annotation.Nullable;
 import java.sql.SQLException;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
 /**
  * Bundles commands used to import Warps from an external source.
+ *
+ * <p>Imports run as {@link ImportJob}s in the background. Only one import can run at a time.</p>
  */
 public final class ImportCommands {
 
   private static final String IMPORT_PERMISSION = "mywarp.cmd.import";
+  private static final String CHECKPOINT_FILE_NAME = "import.checkpoint";
+  private static final Logger log = MyWarpLogger.getLogger(ImportCommands.class);
   private static final DynamicMessages msg = new DynamicMessages(CommandHandler.RESOURCE_BUNDLE_NAME);
 
+  /**
+   * The running import, if any. Survives reloads, which create new instances of this class.
+   */
+  @Nullable
+  private static ImportJob currentJob;
+
+  private final MyWarp myWarp;
   private final PlayerNameResolver playerNameResolver;
-  private final WarpManager warpManager;
   private final Game game;
+  private final Platform platform;
 
   /**
    * Creates an instance.
    *
-   * @param warpManager        the WarpManager used by commands
+   * @param myWarp             the MyWarp instance warps are imported into
    * @param playerNameResolver the PlayerNameResolver used by commands
    * @param game               the Game used by commands
+   * @param platform           the Platform used by commands
    */
-  ImportCommands(WarpManager warpManager, PlayerNameResolver playerNameResolver, Game game) {
+  ImportCommands(MyWarp myWarp, PlayerNameResolver playerNameResolver, Game game, Platform platform) {
+    this.myWarp = myWarp;
     this.playerNameResolver = playerNameResolver;
-    this.warpManager = warpManager;
     this.game = game;
+    this.platform = platform;
   }
 
   @Command(aliases = {"current", "curr"}, desc = "import.current.description", help = "import.current.help")
@@ -71,7 +87,8 @@ public final class ImportCommands {
   public void current(Actor actor, SqlDataService dataService)
       throws UnsupportedDialectException, SQLException, TableInitializationException {
     WarpSource source = WarpStorageBuilder.using(dataService).build();
-    start(actor, dataService, source);
+    start(actor, dataService, source, "current:" + dataService.getJdbcUrl() + ":" + dataService.getDatabase()
+        .orElse(""));
   }
 
   @Command(aliases = {"legacy"}, desc = "import.legacy.description", help = "import.legacy.help")
@@ -83,42 +100,77 @@ public final class ImportCommands {
         LegacyWarpSource.using(dataService.getDataSource(), tableName, dataService.getDatabase().orElse(null))
             .using(playerNameResolver, getWorldSnapshot());
 
-    start(actor, dataService, source);
+    start(actor, dataService, source,
+          "legacy:" + dataService.getJdbcUrl() + ":" + dataService.getDatabase().orElse("") + ":" + tableName);
   }
 
-  private void start(Actor initiator, SqlDataService dataService, WarpSource warpSource) {
+  @Command(aliases = {"status"}, desc = "import.status.description", help = "import.status.help")
+  @Require(IMPORT_PERMISSION)
+  public void status(Actor actor) {
+    if (currentJob == null) {
+      actor.sendError(msg.getString("import.no-import"));
+      return;
+    }
+    actor.sendMessage(msg.getString("import.status.running", currentJob.getInitiator().getName(),
+                                    currentJob.getImported(), currentJob.getSkipped()));
+  }
+
+  @Command(aliases = {"cancel"}, desc = "import.cancel.description", help = "import.cancel.help")
+  @Require(IMPORT_PERMISSION)
+  public void cancel(Actor actor) {
+    if (currentJob == null) {
+      actor.sendError(msg.getString("import.no-import"));
+      return;
+    }
+    currentJob.cancel();
+    actor.sendMessage(msg.getString("import.cancel.cancelling"));
+  }
+
+  private void start(Actor initiator, SqlDataService dataService, WarpSource warpSource, String sourceId) {
+    if (currentJob != null) {
+      initiator.sendError(msg.getString("import.already-running"));
+      dataService.close();
+      return;
+    }
     initiator.sendMessage(msg.getString("import.started"));
 
+    ImportJob job =
+        new ImportJob(warpSource, sourceId, myWarp, initiator,
+                      platform.getDataFolder().toPath().resolve(CHECKPOINT_FILE_NAME));
+    currentJob = job;
+
     ExecutorService executorService = dataService.getExecutorService();
 
-    CompletableFuture.supplyAsync(warpSource::getWarps, executorService).whenCompleteAsync((warps, ex) -> {
-      if (ex != null) {
+    SqlWorkQueue.runAsync(job::run, executorService).whenCompleteAsync((v, ex) -> {
+      currentJob = null;
+      dataService.close();
+
+      if (ex instanceof CompletionException) {
+        ex = ex.getCause();
+      }
+      if (ex instanceof CancellationException) {
+        initiator.sendMessage(msg.getString("import.cancelled", job.getImported()));
+      } else if (ex != null) {
+        log.error("Failed to import warps.", ex);
         initiator.sendError(msg.getString("import.no-connection", ex.getMessage()));
+      } else if (job.getSkipped() == 0) {
+        initiator.sendMessage(msg.getString("import.import-successful", job.getImported()));
       } else {
-        Set<Warp> notImportedWarps = new HashSet<Warp>();
-
-        for (Warp warp : warps) {
-          if (warpManager.containsByName(warp.getName())) {
-            // skip the warp
-            notImportedWarps.add(warp);
-            continue;
-          }
-          warpManager.add(warp);
-        }
-
-        if (notImportedWarps.isEmpty()) {
-          initiator.sendMessage(msg.getString("import.import-successful", warps.size()));
-        } else {
-          int successfullyImported = warps.size() - notImportedWarps.size();
-
-          Message.Builder builder = Message.builder();
-          builder.append(Message.Style.ERROR);
-          builder.append(msg.getString("import.import-with-skips", successfullyImported, notImportedWarps.size()));
-          builder.appendWithSeparators(notImportedWarps);
-
-          initiator.sendMessage(builder.build());
-        }
-        dataService.close();
+        Message.Builder builder = Message.builder();
+        builder.append(Message.Style.ERROR);
+        builder.append(msg.getString("import.import-with-skips", job.getImported(), job.getSkipped()));
+        builder.appendWithSeparators(job.getSkippedNames());
+
+        initiator.sendMessage(builder.build());
+      }
+
+      if (ex == null && !job.getUnconvertedNames().isEmpty()) {
+        Message.Builder builder = Message.builder();
+        builder.append(Message.Style.ERROR);
+        builder.append(msg.getString("import.import-with-unconverted", job.getUnconvertedNames().size()));
+        builder.appendWithSeparators(job.getUnconvertedNames());
+
+        initiator.sendMessage(builder.build());
       }
     }, game.getExecutor());
   }
@@ -27,6 +27,7 @@ import com.sk89q.intake.parametric.annotation.OptArg;
 import com.sk89q.intake.parametric.annotation.Range;
 import com.sk89q.intake.parametric.annotation.Switch;
 import com.sk89q.intake.util.auth.AuthorizationException;
+import io.github.mywarp.mywarp.MyWarp;
 import io.github.mywarp.mywarp.command.parametric.annotation.Billable;
 import io.github.mywarp.mywarp.command.parametric.annotation.Viewable;
 import io.github.mywarp.mywarp.command.parametric.namespace.IllegalCommandSenderException;
@@ -36,6 +37,7 @@ import io.github.mywarp.mywarp.command.util.UserViewableException;
 import io.github.mywarp.mywarp.command.util.printer.AssetsPrinter;
 import io.github.mywarp.mywarp.command.util.printer.InfoPrinter;
 import io.github.mywarp.mywarp.platform.*;
+import io.github.mywarp.mywarp.platform.paginatedcontent.PaginatedContent;
 import io.github.mywarp.mywarp.service.economy.FeeType;
 import io.github.mywarp.mywarp.service.limit.LimitService;
 import io.github.mywarp.mywarp.util.Message;
@@ -43,10 +45,13 @@ import io.github.mywarp.mywarp.util.i18n.DynamicMessages;
 import io.github.mywarp.mywarp.warp.Warp;
 import io.github.mywarp.mywarp.warp.WarpManager;
 import io.github.mywarp.mywarp.warp.authorization.AuthorizationResolver;
+import io.github.mywarp.mywarp.warp.storage.WarpPage;
+import io.github.mywarp.mywarp.warp.storage.WarpQuery;
 
 import javax.annotation.Nullable;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -57,6 +62,7 @@ public final class InformativeCommands {
 
   private static final DynamicMessages msg = new DynamicMessages(CommandHandler.RESOURCE_BUNDLE_NAME);
 
+  private final MyWarp myWarp;
   private final AuthorizationResolver authorizationResolver;
   private final WarpManager warpManager;
   private final Game game;
@@ -68,6 +74,7 @@ public final class InformativeCommands {
   /**
    * Creates an instance.
    *
+   * @param myWarp                the MyWarp instance used to query warps from the storage
    * @param warpManager           the WarpManager used by commands
    * @param limitService          the LimitService used by commands - may be {@code null} if no limit service is used
    * @param authorizationResolver the AuthorizationResolver used by commands
@@ -75,9 +82,10 @@ public final class InformativeCommands {
    * @param playerNameResolver    the PlayerNameResolver used by commands
    * @param game                  the Game used by commands
    */
-  InformativeCommands(WarpManager warpManager, @Nullable LimitService limitService,
+  InformativeCommands(MyWarp myWarp, WarpManager warpManager, @Nullable LimitService limitService,
       AuthorizationResolver authorizationResolver, Platform platform,
       PlayerNameResolver playerNameResolver, Game game) {
+    this.myWarp = myWarp;
     this.authorizationResolver = authorizationResolver;
     this.warpManager = warpManager;
     this.platform = platform;
@@ -117,11 +125,85 @@ public final class InformativeCommands {
       @Switch('n') final String name, @Switch('o') final Comparator<Warp> comparator,
       @Switch('r') @Range(min = 1, max = Integer.MAX_VALUE) final Integer radius,
       @Switch('w') final String world) {
-
-    // build the filter Predicate
     if (creatorFuture == null) {
       creatorFuture = CompletableFuture.completedFuture(null);
     }
+    Comparator<Warp> order = comparator != null ? comparator : platform.getSettings().getDefaultListComparator();
+
+    // if all warps are in memory, they include writes the storage has not executed yet and are ordered consistently
+    if (order instanceof WarpQuery.Order && myWarp.isReadThrough()) {
+      listFromStorage(actor, page, creatorFuture, name, (WarpQuery.Order) order, radius, world);
+    } else {
+      listFromMemory(actor, page, creatorFuture, name, order, radius, world);
+    }
+  }
+
+  /**
+   * Lists warps by querying only the requested page from the storage, which is possible if the order can be expressed
+   * as a {@link WarpQuery.Order}. This is only done if warps are not kept in memory.
+   */
+  private void listFromStorage(Actor actor, int page, CompletableFuture<Profile> creatorFuture, @Nullable String name,
+                               WarpQuery.Order order, @Nullable Integer radius, @Nullable String world) {
+    PaginatedContent.Builder
+        contentBuilder =
+        platform.createPaginatedContentBuilder().withHeading(msg.getString("list.heading"));
+    int perPage = contentBuilder.getEntriesPerPage();
+
+    // groups are only required to check invitations of players
+    CompletableFuture<Set<String>>
+        groupsFuture =
+        actor instanceof LocalPlayer ? myWarp.getInvitedGroups()
+                                     : CompletableFuture.completedFuture(Collections.emptySet());
+
+    // build the query
+    CompletableFuture<WarpQuery> queryFuture = creatorFuture.thenCombineAsync(groupsFuture, (creator, groups) -> {
+      WarpQuery.Builder query = WarpQuery.builder().orderBy(order).page(Math.max(page - 1, 0) * perPage, perPage);
+      authorizationResolver.restrictToViewable(query, actor, groups);
+
+      if (creator != null) {
+        query.createdBy(creator.getUuid());
+      }
+      if (name != null) {
+        query.nameContains(name);
+      }
+      if (radius != null) {
+        if (!(actor instanceof LocalEntity)) {
+          throw new CompletionException(new IllegalCommandSenderException(actor));
+        }
+        LocalEntity entity = (LocalEntity) actor;
+        query.near(entity.getWorld().getUniqueId(), entity.getPosition(), radius);
+      }
+      if (world != null) {
+        query.inWorlds(game.getWorlds().stream().filter(w -> CommandUtil.containsIgnoreCase(w.getName(), world))
+                           .map(LocalWorld::getUniqueId).collect(Collectors.toSet()));
+      }
+      return query.build();
+    }, game.getExecutor());
+
+    // query the requested page
+    CompletableFuture<WarpPage> pageFuture = queryFuture.thenCompose(myWarp::queryWarps);
+
+    // build the list of creator names
+    CompletableFuture<Map<UUID, String>> creatorsFuture = pageFuture.thenCompose(p -> resolveCreators(p.getWarps()));
+
+    //convert to messages
+    creatorsFuture.thenAcceptBothAsync(pageFuture, (creators, warpPage) -> {
+      List<Message> messages = warpPage.getWarps().stream().map(warp -> toListEntry(warp, actor, creators))
+          .collect(Collectors.toList());
+
+      contentBuilder.buildPage(page, warpPage.getTotal(), messages).display(actor, page);
+
+    }, game.getExecutor()).exceptionally(ex -> sendError(actor, ex));
+  }
+
+  /**
+   * Lists warps by testing and ordering all warps of the WarpManager, which is necessary if the order cannot be
+   * evaluated by the storage and preferred if all warps are kept in memory.
+   */
+  private void listFromMemory(Actor actor, int page, CompletableFuture<Profile> creatorFuture, @Nullable String name,
+                              Comparator<Warp> comparator, @Nullable Integer radius, @Nullable String world) {
+
+    // build the filter Predicate
     CompletableFuture<Predicate<Warp>> filterFuture = creatorFuture.thenApplyAsync(creator -> {
       Predicate<Warp> filter = authorizationResolver.isViewable(actor);
       if (creator != null) {
@@ -156,55 +238,59 @@ public final class InformativeCommands {
       return filter;
     }, game.getExecutor());
 
-    Ordering<Warp>
-        ordering =
-        Ordering.from(comparator != null ? comparator : platform.getSettings().getDefaultListComparator());
+    Ordering<Warp> ordering = Ordering.from(comparator);
 
     // query all matching warps
     CompletableFuture<List<Warp>>
         warpsFuture = filterFuture.thenApply(filter -> ordering.sortedCopy(warpManager.getAll(filter)));
 
     // build the list of creator names
-    CompletableFuture<Map<UUID, String>>
-        creatorsFuture =
-        warpsFuture.thenApply(warps -> warps.stream().map(Warp::getCreator).collect(Collectors.toSet()))
-            .thenCompose(playerNameResolver::getByUniqueId)
-            .thenApply(set -> set.stream().collect(Collectors.toMap(Profile::getUuid, Profile::getNameOrId)));
+    CompletableFuture<Map<UUID, String>> creatorsFuture = warpsFuture.thenCompose(this::resolveCreators);
 
     //convert to messages
     creatorsFuture.thenAcceptBothAsync(warpsFuture, (creators, warps) -> {
 
-      List<Message> messages = warps.stream().map(warp -> {
-        Message.Builder builder = Message.builder();
-        builder.append("'");
-        builder.append(warp);
-        builder.append("' (");
-        builder.append(CommandUtil.toWorldName(warp.getWorldIdentifier(), game));
-        builder.append(") ");
-        builder.append(msg.getString("list.by"));
-        builder.append(" ");
-
-        if (actor instanceof LocalPlayer && warp.isCreator(((LocalPlayer) actor).getUniqueId())) {
-          builder.append(msg.getString("list.you"));
-        } else {
-          builder.append(creators.get(warp.getCreator()));
-        }
-        return builder.build();
-      }).collect(Collectors.toList());
+      List<Message> messages = warps.stream().map(warp -> toListEntry(warp, actor, creators))
+          .collect(Collectors.toList());
 
       platform.createPaginatedContentBuilder().withHeading(msg.getString("list.heading")).build(messages)
           .display(actor, page);
 
-    }, game.getExecutor()).exceptionally((ex) -> {
-      UserViewableException userViewableException;
-      if (ex.getCause() instanceof UserViewableException) {
-        userViewableException = (UserViewableException) ex.getCause();
-      } else {
-        userViewableException = new UnknownException(ex);
-      }
-      actor.sendError(userViewableException);
-      return null;
-    });
+    }, game.getExecutor()).exceptionally(ex -> sendError(actor, ex));
+  }
+
+  private CompletableFuture<Map<UUID, String>> resolveCreators(List<Warp> warps) {
+    return playerNameResolver.getByUniqueId(warps.stream().map(Warp::getCreator).collect(Collectors.toSet()))
+        .thenApply(set -> set.stream().collect(Collectors.toMap(Profile::getUuid, Profile::getNameOrId)));
+  }
+
+  private Message toListEntry(Warp warp, Actor actor, Map<UUID, String> creators) {
+    Message.Builder builder = Message.builder();
+    builder.append("'");
+    builder.append(warp);
+    builder.append("' (");
+    builder.append(CommandUtil.toWorldName(warp.getWorldIdentifier(), game));
+    builder.append(") ");
+    builder.append(msg.getString("list.by"));
+    builder.append(" ");
+
+    if (actor instanceof LocalPlayer && warp.isCreator(((LocalPlayer) actor).getUniqueId())) {
+      builder.append(msg.getString("list.you"));
+    } else {
+      builder.append(creators.get(warp.getCreator()));
+    }
+    return builder.build();
+  }
+
+  private Void sendError(Actor actor, Throwable ex) {
+    UserViewableException userViewableException;
+    if (ex.getCause() instanceof UserViewableException) {
+      userViewableException = (UserViewableException) ex.getCause();
+    } else {
+      userViewableException = new UnknownException(ex);
+    }
+    actor.sendError(userViewableException);
+    return null;
   }
 
   @Command(aliases = {"info", "stats"}, desc = "info.description", help = "info.help")
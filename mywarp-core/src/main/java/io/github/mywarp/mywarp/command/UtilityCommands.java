@@ -36,8 +36,11 @@ import io.github.mywarp.mywarp.platform.Platform;
 import io.github.mywarp.mywarp.service.economy.FeeType;
 import io.github.mywarp.mywarp.service.teleport.TeleportService;
 import io.github.mywarp.mywarp.util.Message;
+import io.github.mywarp.mywarp.util.MyWarpLogger;
 import io.github.mywarp.mywarp.util.i18n.DynamicMessages;
+import io.github.mywarp.mywarp.util.i18n.LocaleManager;
 import io.github.mywarp.mywarp.warp.Warp;
+import org.slf4j.Logger;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -47,6 +50,7 @@ import java.util.stream.Collectors;
  */
 public final class UtilityCommands {
 
+  private static final Logger log = MyWarpLogger.getLogger(UtilityCommands.class);
   private static final DynamicMessages msg = new DynamicMessages(CommandHandler.RESOURCE_BUNDLE_NAME);
 
   private final MyWarp myWarp;
@@ -102,11 +106,23 @@ public final class UtilityCommands {
   @Require("mywarp.cmd.player")
   @Billable(FeeType.WARP_PLAYER)
   public void player(Actor actor, LocalPlayer teleportee, @Viewable Warp warp) {
-    if (teleportService.teleport(teleportee, warp).isPositionModified()) {
-      actor.sendMessage(msg.getString("warp-player.teleport-successful", teleportee.getName(), warp.getName()));
-    } else {
-      actor.sendError(msg.getString("warp-player.teleport-failed", teleportee.getName(), warp.getName()));
-    }
+    teleportService.teleport(teleportee, warp).whenComplete((status, ex) -> {
+      if (ex == null) {
+        LocaleManager.setLocale(actor.getLocale());
+        if (status.isPositionModified()) {
+          actor.sendMessage(msg.getString("warp-player.teleport-successful", teleportee.getName(), warp.getName()));
+        } else {
+          actor.sendError(msg.getString("warp-player.teleport-failed", teleportee.getName(), warp.getName()));
+        }
+        return;
+      }
+      log.error(String.format("Failed to teleport %s to '%s'.", teleportee.getName(), warp.getName()), ex);
+      // failed teleports might complete on any thread
+      game.getExecutor().execute(() -> {
+        LocaleManager.setLocale(actor.getLocale());
+        actor.sendError(msg.getString("warp-player.teleport-failed", teleportee.getName(), warp.getName()));
+      });
+    });
   }
 
   @Command(aliases = {"reload"}, desc = "reload.description", help = "reload.help")
@@ -30,6 +30,7 @@ import io.github.mywarp.mywarp.command.CommandHandler;
 import io.github.mywarp.mywarp.command.parametric.namespace.IllegalCommandSenderException;
 import io.github.mywarp.mywarp.command.util.NoSuchWorldException;
 import io.github.mywarp.mywarp.util.i18n.DynamicMessages;
+import io.github.mywarp.mywarp.warp.WarpsUnavailableException;
 import io.github.mywarp.mywarp.warp.storage.TableInitializationException;
 import io.github.mywarp.mywarp.warp.storage.UnsupportedDialectException;
 
@@ -147,6 +148,17 @@ public class ExceptionConverter extends ExceptionConverterHelper {
     throw new CommandException(msg.getString("exception.no-such-world", e.getWorldIdentifier()), e);
   }
 
+  /**
+   * Converts a WarpsUnavailableException to a CommandException.
+   *
+   * @param e the WarpsUnavailableException
+   * @throws CommandException the converted exception
+   */
+  @ExceptionMatch
+  public void convert(WarpsUnavailableException e) throws CommandException {
+    throw new CommandException(msg.getString("exception.warps-unavailable"), e);
+  }
+
   //-- SQL
 
   /**
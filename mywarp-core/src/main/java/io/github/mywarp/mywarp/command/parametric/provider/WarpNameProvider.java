@@ -19,7 +19,6 @@
 
 package io.github.mywarp.mywarp.command.parametric.provider;
 
-import com.google.common.collect.Iterables;
 import com.sk89q.intake.argument.ArgumentException;
 import com.sk89q.intake.argument.CommandArgs;
 import io.github.mywarp.mywarp.command.CommandHandler;
@@ -27,6 +26,7 @@ import io.github.mywarp.mywarp.command.parametric.provider.exception.InvalidWarp
 import io.github.mywarp.mywarp.platform.Settings;
 import io.github.mywarp.mywarp.util.WarpUtils;
 import io.github.mywarp.mywarp.warp.Warp;
+import io.github.mywarp.mywarp.warp.WarpFilter;
 import io.github.mywarp.mywarp.warp.WarpManager;
 
 import java.lang.annotation.Annotation;
@@ -69,6 +69,6 @@ class WarpNameProvider extends AbstractProvider<String> {
       return warpManager.containsByName(nameToCheck);
     }
 
-    return !Iterables.isEmpty(warpManager.getAll(input -> input.getName().equalsIgnoreCase(nameToCheck)));
+    return warpManager.getNumberOfWarps(WarpFilter.byName(name -> name.equalsIgnoreCase(nameToCheck))) > 0;
   }
 }
@@ -19,19 +19,25 @@
 
 package io.github.mywarp.mywarp.command.parametric.provider;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.sk89q.intake.argument.CommandArgs;
 import com.sk89q.intake.argument.MissingArgumentException;
 import com.sk89q.intake.argument.Namespace;
 import io.github.mywarp.mywarp.command.parametric.provider.exception.NoSuchWarpException;
+import io.github.mywarp.mywarp.command.util.CommandUtil;
 import io.github.mywarp.mywarp.command.util.Matches;
 import io.github.mywarp.mywarp.platform.Actor;
 import io.github.mywarp.mywarp.warp.Warp;
+import io.github.mywarp.mywarp.warp.WarpFilter;
 import io.github.mywarp.mywarp.warp.WarpManager;
+import io.github.mywarp.mywarp.warp.WarpsUnavailableException;
 import io.github.mywarp.mywarp.warp.authorization.AuthorizationResolver;
 
 import java.lang.annotation.Annotation;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.function.Predicate;
 
 /**
@@ -54,9 +60,19 @@ abstract class WarpProvider extends AbstractProvider<Warp> {
 
     Matches<Warp>
         matches =
-        Matches.from(warpManager.getAll(isValid(arguments.getNamespace()))).withStringFunction(Warp::getName)
-            .withValueComparator(new Warp.PopularityComparator()).forQuery(query);
-    return matches.getExactMatch().orElseThrow(() -> new NoSuchWarpException(query, matches.getSortedMatches()));
+        Matches.from(warpManager.getAll(matching(query).and(isValid(arguments.getNamespace()))))
+            .withStringFunction(Warp::getName).withValueComparator(new Warp.PopularityComparator()).forQuery(query);
+    Optional<Warp> exactMatch = matches.getExactMatch();
+    // matches may be copies if not all warps are kept in memory
+    return exactMatch.flatMap(warp -> warpManager.getByName(warp.getName()))
+        .orElseThrow(() -> new NoSuchWarpException(query, matches.getSortedMatches()));
+  }
+
+  /**
+   * Returns a filter for all warps that can be a match for the given query, i.e. whose name contains it.
+   */
+  private static WarpFilter matching(String query) {
+    return WarpFilter.byName(name -> CommandUtil.containsIgnoreCase(name, query));
   }
 
   /**
@@ -77,7 +93,13 @@ abstract class WarpProvider extends AbstractProvider<Warp> {
 
   @Override
   public List<String> getSuggestions(String prefix, Namespace locals) {
-    return Lists.transform(Matches.from(warpManager.getAll(isValid(locals))).withStringFunction(Warp::getName)
+    Collection<Warp> candidates;
+    try {
+      candidates = warpManager.getAll(matching(prefix).and(isValid(locals)));
+    } catch (WarpsUnavailableException e) {
+      return ImmutableList.of();
+    }
+    return Lists.transform(Matches.from(candidates).withStringFunction(Warp::getName)
         .withValueComparator(new Warp.PopularityComparator()).forQuery(prefix)
         .getSortedMatches(), Warp::getName);
   }
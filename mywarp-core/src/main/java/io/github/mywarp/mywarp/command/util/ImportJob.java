@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.command.util;
+
+import com.google.common.hash.Hashing;
+import io.github.mywarp.mywarp.MyWarp;
+import io.github.mywarp.mywarp.command.CommandHandler;
+import io.github.mywarp.mywarp.platform.Actor;
+import io.github.mywarp.mywarp.platform.Game;
+import io.github.mywarp.mywarp.util.MyWarpLogger;
+import io.github.mywarp.mywarp.util.i18n.DynamicMessages;
+import io.github.mywarp.mywarp.warp.Warp;
+import io.github.mywarp.mywarp.warp.WarpManager;
+import io.github.mywarp.mywarp.warp.storage.WarpSource;
+import org.slf4j.Logger;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Imports warps from a {@link WarpSource} into a {@link WarpManager} as a resumable background job.
+ *
+ * <p>Warps are read from the source chunk by chunk. Each chunk is added to the manager on the game's thread, so it is
+ * written to the storage as one unit. Once the storage acknowledged all warps of the chunk, the name of the last
+ * imported warp is recorded in a checkpoint file. If an import fails or is cancelled, running an import from the same
+ * source again resumes after the last checkpoint. The initiator is informed about the progress every {@link
+ * #PROGRESS_INTERVAL} warps.</p>
+ *
+ * <p>Entries of the source that cannot be converted into warps are reported to the initiator once the import is
+ * finished. The checkpoint is never moved past the first of them, so running the import again retries them.</p>
+ */
+public final class ImportJob {
+
+  private static final Logger log = MyWarpLogger.getLogger(ImportJob.class);
+  private static final DynamicMessages msg = new DynamicMessages(CommandHandler.RESOURCE_BUNDLE_NAME);
+
+  /**
+   * The number of processed warps after which the initiator is informed about the progress.
+   */
+  private static final int PROGRESS_INTERVAL = 5000;
+
+  private static final String SOURCE_KEY = "source";
+  private static final String LAST_NAME_KEY = "lastName";
+  private static final String IMPORTED_KEY = "imported";
+  private static final String SKIPPED_KEY = "skipped";
+
+  private final WarpSource source;
+  private final String sourceId;
+  private final MyWarp myWarp;
+  private final WarpManager warpManager;
+  private final Game game;
+  private final Actor initiator;
+  private final Path checkpointFile;
+
+  private final Set<String> skippedNames = new HashSet<>();
+  private final List<String> unconvertedNames = new ArrayList<>();
+  private volatile int imported;
+  private volatile int skipped;
+  private volatile boolean cancelled;
+
+  /**
+   * Creates an instance.
+   *
+   * @param source         the source to import warps from
+   * @param sourceId       an identifier of the source that is unique among all possible sources. It is never stored
+   *                       in plain text, so it may contain credentials.
+   * @param myWarp         the MyWarp instance whose WarpManager warps are imported into
+   * @param initiator      the Actor who is informed about the progress
+   * @param checkpointFile the file that stores the checkpoint
+   */
+  public ImportJob(WarpSource source, String sourceId, MyWarp myWarp, Actor initiator, Path checkpointFile) {
+    this.source = source;
+    this.sourceId = Hashing.sha256().hashString(sourceId, StandardCharsets.UTF_8).toString();
+    this.myWarp = myWarp;
+    this.warpManager = myWarp.getWarpManager();
+    this.game = myWarp.getGame();
+    this.initiator = initiator;
+    this.checkpointFile = checkpointFile;
+  }
+
+  /**
+   * Runs this job and blocks until all warps are imported.
+   *
+   * <p>This method reads from the source and must therefore never be called on the game's thread.</p>
+   *
+   * @throws CancellationException if the job was cancelled
+   * @throws RuntimeException      if reading from the source or writing to the storage fails
+   */
+  public void run() {
+    @Nullable String lastName = null;
+    Map<String, String> checkpoint = readCheckpoint();
+    if (sourceId.equals(checkpoint.get(SOURCE_KEY))) {
+      lastName = checkpoint.get(LAST_NAME_KEY);
+      imported = Integer.parseInt(checkpoint.getOrDefault(IMPORTED_KEY, "0"));
+      skipped = Integer.parseInt(checkpoint.getOrDefault(SKIPPED_KEY, "0"));
+
+      final String resumeAfter = lastName;
+      game.getExecutor().execute(() -> initiator.sendMessage(msg.getString("import.resumed", resumeAfter)));
+    }
+
+    source.forEachChunk(lastName, chunk -> {
+      if (cancelled) {
+        throw new CancellationException();
+      }
+      if (chunk.isEmpty()) {
+        return;
+      }
+      int processed = imported + skipped;
+      Set<String> importedNames = CompletableFuture.supplyAsync(() -> importChunk(chunk), game.getExecutor()).join();
+
+      // the checkpoint may only move past warps that are actually stored
+      Set<String> storedNames = myWarp.getStoredWarpNames(importedNames).join();
+      if (!storedNames.containsAll(importedNames)) {
+        throw new IllegalStateException(String.format("The storage did not acknowledge %d of %d imported warps.",
+            importedNames.size() - storedNames.size(), importedNames.size()));
+      }
+      if (unconvertedNames.isEmpty()) {
+        writeCheckpoint(chunk.get(chunk.size() - 1).getName());
+      }
+      if ((imported + skipped) / PROGRESS_INTERVAL > processed / PROGRESS_INTERVAL) {
+        final int importedSoFar = imported;
+        game.getExecutor().execute(() -> initiator.sendMessage(msg.getString("import.progress", importedSoFar)));
+      }
+    }, unconvertedNames::add);
+
+    if (!unconvertedNames.isEmpty()) {
+      // keep the checkpoint so that the unconverted entries are retried
+      return;
+    }
+    try {
+      Files.deleteIfExists(checkpointFile);
+    } catch (IOException e) {
+      log.warn("Failed to delete the import checkpoint.", e);
+    }
+  }
+
+  /**
+   * Cancels this job. The job stops before the next chunk is imported.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * Returns whether this job has been cancelled.
+   *
+   * @return {@code true} if this job has been cancelled
+   */
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * Gets the Actor who initiated this job.
+   *
+   * @return the initiator
+   */
+  public Actor getInitiator() {
+    return initiator;
+  }
+
+  /**
+   * Gets the number of warps imported so far, including warps imported before the job was resumed.
+   *
+   * @return the number of imported warps
+   */
+  public int getImported() {
+    return imported;
+  }
+
+  /**
+   * Gets the number of warps skipped so far because a warp with the same name already exists, including warps skipped
+   * before the job was resumed.
+   *
+   * @return the number of skipped warps
+   */
+  public int getSkipped() {
+    return skipped;
+  }
+
+  /**
+   * Gets the names of the warps that were skipped by this run of the job. This method must be called on the game's
+   * thread.
+   *
+   * @return the names of skipped warps
+   */
+  public Set<String> getSkippedNames() {
+    return skippedNames;
+  }
+
+  /**
+   * Gets the names of the entries of the source that could not be converted into warps by this run of the job. This
+   * method must only be called once the job is finished.
+   *
+   * @return the names of unconverted entries, in the order of the source
+   */
+  public List<String> getUnconvertedNames() {
+    return unconvertedNames;
+  }
+
+  private Set<String> importChunk(List<Warp> chunk) {
+    Map<String, Warp> importableWarps = new LinkedHashMap<>();
+    List<Warp> notImportedWarps = new ArrayList<>();
+    for (Warp warp : chunk) {
+      if (warpManager.containsByName(warp.getName()) || importableWarps.containsKey(warp.getName())) {
+        // skip the warp
+        notImportedWarps.add(warp);
+        continue;
+      }
+      importableWarps.put(warp.getName(), warp);
+    }
+    // each chunk is written to the storage as one unit
+    warpManager.addAll(importableWarps.values());
+
+    notImportedWarps.forEach(warp -> skippedNames.add(warp.getName()));
+    imported += importableWarps.size();
+    skipped += notImportedWarps.size();
+    return new HashSet<>(importableWarps.keySet());
+  }
+
+  private Map<String, String> readCheckpoint() {
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(checkpointFile, StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    } catch (NoSuchFileException e) {
+      // no checkpoint
+    } catch (IOException | IllegalArgumentException e) {
+      log.warn("Failed to read the import checkpoint, the import will start from the beginning.", e);
+    }
+
+    Map<String, String> ret = new LinkedHashMap<>();
+    properties.stringPropertyNames().forEach(key -> ret.put(key, properties.getProperty(key)));
+    return ret;
+  }
+
+  private void writeCheckpoint(String lastName) {
+    Properties properties = new Properties();
+    properties.setProperty(SOURCE_KEY, sourceId);
+    properties.setProperty(LAST_NAME_KEY, lastName);
+    properties.setProperty(IMPORTED_KEY, Integer.toString(imported));
+    properties.setProperty(SKIPPED_KEY, Integer.toString(skipped));
+
+    try {
+      Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+      try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+        properties.store(writer, "MyWarp import checkpoint");
+      }
+      Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      log.warn("Failed to write the import checkpoint.", e);
+    }
+  }
+}
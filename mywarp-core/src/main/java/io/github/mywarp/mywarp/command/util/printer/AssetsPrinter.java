@@ -33,6 +33,7 @@ import io.github.mywarp.mywarp.service.limit.LimitValueWarpMapping;
 import io.github.mywarp.mywarp.util.Message;
 import io.github.mywarp.mywarp.util.i18n.DynamicMessages;
 import io.github.mywarp.mywarp.warp.Warp;
+import io.github.mywarp.mywarp.warp.WarpFilter;
 import io.github.mywarp.mywarp.warp.WarpManager;
 
 import javax.annotation.Nullable;
@@ -135,7 +136,7 @@ public class AssetsPrinter {
       assert game != null && warpManager != null;
       index =
           ImmutableMap.of(createDummyLimit(game),
-              new LimitValueWarpMapping(warpManager, w -> w.isCreator(creator.getUniqueId())));
+              new LimitValueWarpMapping(warpManager, WarpFilter.byCreator(creator.getUniqueId())));
     }
 
     for (Map.Entry<Limit, LimitValueWarpMapping> entry : index.entrySet()) {
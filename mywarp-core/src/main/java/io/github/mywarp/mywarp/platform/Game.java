@@ -38,6 +38,14 @@ public interface Game {
    */
   Executor getExecutor();
 
+  /**
+   * Gets an Executor that executes submitted tasks outside of the Thread that handles the game's logic. Submitted
+   * tasks may block, e.g. while waiting for a database.
+   *
+   * @return the Executor
+   */
+  Executor getAsyncExecutor();
+
   /**
    * Gets an Optional containing the player of the given name, if such a player exists.
    *
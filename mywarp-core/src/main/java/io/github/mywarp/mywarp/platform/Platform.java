@@ -26,6 +26,7 @@ import io.github.mywarp.mywarp.platform.paginatedcontent.PaginatedContent;
 import io.github.mywarp.mywarp.platform.paginatedcontent.SimplePaginatedContent;
 import io.github.mywarp.mywarp.warp.storage.SqlDataService;
 
+import java.io.File;
 import java.util.Optional;
 
 /**
@@ -54,6 +55,13 @@ public interface Platform {
    */
   PlayerNameResolver getPlayerNameResolver();
 
+  /**
+   * Gets the folder MyWarp may use to store files, such as caches.
+   *
+   * @return the data folder
+   */
+  File getDataFolder();
+
   /**
    * Gets an Optional with the instance of the given class or {@link Optional#empty()} if this Platform is unable to
    * provide support.
@@ -21,6 +21,7 @@ package io.github.mywarp.mywarp.platform;
 
 import com.google.common.collect.ImmutableSet;
 import io.github.mywarp.mywarp.warp.Warp;
+import io.github.mywarp.mywarp.warp.storage.WarpStorageBuilder;
 
 import java.util.Comparator;
 import java.util.Locale;
@@ -93,6 +94,43 @@ public interface Settings {
    */
   boolean isInformPlayerOnInvitation();
 
+  /**
+   * Gets the backend warps are stored in.
+   *
+   * @return the storage backend
+   */
+  WarpStorageBuilder.Backend getStorageBackend();
+
+  /**
+   * Gets the maximum number of milliseconds spent on executing teleports within a single tick. Further teleports are
+   * deferred to the next tick.
+   *
+   * @return the teleport budget per tick in milliseconds
+   */
+  int getTeleportTickBudget();
+
+  /**
+   * Returns whether warps should be cached in a snapshot file that is used on startup.
+   *
+   * @return {@code true} if snapshots are enabled
+   */
+  boolean isStorageSnapshotEnabled();
+
+  /**
+   * Returns whether only a bounded working set of warps should be kept in memory, while all other warps are read from
+   * the storage when they are accessed.
+   *
+   * @return {@code true} if the bounded cache is enabled
+   */
+  boolean isStorageCacheEnabled();
+
+  /**
+   * Gets the maximum number of warps kept in memory if the bounded cache is enabled.
+   *
+   * @return the capacity of the cache
+   */
+  int getStorageCacheCapacity();
+
   /**
    * Gets the Comparator to be used by default in the {@code warp list} command.
    *
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.platform.capability;
+
+import com.flowpowered.math.vector.Vector3d;
+import io.github.mywarp.mywarp.platform.LocalWorld;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The capability of a platform to load the terrain around a position without blocking the game's thread.
+ */
+public interface ChunkPreloadCapability {
+
+  /**
+   * Starts loading the terrain around the given {@code position} within the given {@code world}, if it is not already
+   * loaded.
+   *
+   * <p>This method must be called on the game's thread. The returned future completes on the game's thread once the
+   * terrain is loaded or once loading takes longer than the platform is willing to wait. Callers must thus not rely on
+   * the terrain being loaded once the future completes.</p>
+   *
+   * @param world    the world
+   * @param position the position
+   * @return a future that completes once the terrain is loaded or loading timed out
+   */
+  CompletableFuture<Void> preload(LocalWorld world, Vector3d position);
+}
@@ -23,6 +23,7 @@ import com.flowpowered.math.vector.Vector3d;
 import io.github.mywarp.mywarp.platform.LocalWorld;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The capability of a platform to validate a given position and suggests alternative ones.
@@ -30,12 +31,16 @@ import java.util.Optional;
 public interface PositionValidationCapability {
 
   /**
-   * Returns an Optional containing the first valid position starting from the given {@code originalPosition} within the
-   * given {@code world} or {@code Optional.absent()} if no such position exists.
+   * Searches the first valid position starting from the given {@code originalPosition} within the given {@code world}.
+   * The returned future completes with an Optional containing the position or {@code Optional.absent()} if no such
+   * position exists.
+   *
+   * <p>This method must be called on the game's thread, but implementations may run the search on another thread.
+   * The returned future may thus complete on any thread.</p>
    *
    * @param originalPosition the original position
    * @param world            the world that contains the position
-   * @return the first valid position
+   * @return a future that completes with the first valid position
    */
-  Optional<Vector3d> getValidPosition(Vector3d originalPosition, LocalWorld world);
+  CompletableFuture<Optional<Vector3d>> getValidPosition(Vector3d originalPosition, LocalWorld world);
 }
@@ -107,5 +107,26 @@ public interface PaginatedContent {
      */
     PaginatedContent build(List<Message> toDisplay);
 
+    /**
+     * Gets the number of entries displayed on each page, given the values currently set on this Builder.
+     *
+     * @return the number of entries per page
+     */
+    int getEntriesPerPage();
+
+    /**
+     * Creates a PaginatedContent instance that only contains the entries of a single page, e.g. because the content
+     * was queried page by page. The instance can display the given page only, but displays the number of pages
+     * computed from the given total number of entries.
+     *
+     * <p>The given entries should contain at most {@link #getEntriesPerPage()} messages.</p>
+     *
+     * @param page         the number of the page whose entries are given
+     * @param totalEntries the total number of entries on all pages
+     * @param pageEntries  the entries of the given page
+     * @return a PaginatedContent instance
+     */
+    PaginatedContent buildPage(int page, int totalEntries, List<Message> pageEntries);
+
   }
 }
@@ -24,6 +24,7 @@ import io.github.mywarp.mywarp.platform.Platform;
 import io.github.mywarp.mywarp.util.Message;
 import io.github.mywarp.mywarp.util.i18n.DynamicMessages;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -40,11 +41,25 @@ public class SimplePaginatedContent implements PaginatedContent {
   private final String heading;
   private final String note;
   private final List<List<Message>> pages;
+  private final int firstPage;
+  private final int numberOfPages;
 
   private SimplePaginatedContent(String heading, String note, int numPerPage, List<Message> toDisplay) {
     this.heading = heading;
     this.note = note;
     this.pages = Lists.partition(toDisplay, showPerPage(numPerPage));
+    this.firstPage = 1;
+    this.numberOfPages = pages.size();
+  }
+
+  private SimplePaginatedContent(String heading, String note, int numPerPage, int page, int totalEntries,
+                                 List<Message> pageEntries) {
+    this.heading = heading;
+    this.note = note;
+    this.pages = Collections.singletonList(pageEntries);
+    this.firstPage = page;
+    int perPage = showPerPage(numPerPage);
+    this.numberOfPages = (totalEntries + perPage - 1) / perPage;
   }
 
   /**
@@ -61,11 +76,15 @@ public class SimplePaginatedContent implements PaginatedContent {
 
   @Override
   public Message getPage(int page) throws NoResultsException, UnknownPageException {
-    if (pages.isEmpty()) {
+    if (numberOfPages == 0) {
       throw new NoResultsException();
     }
-    if (page < 1 || page > pages.size()) {
-      throw new UnknownPageException(pages.size());
+    if (page < 1 || page > numberOfPages) {
+      throw new UnknownPageException(numberOfPages);
+    }
+    int index = page - firstPage;
+    if (index < 0 || index >= pages.size()) {
+      throw new IllegalArgumentException(String.format("Page %d is not included in this content.", page));
     }
 
     Message.Builder builder = Message.builder();
@@ -77,7 +96,7 @@ public class SimplePaginatedContent implements PaginatedContent {
     builder.append(" ");
     builder.append(page);
     builder.append("/");
-    builder.append(pages.size()); //max page number
+    builder.append(numberOfPages); //max page number
     builder.appendNewLine();
 
     if (!note.isEmpty()) {
@@ -86,7 +105,7 @@ public class SimplePaginatedContent implements PaginatedContent {
       builder.appendNewLine();
     }
 
-    for (Iterator<Message> iterator = pages.get(page - 1).iterator(); iterator.hasNext(); ) {
+    for (Iterator<Message> iterator = pages.get(index).iterator(); iterator.hasNext(); ) {
       Message entry = iterator.next();
       builder.append(Message.Style.VALUE);
       builder.appendAndAdjustStyle(entry);
@@ -100,6 +119,10 @@ public class SimplePaginatedContent implements PaginatedContent {
   }
 
   private int showPerPage(int numPerPage) {
+    return showPerPage(numPerPage, note);
+  }
+
+  private static int showPerPage(int numPerPage, String note) {
     if (note.isEmpty()) {
       return numPerPage;
     }
@@ -134,5 +157,15 @@ public class SimplePaginatedContent implements PaginatedContent {
     public PaginatedContent build(List<Message> toDisplay) {
       return new SimplePaginatedContent(heading, note, numPerPage, toDisplay);
     }
+
+    @Override
+    public int getEntriesPerPage() {
+      return showPerPage(numPerPage, note);
+    }
+
+    @Override
+    public PaginatedContent buildPage(int page, int totalEntries, List<Message> pageEntries) {
+      return new SimplePaginatedContent(heading, note, numPerPage, page, totalEntries, pageEntries);
+    }
   }
 }
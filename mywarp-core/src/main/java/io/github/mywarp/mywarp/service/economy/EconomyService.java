@@ -25,6 +25,7 @@ import io.github.mywarp.mywarp.platform.capability.EconomyCapability;
 import io.github.mywarp.mywarp.util.i18n.DynamicMessages;
 
 import java.math.BigDecimal;
+import java.util.Optional;
 
 /**
  * Handles economic tasks.
@@ -65,11 +66,55 @@ public class EconomyService {
     boolean has = capability.hasAtLeast(player, amount);
 
     if (!has) {
-      player.sendError(msg.getString("transaction.not-affordable", amount));
+      informNotAffordable(player, amount);
     }
     return has;
   }
 
+  /**
+   * Gets the amount identified by the given {@code fee} that the given {@code player} needs to pay, or an empty
+   * Optional if the player does not need to pay anything.
+   *
+   * <p>This method resolves the player's permissions and must therefore be called on the game's thread.</p>
+   *
+   * @param player the player
+   * @param fee    the fee
+   * @return the amount to pay, if any
+   */
+  public Optional<BigDecimal> getPayableAmount(LocalPlayer player, FeeType fee) {
+    if (canDisobeyFees(player)) {
+      return Optional.empty();
+    }
+    BigDecimal amount = capability.getFee(player, fee);
+    if (amount.signum() != 1) {
+      return Optional.empty();
+    }
+    return Optional.of(amount);
+  }
+
+  /**
+   * Returns whether the given {@code player} has at least the given {@code amount}. Unlike {@link
+   * #hasAtLeast(LocalPlayer, FeeType)}, this method only queries the economy and neither resolves permissions nor
+   * informs the player, so it may be called outside of the game's thread.
+   *
+   * @param player the player
+   * @param amount the amount
+   * @return {@code true} if the player has at least the amount
+   */
+  public boolean hasAtLeast(LocalPlayer player, BigDecimal amount) {
+    return capability.hasAtLeast(player, amount);
+  }
+
+  /**
+   * Informs the given {@code player} that the given {@code amount} cannot be afforded.
+   *
+   * @param player the player
+   * @param amount the amount
+   */
+  public void informNotAffordable(LocalPlayer player, BigDecimal amount) {
+    player.sendError(msg.getString("transaction.not-affordable", amount));
+  }
+
   /**
    * Withdraws the amount identified by the given {@code fee} from the given {@code player} and returns the amount that
    * was actually withdrawn.
@@ -86,7 +131,7 @@ public class EconomyService {
     if (amount.signum() != 1) {
       return BigDecimal.ZERO;
     }
-    amount = capability.withdraw(player, capability.getFee(player, fee));
+    amount = capability.withdraw(player, amount);
 
     if (capability.informAfterTransaction()) {
       player.sendMessage(msg.getString("transaction.complete", amount));
@@ -26,6 +26,7 @@ import io.github.mywarp.mywarp.platform.LocalWorld;
 import io.github.mywarp.mywarp.platform.capability.LimitCapability;
 import io.github.mywarp.mywarp.service.limit.Limit.Value;
 import io.github.mywarp.mywarp.warp.Warp;
+import io.github.mywarp.mywarp.warp.WarpFilter;
 import io.github.mywarp.mywarp.warp.WarpManager;
 
 import javax.annotation.Nullable;
@@ -97,8 +98,8 @@ public class LimitService {
   }
 
   private static Predicate<Warp> createPredicate(final LocalPlayer creator, Limit limit) {
-    return input -> input.isCreator(creator.getUniqueId()) && containsIdentifiedWorld(limit.getAffectedWorlds(),
-        input.getWorldIdentifier());
+    return WarpFilter.byCreator(creator.getUniqueId())
+        .and(input -> containsIdentifiedWorld(limit.getAffectedWorlds(), input.getWorldIdentifier()));
   }
 
   /**
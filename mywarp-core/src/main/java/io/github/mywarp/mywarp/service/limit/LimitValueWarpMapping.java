@@ -68,6 +68,6 @@ public class LimitValueWarpMapping {
    * @return {@code true} if there are at least the given number of Warps
    */
   boolean atLeast(Value value, int count) {
-    return get(value).size() >= count;
+    return manager.getNumberOfWarps(filter.and(value.getCondition())) >= count;
   }
 }
@@ -19,24 +19,39 @@
 
 package io.github.mywarp.mywarp.service.teleport;
 
+import io.github.mywarp.mywarp.platform.Game;
 import io.github.mywarp.mywarp.platform.LocalEntity;
 import io.github.mywarp.mywarp.platform.LocalPlayer;
 import io.github.mywarp.mywarp.service.economy.EconomyService;
 import io.github.mywarp.mywarp.service.economy.FeeType;
+import io.github.mywarp.mywarp.util.MyWarpLogger;
+import io.github.mywarp.mywarp.util.i18n.LocaleManager;
 import io.github.mywarp.mywarp.util.teleport.TeleportHandler;
 import io.github.mywarp.mywarp.warp.Warp;
+import org.slf4j.Logger;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Bills users for teleporting and cancels the teleport if the entity cannot afford it.
  *
  * <p>Only {@link LocalPlayer}s are billed, other entitys are simply teleported. The teleport itself is delegated to
  * another TeleportService.</p>
+ *
+ * <p>As economy plugins often query a database, the balance is checked outside of the game's thread. The fee and the
+ * player's permissions are resolved on the game's thread before, and the teleport and the withdrawal run on it once
+ * the check passed. The teleport is prepared before the balance is checked, so the target is resolved meanwhile.</p>
  */
 public class EconomyTeleportService extends ForwardingTeleportService {
 
+  private static final Logger log = MyWarpLogger.getLogger(EconomyTeleportService.class);
+
   private final TeleportService delegate;
   private final EconomyService economyService;
   private final FeeType fee;
+  private final Game game;
 
   /**
    * Creates an instance that uses the given EconomyService to withdraw users with the given {@code fee} on successful
@@ -45,25 +60,56 @@ public class EconomyTeleportService extends ForwardingTeleportService {
    * @param delegate       the TeleportService to delegate teleports to
    * @param economyService the EconomyService to use
    * @param fee            the fee to withdraw
+   * @param game           the game instance to use
    */
-  public EconomyTeleportService(TeleportService delegate, EconomyService economyService, FeeType fee) {
+  public EconomyTeleportService(TeleportService delegate, EconomyService economyService, FeeType fee, Game game) {
     this.delegate = delegate;
     this.economyService = economyService;
     this.fee = fee;
+    this.game = game;
   }
 
   @Override
-  public TeleportHandler.TeleportStatus teleport(LocalEntity entity, Warp warp) {
-    if (entity instanceof LocalPlayer && !economyService.hasAtLeast((LocalPlayer) entity, fee)) {
-      return TeleportHandler.TeleportStatus.NONE;
+  public CompletableFuture<TeleportHandler.TeleportStatus> teleport(LocalEntity entity, Warp warp) {
+    if (!(entity instanceof LocalPlayer)) {
+      return delegate().teleport(entity, warp);
     }
-    TeleportHandler.TeleportStatus status = delegate().teleport(entity, warp);
+    LocalPlayer player = (LocalPlayer) entity;
 
-    if (entity instanceof LocalPlayer && status.isPositionModified()) {
-      economyService.withdraw((LocalPlayer) entity, fee);
+    // the fee depends on permissions, which must be resolved on the game's thread
+    Optional<BigDecimal> amount = economyService.getPayableAmount(player, fee);
+    if (!amount.isPresent()) {
+      return teleportAndWithdraw(player, warp);
     }
 
-    return status;
+    // the safety search for the target runs while the balance is checked
+    delegate().prepare(player, warp);
+    return CompletableFuture.supplyAsync(() -> economyService.hasAtLeast(player, amount.get()), game.getAsyncExecutor())
+        .handleAsync((affordable, ex) -> {
+          if (ex != null) {
+            log.warn(String.format("Failed to check the balance of %s.", player.getName()), ex);
+            return false;
+          }
+          if (!affordable) {
+            LocaleManager.setLocale(player.getLocale());
+            economyService.informNotAffordable(player, amount.get());
+          }
+          return affordable;
+        }, game.getExecutor()).thenCompose(affordable -> {
+          if (!affordable) {
+            return CompletableFuture.completedFuture(TeleportHandler.TeleportStatus.NONE);
+          }
+          return teleportAndWithdraw(player, warp);
+        });
+  }
+
+  private CompletableFuture<TeleportHandler.TeleportStatus> teleportAndWithdraw(LocalPlayer player, Warp warp) {
+    return delegate().teleport(player, warp).thenApply(status -> {
+      if (status.isPositionModified()) {
+        economyService.withdraw(player, fee);
+      }
+      return status;
+    });
   }
 
   @Override
@@ -24,6 +24,8 @@ import io.github.mywarp.mywarp.platform.LocalEntity;
 import io.github.mywarp.mywarp.util.teleport.TeleportHandler;
 import io.github.mywarp.mywarp.warp.Warp;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Forwards all method calls to another TeleportService. Subclasses should override one or more methods to modify the
  * behavior of the backing TeleportService as desired per the <a href="http://en.wikipedia
@@ -32,10 +34,15 @@ import io.github.mywarp.mywarp.warp.Warp;
 abstract class ForwardingTeleportService extends ForwardingObject implements TeleportService {
 
   @Override
-  public TeleportHandler.TeleportStatus teleport(LocalEntity entity, Warp warp) {
+  public CompletableFuture<TeleportHandler.TeleportStatus> teleport(LocalEntity entity, Warp warp) {
     return delegate().teleport(entity, warp);
   }
 
+  @Override
+  public void prepare(LocalEntity entity, Warp warp) {
+    delegate().prepare(entity, warp);
+  }
+
   @Override
   protected abstract TeleportService delegate();
 }
@@ -26,6 +26,8 @@ import io.github.mywarp.mywarp.util.teleport.TeleportHandler;
 import io.github.mywarp.mywarp.warp.PlaceholderResolver;
 import io.github.mywarp.mywarp.warp.Warp;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Delegates teleport requests to a {@link TeleportHandler}.
  *
@@ -49,31 +51,39 @@ public class HandlerTeleportService implements TeleportService {
   }
 
   @Override
-  public TeleportHandler.TeleportStatus teleport(LocalEntity entity, Warp warp) {
-    TeleportHandler.TeleportStatus status = warp.visit(entity, handler);
-
-    if (entity instanceof Actor) {
-      Actor actor = (Actor) entity;
-      switch (status) {
-        case ORIGINAL:
-          String welcomeMsg = warp.getWelcomeMessage();
-          if (!welcomeMsg.isEmpty()) {
-            actor.sendMessage(PlaceholderResolver.from(warp, actor).resolvePlaceholders(welcomeMsg));
-          }
-          break;
-        case MODIFIED:
-          actor.sendError(msg.getString("unsafe-location.closest", warp.getName()));
-          break;
-        case NONE:
-          actor.sendError(msg.getString("unsafe-location.no-teleport", warp.getName()));
-          break;
-        case NO_SUCH_WORLD:
-          actor.sendError(msg.getString("no-such-world", warp.getName(), warp.getWorldIdentifier()));
-          break;
-        default:
-          assert false : status;
+  public CompletableFuture<TeleportHandler.TeleportStatus> teleport(LocalEntity entity, Warp warp) {
+    return warp.visit(entity, handler).thenApply(status -> {
+      if (entity instanceof Actor) {
+        sendStatus((Actor) entity, warp, status);
       }
+      return status;
+    });
+  }
+
+  @Override
+  public void prepare(LocalEntity entity, Warp warp) {
+    handler.prepare(warp.getWorldIdentifier(), warp.getPosition());
+  }
+
+  private void sendStatus(Actor actor, Warp warp, TeleportHandler.TeleportStatus status) {
+    switch (status) {
+      case ORIGINAL:
+        String welcomeMsg = warp.getWelcomeMessage();
+        if (!welcomeMsg.isEmpty()) {
+          actor.sendMessage(PlaceholderResolver.from(warp, actor).resolvePlaceholders(welcomeMsg));
+        }
+        break;
+      case MODIFIED:
+        actor.sendError(msg.getString("unsafe-location.closest", warp.getName()));
+        break;
+      case NONE:
+        actor.sendError(msg.getString("unsafe-location.no-teleport", warp.getName()));
+        break;
+      case NO_SUCH_WORLD:
+        actor.sendError(msg.getString("no-such-world", warp.getName(), warp.getWorldIdentifier()));
+        break;
+      default:
+        assert false : status;
     }
-    return status;
   }
 }
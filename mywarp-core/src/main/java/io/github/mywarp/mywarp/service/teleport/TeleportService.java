@@ -23,6 +23,8 @@ import io.github.mywarp.mywarp.platform.LocalEntity;
 import io.github.mywarp.mywarp.util.teleport.TeleportHandler;
 import io.github.mywarp.mywarp.warp.Warp;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Teleports entities to Warps.
  */
@@ -31,10 +33,26 @@ public interface TeleportService {
   /**
    * Teleports the given {@code entity} to the given {@code warp} and returns the status of the teleport.
    *
+   * <p>This method must be called on the game's thread. The returned future completes on the game's thread once the
+   * teleport has been executed or canceled.</p>
+   *
    * @param entity the entity to teleport
    * @param warp   the warp to teleport to
-   * @return The resulting {@code TeleportStatus}
+   * @return a future that completes with the resulting {@code TeleportStatus}
+   */
+  CompletableFuture<TeleportHandler.TeleportStatus> teleport(LocalEntity entity, Warp warp);
+
+  /**
+   * Prepares a teleport of the given {@code entity} to the given {@code warp} that will be requested later. Calling
+   * this method is optional.
+   *
+   * <p>This method must be called on the game's thread.</p>
+   *
+   * @param entity the entity that will be teleported
+   * @param warp   the warp
+   * @see TeleportHandler#prepare(java.util.UUID, com.flowpowered.math.vector.Vector3d)
    */
-  TeleportHandler.TeleportStatus teleport(LocalEntity entity, Warp warp);
+  default void prepare(LocalEntity entity, Warp warp) {
+  }
 
 }
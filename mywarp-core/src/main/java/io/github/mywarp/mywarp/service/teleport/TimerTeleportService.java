@@ -30,6 +30,7 @@ import io.github.mywarp.mywarp.util.teleport.TeleportHandler;
 import io.github.mywarp.mywarp.warp.Warp;
 
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Sets timers for users who want to teleport.
@@ -62,7 +63,7 @@ public class TimerTeleportService extends ForwardingTeleportService {
   }
 
   @Override
-  public TeleportHandler.TeleportStatus teleport(LocalEntity entity, Warp warp) {
+  public CompletableFuture<TeleportHandler.TeleportStatus> teleport(LocalEntity entity, Warp warp) {
 
     if (canDisobeyTimers(entity)) {
       return delegate().teleport(entity, warp);
@@ -74,23 +75,24 @@ public class TimerTeleportService extends ForwardingTeleportService {
     TimerCapability.EvaluationResult cooldownResult = capability.has(player.getUniqueId(), WarpCooldown.class);
     if (cooldownResult.isTimerRunning()) {
       cooldownResult.getRunningTimer().informTimerRunning(player, cooldownResult.getDurationLeft());
-      return TeleportHandler.TeleportStatus.NONE;
+      return CompletableFuture.completedFuture(TeleportHandler.TeleportStatus.NONE);
     }
     TimerCapability.EvaluationResult warmupResult = capability.has(player.getUniqueId(), WarpWarmup.class);
     if (warmupResult.isTimerRunning()) {
       warmupResult.getRunningTimer().informTimerRunning(player, warmupResult.getDurationLeft());
-      return TeleportHandler.TeleportStatus.NONE;
+      return CompletableFuture.completedFuture(TeleportHandler.TeleportStatus.NONE);
     }
 
-    // start warmup
+    // start warmup, the terrain can be loaded in the meantime
     Duration duration = capability.getDuration(player, WarpWarmup.class);
+    delegate().prepare(player, warp);
     capability.start(player.getUniqueId(), duration, new WarpWarmup(player, warp, game, delegate(), capability));
     if (capability.notifyOnWarmupStart()) {
       player.sendMessage(msg.getString("warp-warmup.started", warp.getName(), duration.getSeconds()));
     }
 
     // teleport will be scheduled by WarpWarmup once the warmup ended
-    return TeleportHandler.TeleportStatus.NONE;
+    return CompletableFuture.completedFuture(TeleportHandler.TeleportStatus.NONE);
   }
 
   @Override
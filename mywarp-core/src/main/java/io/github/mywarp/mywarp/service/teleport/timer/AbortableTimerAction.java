@@ -19,15 +19,21 @@
 
 package io.github.mywarp.mywarp.service.teleport.timer;
 
+import com.flowpowered.math.vector.Vector3d;
+import io.github.mywarp.mywarp.platform.LocalPlayer;
+
 /**
- * An action that is executed when a timer finishes and can be internally aborted while the timer is running.
+ * An action that is executed when a timer finishes and can be aborted while the timer is running, if the player the
+ * timer runs on moves or takes damage.
+ *
+ * <p>Timers are not polled: platforms call the corresponding method once the player moves to another block, is
+ * teleported or takes damage. As events might be missed, implementations should repeat the checks once the timer
+ * finishes.</p>
  *
  * @param <T> the type of the subject the timer runs on
  */
 public abstract class AbortableTimerAction<T> extends TimerAction<T> {
 
-  public static final long CHECK_INTERVAL_TICKS = 40;
-
   /**
    * Creates an instance on the given subject.
    *
@@ -38,13 +44,30 @@ public abstract class AbortableTimerAction<T> extends TimerAction<T> {
   }
 
   /**
-   * Returns whether the timer should be aborted.
+   * Returns whether this timer might be aborted at all. If not, platforms do not need to track it.
    *
-   * <p> This method will be called periodically while the timer is running to check if the timer should be aborted
-   * prematurely. </p>
+   * @return {@code true} if the timer might be aborted
+   */
+  public abstract boolean isAbortable();
+
+  /**
+   * Returns whether the timer should be aborted, because the given player moves to the given position. The player's
+   * own position might not be updated yet when this method is called.
+   *
+   * @param player   the player the timer runs on
+   * @param position the position the player moves to
+   * @return {@code true} if the timer should be aborted
+   */
+  public abstract boolean abortOnMove(LocalPlayer player, Vector3d position);
+
+  /**
+   * Returns whether the timer should be aborted, because the given player takes damage and is left with the given
+   * health. The player's own health might not be updated yet when this method is called.
    *
+   * @param player the player the timer runs on
+   * @param health the health the player is left with
    * @return {@code true} if the timer should be aborted
    */
-  public abstract boolean abort();
+  public abstract boolean abortOnDamage(LocalPlayer player, double health);
 
 }
@@ -25,9 +25,11 @@ import io.github.mywarp.mywarp.platform.LocalPlayer;
 import io.github.mywarp.mywarp.platform.capability.TimerCapability;
 import io.github.mywarp.mywarp.service.teleport.TeleportService;
 import io.github.mywarp.mywarp.service.teleport.TimerTeleportService;
+import io.github.mywarp.mywarp.util.MyWarpLogger;
 import io.github.mywarp.mywarp.util.i18n.DynamicMessages;
 import io.github.mywarp.mywarp.util.i18n.LocaleManager;
 import io.github.mywarp.mywarp.warp.Warp;
+import org.slf4j.Logger;
 
 import java.time.Duration;
 import java.util.Optional;
@@ -38,6 +40,8 @@ import java.util.UUID;
  */
 public class WarpWarmup extends AbortableTimerAction<UUID> {
 
+  private static final Logger log = MyWarpLogger.getLogger(WarpWarmup.class);
+
   private static final int ALLOWED_DISTANCE = 2;
 
   private static final DynamicMessages msg = new DynamicMessages(TimerTeleportService.RESOURCE_BUNDLE_NAME);
@@ -45,6 +49,8 @@ public class WarpWarmup extends AbortableTimerAction<UUID> {
   private final Warp warp;
   private final Vector3d initialPosition;
   private final double initialHealth;
+  private final boolean abortOnMove;
+  private final boolean abortOnDamage;
   private final Game game;
   private final TeleportService teleportService;
   private final TimerCapability capability;
@@ -67,6 +73,11 @@ public class WarpWarmup extends AbortableTimerAction<UUID> {
     this.capability = capability;
     this.initialPosition = player.getPosition();
     this.initialHealth = player.getHealth();
+    // permissions are resolved once, so aborting does not need to look them up on every move
+    this.abortOnMove =
+        capability.abortWarmupOnMove() && !player.hasPermission("mywarp.timer.disobey.warmup-abort.move");
+    this.abortOnDamage =
+        capability.abortWarmupOnDamage() && !player.hasPermission("mywarp.timer.disobey.warmup-abort.damage");
   }
 
   @Override
@@ -76,33 +87,41 @@ public class WarpWarmup extends AbortableTimerAction<UUID> {
       return;
     }
     LocalPlayer player = optionalPlayer.get();
+    // events might have been missed, e.g. if the warmup was started before a reload
+    if (abortOnMove(player, player.getPosition()) || abortOnDamage(player, player.getHealth())) {
+      return;
+    }
     LocaleManager.setLocale(player.getLocale());
 
-    if (teleportService.teleport(player, warp).isPositionModified()) {
-      Duration duration = capability.getDuration(player, WarpCooldown.class);
-      capability
-          .start(player.getUniqueId(), duration, new WarpCooldown(player, game, capability.notifyOnCooldownFinish()));
-    }
+    teleportService.teleport(player, warp).whenComplete((status, ex) -> {
+      if (ex == null) {
+        if (status.isPositionModified()) {
+          Duration duration = capability.getDuration(player, WarpCooldown.class);
+          capability.start(player.getUniqueId(), duration,
+              new WarpCooldown(player, game, capability.notifyOnCooldownFinish()));
+        }
+        return;
+      }
+      log.error(String.format("Failed to teleport %s to '%s' after the warmup.", player.getName(), warp.getName()), ex);
+      // failed teleports might complete on any thread
+      game.getExecutor().execute(() -> {
+        LocaleManager.setLocale(player.getLocale());
+        player.sendError(msg.getString("warp-warmup.failed", warp.getName()));
+      });
+    });
   }
 
   @Override
-  public boolean abort() {
-    Optional<LocalPlayer> player = game.getPlayer(getTimedSuject());
-    // player is not online, but might re-login so the timer continues
-    return player.isPresent() && (abortOnMove(player.get()) || abortOnDamage(player.get()));
+  public boolean isAbortable() {
+    return abortOnMove || abortOnDamage;
   }
 
-  /**
-   * Returns whether the warmup should be aborted because the player has moved.
-   *
-   * @param player the LocalPlayer
-   * @return true if the warmup should be aborted
-   */
-  private boolean abortOnMove(LocalPlayer player) {
-    if (!capability.abortWarmupOnMove() || player.hasPermission("mywarp.timer.disobey.warmup-abort.move")) {
+  @Override
+  public boolean abortOnMove(LocalPlayer player, Vector3d position) {
+    if (!abortOnMove) {
       return false;
     }
-    if (player.getPosition().distanceSquared(initialPosition) <= Math.pow(ALLOWED_DISTANCE, 2)) {
+    if (position.distanceSquared(initialPosition) <= ALLOWED_DISTANCE * ALLOWED_DISTANCE) {
       return false;
     }
     LocaleManager.setLocale(player.getLocale());
@@ -110,17 +129,9 @@ public class WarpWarmup extends AbortableTimerAction<UUID> {
     return true;
   }
 
-  /**
-   * Returns whether the warmup should be aborted because the player has taken damage.
-   *
-   * @param player the LocalPlayer
-   * @return true if the warmup should be aborted
-   */
-  private boolean abortOnDamage(LocalPlayer player) {
-    if (!capability.abortWarmupOnDamage() || player.hasPermission("mywarp.timer.disobey.warmup-abort.damage")) {
-      return false;
-    }
-    if (player.getHealth() >= initialHealth) {
+  @Override
+  public boolean abortOnDamage(LocalPlayer player, double health) {
+    if (!abortOnDamage || health >= initialHealth) {
       return false;
     }
     LocaleManager.setLocale(player.getLocale());
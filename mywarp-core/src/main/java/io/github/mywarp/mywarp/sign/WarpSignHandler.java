@@ -37,7 +37,9 @@ import io.github.mywarp.mywarp.util.BlockFace;
 import io.github.mywarp.mywarp.util.i18n.DynamicMessages;
 import io.github.mywarp.mywarp.util.i18n.LocaleManager;
 import io.github.mywarp.mywarp.warp.Warp;
+import io.github.mywarp.mywarp.warp.WarpFilter;
 import io.github.mywarp.mywarp.warp.WarpManager;
+import io.github.mywarp.mywarp.warp.WarpsUnavailableException;
 import io.github.mywarp.mywarp.warp.authorization.AuthorizationResolver;
 
 import javax.annotation.Nullable;
@@ -122,7 +124,13 @@ public class WarpSignHandler {
       return Optional.of(false);
     }
     String name = sign.getLine(WARPNAME_LINE);
-    Optional<Warp> optional = getWarp(name);
+    Optional<Warp> optional;
+    try {
+      optional = getWarp(name);
+    } catch (WarpsUnavailableException e) {
+      player.sendError(msg.getString("warps-unavailable"));
+      return Optional.of(false);
+    }
 
     //validate warp existence
     if (!optional.isPresent()) {
@@ -168,7 +176,9 @@ public class WarpSignHandler {
     TeleportService ret = new HandlerTeleportService(myWarp.getTeleportHandler());
 
     if (economyCapability != null) {
-      ret = new EconomyTeleportService(ret, createEconomyService(economyCapability), FeeType.WARP_SIGN_USE);
+      ret =
+          new EconomyTeleportService(ret, createEconomyService(economyCapability), FeeType.WARP_SIGN_USE,
+              myWarp.getGame());
     }
     if (timerCapability != null) {
       ret = new TimerTeleportService(ret, myWarp.getGame(), timerCapability);
@@ -202,7 +212,13 @@ public class WarpSignHandler {
 
     String warpName = sign.getLine(WARPNAME_LINE);
 
-    Optional<Warp> optional = getWarp(warpName);
+    Optional<Warp> optional;
+    try {
+      optional = getWarp(warpName);
+    } catch (WarpsUnavailableException e) {
+      player.sendError(msg.getString("warps-unavailable"));
+      return true;
+    }
     if (!optional.isPresent()) {
       player.sendError(msg.getString("warp-non-existent", warpName));
       return true;
@@ -258,9 +274,10 @@ public class WarpSignHandler {
     if (caseSensitiveWarpNames) {
       return warpManager.getByName(warpName);
     }
-    Collection<Warp> warps = warpManager.getAll(w -> w.getName().equalsIgnoreCase(warpName));
+    Collection<Warp> warps = warpManager.getAll(WarpFilter.byName(name -> name.equalsIgnoreCase(warpName)));
     if (warps.size() == 1) {
-      return Optional.of(warps.iterator().next());
+      // the match may be a copy if not all warps are kept in memory
+      return warpManager.getByName(warps.iterator().next().getName());
     }
     return Optional.empty();
   }
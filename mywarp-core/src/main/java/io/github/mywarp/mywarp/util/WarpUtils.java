@@ -19,8 +19,8 @@
 
 package io.github.mywarp.mywarp.util;
 
-import com.google.common.collect.Ordering;
 import io.github.mywarp.mywarp.warp.Warp;
+import io.github.mywarp.mywarp.warp.storage.WarpQuery;
 
 import java.time.Duration;
 import java.time.Instant;
@@ -67,10 +67,10 @@ public final class WarpUtils {
     switch (key) {
       case "alp":
       case "alphabetically":
-        return Comparator.comparing(Warp::getName);
+        return WarpQuery.Order.NAME;
       case "dat":
       case "creationDate":
-        return Comparator.comparing(Warp::getCreationDate);
+        return WarpQuery.Order.CREATION_DATE;
       case "pop":
       case "popularity":
         return new Warp.PopularityComparator();
@@ -79,11 +79,11 @@ public final class WarpUtils {
         return random();
       case "vis":
       case "visits":
-        return Comparator.comparing(Warp::getVisits);
+        return WarpQuery.Order.VISITS;
       case "def":
       case "default":
       default:
-        return Ordering.natural();
+        return WarpQuery.Order.NAME;
     }
   }
 
@@ -25,60 +25,137 @@ import io.github.mywarp.mywarp.platform.Game;
 import io.github.mywarp.mywarp.platform.LocalEntity;
 import io.github.mywarp.mywarp.platform.LocalWorld;
 import io.github.mywarp.mywarp.platform.Settings;
+import io.github.mywarp.mywarp.platform.capability.ChunkPreloadCapability;
 import io.github.mywarp.mywarp.platform.capability.PositionValidationCapability;
+import io.github.mywarp.mywarp.util.MyWarpLogger;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import javax.annotation.Nullable;
+import org.slf4j.Logger;
 
 /**
  * Parses teleport positions against a {@link PositionValidationCapability}. If a valid position exists, the entity is
  * teleported there. If no valid position exists, the teleport is canceled.
+ *
+ * <p>As the validation may run on another thread, the entity is teleported on the game's thread once the validation
+ * has completed. If a {@link ChunkPreloadCapability} is given, the terrain around the position is loaded before the
+ * position is validated.</p>
  */
 public class StrategicTeleportHandler implements TeleportHandler {
 
+  private static final Logger log = MyWarpLogger.getLogger(StrategicTeleportHandler.class);
+
   @Nullable
   private final PositionValidationCapability strategy;
+  @Nullable
+  private final ChunkPreloadCapability preloader;
   private final Settings settings;
   private final Game game;
 
   /**
    * Creates an instance that uses the given strategy to validate teleport positions.
    *
-   * @param settings the settings instance to use
-   * @param game     the game instance to use
-   * @param strategy the strategy to use. May be null if no strategy should be used.
+   * @param settings  the settings instance to use
+   * @param game      the game instance to use
+   * @param strategy  the strategy to use. May be null if no strategy should be used.
+   * @param preloader the capability to load terrain with. May be null if terrain should not be preloaded.
    */
-  public StrategicTeleportHandler(Settings settings, Game game, @Nullable PositionValidationCapability strategy) {
+  public StrategicTeleportHandler(Settings settings, Game game, @Nullable PositionValidationCapability strategy,
+      @Nullable ChunkPreloadCapability preloader) {
     this.strategy = strategy;
+    this.preloader = preloader;
     this.settings = settings;
     this.game = game;
   }
 
   @Override
-  public TeleportStatus teleport(LocalEntity entity, UUID worldIdentifier, Vector3d position, Vector2f rotation) {
+  public CompletableFuture<TeleportStatus> teleport(LocalEntity entity, UUID worldIdentifier, Vector3d position,
+      Vector2f rotation) {
     Optional<LocalWorld> worldOptional = game.getWorld(worldIdentifier);
 
     if (!worldOptional.isPresent()) {
-      return TeleportStatus.NO_SUCH_WORLD;
+      return CompletableFuture.completedFuture(TeleportStatus.NO_SUCH_WORLD);
     }
-    LocalWorld world = worldOptional.get();
+    return resolve(worldOptional.get(), position)
+        .thenApply(validPosition -> teleport(entity, worldIdentifier, position, validPosition, rotation));
+  }
 
-    Vector3d validPosition = position;
-    if (strategy != null) {
-      Optional<Vector3d> optional = strategy.getValidPosition(position, world);
+  @Override
+  public void prepare(UUID worldIdentifier, Vector3d position) {
+    if (preloader != null) {
+      game.getWorld(worldIdentifier).ifPresent(world -> preloader.preload(world, position));
+    }
+  }
 
-      if (!optional.isPresent()) {
-        return TeleportStatus.NONE;
+  /**
+   * Resolves the position entities that should be teleported to the given {@code position} on the given {@code world}
+   * are actually teleported to. The terrain around the position is loaded before the position is validated.
+   *
+   * <p>This method must be called on the game's thread. The returned future completes on the game's thread with the
+   * valid position or with an empty Optional if no valid position exists.</p>
+   *
+   * @param world    the world
+   * @param position the requested position
+   * @return a future that completes with the valid position
+   */
+  CompletableFuture<Optional<Vector3d>> resolve(LocalWorld world, Vector3d position) {
+    if (preloader == null) {
+      return validate(world, position);
+    }
+    UUID worldIdentifier = world.getUniqueId();
+    return preloader.preload(world, position).thenCompose(v -> {
+      Optional<LocalWorld> loadedWorld = game.getWorld(worldIdentifier);
+      if (!loadedWorld.isPresent()) {
+        return CompletableFuture.completedFuture(Optional.empty());
       }
-      validPosition = optional.get();
+      return validate(loadedWorld.get(), position);
+    });
+  }
+
+  private CompletableFuture<Optional<Vector3d>> validate(LocalWorld world, Vector3d position) {
+    if (strategy == null) {
+      return CompletableFuture.completedFuture(Optional.of(position));
+    }
+
+    return strategy.getValidPosition(position, world).handleAsync((validPosition, ex) -> {
+      if (ex != null) {
+        log.warn(String.format("Failed to validate the position %s.", position), ex);
+        return Optional.empty();
+      }
+      return validPosition;
+    }, game.getExecutor());
+  }
+
+  /**
+   * Teleports the given {@code entity} to the given {@code validPosition}, resolved by {@link #resolve(LocalWorld,
+   * Vector3d)} for the given {@code position}. Must be called on the game's thread.
+   *
+   * @param entity          the entity to teleport
+   * @param worldIdentifier the identifier of the world to teleport to
+   * @param position        the requested position
+   * @param validPosition   the resolved position
+   * @param rotation        the rotation
+   * @return the status of the teleport
+   */
+  TeleportStatus teleport(LocalEntity entity, UUID worldIdentifier, Vector3d position, Optional<Vector3d> validPosition,
+      Vector2f rotation) {
+    if (!validPosition.isPresent()) {
+      return TeleportStatus.NONE;
     }
+    // the world might have been unloaded while the position was resolved
+    Optional<LocalWorld> worldOptional = game.getWorld(worldIdentifier);
+    if (!worldOptional.isPresent()) {
+      return TeleportStatus.NO_SUCH_WORLD;
+    }
+    LocalWorld world = worldOptional.get();
 
     if (settings.isShowTeleportEffect()) {
       world.playTeleportEffect(entity.getPosition());
     }
-    entity.teleport(world, validPosition, rotation, settings.isTeleportTamedHorses());
+    entity.teleport(world, validPosition.get(), rotation, settings.isTeleportTamedHorses());
 
-    if (!validPosition.equals(position)) {
+    if (!validPosition.get().equals(position)) {
       return TeleportStatus.MODIFIED;
     }
     return TeleportStatus.ORIGINAL;
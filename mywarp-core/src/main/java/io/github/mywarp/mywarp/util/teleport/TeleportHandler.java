@@ -24,6 +24,7 @@ import com.flowpowered.math.vector.Vector3d;
 import io.github.mywarp.mywarp.platform.LocalEntity;
 
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Handles entity teleports.
@@ -34,13 +35,29 @@ public interface TeleportHandler {
    * Teleports the given {@code entity} to the given {@code position} on the world identified by the given {@code
    * worldIdentifier} with the given {@code rotation} and returns an appropriate status.
    *
+   * <p>This method must be called on the game's thread. The teleport itself might be executed later, the returned
+   * future completes on the game's thread once it has been executed or canceled.</p>
+   *
    * @param entity          the entity to teleport
    * @param worldIdentifier the identifier of the world to teleport to
    * @param position        the position to teleport to
    * @param rotation        the rotation
-   * @return the status of the teleport
+   * @return a future that completes with the status of the teleport
    */
-  TeleportStatus teleport(LocalEntity entity, UUID worldIdentifier, Vector3d position, Vector2f rotation);
+  CompletableFuture<TeleportStatus> teleport(LocalEntity entity, UUID worldIdentifier, Vector3d position,
+      Vector2f rotation);
+
+  /**
+   * Prepares a teleport to the given {@code position} on the world identified by the given {@code worldIdentifier}
+   * that will be requested later, e.g. by loading the terrain around the position. Calling this method is optional.
+   *
+   * <p>This method must be called on the game's thread.</p>
+   *
+   * @param worldIdentifier the identifier of the world
+   * @param position        the position
+   */
+  default void prepare(UUID worldIdentifier, Vector3d position) {
+  }
 
   /**
    * The status of a finished teleport.
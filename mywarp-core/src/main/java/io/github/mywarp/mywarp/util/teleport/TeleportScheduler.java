@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.util.teleport;
+
+import com.flowpowered.math.vector.Vector2f;
+import com.flowpowered.math.vector.Vector3d;
+import io.github.mywarp.mywarp.platform.Game;
+import io.github.mywarp.mywarp.platform.LocalEntity;
+import io.github.mywarp.mywarp.platform.LocalWorld;
+import io.github.mywarp.mywarp.util.MyWarpLogger;
+import io.github.mywarp.mywarp.warp.Warp;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Queues teleports and executes them under a time budget per tick, so that a large number of teleports requested at
+ * once is spread over several ticks instead of stalling the game.
+ *
+ * <p>The position of each teleport is resolved by a {@link StrategicTeleportHandler}. Teleports to the same target
+ * that are requested while the target is resolved share the result. Once resolved, teleports are queued and executed
+ * in the order they became ready. As ticks are not observable by this class, the budget is accounted per period of
+ * 50 milliseconds, the nominal length of a tick.</p>
+ */
+public class TeleportScheduler implements TeleportHandler {
+
+  private static final Logger log = MyWarpLogger.getLogger(TeleportScheduler.class);
+
+  private static final long TICK_NANOS = Duration.ofMillis(50).toNanos();
+
+  private final StrategicTeleportHandler handler;
+  private final Game game;
+  private final long budgetNanos;
+
+  private final Map<Target, CompletableFuture<Optional<Vector3d>>> resolutions = new HashMap<>();
+  private final Queue<Request> ready = new ArrayDeque<>();
+
+  private long periodStart;
+  private long spent;
+  private boolean draining;
+  private boolean scheduled;
+
+  /**
+   * Creates an instance.
+   *
+   * @param handler the handler that resolves positions and executes teleports
+   * @param game    the game instance to use
+   * @param budget  the time that may be spent on executing teleports per tick
+   */
+  public TeleportScheduler(StrategicTeleportHandler handler, Game game, Duration budget) {
+    this.handler = handler;
+    this.game = game;
+    this.budgetNanos = budget.toNanos();
+  }
+
+  @Override
+  public CompletableFuture<TeleportStatus> teleport(LocalEntity entity, UUID worldIdentifier, Vector3d position,
+      Vector2f rotation) {
+    Optional<LocalWorld> worldOptional = game.getWorld(worldIdentifier);
+    if (!worldOptional.isPresent()) {
+      return CompletableFuture.completedFuture(TeleportStatus.NO_SUCH_WORLD);
+    }
+
+    Request request = new Request(entity, worldIdentifier, position, rotation);
+    resolve(worldOptional.get(), position).whenComplete((validPosition, ex) -> {
+      if (ex != null) {
+        log.warn(String.format("Failed to resolve the position %s.", position), ex);
+      }
+      request.validPosition = ex == null ? validPosition : Optional.empty();
+      ready.add(request);
+      drain();
+    });
+    return request.future;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>This implementation starts to resolve the position, so that teleports to it that are requested while it is
+   * resolved share the result.</p>
+   */
+  @Override
+  public void prepare(UUID worldIdentifier, Vector3d position) {
+    game.getWorld(worldIdentifier).ifPresent(world -> resolve(world, position));
+  }
+
+  /**
+   * Teleports all given {@code entities} to the given {@code warp}. The position of the warp is resolved once for all
+   * entities.
+   *
+   * <p>This method must be called on the game's thread. The returned future completes on the game's thread once all
+   * teleports have been executed or canceled.</p>
+   *
+   * @param entities the entities to teleport
+   * @param warp     the warp to teleport to
+   * @return a future that completes with the status of each entity's teleport
+   * @see Warp#visit(LocalEntity, TeleportHandler)
+   */
+  public CompletableFuture<Map<LocalEntity, TeleportStatus>> visitAll(Collection<? extends LocalEntity> entities,
+      Warp warp) {
+    Map<LocalEntity, CompletableFuture<TeleportStatus>> futures = new LinkedHashMap<>();
+    for (LocalEntity entity : entities) {
+      futures.put(entity, warp.visit(entity, this));
+    }
+
+    return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+      Map<LocalEntity, TeleportStatus> ret = new LinkedHashMap<>();
+      futures.forEach((entity, future) -> ret.put(entity, future.join()));
+      return ret;
+    });
+  }
+
+  private CompletableFuture<Optional<Vector3d>> resolve(LocalWorld world, Vector3d position) {
+    Target target = new Target(world.getUniqueId(), position);
+    CompletableFuture<Optional<Vector3d>> resolution = resolutions.get(target);
+    if (resolution != null) {
+      return resolution;
+    }
+
+    CompletableFuture<Optional<Vector3d>> created = handler.resolve(world, position);
+    if (!created.isDone()) {
+      resolutions.put(target, created);
+      created.whenComplete((v, ex) -> resolutions.remove(target));
+    }
+    return created;
+  }
+
+  private void drain() {
+    // teleports might request further teleports
+    if (draining) {
+      return;
+    }
+    draining = true;
+    try {
+      long now = System.nanoTime();
+      if (now - periodStart >= TICK_NANOS) {
+        periodStart = now;
+        spent = 0;
+      }
+
+      while (!ready.isEmpty() && spent < budgetNanos) {
+        Request request = ready.poll();
+        long start = System.nanoTime();
+        request.execute();
+        spent += System.nanoTime() - start;
+      }
+    } finally {
+      draining = false;
+    }
+
+    if (!ready.isEmpty() && !scheduled) {
+      log.debug("Teleport budget exhausted, {} teleports are deferred to the next tick.", ready.size());
+      scheduled = true;
+      game.getExecutor().execute(() -> {
+        scheduled = false;
+        // the task runs on the next tick, which starts a new period
+        periodStart = System.nanoTime();
+        spent = 0;
+        drain();
+      });
+    }
+  }
+
+  /**
+   * A requested teleport.
+   */
+  private class Request {
+
+    private final CompletableFuture<TeleportStatus> future = new CompletableFuture<>();
+    private final LocalEntity entity;
+    private final UUID worldIdentifier;
+    private final Vector3d position;
+    private final Vector2f rotation;
+
+    private Optional<Vector3d> validPosition = Optional.empty();
+
+    Request(LocalEntity entity, UUID worldIdentifier, Vector3d position, Vector2f rotation) {
+      this.entity = entity;
+      this.worldIdentifier = worldIdentifier;
+      this.position = position;
+      this.rotation = rotation;
+    }
+
+    void execute() {
+      TeleportStatus status;
+      try {
+        status = handler.teleport(entity, worldIdentifier, position, validPosition, rotation);
+      } catch (RuntimeException e) {
+        future.completeExceptionally(e);
+        return;
+      }
+      future.complete(status);
+    }
+  }
+
+  /**
+   * The world and position of a teleport.
+   */
+  private static final class Target {
+
+    private final UUID worldIdentifier;
+    private final Vector3d position;
+
+    Target(UUID worldIdentifier, Vector3d position) {
+      this.worldIdentifier = worldIdentifier;
+      this.position = position;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Target that = (Target) o;
+      return worldIdentifier.equals(that.worldIdentifier) && position.equals(that.position);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(worldIdentifier, position);
+    }
+  }
+}
@@ -28,7 +28,10 @@ import io.github.mywarp.mywarp.util.playermatcher.PlayerMatcher;
 import io.github.mywarp.mywarp.util.teleport.TeleportHandler;
 import io.github.mywarp.mywarp.warp.event.*;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -38,8 +41,9 @@ import java.util.stream.StreamSupport;
  *
  * <p>Events are dispatched in the {@link EventBus} given when initializing this PopulatableWarpManager. Individual
  * warps fire {@link WarpEvent}s and the manager itself fires {@link WarpAdditionEvent}s and {@link WarpDeletionEvent}s
- * when Warps are added to or removed from it. Handlers that want to listen to such events need to register themselves
- * on the EventBus.</p>
+ * when Warps are added to or removed from it. If several Warps are added or removed at once, a single {@link
+ * WarpBulkAdditionEvent} or {@link WarpBulkDeletionEvent} is fired instead. Handlers that want to listen to such
+ * events need to register themselves on the EventBus.</p>
  */
 public class EventfulPopulatableWarpManager extends ForwardingPopulatableWarpManager {
 
@@ -70,6 +74,13 @@ public class EventfulPopulatableWarpManager extends ForwardingPopulatableWarpMan
     eventBus.post(new WarpAdditionEvent(warp));
   }
 
+  @Override
+  public void addAll(Collection<Warp> warps) {
+    List<Warp> eventfulWarps = warps.stream().map(EventfulWarp::new).collect(Collectors.toList());
+    delegate().addAll(eventfulWarps);
+    eventBus.post(new WarpBulkAdditionEvent(eventfulWarps));
+  }
+
   @Override
   public void populate(Iterable<Warp> warps) {
     delegate()
@@ -82,6 +93,12 @@ public class EventfulPopulatableWarpManager extends ForwardingPopulatableWarpMan
     eventBus.post(new WarpDeletionEvent(warp));
   }
 
+  @Override
+  public void removeAll(Collection<Warp> warps) {
+    delegate().removeAll(warps);
+    eventBus.post(new WarpBulkDeletionEvent(warps));
+  }
+
   /**
    * Forwards method calls to an existing Warp and fires {@link WarpEvent}s to the parent's EventBus.
    */
@@ -99,13 +116,13 @@ public class EventfulPopulatableWarpManager extends ForwardingPopulatableWarpMan
     }
 
     @Override
-    public TeleportHandler.TeleportStatus visit(LocalEntity entity, TeleportHandler handler) {
-      TeleportHandler.TeleportStatus status = delegate().visit(entity, handler);
-
-      if (status.isPositionModified()) {
-        eventBus.post(new WarpUpdateEvent(this, WarpUpdateEvent.UpdateType.VISITS));
-      }
-      return status;
+    public CompletableFuture<TeleportHandler.TeleportStatus> visit(LocalEntity entity, TeleportHandler handler) {
+      return delegate().visit(entity, handler).thenApply(status -> {
+        if (status.isPositionModified()) {
+          eventBus.post(new WarpUpdateEvent(this, WarpUpdateEvent.UpdateType.VISITS));
+        }
+        return status;
+      });
     }
 
     @Override
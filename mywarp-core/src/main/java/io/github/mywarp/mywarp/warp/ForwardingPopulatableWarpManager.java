@@ -33,6 +33,7 @@ import java.time.Instant;
 import java.util.Collection;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Predicate;
 
 /**
@@ -48,11 +49,21 @@ abstract class ForwardingPopulatableWarpManager extends ForwardingObject impleme
     delegate().add(warp);
   }
 
+  @Override
+  public void addAll(Collection<Warp> warps) {
+    delegate().addAll(warps);
+  }
+
   @Override
   public void remove(Warp warp) {
     delegate().remove(warp);
   }
 
+  @Override
+  public void removeAll(Collection<Warp> warps) {
+    delegate().removeAll(warps);
+  }
+
   @Override
   public boolean contains(Warp warp) {
     return delegate().contains(warp);
@@ -88,6 +99,11 @@ abstract class ForwardingPopulatableWarpManager extends ForwardingObject impleme
     delegate().depopulate();
   }
 
+  @Override
+  public void depopulate(Predicate<Warp> predicate) {
+    delegate().depopulate(predicate);
+  }
+
   @Override
   public void populate(Iterable<Warp> warps) {
     delegate().populate(warps);
@@ -104,7 +120,7 @@ abstract class ForwardingPopulatableWarpManager extends ForwardingObject impleme
   abstract class ForwardingWarp extends ForwardingObject implements Warp {
 
     @Override
-    public TeleportHandler.TeleportStatus visit(LocalEntity entity, TeleportHandler handler) {
+    public CompletableFuture<TeleportHandler.TeleportStatus> visit(LocalEntity entity, TeleportHandler handler) {
       return delegate().visit(entity, handler);
     }
 
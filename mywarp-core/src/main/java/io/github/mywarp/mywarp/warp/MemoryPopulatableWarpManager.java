@@ -21,8 +21,10 @@ package io.github.mywarp.mywarp.warp;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -41,11 +43,26 @@ public class MemoryPopulatableWarpManager implements PopulatableWarpManager {
     warpMap.put(warp.getName(), warp);
   }
 
+  @Override
+  public void addAll(Collection<Warp> warps) {
+    Set<String> names = new HashSet<>();
+    for (Warp warp : warps) {
+      checkArgument(!containsByName(warp.getName()) && names.add(warp.getName()),
+          "A warp with the name '" + warp.getName() + "' does already exist!");
+    }
+    warps.forEach(warp -> warpMap.put(warp.getName(), warp));
+  }
+
   @Override
   public void remove(Warp warp) {
     warpMap.remove(warp.getName());
   }
 
+  @Override
+  public void removeAll(Collection<Warp> warps) {
+    warps.forEach(this::remove);
+  }
+
   @Override
   public boolean contains(Warp warp) {
     return containsByName(warp.getName());
@@ -85,4 +102,9 @@ public class MemoryPopulatableWarpManager implements PopulatableWarpManager {
   public void depopulate() {
     warpMap.clear();
   }
+
+  @Override
+  public void depopulate(Predicate<Warp> predicate) {
+    warpMap.values().removeIf(predicate);
+  }
 }
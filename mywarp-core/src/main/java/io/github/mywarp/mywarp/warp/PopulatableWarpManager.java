@@ -19,6 +19,7 @@
 
 package io.github.mywarp.mywarp.warp;
 
+import java.util.function.Predicate;
 
 /**
  * A WarpManager that can be populated and depopulated without invoking {@link #add(Warp)} or {@link #remove(Warp)}.
@@ -42,4 +43,11 @@ public interface PopulatableWarpManager extends WarpManager {
    */
   void depopulate();
 
+  /**
+   * Depopulates this manager, removing all Warps previously managed by it that fulfill the given Predicate.
+   *
+   * @param predicate the Predicate
+   */
+  void depopulate(Predicate<Warp> predicate);
+
 }
@@ -0,0 +1,405 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.warp;
+
+import io.github.mywarp.mywarp.util.MyWarpLogger;
+import io.github.mywarp.mywarp.warp.storage.SqlWorkQueue;
+import io.github.mywarp.mywarp.warp.storage.WarpQuery;
+import io.github.mywarp.mywarp.warp.storage.WarpStorage;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Keeps only a bounded working set of warps in memory and reads all other warps from a {@link WarpStorage} when they
+ * are accessed. Calls are delegated to an underlying PopulatableWarpManager as required by the decorator pattern,
+ * which only ever contains the working set.
+ *
+ * <p>This manager keeps the names of all warps in an index. When a warp that is not in the working set is requested
+ * by name, it is read from the storage and populated to the underlying manager, so that it is wrapped by all
+ * decorators below this one. Once the working set exceeds its capacity, the least recently used warps are depopulated
+ * again. This manager must therefore be the outermost decorator.</p>
+ *
+ * <p>Modifications are written through to the storage by the decorators below this one as soon as they happen, so
+ * evicted warps are never dirty. Warps are read on the same executor that executes the writes and queries are executed
+ * in order, so a warp read after its eviction reflects all earlier modifications.</p>
+ *
+ * <p>Methods that evaluate a predicate never add warps to the working set: warps outside of it are returned as copies
+ * that are not managed, use {@link #getByName(String)} to obtain a managed instance. Only {@link WarpFilter}s can be
+ * evaluated, either on the index or by a query on the storage. All other predicates would require reading every
+ * warp and are rejected with a {@link WarpsUnavailableException}.</p>
+ *
+ * <p>All methods must be called on the game's thread. Within a single tick, the game's thread waits at most {@link
+ * #WAIT_BUDGET_MILLIS} for the storage in total. Once this budget is exhausted, reads fail with a {@link
+ * WarpsUnavailableException} instead of returning incomplete results or treating warps as not existing. Warps that
+ * are read by name are populated once the read completes, so that a later attempt finds them in the working
+ * set.</p>
+ */
+public class ReadThroughPopulatableWarpManager extends ForwardingPopulatableWarpManager {
+
+  private static final Logger log = MyWarpLogger.getLogger(ReadThroughPopulatableWarpManager.class);
+
+  /**
+   * The maximum time in milliseconds the game's thread waits for the storage within a single tick.
+   */
+  private static final long WAIT_BUDGET_MILLIS = 25;
+
+  private final PopulatableWarpManager delegate;
+  private final WarpStorage storage;
+  private final Executor executor;
+  private final Executor gameExecutor;
+  private final int capacity;
+
+  private final Set<String> index = new HashSet<>();
+  // iterates from the least to the most recently accessed warp
+  private final Map<String, Warp> workingSet = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, CompletableFuture<List<Warp>>> pendingLoads = new HashMap<>();
+
+  private long waitedNanos;
+  private boolean waitResetScheduled;
+
+  /**
+   * Creates an instance that reads warps from the given {@code storage} using the given {@code executor} and keeps
+   * at most {@code capacity} warps in memory. Further management is delegated to the given PopulatableWarpManager.
+   *
+   * @param delegate     the PopulatableWarpManager to delegate calls to
+   * @param storage      the WarpStorage that stores all warps
+   * @param executor     the executor that executes queries on {@code storage}
+   * @param gameExecutor the executor that runs tasks on the game's thread
+   * @param capacity     the maximum number of warps kept in memory
+   */
+  public ReadThroughPopulatableWarpManager(PopulatableWarpManager delegate, WarpStorage storage, Executor executor,
+                                           Executor gameExecutor, int capacity) {
+    checkArgument(capacity > 0, "The capacity must be positive.");
+    this.delegate = delegate;
+    this.storage = storage;
+    this.executor = executor;
+    this.gameExecutor = gameExecutor;
+    this.capacity = capacity;
+  }
+
+  @Override
+  protected PopulatableWarpManager delegate() {
+    return delegate;
+  }
+
+  /**
+   * Replaces the index of all existing warps with the given names. Warps in the working set whose names are not among
+   * the given names are depopulated.
+   *
+   * <p>Unlike {@link #populate(Iterable)}, this method allows to make all warps available without reading them.</p>
+   *
+   * @param names the names of all existing warps
+   */
+  public void index(Collection<String> names) {
+    index.clear();
+    index.addAll(names);
+    depopulateWorkingSet(name -> !index.contains(name));
+  }
+
+  @Override
+  public void add(Warp warp) {
+    checkArgument(!index.contains(warp.getName()), "A warp with the name '" + warp.getName() + "' does already exist!");
+    delegate().add(warp);
+    index.add(warp.getName());
+    cache(Collections.singleton(warp.getName()));
+  }
+
+  @Override
+  public void addAll(Collection<Warp> warps) {
+    List<String> names = new ArrayList<>(warps.size());
+    for (Warp warp : warps) {
+      checkArgument(!index.contains(warp.getName()),
+                    "A warp with the name '" + warp.getName() + "' does already exist!");
+      names.add(warp.getName());
+    }
+    delegate().addAll(warps);
+    index.addAll(names);
+    cache(names);
+  }
+
+  @Override
+  public void remove(Warp warp) {
+    delegate().remove(warp);
+    index.remove(warp.getName());
+    workingSet.remove(warp.getName());
+  }
+
+  @Override
+  public void removeAll(Collection<Warp> warps) {
+    delegate().removeAll(warps);
+    for (Warp warp : warps) {
+      index.remove(warp.getName());
+      workingSet.remove(warp.getName());
+    }
+  }
+
+  @Override
+  public boolean contains(Warp warp) {
+    return containsByName(warp.getName());
+  }
+
+  @Override
+  public boolean containsByName(String name) {
+    return index.contains(name);
+  }
+
+  @Override
+  public Optional<Warp> getByName(String name) {
+    if (!index.contains(name)) {
+      return Optional.empty();
+    }
+    Warp warp = workingSet.get(name);
+    if (warp != null) {
+      return Optional.of(warp);
+    }
+    return load(name);
+  }
+
+  @Override
+  public Collection<Warp> getAll(Predicate<Warp> predicate) {
+    return getAllMatching(asFilter(predicate));
+  }
+
+  private Collection<Warp> getAllMatching(WarpFilter filter) {
+    Optional<Predicate<String>> names = filter.getNames();
+    if (names.isPresent()) {
+      List<Warp> ret = new ArrayList<>();
+      List<String> unloaded = new ArrayList<>();
+      for (String name : index) {
+        if (!names.get().test(name)) {
+          continue;
+        }
+        Warp warp = workingSet.get(name);
+        if (warp == null) {
+          unloaded.add(name);
+        } else if (filter.test(warp)) {
+          ret.add(warp);
+        }
+      }
+      if (!unloaded.isEmpty()) {
+        read(() -> storage.getWarps(unloaded)).stream().filter(filter).forEach(ret::add);
+      }
+      return ret;
+    }
+
+    // creators are indexed by the storage, so only their warps are read
+    WarpQuery query = WarpQuery.builder().createdBy(filter.getCreator().get()).build();
+    List<Warp> stored = read(() -> storage.getWarps(query).getWarps());
+    return stored.stream().map(warp -> workingSet.getOrDefault(warp.getName(), warp)).filter(filter)
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  public int getNumberOfWarps(Predicate<Warp> predicate) {
+    WarpFilter filter = asFilter(predicate);
+    if (filter.isNameOnly()) {
+      return (int) index.stream().filter(filter.getNames().get()).count();
+    }
+    return getAllMatching(filter).size();
+  }
+
+  /**
+   * Returns the given predicate as a WarpFilter.
+   *
+   * @throws WarpsUnavailableException if the predicate is not a WarpFilter
+   */
+  private static WarpFilter asFilter(Predicate<Warp> predicate) {
+    if (!(predicate instanceof WarpFilter)) {
+      throw new WarpsUnavailableException(
+          "Only WarpFilters can be evaluated if not all warps are kept in memory, use a WarpQuery instead.");
+    }
+    return (WarpFilter) predicate;
+  }
+
+  @Override
+  public int getNumberOfAllWarps() {
+    return index.size();
+  }
+
+  @Override
+  public void populate(Iterable<Warp> warps) {
+    List<String> names = new ArrayList<>();
+    for (Warp warp : warps) {
+      names.add(warp.getName());
+    }
+    delegate().populate(warps);
+    index.addAll(names);
+    cache(names);
+  }
+
+  @Override
+  public void depopulate() {
+    delegate().depopulate();
+    index.clear();
+    workingSet.clear();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Only the warps in the working set are tested. Warps outside of it are read from the storage once they are
+   * accessed, so they can never be outdated.</p>
+   */
+  @Override
+  public void depopulate(Predicate<Warp> predicate) {
+    Set<String> removed = new HashSet<>();
+    for (Warp warp : workingSet.values()) {
+      if (predicate.test(warp)) {
+        removed.add(warp.getName());
+      }
+    }
+    index.removeAll(removed);
+    depopulateWorkingSet(removed::contains);
+  }
+
+  /**
+   * Loads the warp of the given name from the storage into the working set. If the read does not complete in time, the
+   * warp is populated once it does.
+   *
+   * @throws WarpsUnavailableException if the read fails or does not complete in time
+   */
+  private Optional<Warp> load(String name) {
+    CompletableFuture<List<Warp>> pending = pendingLoads.get(name);
+    if (pending == null) {
+      pending = SqlWorkQueue.supplyAsync(() -> storage.getWarps(Collections.singleton(name)), executor);
+      pendingLoads.put(name, pending);
+      pending.whenCompleteAsync((warps, ex) -> {
+        pendingLoads.remove(name);
+        if (ex != null) {
+          log.warn(String.format("Failed to read the warp '%s' from the storage.", name), ex);
+        } else {
+          populateLoaded(name, warps);
+        }
+      }, gameExecutor);
+    }
+
+    populateLoaded(name, await(pending));
+    return Optional.ofNullable(workingSet.get(name));
+  }
+
+  private void populateLoaded(String name, List<Warp> warps) {
+    if (workingSet.containsKey(name) || !index.contains(name)) {
+      return;
+    }
+    if (warps.isEmpty()) {
+      // the warp has been removed by someone else
+      index.remove(name);
+      return;
+    }
+    delegate().populate(warps);
+    cache(Collections.singleton(name));
+  }
+
+  /**
+   * Runs the given query on the storage and waits for its result.
+   *
+   * @throws WarpsUnavailableException if the query fails or does not complete in time
+   */
+  private <T> T read(Supplier<T> query) {
+    if (remainingWaitNanos() <= 0) {
+      throw new WarpsUnavailableException("No time is left to read warps from the storage in this tick.");
+    }
+    return await(SqlWorkQueue.supplyAsync(query, executor));
+  }
+
+  /**
+   * Waits for the given future to complete for at most the remaining wait budget of the current tick.
+   *
+   * @throws WarpsUnavailableException if the future fails or does not complete in time
+   */
+  private <T> T await(CompletableFuture<T> future) {
+    long start = System.nanoTime();
+    try {
+      return future.get(Math.max(0, remainingWaitNanos()), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new WarpsUnavailableException("Interrupted while reading warps from the storage.", e);
+    } catch (ExecutionException e) {
+      throw new WarpsUnavailableException("Failed to read warps from the storage.", e.getCause());
+    } catch (TimeoutException e) {
+      throw new WarpsUnavailableException("Reading warps from the storage is still in progress.", e);
+    } finally {
+      waitedNanos += System.nanoTime() - start;
+    }
+  }
+
+  /**
+   * Gets the time in nanoseconds the game's thread may still wait for the storage in the current tick.
+   */
+  private long remainingWaitNanos() {
+    if (!waitResetScheduled) {
+      // the executor runs tasks at the next tick
+      waitResetScheduled = true;
+      gameExecutor.execute(() -> {
+        waitedNanos = 0;
+        waitResetScheduled = false;
+      });
+    }
+    return TimeUnit.MILLISECONDS.toNanos(WAIT_BUDGET_MILLIS) - waitedNanos;
+  }
+
+  /**
+   * Adds the warps of the given names from the underlying manager to the working set and evicts the least recently
+   * used warps if the working set exceeds its capacity.
+   */
+  private void cache(Collection<String> names) {
+    for (String name : names) {
+      delegate().getByName(name).ifPresent(warp -> workingSet.put(name, warp));
+    }
+    if (workingSet.size() <= capacity) {
+      return;
+    }
+
+    // evict a few more, so that evictions are not necessary on every single load
+    int evictions = workingSet.size() - capacity + capacity / 10;
+    Set<String> evicted = new HashSet<>();
+    Iterator<String> iterator = workingSet.keySet().iterator();
+    while (iterator.hasNext() && evicted.size() < evictions) {
+      evicted.add(iterator.next());
+    }
+    depopulateWorkingSet(evicted::contains);
+  }
+
+  private void depopulateWorkingSet(Predicate<String> names) {
+    workingSet.keySet().removeIf(names);
+    delegate().depopulate(warp -> names.test(warp.getName()));
+  }
+}
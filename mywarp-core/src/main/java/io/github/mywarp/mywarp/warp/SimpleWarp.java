@@ -22,6 +22,7 @@ package io.github.mywarp.mywarp.warp;
 import com.flowpowered.math.vector.Vector2f;
 import com.flowpowered.math.vector.Vector3d;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 import io.github.mywarp.mywarp.platform.LocalEntity;
 import io.github.mywarp.mywarp.platform.LocalWorld;
 import io.github.mywarp.mywarp.util.playermatcher.PlayerMatcher;
@@ -30,6 +31,7 @@ import io.github.mywarp.mywarp.util.teleport.TeleportHandler;
 import java.time.Instant;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -37,13 +39,16 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * A simple implementation that natively stores its properties.
+ *
+ * <p>Invitations are rarely changed, but read whenever a private warp is authorized. They are therefore kept in an
+ * immutable set that is replaced on every change. Most warps have no invitations and share the empty set.</p>
  */
 class SimpleWarp extends AbstractWarp {
 
   private final String name;
   private final Instant creationDate;
-  private final Set<PlayerMatcher> invited;
 
+  private volatile ImmutableSet<PlayerMatcher> invited;
   private volatile UUID creator;
   private volatile Warp.Type type;
   private volatile UUID worldIdentifier;
@@ -73,7 +78,7 @@ class SimpleWarp extends AbstractWarp {
     this.name = checkNotNull(name);
     this.creationDate = checkNotNull(creationDate);
     checkArgument(!checkNotNull(invited).contains(null), "'criteria' must not contain null.");
-    this.invited = invited;
+    this.invited = ImmutableSet.copyOf(invited);
     this.creator = checkNotNull(creator);
     this.type = checkNotNull(type);
     this.worldIdentifier = checkNotNull(worldIdentifier);
@@ -84,23 +89,23 @@ class SimpleWarp extends AbstractWarp {
   }
 
   @Override
-  public TeleportHandler.TeleportStatus visit(LocalEntity entity, TeleportHandler handler) {
-    TeleportHandler.TeleportStatus status = handler.teleport(entity, worldIdentifier, getPosition(), getRotation());
-
-    if (status.isPositionModified()) {
-      visits.incrementAndGet();
-    }
-    return status;
+  public CompletableFuture<TeleportHandler.TeleportStatus> visit(LocalEntity entity, TeleportHandler handler) {
+    return handler.teleport(entity, worldIdentifier, getPosition(), getRotation()).thenApply(status -> {
+      if (status.isPositionModified()) {
+        visits.incrementAndGet();
+      }
+      return status;
+    });
   }
 
   @Override
-  public void addInvitation(PlayerMatcher invitation) {
-    invited.add(invitation);
+  public synchronized void addInvitation(PlayerMatcher invitation) {
+    invited = ImmutableSet.<PlayerMatcher>builder().addAll(invited).add(invitation).build();
   }
 
   @Override
-  public void removeInvitation(PlayerMatcher invitation) {
-    invited.remove(invitation);
+  public synchronized void removeInvitation(PlayerMatcher invitation) {
+    invited = ImmutableSet.copyOf(Sets.difference(invited, ImmutableSet.of(invitation)));
   }
 
   @Override
@@ -115,7 +120,7 @@ class SimpleWarp extends AbstractWarp {
 
   @Override
   public ImmutableSet<PlayerMatcher> getInvitations() {
-    return ImmutableSet.copyOf(invited);
+    return invited;
   }
 
   @Override
@@ -175,6 +180,23 @@ class SimpleWarp extends AbstractWarp {
     return worldIdentifier;
   }
 
+  /**
+   * Replaces all mutable values of this warp with the values of the given {@code warp}. Unlike the setters called on a
+   * managed warp, this bypasses all decorators, so the change is neither written to the storage nor announced.
+   *
+   * @param warp the warp whose values should be copied
+   */
+  void update(Warp warp) {
+    invited = ImmutableSet.copyOf(warp.getInvitations());
+    creator = warp.getCreator();
+    type = warp.getType();
+    worldIdentifier = warp.getWorldIdentifier();
+    position = warp.getPosition();
+    rotation = warp.getRotation();
+    visits.set(warp.getVisits());
+    welcomeMessage = warp.getWelcomeMessage();
+  }
+
   @Override
   public String toString() {
     return "SimpleWarp{" + "name='" + name + '\'' + ", creationDate=" + creationDate + ", criteria=" + invited
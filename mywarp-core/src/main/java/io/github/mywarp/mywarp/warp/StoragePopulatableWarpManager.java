@@ -26,7 +26,10 @@ import io.github.mywarp.mywarp.platform.LocalWorld;
 import io.github.mywarp.mywarp.util.playermatcher.PlayerMatcher;
 import io.github.mywarp.mywarp.util.teleport.TeleportHandler;
 import io.github.mywarp.mywarp.warp.storage.WarpStorage;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -63,12 +66,25 @@ public class StoragePopulatableWarpManager extends ForwardingPopulatableWarpMana
     storage.addWarp(warp);
   }
 
+  @Override
+  public void addAll(Collection<Warp> warps) {
+    List<Warp> persistentWarps = warps.stream().map(PersistentWarp::new).collect(Collectors.toList());
+    delegate().addAll(persistentWarps);
+    storage.addWarps(persistentWarps);
+  }
+
   @Override
   public void remove(Warp warp) {
     delegate().remove(warp);
     storage.removeWarp(warp);
   }
 
+  @Override
+  public void removeAll(Collection<Warp> warps) {
+    delegate().removeAll(warps);
+    storage.removeWarps(warps);
+  }
+
   @Override
   public void populate(Iterable<Warp> warps) {
     delegate().populate(
@@ -92,13 +108,13 @@ public class StoragePopulatableWarpManager extends ForwardingPopulatableWarpMana
     }
 
     @Override
-    public TeleportHandler.TeleportStatus visit(LocalEntity entity, TeleportHandler handler) {
-      TeleportHandler.TeleportStatus status = delegate().visit(entity, handler);
-
-      if (status.isPositionModified()) {
-        storage.updateVisits(delegate());
-      }
-      return status;
+    public CompletableFuture<TeleportHandler.TeleportStatus> visit(LocalEntity entity, TeleportHandler handler) {
+      return delegate().visit(entity, handler).thenApply(status -> {
+        if (status.isPositionModified()) {
+          storage.updateVisits(delegate());
+        }
+        return status;
+      });
     }
 
     @Override
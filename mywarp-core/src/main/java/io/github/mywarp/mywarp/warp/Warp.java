@@ -34,6 +34,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.Comparator;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A named location with additional meta-data. Two Warps are equal if and only if their names are equal.
@@ -49,9 +50,10 @@ public interface Warp extends Comparable<Warp> {
    *
    * @param entity  the entity to teleport
    * @param handler the TeleportHandler that handles the teleport
-   * @return the status of the teleport
+   * @return a future that completes with the status of the teleport
+   * @see TeleportHandler#teleport(LocalEntity, UUID, Vector3d, Vector2f)
    */
-  TeleportHandler.TeleportStatus visit(LocalEntity entity, TeleportHandler handler);
+  CompletableFuture<TeleportHandler.TeleportStatus> visit(LocalEntity entity, TeleportHandler handler);
 
   /**
    * Returns whether the unique identifier is equal to the identifier of the player who created this Warp.
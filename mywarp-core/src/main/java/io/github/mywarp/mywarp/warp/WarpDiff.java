@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.warp;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import com.google.common.eventbus.EventBus;
+import io.github.mywarp.mywarp.util.playermatcher.PlayerMatcher;
+import io.github.mywarp.mywarp.warp.event.WarpBulkAdditionEvent;
+import io.github.mywarp.mywarp.warp.event.WarpBulkDeletionEvent;
+import io.github.mywarp.mywarp.warp.event.WarpInvitesEvent;
+import io.github.mywarp.mywarp.warp.event.WarpUpdateEvent;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The difference between the warps of a {@link PopulatableWarpManager} and a fresh set of warps, e.g. as loaded from
+ * the storage system.
+ *
+ * <p>Warps are matched by name and compared by value. As loaded warps are modified on the game's thread, they are
+ * copied by {@link #snapshot(Collection)} first. A diff is then computed once, typically outside of the game's thread,
+ * and can then be applied to the manager on the game's thread. Applying it only touches warps that actually changed
+ * and only posts events for these warps.</p>
+ */
+public final class WarpDiff {
+
+  private final ImmutableList<Warp> added;
+  private final ImmutableList<Warp> removed;
+  private final ImmutableMap<Warp, Warp> updated;
+
+  private WarpDiff(ImmutableList<Warp> added, ImmutableList<Warp> removed, ImmutableMap<Warp, Warp> updated) {
+    this.added = added;
+    this.removed = removed;
+    this.updated = updated;
+  }
+
+  /**
+   * Copies the given warps, so that the copies can be compared while the given warps are modified.
+   *
+   * <p>This method must be called on the game's thread.</p>
+   *
+   * @param warps the warps to copy
+   * @return an immutable list of copies
+   */
+  public static ImmutableList<Warp> snapshot(Collection<Warp> warps) {
+    ImmutableList.Builder<Warp> ret = ImmutableList.builder();
+    for (Warp warp : warps) {
+      ret.add(new WarpBuilder(warp.getName(), warp.getCreator(), warp.getWorldIdentifier(), warp.getPosition(),
+          warp.getRotation()).setCreationDate(warp.getCreationDate()).addInvitations(warp.getInvitations())
+          .setType(warp.getType()).setVisits(warp.getVisits()).setWelcomeMessage(warp.getWelcomeMessage()).build());
+    }
+    return ret.build();
+  }
+
+  /**
+   * Computes the difference between the given {@code current} warps and the given {@code fresh} warps.
+   *
+   * <p>This method only reads from the given warps, so it may be called on any thread as long as the given warps are
+   * not modified while it runs. Loaded warps should therefore be copied by {@link #snapshot(Collection)}.</p>
+   *
+   * @param current the warps that are currently available
+   * @param fresh   the warps that should be available
+   * @return the difference
+   */
+  public static WarpDiff compute(Collection<Warp> current, Collection<Warp> fresh) {
+    Map<String, Warp> currentByName = new HashMap<>();
+    current.forEach(warp -> currentByName.put(warp.getName(), warp));
+
+    ImmutableList.Builder<Warp> added = ImmutableList.builder();
+    ImmutableMap.Builder<Warp, Warp> updated = ImmutableMap.builder();
+    for (Warp warp : fresh) {
+      Warp old = currentByName.remove(warp.getName());
+      // storage systems might only store the creation date with a precision of seconds
+      if (old == null || old.getCreationDate().getEpochSecond() != warp.getCreationDate().getEpochSecond()) {
+        // a different warp that happens to have the same name
+        if (old != null) {
+          currentByName.put(old.getName(), old);
+        }
+        added.add(warp);
+      } else if (!getUpdateTypes(old, warp).isEmpty() || !old.getInvitations().equals(warp.getInvitations())) {
+        updated.put(old, warp);
+      }
+    }
+    return new WarpDiff(added.build(), ImmutableList.copyOf(currentByName.values()), updated.build());
+  }
+
+  /**
+   * Returns whether this diff contains no changes.
+   *
+   * @return {@code true} if nothing changed
+   */
+  public boolean isEmpty() {
+    return added.isEmpty() && removed.isEmpty() && updated.isEmpty();
+  }
+
+  /**
+   * Gets the number of warps that are added, removed or updated by this diff.
+   *
+   * @return the number of changed warps
+   */
+  public int size() {
+    return added.size() + removed.size() + updated.size();
+  }
+
+  /**
+   * Applies this diff to the given {@code warpManager} and posts events for all changed warps on the given {@code
+   * eventBus}.
+   *
+   * <p>Added and removed warps are populated and depopulated. Updated warps are changed in place, so that everyone
+   * who holds a managed instance, e.g. a pending teleport, observes the changes. Neither is written back to the storage
+   * system. Removed warps are announced by a {@link WarpBulkDeletionEvent}, added warps by a {@link
+   * WarpBulkAdditionEvent} and updated warps by a {@link WarpUpdateEvent} for each changed property and a {@link
+   * WarpInvitesEvent} for each changed invitation. This method must be called on the game's thread.</p>
+   *
+   * @param warpManager the manager whose warps should be changed
+   * @param eventBus    the EventBus to post events on
+   */
+  public void apply(PopulatableWarpManager warpManager, EventBus eventBus) {
+    if (isEmpty()) {
+      return;
+    }
+    Set<String> replaced = Sets.newHashSet();
+    removed.forEach(warp -> replaced.add(warp.getName()));
+    added.forEach(warp -> replaced.add(warp.getName()));
+
+    // managed instance -> old values
+    Map<Warp, Warp> changedInPlace = new LinkedHashMap<>();
+    // old values -> fresh warp, for warps that cannot be changed in place
+    Map<Warp, Warp> replacements = new LinkedHashMap<>();
+    updated.forEach((old, fresh) -> {
+      Optional<Warp> managed = warpManager.getByName(old.getName());
+      Optional<SimpleWarp> values = managed.flatMap(WarpDiff::unwrap);
+      if (values.isPresent()) {
+        values.get().update(fresh);
+        changedInPlace.put(managed.get(), old);
+      } else {
+        replaced.add(old.getName());
+        replacements.put(old, fresh);
+      }
+    });
+
+    Set<String> replacedNames = Sets.newHashSet();
+    replacements.keySet().forEach(warp -> replacedNames.add(warp.getName()));
+
+    Collection<Warp> deleted = Collections.emptyList();
+    if (!replaced.isEmpty()) {
+      deleted = warpManager.getAll(WarpFilter.byName(name -> replaced.contains(name) && !replacedNames.contains(name)));
+      warpManager.depopulate(warp -> replaced.contains(warp.getName()));
+    }
+    warpManager.populate(added);
+    warpManager.populate(replacements.values());
+
+    if (!deleted.isEmpty()) {
+      eventBus.post(new WarpBulkDeletionEvent(deleted));
+    }
+    if (!added.isEmpty()) {
+      Set<String> addedNames = Sets.newHashSet();
+      added.forEach(warp -> addedNames.add(warp.getName()));
+      eventBus.post(new WarpBulkAdditionEvent(warpManager.getAll(WarpFilter.byName(addedNames::contains))));
+    }
+    changedInPlace.forEach((warp, old) -> postUpdateEvents(old, warp, eventBus));
+    replacements.forEach((old, fresh) -> {
+      Optional<Warp> replacement = warpManager.getByName(fresh.getName());
+      replacement.ifPresent(warp -> postUpdateEvents(old, warp, eventBus));
+    });
+  }
+
+  /**
+   * Gets the warp that stores the values of the given managed warp, bypassing all decorators.
+   */
+  private static Optional<SimpleWarp> unwrap(Warp warp) {
+    while (warp instanceof ForwardingPopulatableWarpManager.ForwardingWarp) {
+      warp = ((ForwardingPopulatableWarpManager.ForwardingWarp) warp).delegate();
+    }
+    return warp instanceof SimpleWarp ? Optional.of((SimpleWarp) warp) : Optional.empty();
+  }
+
+  private static void postUpdateEvents(Warp old, Warp fresh, EventBus eventBus) {
+    for (WarpUpdateEvent.UpdateType type : getUpdateTypes(old, fresh)) {
+      eventBus.post(new WarpUpdateEvent(fresh, type));
+    }
+    for (PlayerMatcher invitation : Sets.difference(fresh.getInvitations(), old.getInvitations())) {
+      eventBus.post(new WarpInvitesEvent(fresh, WarpInvitesEvent.InvitationStatus.ADDITION, invitation));
+    }
+    for (PlayerMatcher invitation : Sets.difference(old.getInvitations(), fresh.getInvitations())) {
+      eventBus.post(new WarpInvitesEvent(fresh, WarpInvitesEvent.InvitationStatus.REMOVAL, invitation));
+    }
+  }
+
+  private static Set<WarpUpdateEvent.UpdateType> getUpdateTypes(Warp old, Warp fresh) {
+    Set<WarpUpdateEvent.UpdateType> types = EnumSet.noneOf(WarpUpdateEvent.UpdateType.class);
+    if (!old.getCreator().equals(fresh.getCreator())) {
+      types.add(WarpUpdateEvent.UpdateType.CREATOR);
+    }
+    if (!old.getWorldIdentifier().equals(fresh.getWorldIdentifier()) || !old.getPosition().equals(fresh.getPosition())
+        || !old.getRotation().equals(fresh.getRotation())) {
+      types.add(WarpUpdateEvent.UpdateType.LOCATION);
+    }
+    if (old.getType() != fresh.getType()) {
+      types.add(WarpUpdateEvent.UpdateType.TYPE);
+    }
+    if (old.getVisits() != fresh.getVisits()) {
+      types.add(WarpUpdateEvent.UpdateType.VISITS);
+    }
+    if (!Objects.equals(old.getWelcomeMessage(), fresh.getWelcomeMessage())) {
+      types.add(WarpUpdateEvent.UpdateType.WELCOME_MESSAGE);
+    }
+    return types;
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.github.mywarp.mywarp.warp;
+
+import javax.annotation.Nullable;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A Predicate for warps that exposes a criterion a {@link WarpManager} can evaluate without testing every warp, e.g.
+ * because it keeps an index of the names of all warps or can query warps by their creator.
+ *
+ * <p>Warps are matched if they fulfill the criterion and all predicates added via {@link #and(Predicate)}. Managers
+ * that do not know about this class simply test every warp.</p>
+ */
+public final class WarpFilter implements Predicate<Warp> {
+
+  @Nullable
+  private final Predicate<String> names;
+  @Nullable
+  private final UUID creator;
+  @Nullable
+  private final Predicate<? super Warp> residual;
+
+  private WarpFilter(@Nullable Predicate<String> names, @Nullable UUID creator,
+                     @Nullable Predicate<? super Warp> residual) {
+    this.names = names;
+    this.creator = creator;
+    this.residual = residual;
+  }
+
+  /**
+   * Creates a filter that matches all warps whose name fulfills the given Predicate.
+   *
+   * @param names the Predicate for names
+   * @return the filter
+   */
+  public static WarpFilter byName(Predicate<String> names) {
+    return new WarpFilter(checkNotNull(names), null, null);
+  }
+
+  /**
+   * Creates a filter that matches all warps created by the player of the given unique identifier.
+   *
+   * @param creator the creator's identifier
+   * @return the filter
+   */
+  public static WarpFilter byCreator(UUID creator) {
+    return new WarpFilter(null, checkNotNull(creator), null);
+  }
+
+  /**
+   * Gets the Predicate the names of matching warps must fulfill.
+   *
+   * @return the Predicate, if matching warps are restricted by their name
+   */
+  public Optional<Predicate<String>> getNames() {
+    return Optional.ofNullable(names);
+  }
+
+  /**
+   * Gets the unique identifier of the player who must have created matching warps.
+   *
+   * @return the creator's identifier, if matching warps are restricted to a single creator
+   */
+  public Optional<UUID> getCreator() {
+    return Optional.ofNullable(creator);
+  }
+
+  /**
+   * Returns whether this filter only tests the names of warps, so that it can be evaluated on names alone.
+   *
+   * @return {@code true} if only names are tested
+   */
+  boolean isNameOnly() {
+    return names != null && creator == null && residual == null;
+  }
+
+  @Override
+  public boolean test(Warp warp) {
+    return (names == null || names.test(warp.getName())) && (creator == null || warp.isCreator(creator))
+           && (residual == null || residual.test(warp));
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The returned filter still exposes the criterion of this filter.</p>
+   */
+  @Override
+  public WarpFilter and(Predicate<? super Warp> other) {
+    checkNotNull(other);
+    if (residual == null) {
+      return new WarpFilter(names, creator, other);
+    }
+    Predicate<? super Warp> current = residual;
+    return new WarpFilter(names, creator, warp -> current.test(warp) && other.test(warp));
+  }
+}
@@ -39,6 +39,19 @@ public interface WarpManager {
    */
   void add(Warp warp);
 
+  /**
+   * Adds all given {@code warps} to this manager.
+   *
+   * <p>Implementations may handle the given Warps as one unit, e.g. by storing them in a single transaction. Callers
+   * should prefer this method over calling {@link #add(Warp)} for every single Warp when adding large numbers of
+   * Warps.</p>
+   *
+   * @param warps the Warps to add
+   * @throws IllegalArgumentException if this manager already contains a warp with the name of one of the given Warps or
+   *                                  if the given Warps contain more than one Warp with the same name
+   */
+  void addAll(Collection<Warp> warps);
+
   /**
    * Removes the given {@code warp} from this manager.
    *
@@ -46,6 +59,13 @@ public interface WarpManager {
    */
   void remove(Warp warp);
 
+  /**
+   * Removes all given {@code warps} from this manager.
+   *
+   * @param warps the Warps to remove
+   */
+  void removeAll(Collection<Warp> warps);
+
   /**
    * Checks whether this manager contains the given {@code warp}.
    *
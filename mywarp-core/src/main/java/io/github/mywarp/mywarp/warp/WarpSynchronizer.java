@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.warp;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.eventbus.EventBus;
+import io.github.mywarp.mywarp.util.MyWarpLogger;
+import io.github.mywarp.mywarp.warp.storage.SqlWorkQueue;
+import io.github.mywarp.mywarp.warp.storage.WarpChanges;
+import io.github.mywarp.mywarp.warp.storage.WarpStorage;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+
+/**
+ * Keeps the warps of a {@link PopulatableWarpManager} in sync with changes that other instances make to the same
+ * {@link WarpStorage}.
+ *
+ * <p>Changes are read from the change-log of the storage and only the changed warps are reloaded, so the costs of a
+ * synchronization are proportional to the number of changes. Changes are applied to the manager as a {@link WarpDiff},
+ * without writing them back to the storage, and events are posted on the given EventBus.</p>
+ *
+ * <p>Change IDs that are skipped, e.g. because the transaction that records the change has not yet committed, are
+ * read again by the following synchronizations until the change shows up. IDs that are still missing after
+ * {@value #MISSING_CHANGE_TIMEOUT_SECONDS} seconds are considered lost, e.g. because the transaction was rolled back
+ * or the database skipped them.</p>
+ *
+ * <p>Changes made by the own instance are normally ignored. As changes of this instance that are made while a
+ * synchronization is in progress might be overwritten by it, own changes of warps replaced by the previous
+ * synchronization are reloaded too.</p>
+ */
+public class WarpSynchronizer {
+
+  private static final Logger log = MyWarpLogger.getLogger(WarpSynchronizer.class);
+
+  private static final int MAX_CHANGES = 1000;
+  private static final Duration CHANGE_RETENTION = Duration.ofDays(1);
+  private static final long MISSING_CHANGE_TIMEOUT_SECONDS = 60;
+  private static final int MAX_MISSING_CHANGES = 500;
+
+  private final PopulatableWarpManager warpManager;
+  private final WarpStorage storage;
+  private final Executor storageExecutor;
+  private final Executor gameExecutor;
+  private final EventBus eventBus;
+
+  private long latestChangeId = -1;
+  private int generation;
+  private boolean synchronizing;
+  private Set<String> lastReplaced = Collections.emptySet();
+  // skipped change IDs, mapped to the time they were first skipped
+  private final NavigableMap<Long, Instant> missingChangeIds = new TreeMap<>();
+
+  /**
+   * Creates an instance.
+   *
+   * @param warpManager     the manager whose warps should be kept in sync
+   * @param storage         the storage that stores the warps of {@code warpManager}
+   * @param storageExecutor the executor that executes queries on {@code storage}
+   * @param gameExecutor    the executor that runs tasks on the game's thread
+   * @param eventBus        the EventBus to post events on
+   */
+  public WarpSynchronizer(PopulatableWarpManager warpManager, WarpStorage storage, Executor storageExecutor,
+                          Executor gameExecutor, EventBus eventBus) {
+    this.warpManager = warpManager;
+    this.storage = storage;
+    this.storageExecutor = storageExecutor;
+    this.gameExecutor = gameExecutor;
+    this.eventBus = eventBus;
+  }
+
+  /**
+   * Resets this synchronizer so that the next synchronization starts after the change with the given ID. This method
+   * must be called whenever the manager has been populated with the contents of the storage.
+   *
+   * <p>Synchronizations that are still running when this method is called are discarded.</p>
+   *
+   * @param latestChangeId the ID of the latest change that is reflected by the manager
+   */
+  public void reset(long latestChangeId) {
+    this.latestChangeId = latestChangeId;
+    this.lastReplaced = Collections.emptySet();
+    missingChangeIds.clear();
+    generation++;
+    synchronizing = false;
+  }
+
+  /**
+   * Invalidates this synchronizer, so that calls to {@link #synchronize()} have no effect until it is reset again.
+   *
+   * @see #reset(long)
+   */
+  public void invalidate() {
+    latestChangeId = -1;
+    missingChangeIds.clear();
+    generation++;
+    synchronizing = false;
+  }
+
+  /**
+   * Synchronizes the manager with all changes recorded since the last synchronization.
+   *
+   * <p>Changes are read asynchronously and applied on the game's thread. If a synchronization is still running or
+   * this synchronizer has not yet been reset, calling this method has no effect. This method must be called on the
+   * game's thread.</p>
+   */
+  public void synchronize() {
+    if (synchronizing || latestChangeId < 0) {
+      return;
+    }
+    synchronizing = true;
+
+    final int currentGeneration = generation;
+    final long afterChangeId = latestChangeId;
+    final Set<String> replaced = lastReplaced;
+    final ImmutableSet<Long> missing = ImmutableSet.copyOf(missingChangeIds.keySet());
+
+    SqlWorkQueue.supplyAsync(() -> {
+      WarpChanges changes = storage.getChanges(afterChangeId, missing, MAX_CHANGES);
+      Set<String> changed = Sets.union(changes.getForeignChanges(), Sets.intersection(changes.getOwnChanges(),
+                                                                                       replaced)).immutableCopy();
+      List<Warp> warps = changed.isEmpty() ? Collections.emptyList() : storage.getWarps(changed);
+      return new Delta(changes, changed, warps);
+    }, storageExecutor).whenCompleteAsync((delta, ex) -> {
+      if (currentGeneration != generation) {
+        return;
+      }
+      synchronizing = false;
+      if (ex != null) {
+        log.warn("Failed to synchronize warps with the storage.", ex);
+        return;
+      }
+      trackMissingChanges(afterChangeId, delta.changes);
+      apply(delta);
+
+      if (delta.changes.isIncomplete()) {
+        synchronize();
+      }
+    }, gameExecutor);
+  }
+
+  /**
+   * Removes all changes older than a day from the change-log of the storage.
+   *
+   * <p>Every write to the storage is recorded in the change-log, so this method should be called periodically even if
+   * warps are never synchronized. The changes are removed asynchronously.</p>
+   */
+  public void pruneChanges() {
+    SqlWorkQueue.runAsync(() -> storage.pruneChanges(Instant.now().minus(CHANGE_RETENTION)), storageExecutor)
+        .exceptionally(ex -> {
+          log.warn("Failed to prune the change-log of the storage.", ex);
+          return null;
+        });
+  }
+
+  /**
+   * Remembers the IDs that were skipped by the given {@code changes}, read after the change with the given ID, and
+   * forgets IDs that are read or considered lost.
+   */
+  private void trackMissingChanges(long afterChangeId, WarpChanges changes) {
+    Instant now = Instant.now();
+    missingChangeIds.keySet().removeAll(changes.getChangeIds());
+
+    long expected = afterChangeId + 1;
+    for (long changeId : new TreeSet<>(changes.getChangeIds())) {
+      if (changeId < expected) {
+        continue;
+      }
+      for (long missing = Math.max(expected, changeId - MAX_MISSING_CHANGES); missing < changeId; missing++) {
+        missingChangeIds.put(missing, now);
+      }
+      expected = changeId + 1;
+    }
+
+    Instant lost = now.minusSeconds(MISSING_CHANGE_TIMEOUT_SECONDS);
+    missingChangeIds.values().removeIf(skipped -> skipped.isBefore(lost));
+    while (missingChangeIds.size() > MAX_MISSING_CHANGES) {
+      missingChangeIds.pollFirstEntry();
+    }
+  }
+
+  private void apply(Delta delta) {
+    latestChangeId = delta.changes.getLatestChangeId();
+    lastReplaced = delta.changed;
+    if (delta.changed.isEmpty()) {
+      return;
+    }
+
+    // lookups by name avoid evaluating a predicate on all warps, which is expensive for read-through managers
+    WarpDiff diff = WarpDiff.compute(WarpDiff.snapshot(getByNames(delta.changed)), delta.warps);
+    // updated warps are changed in place, so holders of managed instances are not left with detached copies
+    diff.apply(warpManager, eventBus);
+    log.debug("Synchronized {} changed warps.", delta.changed.size());
+  }
+
+  private Collection<Warp> getByNames(Set<String> names) {
+    List<Warp> ret = new ArrayList<>(names.size());
+    for (String name : names) {
+      try {
+        warpManager.getByName(name).ifPresent(ret::add);
+      } catch (WarpsUnavailableException e) {
+        // the warp is not in memory, so there is no managed instance that could be outdated
+        log.debug("Skipped the warp '{}' as it could not be read in time.", name);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * The changes read from the storage, together with the current state of all changed warps.
+   */
+  private static final class Delta {
+
+    private final WarpChanges changes;
+    private final ImmutableSet<String> changed;
+    private final List<Warp> warps;
+
+    private Delta(WarpChanges changes, ImmutableSet<String> changed, List<Warp> warps) {
+      this.changes = changes;
+      this.changed = changed;
+      this.warps = warps;
+    }
+  }
+}
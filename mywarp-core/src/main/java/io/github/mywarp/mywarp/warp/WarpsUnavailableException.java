@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.github.mywarp.mywarp.warp;
+
+/**
+ * Thrown when warps cannot be read from the storage in time or an operation would need to read all of them, so that
+ * its result would be incomplete.
+ */
+public class WarpsUnavailableException extends RuntimeException {
+
+  /**
+   * Constructs an instance with the given detail message.
+   *
+   * @param message the detail message
+   */
+  public WarpsUnavailableException(String message) {
+    super(message);
+  }
+
+  /**
+   * Constructs an instance with the given detail message and cause.
+   *
+   * @param message the detail message
+   * @param cause   the cause
+   */
+  public WarpsUnavailableException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
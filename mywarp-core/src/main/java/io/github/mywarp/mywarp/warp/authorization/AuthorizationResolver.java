@@ -22,7 +22,9 @@ package io.github.mywarp.mywarp.warp.authorization;
 import io.github.mywarp.mywarp.platform.Actor;
 import io.github.mywarp.mywarp.platform.LocalEntity;
 import io.github.mywarp.mywarp.warp.Warp;
+import io.github.mywarp.mywarp.warp.storage.WarpQuery;
 
+import java.util.Set;
 import java.util.function.Predicate;
 
 /**
@@ -115,4 +117,18 @@ public class AuthorizationResolver {
   public Predicate<Warp> isViewable(final Actor actor) {
     return input -> isViewable(input, actor);
   }
+
+  /**
+   * Restricts the given query to warps that are viewable by the given Actor.
+   *
+   * <p>This method must be called on the game's thread, as it may check permissions and groups of the given Actor.</p>
+   *
+   * @param query         the query to restrict
+   * @param actor         the Actor
+   * @param invitedGroups the identifiers of all groups that are invited to at least one warp
+   * @see #isViewable(Warp, Actor)
+   */
+  public void restrictToViewable(WarpQuery.Builder query, Actor actor, Set<String> invitedGroups) {
+    strategy.restrictToViewable(query, actor, invitedGroups);
+  }
 }
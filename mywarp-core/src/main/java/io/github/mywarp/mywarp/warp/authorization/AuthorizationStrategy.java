@@ -22,6 +22,9 @@ package io.github.mywarp.mywarp.warp.authorization;
 import io.github.mywarp.mywarp.platform.Actor;
 import io.github.mywarp.mywarp.platform.LocalEntity;
 import io.github.mywarp.mywarp.warp.Warp;
+import io.github.mywarp.mywarp.warp.storage.WarpQuery;
+
+import java.util.Set;
 
 /**
  * A strategy to resolve a user's authentication for a certain Warp.
@@ -57,4 +60,14 @@ public interface AuthorizationStrategy {
    */
   boolean isViewable(Warp warp, Actor actor);
 
+  /**
+   * Restricts the given query to warps that are viewable by the given {@code Actor}, so that the query only matches
+   * warps for which {@link #isViewable(Warp, Actor)} returns {@code true}.
+   *
+   * @param query         the query to restrict
+   * @param actor         the Actor to check
+   * @param invitedGroups the identifiers of all groups that are invited to at least one warp
+   */
+  void restrictToViewable(WarpQuery.Builder query, Actor actor, Set<String> invitedGroups);
+
 }
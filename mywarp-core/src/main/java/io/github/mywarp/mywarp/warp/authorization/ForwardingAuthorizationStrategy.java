@@ -23,6 +23,9 @@ import com.google.common.collect.ForwardingObject;
 import io.github.mywarp.mywarp.platform.Actor;
 import io.github.mywarp.mywarp.platform.LocalEntity;
 import io.github.mywarp.mywarp.warp.Warp;
+import io.github.mywarp.mywarp.warp.storage.WarpQuery;
+
+import java.util.Set;
 
 /**
  * Forwards all method calls to another AuthorizationStrategy. Subclasses should override one or more methods to modify
@@ -46,6 +49,11 @@ abstract class ForwardingAuthorizationStrategy extends ForwardingObject implemen
     return delegate().isViewable(warp, actor);
   }
 
+  @Override
+  public void restrictToViewable(WarpQuery.Builder query, Actor actor, Set<String> invitedGroups) {
+    delegate().restrictToViewable(query, actor, invitedGroups);
+  }
+
   @Override
   protected abstract AuthorizationStrategy delegate();
 }
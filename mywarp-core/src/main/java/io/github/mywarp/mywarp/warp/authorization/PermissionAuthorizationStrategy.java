@@ -22,6 +22,9 @@ package io.github.mywarp.mywarp.warp.authorization;
 import io.github.mywarp.mywarp.platform.Actor;
 import io.github.mywarp.mywarp.platform.LocalEntity;
 import io.github.mywarp.mywarp.warp.Warp;
+import io.github.mywarp.mywarp.warp.storage.WarpQuery;
+
+import java.util.Set;
 
 /**
  * Resolves a user's authentication based on permissions.
@@ -60,4 +63,11 @@ public class PermissionAuthorizationStrategy extends ForwardingAuthorizationStra
   public boolean isViewable(Warp warp, Actor actor) {
     return actor.hasPermission("mywarp.override.view") || delegate.isViewable(warp, actor);
   }
+
+  @Override
+  public void restrictToViewable(WarpQuery.Builder query, Actor actor, Set<String> invitedGroups) {
+    if (!actor.hasPermission("mywarp.override.view")) {
+      delegate.restrictToViewable(query, actor, invitedGroups);
+    }
+  }
 }
@@ -23,6 +23,11 @@ import io.github.mywarp.mywarp.platform.Actor;
 import io.github.mywarp.mywarp.platform.LocalEntity;
 import io.github.mywarp.mywarp.platform.LocalPlayer;
 import io.github.mywarp.mywarp.warp.Warp;
+import io.github.mywarp.mywarp.warp.storage.WarpQuery;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Resolves a user's authentication for a certain warp based on properties of the warp.<ul> <li>A warp is
@@ -39,14 +44,14 @@ public class WarpPropertiesAuthorizationStrategy implements AuthorizationStrateg
 
   @Override
   public boolean isUsable(Warp warp, LocalEntity entity) {
-    if (entity instanceof Actor && isModifiable(warp, (Actor) entity)) {
+    // invitations are checked last, as reading them might be expensive
+    if (warp.isType(Warp.Type.PUBLIC)) {
       return true;
     }
-    if (entity instanceof LocalPlayer && warp.isInvited((LocalPlayer) entity)) {
+    if (entity instanceof Actor && isModifiable(warp, (Actor) entity)) {
       return true;
-
     }
-    return warp.isType(Warp.Type.PUBLIC);
+    return entity instanceof LocalPlayer && warp.isInvited((LocalPlayer) entity);
   }
 
   @Override
@@ -58,4 +63,16 @@ public class WarpPropertiesAuthorizationStrategy implements AuthorizationStrateg
     //for everybody else a warp is visible only if it is public
     return warp.isType(Warp.Type.PUBLIC);
   }
+
+  @Override
+  public void restrictToViewable(WarpQuery.Builder query, Actor actor, Set<String> invitedGroups) {
+    //only players can create warps or be invited
+    if (actor instanceof LocalPlayer) {
+      LocalPlayer player = (LocalPlayer) actor;
+      query.viewableBy(player.getUniqueId(),
+                       invitedGroups.stream().filter(player::hasGroup).collect(Collectors.toSet()));
+    } else {
+      query.viewableBy(null, Collections.emptySet());
+    }
+  }
 }
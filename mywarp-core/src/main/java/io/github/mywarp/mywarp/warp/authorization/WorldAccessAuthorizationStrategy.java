@@ -21,8 +21,11 @@ package io.github.mywarp.mywarp.warp.authorization;
 
 import io.github.mywarp.mywarp.platform.*;
 import io.github.mywarp.mywarp.warp.Warp;
+import io.github.mywarp.mywarp.warp.storage.WarpQuery;
 
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Resolves a user's authentication to use a warp bases on the users permission to access the world that contains the
@@ -69,6 +72,16 @@ public class WorldAccessAuthorizationStrategy extends ForwardingAuthorizationStr
     return delegate().isViewable(warp, actor);
   }
 
+  @Override
+  public void restrictToViewable(WarpQuery.Builder query, Actor actor, Set<String> invitedGroups) {
+    if (settings.isControlWorldAccess()) {
+      query.excludeWorlds(game.getWorlds().stream()
+                              .filter(world -> !actor.hasPermission("mywarp.world-access." + world.getName()))
+                              .map(LocalWorld::getUniqueId).collect(Collectors.toSet()));
+    }
+    delegate().restrictToViewable(query, actor, invitedGroups);
+  }
+
   /**
    * Returns whether the given actor can access the world of the given warp.
    *
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.warp.event;
+
+import io.github.mywarp.mywarp.warp.Warp;
+
+import java.util.Collection;
+
+/**
+ * Indicates that several warps were created at once.
+ *
+ * <p>This event is posted instead of individual {@link WarpAdditionEvent}s.</p>
+ */
+public class WarpBulkAdditionEvent extends WarpBulkEvent {
+
+  /**
+   * Constructs this event for the given Warps.
+   *
+   * @param warps the warps
+   */
+  public WarpBulkAdditionEvent(Collection<Warp> warps) {
+    super(warps);
+  }
+
+}
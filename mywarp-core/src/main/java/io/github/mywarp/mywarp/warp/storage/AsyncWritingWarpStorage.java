@@ -19,9 +19,11 @@
 
 package io.github.mywarp.mywarp.warp.storage;
 
+import com.google.common.collect.ImmutableList;
 import io.github.mywarp.mywarp.util.playermatcher.PlayerMatcher;
 import io.github.mywarp.mywarp.warp.Warp;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Executor;
 
@@ -56,11 +58,23 @@ public class AsyncWritingWarpStorage extends ForwardingWarpStorage {
     executor.execute(() -> delegate().addWarp(warp));
   }
 
+  @Override
+  public void addWarps(Collection<Warp> warps) {
+    final ImmutableList<Warp> copy = ImmutableList.copyOf(warps);
+    executor.execute(() -> delegate().addWarps(copy));
+  }
+
   @Override
   public void removeWarp(final Warp warp) {
     executor.execute(() -> delegate().removeWarp(warp));
   }
 
+  @Override
+  public void removeWarps(Collection<Warp> warps) {
+    final ImmutableList<Warp> copy = ImmutableList.copyOf(warps);
+    executor.execute(() -> delegate().removeWarps(copy));
+  }
+
   @Override
   public List<Warp> getWarps() {
     return delegate().getWarps();
@@ -23,7 +23,12 @@ import com.google.common.collect.ForwardingObject;
 import io.github.mywarp.mywarp.util.playermatcher.PlayerMatcher;
 import io.github.mywarp.mywarp.warp.Warp;
 
+import javax.annotation.Nullable;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * A WarpStorage that forwards all its method calls to another WarpStorage. Subclasses should override one or more
@@ -40,16 +45,76 @@ abstract class ForwardingWarpStorage extends ForwardingObject implements WarpSto
     delegate().addWarp(warp);
   }
 
+  @Override
+  public void addWarps(Collection<Warp> warps) {
+    delegate().addWarps(warps);
+  }
+
   @Override
   public void removeWarp(Warp warp) {
     delegate().removeWarp(warp);
   }
 
+  @Override
+  public void removeWarps(Collection<Warp> warps) {
+    delegate().removeWarps(warps);
+  }
+
   @Override
   public List<Warp> getWarps() {
     return delegate().getWarps();
   }
 
+  @Override
+  public StorageFingerprint getFingerprint() {
+    return delegate().getFingerprint();
+  }
+
+  @Override
+  public List<Warp> getWarps(Collection<String> names) {
+    return delegate().getWarps(names);
+  }
+
+  @Override
+  public List<String> getWarpNames() {
+    return delegate().getWarpNames();
+  }
+
+  @Override
+  public WarpPage getWarps(WarpQuery query) {
+    return delegate().getWarps(query);
+  }
+
+  @Override
+  public Set<String> getInvitedGroups() {
+    return delegate().getInvitedGroups();
+  }
+
+  @Override
+  public int forEachChunk(@Nullable String afterName, Consumer<? super List<Warp>> consumer) {
+    return delegate().forEachChunk(afterName, consumer);
+  }
+
+  @Override
+  public int forEachWarp(Consumer<? super Warp> consumer) {
+    return delegate().forEachWarp(consumer);
+  }
+
+  @Override
+  public WarpChanges getChanges(long afterChangeId, Collection<Long> missingChangeIds, int limit) {
+    return delegate().getChanges(afterChangeId, missingChangeIds, limit);
+  }
+
+  @Override
+  public long getLatestChangeId() {
+    return delegate().getLatestChangeId();
+  }
+
+  @Override
+  public void pruneChanges(Instant before) {
+    delegate().pruneChanges(before);
+  }
+
   @Override
   public void addInvitation(Warp warp, PlayerMatcher invitation) {
     delegate().addInvitation(warp, invitation);
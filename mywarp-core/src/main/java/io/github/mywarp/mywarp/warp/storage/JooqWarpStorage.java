@@ -21,6 +21,9 @@ package io.github.mywarp.mywarp.warp.storage;
 
 import com.flowpowered.math.vector.Vector2f;
 import com.flowpowered.math.vector.Vector3d;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Multimap;
 import io.github.mywarp.mywarp.util.playermatcher.GroupPlayerMatcher;
 import io.github.mywarp.mywarp.util.playermatcher.PlayerMatcher;
 import io.github.mywarp.mywarp.util.playermatcher.UuidPlayerMatcher;
@@ -31,15 +34,20 @@ import io.github.mywarp.mywarp.warp.storage.generated.tables.Player;
 import org.jooq.*;
 import org.jooq.impl.DSL;
 import org.jooq.types.UInteger;
+import org.jooq.types.ULong;
 import org.jooq.Record;
 
 import javax.annotation.Nullable;
 import java.time.Instant;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static io.github.mywarp.mywarp.warp.storage.generated.Tables.*;
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.max;
 import static org.jooq.impl.DSL.select;
+import static org.jooq.impl.DSL.selectCount;
 
 /**
  * A storage implementation that stores warps in a relational database.
@@ -49,7 +57,19 @@ import static org.jooq.impl.DSL.select;
 @Require({SQLDialect.SQLITE, SQLDialect.H2, SQLDialect.MYSQL, SQLDialect.MARIADB})
 class JooqWarpStorage implements WarpStorage {
 
+  /**
+   * The maximum number of bind values used in a single statement. SQLite's default limit is 999.
+   */
+  private static final int MAX_BIND_VALUES = 999;
+
+  /**
+   * The number of rows fetched at once when streaming warps.
+   */
+  private static final int FETCH_SIZE = 1000;
+  private static final String CREATOR_ALIAS = "c";
+
   private final Configuration configuration;
+  private final UUID origin = UUID.randomUUID();
 
   /**
    * Creates an instance that uses the given {@code Configuration}.
@@ -174,30 +194,315 @@ class JooqWarpStorage implements WarpStorage {
         );
       });
       create(configuration).batch(warpGroupInserts).execute();
+
+      recordChanges(configuration, Collections.singletonList(warp.getName()));
     });
     // @formatter:on
   }
 
   @Override
-  public void removeWarp(final Warp warp) {
+  public void addWarps(final Collection<Warp> warps) {
+    if (warps.isEmpty()) {
+      return;
+    }
+
+    final Set<UUID> playerIds = new LinkedHashSet<>();
+    final Set<UUID> worldIds = new LinkedHashSet<>();
+    final Set<String> groupNames = new LinkedHashSet<>();
+
+    for (Warp warp : warps) {
+      playerIds.add(warp.getCreator());
+      worldIds.add(warp.getWorldIdentifier());
+
+      warp.getInvitations().forEach(i -> {
+        if (i instanceof UuidPlayerMatcher) {
+          playerIds.add(((UuidPlayerMatcher) i).getCriteria());
+        } else if (i instanceof GroupPlayerMatcher) {
+          groupNames.add(((GroupPlayerMatcher) i).getCriteria());
+        } else {
+          assert false;
+        }
+      });
+    }
+
     // @formatter:off
-    create(configuration)
-        .delete(WARP)
-        .where(WARP.NAME.eq(warp.getName()))
-        .execute();
+    create(configuration).transaction((Configuration configuration) -> {
+
+      //Insert all players, worlds and groups and resolve their keys
+      Map<UUID, UInteger> playerKeys =
+          insertOrIgnoreAndResolve(configuration, PLAYER, PLAYER.UUID, PLAYER.PLAYER_ID, playerIds);
+      Map<UUID, UInteger> worldKeys =
+          insertOrIgnoreAndResolve(configuration, WORLD, WORLD.UUID, WORLD.WORLD_ID, worldIds);
+      Map<String, UInteger> groupKeys =
+          insertOrIgnoreAndResolve(configuration, GROUP, GROUP.NAME, GROUP.GROUP_ID, groupNames);
+
+      //Insert the warps, using one multi-row insert per chunk
+      for (List<Warp> chunk : Iterables.partition(warps, MAX_BIND_VALUES / 12)) {
+        InsertValuesStep12<Record, String, UInteger, Type, Double, Double, Double, Float, Float, UInteger, Instant,
+            UInteger, String> insert = create(configuration)
+            .insertInto(WARP, WARP.NAME, WARP.PLAYER_ID, WARP.TYPE, WARP.X, WARP.Y, WARP.Z, WARP.PITCH, WARP.YAW,
+                WARP.WORLD_ID, WARP.CREATION_DATE, WARP.VISITS, WARP.WELCOME_MESSAGE);
+
+        for (Warp warp : chunk) {
+          Vector3d position = warp.getPosition();
+          Vector2f rotation = warp.getRotation();
+
+          insert = insert.values(warp.getName(), playerKeys.get(warp.getCreator()), warp.getType(), position.getX(),
+              position.getY(), position.getZ(), rotation.getX(), rotation.getY(),
+              worldKeys.get(warp.getWorldIdentifier()), warp.getCreationDate(), UInteger.valueOf(warp.getVisits()),
+              warp.getWelcomeMessage());
+        }
+        insert.execute();
+      }
+
+      //Resolve the keys of the inserted warps
+      Map<String, UInteger> warpKeys = resolve(configuration, WARP, WARP.NAME, WARP.WARP_ID,
+          warps.stream().map(Warp::getName).collect(Collectors.toList()));
+
+      //insert all invitations
+      Multimap<UInteger, UInteger> playerInvitations = ArrayListMultimap.create();
+      Multimap<UInteger, UInteger> groupInvitations = ArrayListMultimap.create();
+
+      for (Warp warp : warps) {
+        UInteger warpKey = warpKeys.get(warp.getName());
+
+        warp.getInvitations().forEach(i -> {
+          if (i instanceof UuidPlayerMatcher) {
+            playerInvitations.put(warpKey, playerKeys.get(((UuidPlayerMatcher) i).getCriteria()));
+          } else if (i instanceof GroupPlayerMatcher) {
+            groupInvitations.put(warpKey, groupKeys.get(((GroupPlayerMatcher) i).getCriteria()));
+          }
+        });
+      }
+
+      insertMappings(configuration, WARP_PLAYER_MAP, WARP_PLAYER_MAP.WARP_ID, WARP_PLAYER_MAP.PLAYER_ID,
+          playerInvitations);
+      insertMappings(configuration, WARP_GROUP_MAP, WARP_GROUP_MAP.WARP_ID, WARP_GROUP_MAP.GROUP_ID,
+          groupInvitations);
+
+      recordChanges(configuration, warpKeys.keySet());
+    });
     // @formatter:on
   }
 
+  @Override
+  public void removeWarp(final Warp warp) {
+    create(configuration).transaction(configuration -> {
+      // @formatter:off
+      create(configuration)
+          .delete(WARP)
+          .where(WARP.NAME.eq(warp.getName()))
+          .execute();
+      // @formatter:on
+
+      recordChanges(configuration, Collections.singletonList(warp.getName()));
+    });
+  }
+
+  @Override
+  public void removeWarps(final Collection<Warp> warps) {
+    final List<String> names = warps.stream().map(Warp::getName).collect(Collectors.toList());
+
+    create(configuration).transaction(configuration -> {
+      // @formatter:off
+      for (List<String> chunk : Iterables.partition(names, MAX_BIND_VALUES)) {
+        create(configuration)
+            .delete(WARP)
+            .where(WARP.NAME.in(chunk))
+            .execute();
+      }
+      // @formatter:on
+
+      recordChanges(configuration, names);
+    });
+  }
+
   @Override
   public List<Warp> getWarps() {
-    // Alias for the player-table to represent the warp-creator
-    Player creatorTable = PLAYER.as("c");
+    return getWarps(DSL.trueCondition());
+  }
+
+  @Override
+  public List<Warp> getWarps(Collection<String> names) {
+    List<Warp> ret = new ArrayList<>();
+    for (List<String> chunk : Iterables.partition(names, MAX_BIND_VALUES)) {
+      ret.addAll(getWarps(WARP.NAME.in(chunk)));
+    }
+    return ret;
+  }
+
+  @Override
+  public List<String> getWarpNames() {
+    return create(configuration).select(WARP.NAME).from(WARP).fetch(WARP.NAME);
+  }
+
+  @Override
+  public WarpPage getWarps(WarpQuery query) {
+    Condition condition = toCondition(query);
+
+    int total = create(configuration).selectCount().from(WARP).where(condition).fetchOne(0, int.class);
+    if (total <= query.getOffset()) {
+      return new WarpPage(Collections.emptyList(), total);
+    }
+
+    // select the names of the page first, so that the page is not affected by the number of invitations
+    List<String> names = create(configuration).select(WARP.NAME).from(WARP).where(condition)
+        .orderBy(toOrderFields(query.getOrder())).limit(query.getLimit()).offset(query.getOffset()).fetch(WARP.NAME);
+    Map<String, Integer> positions = new HashMap<>();
+    for (int i = 0; i < names.size(); i++) {
+      positions.put(names.get(i), i);
+    }
+
+    List<Warp> warps = getWarps(names);
+    warps.sort(Comparator.comparing(warp -> positions.get(warp.getName())));
+    return new WarpPage(warps, total);
+  }
+
+  private Condition toCondition(WarpQuery query) {
+    List<Condition> conditions = new ArrayList<>();
+
+    query.getCreator().ifPresent(creator -> conditions
+        .add(WARP.PLAYER_ID.in(select(PLAYER.PLAYER_ID).from(PLAYER).where(PLAYER.UUID.eq(creator)))));
+    query.getNameContains().ifPresent(name -> conditions.add(WARP.NAME.containsIgnoreCase(name)));
+    query.getWorlds().ifPresent(worlds -> conditions.add(WARP.WORLD_ID.in(selectWorldIds(worlds))));
+    if (!query.getExcludedWorlds().isEmpty()) {
+      conditions.add(WARP.WORLD_ID.notIn(selectWorldIds(query.getExcludedWorlds())));
+    }
+
+    query.getNearWorld().ifPresent(world -> {
+      Vector3d position = query.getNearPosition();
+      Field<Double> x = WARP.X.minus(position.getX());
+      Field<Double> y = WARP.Y.minus(position.getY());
+      Field<Double> z = WARP.Z.minus(position.getZ());
+      conditions.add(WARP.WORLD_ID.in(selectWorldIds(Collections.singleton(world))));
+      conditions.add(x.mul(x).plus(y.mul(y)).plus(z.mul(z)).le(query.getRadius() * query.getRadius()));
+    });
+
+    if (query.isRestricted()) {
+      Condition viewable = WARP.TYPE.eq(Type.PUBLIC);
+      if (query.getViewer().isPresent()) {
+        UUID viewer = query.getViewer().get();
+        // @formatter:off
+        viewable = viewable
+            .or(WARP.PLAYER_ID.in(select(PLAYER.PLAYER_ID).from(PLAYER).where(PLAYER.UUID.eq(viewer))))
+            .or(WARP.WARP_ID.in(
+                select(WARP_PLAYER_MAP.WARP_ID)
+                    .from(WARP_PLAYER_MAP
+                        .join(PLAYER)
+                        .on(WARP_PLAYER_MAP.PLAYER_ID.eq(PLAYER.PLAYER_ID)))
+                    .where(PLAYER.UUID.eq(viewer))));
+        // @formatter:on
+      }
+      if (!query.getViewerGroups().isEmpty()) {
+        // @formatter:off
+        viewable = viewable
+            .or(WARP.WARP_ID.in(
+                select(WARP_GROUP_MAP.WARP_ID)
+                    .from(WARP_GROUP_MAP
+                        .join(GROUP)
+                        .on(WARP_GROUP_MAP.GROUP_ID.eq(GROUP.GROUP_ID)))
+                    .where(GROUP.NAME.in(query.getViewerGroups()))));
+        // @formatter:on
+      }
+      conditions.add(viewable);
+    }
+    return DSL.and(conditions);
+  }
 
+  private Select<Record1<UInteger>> selectWorldIds(Collection<UUID> worlds) {
+    return select(WORLD.WORLD_ID).from(WORLD).where(WORLD.UUID.in(worlds));
+  }
+
+  private List<SortField<?>> toOrderFields(WarpQuery.Order order) {
+    switch (order) {
+      case CREATION_DATE:
+        return Arrays.asList(WARP.CREATION_DATE.asc(), WARP.NAME.asc());
+      case VISITS:
+        return Arrays.asList(WARP.VISITS.asc(), WARP.NAME.asc());
+      case MOST_VISITED:
+        return Arrays.asList(WARP.VISITS.desc(), WARP.NAME.asc());
+      case NAME:
+      default:
+        return Collections.singletonList(WARP.NAME.asc());
+    }
+  }
+
+  @Override
+  public Set<String> getInvitedGroups() {
+    // @formatter:off
+    return new HashSet<>(create(configuration)
+        .selectDistinct(GROUP.NAME)
+        .from(GROUP
+            .join(WARP_GROUP_MAP)
+            .on(WARP_GROUP_MAP.GROUP_ID.eq(GROUP.GROUP_ID)))
+        .fetch(GROUP.NAME));
+    // @formatter:on
+  }
+
+  private List<Warp> getWarps(Condition condition) {
     // query the database and group results by name - each map-entry
     // contains all values for one single warp
+    Map<String, ? extends List<? extends Record>> groupedResults =
+        selectWarps(condition).fetch().intoGroups(WARP.NAME);
+
+    // create warp-instances from the results
+    return groupedResults.values().stream().map(this::toWarp).collect(Collectors.toList());
+  }
+
+  @Override
+  public int forEachWarp(Consumer<? super Warp> consumer) {
+    ResultQuery<? extends Record> query = selectWarps(DSL.trueCondition()).orderBy(WARP.WARP_ID)
+        // MySQL's driver only streams results with this special value
+        .fetchSize(configuration.dialect().family() == SQLDialect.MYSQL ? Integer.MIN_VALUE : FETCH_SIZE);
+
+    // rows of the same warp are adjacent, so warps are created one after the other while the cursor advances
+    int count = 0;
+    try (Cursor<? extends Record> cursor = query.fetchLazy()) {
+      List<Record> rows = new ArrayList<>();
+      while (cursor.hasNext()) {
+        Record row = cursor.fetchNext();
+        if (!rows.isEmpty() && !rows.get(0).get(WARP.NAME).equals(row.get(WARP.NAME))) {
+          consumer.accept(toWarp(rows));
+          count++;
+          rows.clear();
+        }
+        rows.add(row);
+      }
+      if (!rows.isEmpty()) {
+        consumer.accept(toWarp(rows));
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public int forEachChunk(@Nullable String afterName, Consumer<? super List<Warp>> consumer) {
+    int count = 0;
+    @Nullable String lastName = afterName;
+    while (true) {
+      // page through the names, so that chunks contain whole warps regardless of the number of invitations
+      List<String> names = create(configuration).select(WARP.NAME).from(WARP)
+          .where(lastName != null ? WARP.NAME.gt(lastName) : DSL.trueCondition()).orderBy(WARP.NAME)
+          .limit(MAX_BIND_VALUES).fetch(WARP.NAME);
+      if (names.isEmpty()) {
+        return count;
+      }
+      lastName = names.get(names.size() - 1);
+
+      List<Warp> chunk = getWarps(WARP.NAME.in(names));
+      chunk.sort(Comparator.comparing(Warp::getName));
+      consumer.accept(chunk);
+      count += chunk.size();
+    }
+  }
+
+  private SelectConditionStep<? extends Record> selectWarps(Condition condition) {
+    // Alias for the player-table to represent the warp-creator
+    Player creatorTable = PLAYER.as(CREATOR_ALIAS);
+
     // @formatter:off
-    Map<String, Result<Record14<String, UUID, Type, Double, Double, Double, Float, Float, UUID, Instant,
-        UInteger, String, UUID, String>>> groupedResults = create(configuration)
+    return create(configuration)
         .select(WARP.NAME, creatorTable.UUID, WARP.TYPE, WARP.X, WARP.Y, WARP.Z, WARP.YAW,
             WARP.PITCH, WORLD.UUID, WARP.CREATION_DATE, WARP.VISITS,
             WARP.WELCOME_MESSAGE, PLAYER.UUID, GROUP.NAME)
@@ -214,39 +519,118 @@ class JooqWarpStorage implements WarpStorage {
         .on(WARP_GROUP_MAP.WARP_ID.eq(WARP.WARP_ID))
         .leftOuterJoin(GROUP)
         .on(WARP_GROUP_MAP.GROUP_ID.eq(GROUP.GROUP_ID))
-        .fetch().intoGroups(WARP.NAME);
+        .where(condition);
     // @formatter:on
+  }
 
-    // create warp-instances from the results
-    return groupedResults.values().stream().map(r -> {
-      Vector3d position = new Vector3d(r.getValue(0, WARP.X), r.getValue(0, WARP.Y), r.getValue(0, WARP.Z));
-      Vector2f rotation = new Vector2f(r.getValue(0, WARP.PITCH), r.getValue(0, WARP.YAW));
-
-      WarpBuilder
-          builder =
-          new WarpBuilder(r.getValue(0, WARP.NAME), r.getValue(0, creatorTable.UUID), r.getValue(0, WORLD.UUID),
-              position, rotation);
-
-      // optional values
-      builder.setType(r.getValue(0, WARP.TYPE));
-      builder.setCreationDate(r.getValue(0, WARP.CREATION_DATE));
-      builder.setVisits(r.getValue(0, WARP.VISITS).intValue());
-      builder.setWelcomeMessage(r.getValue(0, WARP.WELCOME_MESSAGE));
-
-      for (@Nullable String groupName : r.getValues(GROUP.NAME)) {
-        if (groupName != null) {
-          builder.addInvitation(new GroupPlayerMatcher(groupName));
-        }
+  /**
+   * Creates a warp from the given rows, which must all belong to the same warp and differ only by the invitation.
+   */
+  private Warp toWarp(List<? extends Record> rows) {
+    Player creatorTable = PLAYER.as(CREATOR_ALIAS);
+    Record r = rows.get(0);
+
+    Vector3d position = new Vector3d(r.get(WARP.X), r.get(WARP.Y), r.get(WARP.Z));
+    Vector2f rotation = new Vector2f(r.get(WARP.PITCH), r.get(WARP.YAW));
+
+    WarpBuilder
+        builder =
+        new WarpBuilder(r.get(WARP.NAME), r.get(creatorTable.UUID), r.get(WORLD.UUID), position, rotation);
+
+    // optional values
+    builder.setType(r.get(WARP.TYPE));
+    builder.setCreationDate(r.get(WARP.CREATION_DATE));
+    builder.setVisits(r.get(WARP.VISITS).intValue());
+    builder.setWelcomeMessage(r.get(WARP.WELCOME_MESSAGE));
+
+    for (Record row : rows) {
+      @Nullable String groupName = row.get(GROUP.NAME);
+      if (groupName != null) {
+        builder.addInvitation(new GroupPlayerMatcher(groupName));
       }
 
-      for (@Nullable UUID inviteeUniqueId : r.getValues(PLAYER.UUID)) {
-        if (inviteeUniqueId != null) {
-          builder.addInvitation(new UuidPlayerMatcher(inviteeUniqueId));
-        }
+      @Nullable UUID inviteeUniqueId = row.get(PLAYER.UUID);
+      if (inviteeUniqueId != null) {
+        builder.addInvitation(new UuidPlayerMatcher(inviteeUniqueId));
       }
+    }
 
-      return builder.build();
-    }).collect(Collectors.toList());
+    return builder.build();
+  }
+
+  @Override
+  public StorageFingerprint getFingerprint() {
+    // @formatter:off
+    Record9<Integer, UInteger, Integer, Integer, Integer, Integer, Integer, ULong, Integer> r = create(configuration)
+        .select(
+            field(selectCount().from(WARP)),
+            field(select(max(WARP.WARP_ID)).from(WARP)),
+            field(selectCount().from(PLAYER)),
+            field(selectCount().from(WORLD)),
+            field(selectCount().from(GROUP)),
+            field(selectCount().from(WARP_PLAYER_MAP)),
+            field(selectCount().from(WARP_GROUP_MAP)),
+            field(select(max(WARP_CHANGE.CHANGE_ID)).from(WARP_CHANGE)),
+            field(selectCount().from(WARP_CHANGE)))
+        .fetchOne();
+    // @formatter:on
+
+    // a change that commits after a change with a higher ID does not change the latest ID, but the number of changes
+    long revision = 31 * (r.value8() != null ? r.value8().longValue() : 0) + r.value9();
+    return new StorageFingerprint(r.value1(), r.value2() != null ? r.value2().longValue() : 0, r.value3(), r.value4(),
+        r.value5(), r.value6() + r.value7(), revision);
+  }
+
+  @Override
+  public WarpChanges getChanges(long afterChangeId, Collection<Long> missingChangeIds, int limit) {
+    Condition condition = WARP_CHANGE.CHANGE_ID.gt(ULong.valueOf(afterChangeId));
+    if (!missingChangeIds.isEmpty()) {
+      // callers are expected to limit the number of missing changes
+      List<ULong> missing = missingChangeIds.stream().limit(MAX_BIND_VALUES - 1).map(id -> ULong.valueOf(id))
+          .collect(Collectors.toList());
+      condition = condition.or(WARP_CHANGE.CHANGE_ID.in(missing));
+    }
+
+    // @formatter:off
+    Result<Record3<ULong, String, UUID>> result = create(configuration)
+        .select(WARP_CHANGE.CHANGE_ID, WARP_CHANGE.WARP_NAME, WARP_CHANGE.ORIGIN)
+        .from(WARP_CHANGE)
+        .where(condition)
+        .orderBy(WARP_CHANGE.CHANGE_ID)
+        .limit(limit)
+        .fetch();
+    // @formatter:on
+
+    long latestChangeId = afterChangeId;
+    Set<Long> changeIds = new HashSet<>();
+    Set<String> foreignChanges = new HashSet<>();
+    Set<String> ownChanges = new HashSet<>();
+    for (Record3<ULong, String, UUID> r : result) {
+      long changeId = r.value1().longValue();
+      changeIds.add(changeId);
+      latestChangeId = Math.max(latestChangeId, changeId);
+      if (origin.equals(r.value3())) {
+        ownChanges.add(r.value2());
+      } else {
+        foreignChanges.add(r.value2());
+      }
+    }
+    return new WarpChanges(latestChangeId, changeIds, foreignChanges, ownChanges, result.size() >= limit);
+  }
+
+  @Override
+  public long getLatestChangeId() {
+    ULong latest = create(configuration).select(max(WARP_CHANGE.CHANGE_ID)).from(WARP_CHANGE).fetchOne().value1();
+    return latest != null ? latest.longValue() : 0;
+  }
+
+  @Override
+  public void pruneChanges(Instant before) {
+    // the latest change is kept, as its ID is part of the fingerprint
+    long latestChangeId = getLatestChangeId();
+    create(configuration).delete(WARP_CHANGE)
+        .where(WARP_CHANGE.CHANGED_AT.lt(before).and(WARP_CHANGE.CHANGE_ID.lt(ULong.valueOf(latestChangeId))))
+        .execute();
   }
 
   @Override
@@ -292,28 +676,34 @@ class JooqWarpStorage implements WarpStorage {
           )
           .execute();
       // @formatter:on
+
+      recordChanges(configuration, Collections.singletonList(warp.getName()));
     });
   }
 
   private void removePlayerInvitation(final Warp warp, final UuidPlayerMatcher invitation) {
-    // @formatter:off
-    create(configuration)
-        .delete(WARP_PLAYER_MAP)
-        .where(
-            WARP_PLAYER_MAP.WARP_ID.eq(
-                select(WARP.WARP_ID)
-                    .from(WARP)
-                    .where(WARP.NAME.eq(warp.getName()))
-                    .limit(1))
-                .and(WARP_PLAYER_MAP.PLAYER_ID.eq(
-                    select(PLAYER.PLAYER_ID)
-                        .from(PLAYER)
-                        .where(PLAYER.UUID.eq(invitation.getCriteria()))
-                        .limit(1))
-                )
-        )
-        .execute();
-    // @formatter:on
+    create(configuration).transaction(configuration -> {
+      // @formatter:off
+      create(configuration)
+          .delete(WARP_PLAYER_MAP)
+          .where(
+              WARP_PLAYER_MAP.WARP_ID.eq(
+                  select(WARP.WARP_ID)
+                      .from(WARP)
+                      .where(WARP.NAME.eq(warp.getName()))
+                      .limit(1))
+                  .and(WARP_PLAYER_MAP.PLAYER_ID.eq(
+                      select(PLAYER.PLAYER_ID)
+                          .from(PLAYER)
+                          .where(PLAYER.UUID.eq(invitation.getCriteria()))
+                          .limit(1))
+                  )
+          )
+          .execute();
+      // @formatter:on
+
+      recordChanges(configuration, Collections.singletonList(warp.getName()));
+    });
   }
 
   private void addGroupInvitation(final Warp warp, final GroupPlayerMatcher invitation) {
@@ -337,28 +727,34 @@ class JooqWarpStorage implements WarpStorage {
           )
           .execute();
       // @formatter:on
+
+      recordChanges(configuration, Collections.singletonList(warp.getName()));
     });
   }
 
   private void removeGroupInvitation(final Warp warp, final GroupPlayerMatcher invitation) {
-    // @formatter:off
-    create(configuration)
-        .delete(WARP_GROUP_MAP)
-        .where(
-            WARP_GROUP_MAP.WARP_ID.eq(
-                select(WARP.WARP_ID)
-                    .from(WARP)
-                    .where(WARP.NAME.eq(warp.getName()))
-                    .limit(1))
-                .and(WARP_GROUP_MAP.GROUP_ID.eq(
-                    select(GROUP.GROUP_ID)
-                        .from(GROUP)
-                        .where(GROUP.NAME.eq(invitation.getCriteria()))
-                        .limit(1))
-                )
-        )
-        .execute();
-    // @formatter:on
+    create(configuration).transaction(configuration -> {
+      // @formatter:off
+      create(configuration)
+          .delete(WARP_GROUP_MAP)
+          .where(
+              WARP_GROUP_MAP.WARP_ID.eq(
+                  select(WARP.WARP_ID)
+                      .from(WARP)
+                      .where(WARP.NAME.eq(warp.getName()))
+                      .limit(1))
+                  .and(WARP_GROUP_MAP.GROUP_ID.eq(
+                      select(GROUP.GROUP_ID)
+                          .from(GROUP)
+                          .where(GROUP.NAME.eq(invitation.getCriteria()))
+                          .limit(1))
+                  )
+          )
+          .execute();
+      // @formatter:on
+
+      recordChanges(configuration, Collections.singletonList(warp.getName()));
+    });
   }
 
   @Override
@@ -378,6 +774,8 @@ class JooqWarpStorage implements WarpStorage {
           .where(WARP.NAME.eq(warp.getName()))
           .execute();
       // @formatter:on
+
+      recordChanges(configuration, Collections.singletonList(warp.getName()));
     });
   }
 
@@ -405,22 +803,29 @@ class JooqWarpStorage implements WarpStorage {
           .where(WARP.NAME.eq(warp.getName()))
           .execute();
       // @formatter:on
+
+      recordChanges(configuration, Collections.singletonList(warp.getName()));
     });
   }
 
   @Override
   public void updateType(final Warp warp) {
-    // @formatter:off
-    create(configuration)
-        .update(WARP)
-        .set(WARP.TYPE, warp.getType())
-        .where(WARP.NAME.eq(warp.getName()))
-        .execute();
-    // @formatter:on
+    create(configuration).transaction(configuration -> {
+      // @formatter:off
+      create(configuration)
+          .update(WARP)
+          .set(WARP.TYPE, warp.getType())
+          .where(WARP.NAME.eq(warp.getName()))
+          .execute();
+      // @formatter:on
+
+      recordChanges(configuration, Collections.singletonList(warp.getName()));
+    });
   }
 
   @Override
   public void updateVisits(final Warp warp) {
+    // visits change on every teleport, so they are not recorded in the change-log
     // @formatter:off
     create(configuration)
         .update(WARP)
@@ -432,15 +837,116 @@ class JooqWarpStorage implements WarpStorage {
 
   @Override
   public void updateWelcomeMessage(final Warp warp) {
+    create(configuration).transaction(configuration -> {
+      // @formatter:off
+      create(configuration)
+          .update(WARP)
+          .set(WARP.WELCOME_MESSAGE, warp.getWelcomeMessage())
+          .where(WARP.NAME.eq(warp.getName()))
+          .execute();
+      // @formatter:on
+
+      recordChanges(configuration, Collections.singletonList(warp.getName()));
+    });
+  }
+
+  /**
+   * Records that the warps with the given {@code names} have been changed by this instance. The ID of the latest change
+   * is part of this storage's {@link StorageFingerprint}. Must be called within the transaction of every query that
+   * modifies stored warps, except for visit counts: they change on every teleport and are neither synchronized nor
+   * covered by the fingerprint.
+   *
+   * @param configuration the {@code Configuration} used to generate the queries
+   * @param names         the names of the changed warps
+   */
+  private void recordChanges(Configuration configuration, Collection<String> names) {
+    Instant now = Instant.now();
+
     // @formatter:off
-    create(configuration)
-        .update(WARP)
-        .set(WARP.WELCOME_MESSAGE, warp.getWelcomeMessage())
-        .where(WARP.NAME.eq(warp.getName()))
-        .execute();
+    for (List<String> chunk : Iterables.partition(names, MAX_BIND_VALUES / 3)) {
+      InsertValuesStep3<Record, String, UUID, Instant> insert = create(configuration)
+          .insertInto(WARP_CHANGE, WARP_CHANGE.WARP_NAME, WARP_CHANGE.ORIGIN, WARP_CHANGE.CHANGED_AT);
+      for (String name : chunk) {
+        insert = insert.values(name, origin, now);
+      }
+      insert.execute();
+    }
     // @formatter:on
   }
 
+  /**
+   * Inserts all given {@code values} into the given {@code uniqueField} of the given {@code table}, ignoring values
+   * that already exist, and returns the keys of all given values.
+   *
+   * <p>Values are inserted using multi-row inserts, each limited to {@link #MAX_BIND_VALUES} values.</p>
+   *
+   * @param configuration the {@code Configuration} used to generate the queries
+   * @param table         the {@code Table} to insert in
+   * @param uniqueField   the {@code TableField} to insert - must be unique!
+   * @param keyField      the {@code TableField} that holds the key of each row
+   * @param values        the values to insert
+   * @return a mapping of all given values to their keys
+   */
+  private <T> Map<T, UInteger> insertOrIgnoreAndResolve(Configuration configuration, Table<Record> table,
+      TableField<Record, T> uniqueField, TableField<Record, UInteger> keyField, Collection<T> values) {
+    for (List<T> chunk : Iterables.partition(values, MAX_BIND_VALUES)) {
+      InsertValuesStep1<Record, T> insert = create(configuration).insertInto(table, uniqueField);
+      for (T value : chunk) {
+        insert = insert.values(value);
+      }
+      insert.onDuplicateKeyIgnore().execute();
+    }
+    return resolve(configuration, table, uniqueField, keyField, values);
+  }
+
+  /**
+   * Resolves the keys of all rows in the given {@code table} whose {@code uniqueField} matches one of the given {@code
+   * values}.
+   *
+   * @param configuration the {@code Configuration} used to generate the queries
+   * @param table         the {@code Table} to query
+   * @param uniqueField   the {@code TableField} that holds the values - must be unique!
+   * @param keyField      the {@code TableField} that holds the key of each row
+   * @param values        the values to resolve
+   * @return a mapping of all existing values to their keys
+   */
+  private <T> Map<T, UInteger> resolve(Configuration configuration, Table<Record> table,
+      TableField<Record, T> uniqueField, TableField<Record, UInteger> keyField, Collection<T> values) {
+    Map<T, UInteger> ret = new HashMap<>();
+    for (List<T> chunk : Iterables.partition(values, MAX_BIND_VALUES)) {
+      // @formatter:off
+      ret.putAll(create(configuration)
+          .select(uniqueField, keyField)
+          .from(table)
+          .where(uniqueField.in(chunk))
+          .fetchMap(uniqueField, keyField));
+      // @formatter:on
+    }
+    return ret;
+  }
+
+  /**
+   * Inserts the given {@code mappings} of warp keys to other keys into the given mapping {@code table}, using
+   * multi-row inserts.
+   *
+   * @param configuration the {@code Configuration} used to generate the queries
+   * @param table         the mapping {@code Table} to insert in
+   * @param warpField     the {@code TableField} that holds the warp key
+   * @param valueField    the {@code TableField} that holds the mapped key
+   * @param mappings      the mappings to insert
+   */
+  private void insertMappings(Configuration configuration, Table<Record> table, TableField<Record, UInteger> warpField,
+      TableField<Record, UInteger> valueField, Multimap<UInteger, UInteger> mappings) {
+    for (List<Map.Entry<UInteger, UInteger>> chunk : Iterables.partition(mappings.entries(), MAX_BIND_VALUES / 2)) {
+      InsertValuesStep2<Record, UInteger, UInteger> insert = create(configuration).insertInto(table, warpField,
+          valueField);
+      for (Map.Entry<UInteger, UInteger> entry : chunk) {
+        insert = insert.values(entry.getKey(), entry.getValue());
+      }
+      insert.execute();
+    }
+  }
+
   /**
    * Creates an {@code INSERT ... ON DUPLICATE IGNORE} query that insert the given {@code value} into the given {@code
    * uniqueField} in the given {@code table}, assuming that the given {@code value} should be unique.
@@ -0,0 +1,592 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.warp.storage;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.github.mywarp.mywarp.util.MyWarpLogger;
+import io.github.mywarp.mywarp.util.playermatcher.PlayerMatcher;
+import io.github.mywarp.mywarp.warp.Warp;
+import io.github.mywarp.mywarp.warp.storage.WarpJournal.Operation;
+import org.slf4j.Logger;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * A {@code WarpStorage} that works on top of another {@code WarpStorage} and executes every <b>writing</b> task
+ * asynchronous on a specified {@link Executor}, after recording it in a {@link WarpJournal}.
+ *
+ * <p>Writes are appended to the journal and handed to the executor by the thread that calls the writing method, so
+ * they reach the executor in the same order as reads that are submitted to it. Appending does not force the journal
+ * to disk, this is done for all appended writes at once by a dedicated thread. Once the given {@code WarpStorage} has
+ * executed a write, it is acknowledged in the journal. If the write fails permanently, it is moved out of the journal;
+ * if the server stops before it is executed, it is replayed on the next start.</p>
+ *
+ * <p>Writes are submitted as {@link SqlWorkQueue.SpillableTask}s: if spilled, the write and all following writes are
+ * only kept in the journal. They are replayed from the journal in order before any write that was submitted after
+ * them and before any read executed by this storage, so reads always observe spilled writes. Updates are additionally
+ * submitted as {@link SqlWorkQueue.CoalescingTask}s.</p>
+ */
+public class JournalingWarpStorage extends ForwardingWarpStorage implements Closeable {
+
+  private static final Logger log = MyWarpLogger.getLogger(JournalingWarpStorage.class);
+
+  private static final long SPILL_RETRY_SECONDS = 1;
+
+  private final WarpStorage warpStorage;
+  private final WarpJournal journal;
+  private final Executor executor;
+  private final ScheduledExecutorService journalWriter =
+      Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder().setNameFormat("MyWarp Journal Writer").setDaemon(true).build());
+  private final AtomicBoolean syncScheduled = new AtomicBoolean();
+
+  // writes are appended and submitted while holding this lock, so they are submitted in the order of the journal
+  private final Object recordLock = new Object();
+  // guards the sets below, never held while submitting to the executor
+  private final Object lock = new Object();
+  private final NavigableSet<Long> submittedSequences = new TreeSet<>();
+  private final NavigableSet<Long> spilledSequences = new TreeSet<>();
+  private boolean spilled;
+
+  // spilled writes that are currently replayed, guarded by itself
+  private final Deque<Long> replaying = new ArrayDeque<>();
+  private final AtomicBoolean replayScheduled = new AtomicBoolean();
+
+  /**
+   * Creates an instance. Every call is delegated to the given {@code warpStorage}, writing methods are recorded in the
+   * given {@code journal} and executed in the given {@code executor}, reading methods still run in the thread that
+   * calls the method.
+   *
+   * @param warpStorage the {@code WarpStorage} whose writing methods should be executed asynchronous
+   * @param journal     the {@code WarpJournal} that records writing methods
+   * @param executor    the {@code Executor} that executes writing methods
+   */
+  public JournalingWarpStorage(WarpStorage warpStorage, WarpJournal journal, Executor executor) {
+    this.warpStorage = warpStorage;
+    this.journal = journal;
+    this.executor = executor;
+    journalWriter.scheduleWithFixedDelay(this::scheduleSpilledReplay, SPILL_RETRY_SECONDS, SPILL_RETRY_SECONDS,
+                                         TimeUnit.SECONDS);
+  }
+
+  @Override
+  protected WarpStorage delegate() {
+    return warpStorage;
+  }
+
+  @Override
+  public void addWarp(final Warp warp) {
+    write(Operation.ADD_WARPS, ImmutableList.of(warp), null, () -> delegate().addWarp(warp));
+  }
+
+  @Override
+  public void addWarps(Collection<Warp> warps) {
+    final ImmutableList<Warp> copy = ImmutableList.copyOf(warps);
+    write(Operation.ADD_WARPS, copy, null, () -> delegate().addWarps(copy));
+  }
+
+  @Override
+  public void removeWarp(final Warp warp) {
+    write(Operation.REMOVE_WARPS, ImmutableList.of(warp), null, () -> delegate().removeWarp(warp));
+  }
+
+  @Override
+  public void removeWarps(Collection<Warp> warps) {
+    final ImmutableList<Warp> copy = ImmutableList.copyOf(warps);
+    write(Operation.REMOVE_WARPS, copy, null, () -> delegate().removeWarps(copy));
+  }
+
+  @Override
+  public List<Warp> getWarps() {
+    replaySpilled(Long.MAX_VALUE);
+    return delegate().getWarps();
+  }
+
+  @Override
+  public StorageFingerprint getFingerprint() {
+    replaySpilled(Long.MAX_VALUE);
+    return delegate().getFingerprint();
+  }
+
+  @Override
+  public List<Warp> getWarps(Collection<String> names) {
+    replaySpilled(Long.MAX_VALUE);
+    return delegate().getWarps(names);
+  }
+
+  @Override
+  public List<String> getWarpNames() {
+    replaySpilled(Long.MAX_VALUE);
+    return delegate().getWarpNames();
+  }
+
+  @Override
+  public WarpPage getWarps(WarpQuery query) {
+    replaySpilled(Long.MAX_VALUE);
+    return delegate().getWarps(query);
+  }
+
+  @Override
+  public Set<String> getInvitedGroups() {
+    replaySpilled(Long.MAX_VALUE);
+    return delegate().getInvitedGroups();
+  }
+
+  @Override
+  public int forEachChunk(@Nullable String afterName, Consumer<? super List<Warp>> consumer) {
+    replaySpilled(Long.MAX_VALUE);
+    return delegate().forEachChunk(afterName, consumer);
+  }
+
+  @Override
+  public int forEachWarp(Consumer<? super Warp> consumer) {
+    replaySpilled(Long.MAX_VALUE);
+    return delegate().forEachWarp(consumer);
+  }
+
+  @Override
+  public WarpChanges getChanges(long afterChangeId, Collection<Long> missingChangeIds, int limit) {
+    replaySpilled(Long.MAX_VALUE);
+    return delegate().getChanges(afterChangeId, missingChangeIds, limit);
+  }
+
+  @Override
+  public long getLatestChangeId() {
+    replaySpilled(Long.MAX_VALUE);
+    return delegate().getLatestChangeId();
+  }
+
+  @Override
+  public void pruneChanges(Instant before) {
+    replaySpilled(Long.MAX_VALUE);
+    delegate().pruneChanges(before);
+  }
+
+  @Override
+  public void addInvitation(final Warp warp, final PlayerMatcher invitation) {
+    write(Operation.ADD_INVITATION, ImmutableList.of(warp), invitation,
+          () -> delegate().addInvitation(warp, invitation));
+  }
+
+  @Override
+  public void removeInvitation(final Warp warp, final PlayerMatcher invitation) {
+    write(Operation.REMOVE_INVITATION, ImmutableList.of(warp), invitation,
+          () -> delegate().removeInvitation(warp, invitation));
+  }
+
+  @Override
+  public void updateCreator(final Warp warp) {
+    update(Operation.UPDATE_CREATOR, warp, () -> delegate().updateCreator(warp));
+  }
+
+  @Override
+  public void updateLocation(final Warp warp) {
+    update(Operation.UPDATE_LOCATION, warp, () -> delegate().updateLocation(warp));
+  }
+
+  @Override
+  public void updateType(final Warp warp) {
+    update(Operation.UPDATE_TYPE, warp, () -> delegate().updateType(warp));
+  }
+
+  @Override
+  public void updateVisits(final Warp warp) {
+    update(Operation.UPDATE_VISITS, warp, () -> delegate().updateVisits(warp));
+  }
+
+  @Override
+  public void updateWelcomeMessage(final Warp warp) {
+    update(Operation.UPDATE_WELCOME_MESSAGE, warp, () -> delegate().updateWelcomeMessage(warp));
+  }
+
+  private void write(Operation operation, Collection<Warp> warps, @Nullable PlayerMatcher invitation, Runnable write) {
+    record(operation, warps, invitation, write, sequence -> new JournaledWrite(sequence, write));
+  }
+
+  private void update(Operation operation, Warp warp, Runnable write) {
+    // updates read the values of the warp when executed, so a queued update of the same kind covers this one
+    record(operation, ImmutableList.of(warp), null, write,
+           sequence -> new CoalescingJournaledWrite(sequence, write, new UpdateKey(operation, warp)));
+  }
+
+  private void record(Operation operation, Collection<Warp> warps, @Nullable PlayerMatcher invitation, Runnable write,
+                      JournaledWriteFactory factory) {
+    synchronized (recordLock) {
+      long sequence = append(operation, warps, invitation);
+      if (sequence < 0) {
+        submit(write);
+        return;
+      }
+      scheduleSync();
+      synchronized (lock) {
+        if (spilled) {
+          spilledSequences.add(sequence);
+          return;
+        }
+        submittedSequences.add(sequence);
+      }
+      submit(factory.create(sequence));
+    }
+  }
+
+  private long append(Operation operation, Collection<Warp> warps, @Nullable PlayerMatcher invitation) {
+    try {
+      return journal.append(operation, warps, invitation);
+    } catch (IOException e) {
+      log.warn(String.format("Failed to record %s in the journal.", operation), e);
+      return -1;
+    }
+  }
+
+  /**
+   * Forces all appended writes to disk on the journal writer, unless this is already scheduled.
+   */
+  private void scheduleSync() {
+    if (!syncScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      journalWriter.execute(() -> {
+        syncScheduled.set(false);
+        try {
+          journal.sync();
+        } catch (IOException e) {
+          log.warn("Failed to force the journal to disk.", e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // the journal is closing, which forces it anyway
+      syncScheduled.set(false);
+    }
+  }
+
+  private void submit(Runnable task) {
+    try {
+      executor.execute(task);
+    } catch (RejectedExecutionException e) {
+      if (task instanceof SqlWorkQueue.SpillableTask) {
+        log.debug("The executor rejected a write, spilling it.", e);
+        ((SqlWorkQueue.SpillableTask) task).spill();
+      } else {
+        log.warn("Failed to execute a write.", e);
+      }
+    }
+  }
+
+  private void spill(long sequence) {
+    synchronized (lock) {
+      if (!spilled) {
+        log.warn("The storage queue is full or the database is unreachable, further writes are only recorded in the "
+                 + "journal until they can be executed again.");
+      }
+      // all further writes are spilled too, so they are replayed in order
+      spilled = true;
+      submittedSequences.remove(sequence);
+      spilledSequences.add(sequence);
+    }
+  }
+
+  /**
+   * Hands a task to the executor that replays all spilled writes, unless such a task is already queued. If the
+   * executor spills the task, the writes are retried later on.
+   */
+  private void scheduleSpilledReplay() {
+    synchronized (lock) {
+      if (!spilled || !replayScheduled.compareAndSet(false, true)) {
+        return;
+      }
+    }
+    submit(new SpilledReplay());
+  }
+
+  /**
+   * Replays spilled writes from the journal, in the order they were recorded, on the calling thread. Only writes
+   * recorded before the given {@code sequence} number and before any write that is still waiting in the executor are
+   * replayed, so writes are always executed in order.
+   *
+   * @param sequence the sequence number of the write that is about to be executed or {@link Long#MAX_VALUE}
+   */
+  private void replaySpilled(long sequence) {
+    synchronized (replaying) {
+      synchronized (lock) {
+        long bound = submittedSequences.isEmpty() ? sequence : Math.min(sequence, submittedSequences.first());
+        NavigableSet<Long> ready = spilledSequences.headSet(bound, false);
+        if (!ready.isEmpty()) {
+          log.info("Replaying {} spilled writes from the journal.", ready.size());
+          replaying.addAll(ready);
+          ready.clear();
+        }
+        if (spilledSequences.isEmpty()) {
+          spilled = false;
+        }
+      }
+
+      while (!replaying.isEmpty()) {
+        long spilledSequence = replaying.peekFirst();
+        try {
+          journal.replay(spilledSequence, delegate());
+        } catch (IOException e) {
+          log.warn("Failed to read a spilled write, it will be replayed on the next start.", e);
+          replaying.pollFirst();
+          continue;
+        } catch (RuntimeException e) {
+          // transient failures are retried by the queue, which resumes with the write that failed
+          if (SqlWorkQueue.isTransient(e)) {
+            throw e;
+          }
+          log.warn("Failed to replay a spilled write.", e);
+          deadLetter(spilledSequence);
+          replaying.pollFirst();
+          continue;
+        }
+        commit(spilledSequence);
+        replaying.pollFirst();
+      }
+    }
+  }
+
+  private void commit(long sequence) {
+    try {
+      journal.commit(sequence);
+    } catch (IOException e) {
+      log.warn("Failed to truncate the journal.", e);
+    }
+  }
+
+  private void deadLetter(long sequence) {
+    try {
+      journal.deadLetter(sequence);
+    } catch (IOException e) {
+      log.warn("Failed to move a failed write out of the journal, it will be replayed on the next start.", e);
+    }
+  }
+
+  /**
+   * Waits until all writes are forced to disk and closes the journal. Writes that are not yet acknowledged remain in
+   * the journal and are replayed on the next start.
+   *
+   * @throws IOException if closing the journal fails
+   */
+  @Override
+  public void close() throws IOException {
+    journalWriter.shutdown();
+    try {
+      if (!journalWriter.awaitTermination(10, TimeUnit.SECONDS)) {
+        log.warn("Timed out while waiting for the journal to be forced to disk.");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    journal.close();
+  }
+
+  /**
+   * Creates the task that executes a write recorded with a certain sequence number.
+   */
+  @FunctionalInterface
+  private interface JournaledWriteFactory {
+
+    JournaledWrite create(long sequence);
+  }
+
+  /**
+   * A write that is recorded in the journal.
+   */
+  private class JournaledWrite implements SqlWorkQueue.SpillableTask {
+
+    private final long sequence;
+    private final Runnable write;
+
+    JournaledWrite(long sequence, Runnable write) {
+      this.sequence = sequence;
+      this.write = write;
+    }
+
+    @Override
+    public void run() {
+      // writes that were spilled before this one was submitted go first
+      replaySpilled(sequence);
+
+      try {
+        journal.sync(sequence);
+      } catch (IOException e) {
+        log.warn("Failed to force the journal to disk.", e);
+      }
+
+      try {
+        write.run();
+      } catch (RuntimeException e) {
+        // transient failures are retried by the queue, others can never succeed
+        if (!SqlWorkQueue.isTransient(e)) {
+          deadLetter();
+        }
+        throw e;
+      }
+      acknowledge();
+    }
+
+    void acknowledge() {
+      synchronized (lock) {
+        submittedSequences.remove(sequence);
+      }
+      commit(sequence);
+    }
+
+    void deadLetter() {
+      synchronized (lock) {
+        submittedSequences.remove(sequence);
+      }
+      JournalingWarpStorage.this.deadLetter(sequence);
+    }
+
+    @Override
+    public void spill() {
+      JournalingWarpStorage.this.spill(sequence);
+    }
+  }
+
+  /**
+   * A journaled update that can be coalesced with queued updates of the same kind for the same warp.
+   */
+  private class CoalescingJournaledWrite extends JournaledWrite implements SqlWorkQueue.CoalescingTask {
+
+    private final UpdateKey key;
+    private final List<Long> coalesced = new ArrayList<>();
+
+    CoalescingJournaledWrite(long sequence, Runnable write, UpdateKey key) {
+      super(sequence, write);
+      this.key = key;
+    }
+
+    @Override
+    public Object getCoalescingKey() {
+      return key;
+    }
+
+    @Override
+    public void coalesce(SqlWorkQueue.CoalescingTask other) {
+      long otherSequence = ((CoalescingJournaledWrite) other).sequence;
+      synchronized (lock) {
+        // the dropped update is executed as part of this one
+        submittedSequences.remove(otherSequence);
+      }
+      synchronized (coalesced) {
+        coalesced.add(otherSequence);
+      }
+    }
+
+    @Override
+    void acknowledge() {
+      super.acknowledge();
+      // entries of dropped updates are covered by this one
+      synchronized (coalesced) {
+        coalesced.forEach(JournalingWarpStorage.this::commit);
+        coalesced.clear();
+      }
+    }
+
+    @Override
+    void deadLetter() {
+      super.deadLetter();
+      synchronized (coalesced) {
+        coalesced.forEach(JournalingWarpStorage.this::deadLetter);
+        coalesced.clear();
+      }
+    }
+
+    @Override
+    public void spill() {
+      // entries of dropped updates are older than this one, so they are replayed first
+      synchronized (coalesced) {
+        coalesced.forEach(JournalingWarpStorage.this::spill);
+        coalesced.clear();
+      }
+      super.spill();
+    }
+  }
+
+  /**
+   * Replays all spilled writes that can be replayed in order.
+   */
+  private class SpilledReplay implements SqlWorkQueue.SpillableTask {
+
+    @Override
+    public void run() {
+      replayScheduled.set(false);
+      replaySpilled(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void spill() {
+      // the writes are still spilled, so they are retried later on
+      replayScheduled.set(false);
+    }
+  }
+
+  /**
+   * Identifies updates of the same kind for the same warp instance.
+   */
+  private static final class UpdateKey {
+
+    private final Operation operation;
+    private final Warp warp;
+
+    UpdateKey(Operation operation, Warp warp) {
+      this.operation = operation;
+      this.warp = warp;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      UpdateKey that = (UpdateKey) o;
+      return operation == that.operation && warp == that.warp;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * operation.hashCode() + System.identityHashCode(warp);
+    }
+  }
+}
@@ -25,6 +25,7 @@ import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.RateLimiter;
 import io.github.mywarp.mywarp.platform.PlayerNameResolver;
 import io.github.mywarp.mywarp.platform.Profile;
 import io.github.mywarp.mywarp.util.MyWarpLogger;
@@ -44,7 +45,9 @@ import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
 
 import static org.jooq.SQLDialect.*;
 import static org.jooq.impl.DSL.*;
@@ -56,6 +59,8 @@ import static org.jooq.impl.DSL.*;
  * #getWarps()} will convert both. Player names are acquired by calling the configured {@link PlayerNameResolver}, witch
  * may result in a blocking call.</p>
  *
+ * <p>Warps are read in pages and converted in chunks, see {@link #forEachChunk(String, Consumer)}.</p>
+ *
  * <p>Call {@link #using(DataSource, String, String)} to create instances.</p>
  */
 @SuppressWarnings("checkstyle:indentation")
@@ -66,11 +71,24 @@ public final class LegacyWarpSource implements WarpSource {
   private static final Logger log = MyWarpLogger.getLogger(LegacyWarpSource.class);
   private static final ImmutableSet<SQLDialect> SUPPORTED_DIALECTS = ImmutableSet.of(MYSQL, MARIADB, SQLITE);
 
+  /**
+   * The number of rows read from the legacy table at once.
+   */
+  private static final int PAGE_SIZE = 1000;
+  /**
+   * The number of player names resolved in one batch.
+   */
+  private static final int NAME_BATCH_SIZE = 100;
+  private static final int MAX_PARALLEL_BATCHES = 4;
+  private static final double BATCHES_PER_SECOND = 2;
+
   private final Splitter splitter = Splitter.on(',').omitEmptyStrings().trimResults();
   private final Configuration configuration;
   private final Name tableName;
   private final PlayerNameResolver playerResolver;
   private final ImmutableMap<String, UUID> worldMap;
+  private final Semaphore batchPermits = new Semaphore(MAX_PARALLEL_BATCHES);
+  private final RateLimiter rateLimiter = RateLimiter.create(BATCHES_PER_SECOND);
 
   private LegacyWarpSource(Configuration configuration, Name name, PlayerNameResolver resolver,
       Map<String, UUID> worldMap) {
@@ -116,12 +134,74 @@ public final class LegacyWarpSource implements WarpSource {
 
   @Override
   public List<Warp> getWarps() {
+    List<Warp> ret = new ArrayList<>();
+    forEachChunk(null, ret::addAll);
+    return ret;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The legacy table is read page by page. Player names found in a page are resolved in bounded parallel,
+   * rate-limited batches while the next page is read, and the warps of a page are passed on as soon as their names are
+   * resolved. Warps whose creator cannot be resolved, e.g. because a batch failed, are skipped.</p>
+   *
+   * <p>This method blocks until all chunks have been passed to {@code consumer}. It should never be called on the
+   * game's thread.</p>
+   */
+  @Override
+  public int forEachChunk(@Nullable String afterName, Consumer<? super List<Warp>> consumer) {
+    return forEachChunk(afterName, consumer, name -> {
+    });
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Entries whose creator or world cannot be resolved, e.g. because a batch failed, are passed to {@code
+   * unconvertedConsumer}.</p>
+   *
+   * <p>This method blocks until all chunks have been passed to {@code consumer}. It should never be called on the
+   * game's thread.</p>
+   */
+  @Override
+  public int forEachChunk(@Nullable String afterName, Consumer<? super List<Warp>> consumer,
+                          Consumer<? super String> unconvertedConsumer) {
+    int rows = 0;
+    int converted = 0;
+    @Nullable String lastName = afterName;
+    @Nullable CompletableFuture<ConvertedPage> pending = null;
+
+    while (true) {
+      Result<Record13<String, String, Boolean, Double, Double, Double, Float, Float, String, Integer, String, String,
+          String>> page = fetchPage(lastName);
+      if (page.isEmpty()) {
+        break;
+      }
+      rows += page.size();
+      lastName = page.get(page.size() - 1).value1();
+
+      CompletableFuture<Map<String, UUID>> profiles = resolve(getPlayerNames(page));
+      // hand off the previous chunk while the names of this one are resolved
+      if (pending != null) {
+        converted += handOff(pending, consumer, unconvertedConsumer);
+      }
+      pending = profiles.thenApply(lookup -> convert(page, lookup));
+    }
+    if (pending != null) {
+      converted += handOff(pending, consumer, unconvertedConsumer);
+    }
+
+    log.info("{} entries found, {} warps exported from source.", rows, converted);
+    return converted;
+  }
+
+  private Result<Record13<String, String, Boolean, Double, Double, Double, Float, Float, String, Integer, String,
+      String, String>> fetchPage(@Nullable String afterName) {
+    Field<String> nameField = field(name("name"), String.class);
 
     // @formatter:off
-    Result<Record13<String, String, Boolean, Double, Double, Double, Float, Float, String, Integer, String, String,
-        String>>
-        results =
-        DSL.using(configuration).select(field(name("name"), String.class), //1
+    return DSL.using(configuration).select(nameField, //1
             field(name("creator"), String.class), //2
             field(name("publicAll"), Boolean.class), //3
             field(name("x"), Double.class), //4
@@ -134,41 +214,98 @@ public final class LegacyWarpSource implements WarpSource {
             field(name("welcomeMessage"), String.class), //11
             field(name("permissions"), String.class), //12
             field(name("groupPermissions"), String.class)) //13
-            .from(table(tableName)).fetch();
+            .from(table(tableName))
+            .where(afterName != null ? nameField.gt(afterName) : trueCondition())
+            .orderBy(nameField)
+            .limit(PAGE_SIZE)
+            .fetch();
     // @formatter:on
-    log.info("{} entries found.", results.size());
+  }
 
-    Set<String> playerNames = new HashSet<>(results.getValues("creator", String.class));
-    for (String invitedPlayers : results.getValues("permissions", String.class)) {
-      Iterables.addAll(playerNames, splitter.split(invitedPlayers));
+  private Set<String> getPlayerNames(Result<Record13<String, String, Boolean, Double, Double, Double, Float, Float,
+      String, Integer, String, String, String>> page) {
+    // the legacy database may contain player-names with a wrong case, so names are unique regardless of their case
+    Set<String> playerNames = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    for (Record13<String, String, Boolean, Double, Double, Double, Float, Float, String, Integer, String, String,
+        String> r : page) {
+      playerNames.add(r.value2());
+      Iterables.addAll(playerNames, splitter.split(r.value12()));
     }
-    log.info("Looking up unique IDs for {} unique players.", playerNames.size());
-
-    Set<Profile> cache;
-    try {
-      //the method getWarps() should never be called on the main thread, so we simply block execution until the
-      // profiles are available.
-      cache = playerResolver.getByName(playerNames).get();
-    } catch (InterruptedException | ExecutionException e) {
-      log.error("Failed to resolve player names.", e);
-      return Collections.emptyList();
+    return playerNames;
+  }
+
+  /**
+   * Resolves the given player names in batches. Batches run in parallel, but never more than {@link
+   * #MAX_PARALLEL_BATCHES} at once and no more than {@link #BATCHES_PER_SECOND} are started per second. This method
+   * blocks until all batches are started.
+   */
+  private CompletableFuture<Map<String, UUID>> resolve(Set<String> playerNames) {
+    List<CompletableFuture<Set<Profile>>> batches = new ArrayList<>();
+    for (List<String> batch : Iterables.partition(playerNames, NAME_BATCH_SIZE)) {
+      try {
+        batchPermits.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while resolving player names.", e);
+      }
+      rateLimiter.acquire();
+
+      CompletableFuture<Set<Profile>> profiles;
+      try {
+        profiles = playerResolver.getByName(batch);
+      } catch (RuntimeException e) {
+        profiles = new CompletableFuture<>();
+        profiles.completeExceptionally(e);
+      }
+      batches.add(profiles.handle((result, ex) -> {
+        batchPermits.release();
+        if (ex != null) {
+          // only warps that reference one of these names are affected
+          log.warn(String.format("Failed to resolve a batch of %d player names.", batch.size()), ex);
+          return Collections.emptySet();
+        }
+        return result;
+      }));
     }
-    log.info("{} unique IDs found.", cache.size());
 
-    // the legacy database may contain player-names with a wrong case, so the lookup must be case insensitive
-    TreeMap<String, UUID> profileLookup = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
-    for (Profile profile : cache) {
-      if (!profile.getName().isPresent()) {
-        //this should not happen as we generate this list using names
-        continue;
+    return CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+      // the legacy database may contain player-names with a wrong case, so the lookup must be case insensitive
+      Map<String, UUID> profileLookup = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      for (CompletableFuture<Set<Profile>> batch : batches) {
+        for (Profile profile : batch.join()) {
+          //profiles without a name should not happen as we generate this list using names
+          profile.getName().ifPresent(name -> profileLookup.put(name, profile.getUuid()));
+        }
+      }
+      log.debug("{} of {} player names resolved.", profileLookup.size(), playerNames.size());
+      return profileLookup;
+    });
+  }
+
+  private int handOff(CompletableFuture<ConvertedPage> pending, Consumer<? super List<Warp>> consumer,
+                      Consumer<? super String> unconvertedConsumer) {
+    ConvertedPage page = pending.join();
+    int count = 0;
+    for (int i = 0; i < page.chunks.size(); i++) {
+      List<Warp> warps = page.chunks.get(i);
+      if (!warps.isEmpty()) {
+        consumer.accept(warps);
+        count += warps.size();
+      }
+      if (i < page.unconvertedNames.size()) {
+        unconvertedConsumer.accept(page.unconvertedNames.get(i));
       }
-      profileLookup.put(profile.getName().get(), profile.getUuid());
     }
+    return count;
+  }
 
-    List<Warp> ret = new ArrayList<>(results.size());
+  private ConvertedPage convert(Result<Record13<String, String, Boolean, Double, Double, Double, Float, Float,
+      String, Integer, String, String, String>> page, Map<String, UUID> profileLookup) {
+    ConvertedPage ret = new ConvertedPage();
+    List<Warp> chunk = new ArrayList<>();
 
     for (Record13<String, String, Boolean, Double, Double, Double, Float, Float, String, Integer, String, String,
-        String> r : results) {
+        String> r : page) {
       String warpName = r.value1();
 
       String creatorName = r.value2();
@@ -176,6 +313,7 @@ public final class LegacyWarpSource implements WarpSource {
       if (creator == null) {
         log.warn("For the creator of '{}' ({}) no unique ID could be found. The warp will be ignored.", warpName,
             creatorName);
+        chunk = ret.endChunk(chunk, warpName);
         continue;
       }
 
@@ -189,6 +327,7 @@ public final class LegacyWarpSource implements WarpSource {
       if (worldId == null) {
         log.warn("For the world of '{}' ({}) no unique ID could be found. The warp will be ignored.", warpName,
             worldName);
+        chunk = ret.endChunk(chunk, warpName);
         continue;
       }
 
@@ -211,14 +350,29 @@ public final class LegacyWarpSource implements WarpSource {
         builder.addInvitation(new UuidPlayerMatcher(invitee));
       }
 
-      ret.add(builder.build());
+      chunk.add(builder.build());
       log.debug("Warp '{}' exported.", warpName);
     }
-
-    log.info("{} warps exported from source.", ret.size());
+    ret.chunks.add(chunk);
     return ret;
   }
 
+  /**
+   * The warps converted from a page, split into chunks at each entry that could not be converted. The entry at index
+   * {@code i} of {@link #unconvertedNames} comes after the chunk at index {@code i} of {@link #chunks}.
+   */
+  private static class ConvertedPage {
+
+    private final List<List<Warp>> chunks = new ArrayList<>();
+    private final List<String> unconvertedNames = new ArrayList<>();
+
+    private List<Warp> endChunk(List<Warp> chunk, String unconvertedName) {
+      chunks.add(chunk);
+      unconvertedNames.add(unconvertedName);
+      return new ArrayList<>();
+    }
+  }
+
   /**
    * Builder class for {@link LegacyWarpSource}s.
    *
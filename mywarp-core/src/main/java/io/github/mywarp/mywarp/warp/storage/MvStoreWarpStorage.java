@@ -0,0 +1,661 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.warp.storage;
+
+import com.flowpowered.math.vector.Vector2f;
+import com.flowpowered.math.vector.Vector3d;
+import io.github.mywarp.mywarp.util.playermatcher.GroupPlayerMatcher;
+import io.github.mywarp.mywarp.util.playermatcher.PlayerMatcher;
+import io.github.mywarp.mywarp.util.playermatcher.UuidPlayerMatcher;
+import io.github.mywarp.mywarp.warp.Warp;
+import io.github.mywarp.mywarp.warp.WarpBuilder;
+import org.h2.mvstore.Cursor;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A storage implementation that stores warps in an embedded, log-structured key-value store (H2's MVStore).
+ *
+ * <p>Every warp is stored as a single record in a map that is ordered by the warp's name. Secondary maps index warps
+ * by their creator and their world and count the invitations of each group. Updates only replace the changed field of
+ * a record, a full load simply iterates over all records. Unlike {@link JooqWarpStorage}, this storage can only be
+ * used by a single instance at once. It therefore keeps no change-log: there is never another instance that could
+ * read it. The change ID only counts writes, so it still increases monotonically.</p>
+ *
+ * <p>Instances are thread-safe, but writes are expected to be executed by a single thread. Every write is committed
+ * on its own, so that a crash never loses more than the write that was in progress.</p>
+ */
+class MvStoreWarpStorage implements WarpStorage, Closeable {
+
+  private static final byte RECORD_VERSION = 1;
+  private static final byte UUID_INVITATION = 0;
+  private static final byte GROUP_INVITATION = 1;
+  private static final int CHUNK_SIZE = 1000;
+  private static final String REVISION_KEY = "revision";
+  private static final String CHANGE_ID_KEY = "change_id";
+  /**
+   * The map that held the change-log in earlier versions.
+   */
+  private static final String LEGACY_CHANGES_MAP = "changes";
+
+  private final MVStore store;
+  private final MVMap<String, byte[]> warps;
+  private final MVMap<String, Boolean> creatorIndex;
+  private final MVMap<String, Boolean> worldIndex;
+  private final MVMap<String, Integer> groupInvitations;
+  private final MVMap<String, Long> meta;
+
+  private MvStoreWarpStorage(MVStore store) {
+    this.store = store;
+    this.warps = store.openMap("warps");
+    this.creatorIndex = store.openMap("creator_index");
+    this.worldIndex = store.openMap("world_index");
+    this.groupInvitations = store.openMap("group_invitations");
+    this.meta = store.openMap("meta");
+    upgrade();
+  }
+
+  /**
+   * Upgrades stores written by earlier versions: the change-log is dropped, keeping its latest ID so that IDs never
+   * decrease, and the world index is built.
+   */
+  private void upgrade() {
+    if (store.hasMap(LEGACY_CHANGES_MAP)) {
+      MVMap<Long, byte[]> changes = store.openMap(LEGACY_CHANGES_MAP);
+      @Nullable Long latest = changes.lastKey();
+      if (latest != null) {
+        meta.merge(CHANGE_ID_KEY, latest, Math::max);
+      }
+      store.removeMap(changes);
+    }
+    if (worldIndex.isEmpty() && !warps.isEmpty()) {
+      Cursor<String, byte[]> cursor = warps.cursor(null);
+      while (cursor.hasNext()) {
+        String name = cursor.next();
+        worldIndex.put(indexKey(WarpRecord.decode(name, cursor.getValue()).world, name), Boolean.TRUE);
+      }
+    }
+    store.commit();
+  }
+
+  /**
+   * Opens the store in the given file, creating it if it does not exist.
+   *
+   * @param file the file
+   * @return a storage that stores warps in the given file
+   * @throws IllegalStateException if the file cannot be opened, e.g. because it is used by another process
+   */
+  static MvStoreWarpStorage open(Path file) {
+    return new MvStoreWarpStorage(new MVStore.Builder().fileName(file.toString()).compress().open());
+  }
+
+  @Override
+  public void close() {
+    store.close();
+  }
+
+  @Override
+  public synchronized void addWarp(Warp warp) {
+    put(warp);
+    recordChanges(Collections.singleton(warp.getName()));
+    store.commit();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Warps whose name is already stored are ignored.</p>
+   */
+  @Override
+  public synchronized void addWarps(Collection<Warp> warps) {
+    List<String> names = new ArrayList<>(warps.size());
+    for (Warp warp : warps) {
+      if (!this.warps.containsKey(warp.getName())) {
+        put(warp);
+        names.add(warp.getName());
+      }
+    }
+    if (names.isEmpty()) {
+      return;
+    }
+    recordChanges(names);
+    store.commit();
+  }
+
+  @Override
+  public synchronized void removeWarp(Warp warp) {
+    delete(warp.getName());
+    recordChanges(Collections.singleton(warp.getName()));
+    store.commit();
+  }
+
+  @Override
+  public synchronized void removeWarps(Collection<Warp> warps) {
+    List<String> names = new ArrayList<>(warps.size());
+    for (Warp warp : warps) {
+      delete(warp.getName());
+      names.add(warp.getName());
+    }
+    recordChanges(names);
+    store.commit();
+  }
+
+  @Override
+  public List<Warp> getWarps() {
+    List<Warp> ret = new ArrayList<>(warps.size());
+    forEachWarp(ret::add);
+    return ret;
+  }
+
+  @Override
+  public List<Warp> getWarps(Collection<String> names) {
+    List<Warp> ret = new ArrayList<>();
+    for (String name : names) {
+      @Nullable byte[] bytes = warps.get(name);
+      if (bytes != null) {
+        ret.add(WarpRecord.decode(name, bytes).toWarp());
+      }
+    }
+    return ret;
+  }
+
+  @Override
+  public List<String> getWarpNames() {
+    return new ArrayList<>(warps.keySet());
+  }
+
+  @Override
+  public WarpPage getWarps(WarpQuery query) {
+    if (isUnfiltered(query) && query.getOrder() == WarpQuery.Order.NAME) {
+      // records are ordered by their names, so the page can be read by its position
+      List<Warp> page = new ArrayList<>();
+      long end = Math.min((long) query.getOffset() + query.getLimit(), warps.size());
+      for (long i = query.getOffset(); i < end; i++) {
+        String name = warps.getKey(i);
+        page.add(WarpRecord.decode(name, warps.get(name)).toWarp());
+      }
+      return new WarpPage(page, warps.size());
+    }
+
+    Predicate<WarpRecord> predicate = toPredicate(query);
+    @Nullable Collection<String> candidates = candidates(query);
+
+    List<WarpRecord> matches = new ArrayList<>();
+    for (String name : candidates != null ? candidates : warps.keySet()) {
+      @Nullable byte[] bytes = warps.get(name);
+      if (bytes != null) {
+        WarpRecord record = WarpRecord.decode(name, bytes);
+        if (predicate.test(record)) {
+          matches.add(record);
+        }
+      }
+    }
+
+    // records are read in the order of their names, so only other orders need to be sorted
+    List<Warp> page = new ArrayList<>();
+    if (query.getOrder() != WarpQuery.Order.NAME || candidates != null) {
+      List<Warp> all = new ArrayList<>(matches.size());
+      matches.forEach(record -> all.add(record.toWarp()));
+      all.sort(query.getOrder());
+      page.addAll(all.subList(Math.min(query.getOffset(), all.size()),
+                              (int) Math.min((long) query.getOffset() + query.getLimit(), all.size())));
+    } else {
+      matches.stream().skip(query.getOffset()).limit(query.getLimit()).forEach(record -> page.add(record.toWarp()));
+    }
+    return new WarpPage(page, matches.size());
+  }
+
+  private static boolean isUnfiltered(WarpQuery query) {
+    return !query.getCreator().isPresent() && !query.getNameContains().isPresent() && !query.getWorlds().isPresent()
+           && query.getExcludedWorlds().isEmpty() && !query.getNearWorld().isPresent() && !query.isRestricted();
+  }
+
+  /**
+   * Gets the names of all warps that can match the given query according to the secondary indexes or {@code null} if
+   * no index applies.
+   */
+  @Nullable
+  private Collection<String> candidates(WarpQuery query) {
+    if (query.getCreator().isPresent()) {
+      return namesIn(creatorIndex, query.getCreator().get());
+    }
+    if (query.getNearWorld().isPresent()) {
+      return namesIn(worldIndex, query.getNearWorld().get());
+    }
+    if (query.getWorlds().isPresent()) {
+      List<String> ret = new ArrayList<>();
+      query.getWorlds().get().forEach(world -> ret.addAll(namesIn(worldIndex, world)));
+      return ret;
+    }
+    return null;
+  }
+
+  private Predicate<WarpRecord> toPredicate(WarpQuery query) {
+    Predicate<WarpRecord> predicate = record -> true;
+
+    if (query.getNameContains().isPresent()) {
+      String name = query.getNameContains().get().toLowerCase(Locale.ROOT);
+      predicate = predicate.and(record -> record.name.toLowerCase(Locale.ROOT).contains(name));
+    }
+    if (query.getWorlds().isPresent()) {
+      Set<UUID> worlds = query.getWorlds().get();
+      predicate = predicate.and(record -> worlds.contains(record.world));
+    }
+    if (!query.getExcludedWorlds().isEmpty()) {
+      predicate = predicate.and(record -> !query.getExcludedWorlds().contains(record.world));
+    }
+    if (query.getNearWorld().isPresent()) {
+      UUID world = query.getNearWorld().get();
+      Vector3d position = query.getNearPosition();
+      double squaredRadius = query.getRadius() * query.getRadius();
+      predicate = predicate.and(record -> record.world.equals(world)
+          && new Vector3d(record.x, record.y, record.z).distanceSquared(position) <= squaredRadius);
+    }
+    if (query.isRestricted()) {
+      Optional<UUID> viewer = query.getViewer();
+      Set<String> groups = query.getViewerGroups();
+      predicate = predicate.and(record -> record.type == Warp.Type.PUBLIC || record.isViewableBy(viewer, groups));
+    }
+    return predicate;
+  }
+
+  private static List<String> namesIn(MVMap<String, Boolean> index, UUID identifier) {
+    String prefix = identifier + "/";
+    List<String> ret = new ArrayList<>();
+    Cursor<String, Boolean> cursor = index.cursor(prefix);
+    while (cursor.hasNext()) {
+      String key = cursor.next();
+      if (!key.startsWith(prefix)) {
+        break;
+      }
+      ret.add(key.substring(prefix.length()));
+    }
+    return ret;
+  }
+
+  @Override
+  public Set<String> getInvitedGroups() {
+    return new HashSet<>(groupInvitations.keySet());
+  }
+
+  @Override
+  public int forEachWarp(Consumer<? super Warp> consumer) {
+    int count = 0;
+    Cursor<String, byte[]> cursor = warps.cursor(null);
+    while (cursor.hasNext()) {
+      String name = cursor.next();
+      consumer.accept(WarpRecord.decode(name, cursor.getValue()).toWarp());
+      count++;
+    }
+    return count;
+  }
+
+  @Override
+  public int forEachChunk(@Nullable String afterName, Consumer<? super List<Warp>> consumer) {
+    int count = 0;
+    List<Warp> chunk = new ArrayList<>(CHUNK_SIZE);
+    Cursor<String, byte[]> cursor = warps.cursor(afterName);
+    while (cursor.hasNext()) {
+      String name = cursor.next();
+      if (name.equals(afterName)) {
+        continue;
+      }
+      chunk.add(WarpRecord.decode(name, cursor.getValue()).toWarp());
+      if (chunk.size() == CHUNK_SIZE) {
+        consumer.accept(chunk);
+        count += chunk.size();
+        chunk = new ArrayList<>(CHUNK_SIZE);
+      }
+    }
+    if (!chunk.isEmpty()) {
+      consumer.accept(chunk);
+      count += chunk.size();
+    }
+    return count;
+  }
+
+  @Override
+  public StorageFingerprint getFingerprint() {
+    return new StorageFingerprint(warps.size(), 0, creatorIndex.size(), 0, groupInvitations.size(), 0,
+                                  meta.getOrDefault(REVISION_KEY, 0L));
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>As no other instance can use this storage, there are never any changes to report.</p>
+   */
+  @Override
+  public WarpChanges getChanges(long afterChangeId, Collection<Long> missingChangeIds, int limit) {
+    return new WarpChanges(Math.max(afterChangeId, getLatestChangeId()), Collections.emptySet(),
+                           Collections.emptySet(), Collections.emptySet(), false);
+  }
+
+  @Override
+  public long getLatestChangeId() {
+    return meta.getOrDefault(CHANGE_ID_KEY, 0L);
+  }
+
+  @Override
+  public void pruneChanges(Instant before) {
+    // there is no change-log
+  }
+
+  @Override
+  public void addInvitation(Warp warp, PlayerMatcher invitation) {
+    update(warp, record -> {
+      if (record.invitations.add(invitation) && invitation instanceof GroupPlayerMatcher) {
+        groupInvitations.merge(((GroupPlayerMatcher) invitation).getCriteria(), 1, Integer::sum);
+      }
+    });
+  }
+
+  @Override
+  public void removeInvitation(Warp warp, PlayerMatcher invitation) {
+    update(warp, record -> {
+      if (record.invitations.remove(invitation) && invitation instanceof GroupPlayerMatcher) {
+        removeGroupInvitation(((GroupPlayerMatcher) invitation).getCriteria());
+      }
+    });
+  }
+
+  @Override
+  public void updateCreator(Warp warp) {
+    update(warp, record -> {
+      creatorIndex.remove(indexKey(record.creator, record.name));
+      record.creator = warp.getCreator();
+      creatorIndex.put(indexKey(record.creator, record.name), Boolean.TRUE);
+    });
+  }
+
+  @Override
+  public void updateLocation(Warp warp) {
+    update(warp, record -> {
+      worldIndex.remove(indexKey(record.world, record.name));
+      record.world = warp.getWorldIdentifier();
+      worldIndex.put(indexKey(record.world, record.name), Boolean.TRUE);
+      record.x = warp.getPosition().getX();
+      record.y = warp.getPosition().getY();
+      record.z = warp.getPosition().getZ();
+      record.pitch = warp.getRotation().getX();
+      record.yaw = warp.getRotation().getY();
+    });
+  }
+
+  @Override
+  public void updateType(Warp warp) {
+    update(warp, record -> record.type = warp.getType());
+  }
+
+  @Override
+  public void updateVisits(Warp warp) {
+    // visits are not covered by the fingerprint
+    update(warp, record -> record.visits = warp.getVisits(), false);
+  }
+
+  @Override
+  public void updateWelcomeMessage(Warp warp) {
+    update(warp, record -> record.welcomeMessage = warp.getWelcomeMessage());
+  }
+
+  /**
+   * Applies the given modification to the stored record of the given warp. Warps that are not stored are ignored,
+   * just as an SQL update would not match any row.
+   */
+  private void update(Warp warp, Consumer<WarpRecord> modification) {
+    update(warp, modification, true);
+  }
+
+  private synchronized void update(Warp warp, Consumer<WarpRecord> modification, boolean incrementRevision) {
+    @Nullable byte[] bytes = warps.get(warp.getName());
+    if (bytes == null) {
+      return;
+    }
+    WarpRecord record = WarpRecord.decode(warp.getName(), bytes);
+    modification.accept(record);
+    warps.put(record.name, record.encode());
+    meta.merge(CHANGE_ID_KEY, 1L, Long::sum);
+    if (incrementRevision) {
+      meta.merge(REVISION_KEY, 1L, Long::sum);
+    }
+    store.commit();
+  }
+
+  private void put(Warp warp) {
+    if (warps.containsKey(warp.getName())) {
+      // the name is unique, just as in the relational schema
+      throw new IllegalArgumentException(String.format("A warp named '%s' is already stored.", warp.getName()));
+    }
+    WarpRecord record = WarpRecord.of(warp);
+    warps.put(record.name, record.encode());
+    creatorIndex.put(indexKey(record.creator, record.name), Boolean.TRUE);
+    worldIndex.put(indexKey(record.world, record.name), Boolean.TRUE);
+    for (PlayerMatcher invitation : record.invitations) {
+      if (invitation instanceof GroupPlayerMatcher) {
+        groupInvitations.merge(((GroupPlayerMatcher) invitation).getCriteria(), 1, Integer::sum);
+      }
+    }
+  }
+
+  private void delete(String name) {
+    @Nullable byte[] bytes = warps.remove(name);
+    if (bytes == null) {
+      return;
+    }
+    WarpRecord record = WarpRecord.decode(name, bytes);
+    creatorIndex.remove(indexKey(record.creator, name));
+    worldIndex.remove(indexKey(record.world, name));
+    for (PlayerMatcher invitation : record.invitations) {
+      if (invitation instanceof GroupPlayerMatcher) {
+        removeGroupInvitation(((GroupPlayerMatcher) invitation).getCriteria());
+      }
+    }
+  }
+
+  private void removeGroupInvitation(String group) {
+    groupInvitations.computeIfPresent(group, (key, count) -> count > 1 ? count - 1 : null);
+  }
+
+  private void recordChanges(Collection<String> names) {
+    meta.merge(CHANGE_ID_KEY, (long) names.size(), Long::sum);
+    meta.merge(REVISION_KEY, 1L, Long::sum);
+  }
+
+  private static String indexKey(UUID key, String name) {
+    return key + "/" + name;
+  }
+
+  /**
+   * The mutable, decoded form of a stored warp.
+   */
+  private static final class WarpRecord {
+
+    private final String name;
+    private final Instant creationDate;
+    private final Set<PlayerMatcher> invitations;
+    private UUID creator;
+    private Warp.Type type;
+    private UUID world;
+    private double x;
+    private double y;
+    private double z;
+    private float pitch;
+    private float yaw;
+    private int visits;
+    private String welcomeMessage;
+
+    private WarpRecord(String name, Instant creationDate, Set<PlayerMatcher> invitations) {
+      this.name = name;
+      this.creationDate = creationDate;
+      this.invitations = invitations;
+    }
+
+    static WarpRecord of(Warp warp) {
+      WarpRecord record = new WarpRecord(warp.getName(), warp.getCreationDate(),
+                                         new LinkedHashSet<>(warp.getInvitations()));
+      record.creator = warp.getCreator();
+      record.type = warp.getType();
+      record.world = warp.getWorldIdentifier();
+      record.x = warp.getPosition().getX();
+      record.y = warp.getPosition().getY();
+      record.z = warp.getPosition().getZ();
+      record.pitch = warp.getRotation().getX();
+      record.yaw = warp.getRotation().getY();
+      record.visits = warp.getVisits();
+      record.welcomeMessage = warp.getWelcomeMessage();
+      return record;
+    }
+
+    static WarpRecord decode(String name, byte[] bytes) {
+      try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+        byte version = in.readByte();
+        if (version != RECORD_VERSION) {
+          throw new IllegalStateException(String.format("Unknown record version %d of warp '%s'.", version, name));
+        }
+        Instant creationDate = Instant.ofEpochSecond(in.readLong(), in.readInt());
+        UUID creator = readUuid(in);
+        Warp.Type type = Warp.Type.values()[in.readByte()];
+        UUID world = readUuid(in);
+        double x = in.readDouble();
+        double y = in.readDouble();
+        double z = in.readDouble();
+        float pitch = in.readFloat();
+        float yaw = in.readFloat();
+        int visits = in.readInt();
+        String welcomeMessage = in.readUTF();
+
+        int size = in.readInt();
+        Set<PlayerMatcher> invitations = new LinkedHashSet<>(size);
+        for (int i = 0; i < size; i++) {
+          if (in.readByte() == UUID_INVITATION) {
+            invitations.add(new UuidPlayerMatcher(readUuid(in)));
+          } else {
+            invitations.add(new GroupPlayerMatcher(in.readUTF()));
+          }
+        }
+
+        WarpRecord record = new WarpRecord(name, creationDate, invitations);
+        record.creator = creator;
+        record.type = type;
+        record.world = world;
+        record.x = x;
+        record.y = y;
+        record.z = z;
+        record.pitch = pitch;
+        record.yaw = yaw;
+        record.visits = visits;
+        record.welcomeMessage = welcomeMessage;
+        return record;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    byte[] encode() {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (DataOutputStream out = new DataOutputStream(bytes)) {
+        out.writeByte(RECORD_VERSION);
+        out.writeLong(creationDate.getEpochSecond());
+        out.writeInt(creationDate.getNano());
+        writeUuid(out, creator);
+        out.writeByte(type.ordinal());
+        writeUuid(out, world);
+        out.writeDouble(x);
+        out.writeDouble(y);
+        out.writeDouble(z);
+        out.writeFloat(pitch);
+        out.writeFloat(yaw);
+        out.writeInt(visits);
+        out.writeUTF(welcomeMessage);
+
+        out.writeInt(invitations.size());
+        for (PlayerMatcher invitation : invitations) {
+          if (invitation instanceof UuidPlayerMatcher) {
+            out.writeByte(UUID_INVITATION);
+            writeUuid(out, ((UuidPlayerMatcher) invitation).getCriteria());
+          } else if (invitation instanceof GroupPlayerMatcher) {
+            out.writeByte(GROUP_INVITATION);
+            out.writeUTF(((GroupPlayerMatcher) invitation).getCriteria());
+          } else {
+            throw new IllegalArgumentException(String.format("Unsupported invitation %s.", invitation));
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return bytes.toByteArray();
+    }
+
+    boolean isViewableBy(Optional<UUID> viewer, Set<String> groups) {
+      if (viewer.isPresent() && viewer.get().equals(creator)) {
+        return true;
+      }
+      for (PlayerMatcher invitation : invitations) {
+        if (invitation instanceof UuidPlayerMatcher && viewer.isPresent() && viewer.get()
+            .equals(((UuidPlayerMatcher) invitation).getCriteria())) {
+          return true;
+        }
+        if (invitation instanceof GroupPlayerMatcher && groups
+            .contains(((GroupPlayerMatcher) invitation).getCriteria())) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    Warp toWarp() {
+      return new WarpBuilder(name, creator, world, new Vector3d(x, y, z), new Vector2f(pitch, yaw)).setType(type)
+          .setCreationDate(creationDate).setVisits(visits).setWelcomeMessage(welcomeMessage)
+          .addInvitations(invitations).build();
+    }
+  }
+
+  private static UUID readUuid(DataInputStream in) throws IOException {
+    return new UUID(in.readLong(), in.readLong());
+  }
+
+  private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+    out.writeLong(uuid.getMostSignificantBits());
+    out.writeLong(uuid.getLeastSignificantBits());
+  }
+}
@@ -69,6 +69,17 @@ public interface SqlDataService extends AutoCloseable {
    */
   ExecutorService getExecutorService();
 
+  /**
+   * Creates a new {@code SqlDataService} that connects to the same DBMS as this one, but uses its own {@code
+   * DataSource} and {@code ExecutorService}.
+   *
+   * <p>This allows long running reads, such as exports, to run without delaying the queries run by this
+   * DataService. The caller is responsible for closing the returned instance.</p>
+   *
+   * @return a new {@code SqlDataService}
+   */
+  SqlDataService duplicate();
+
   /**
    * Closes this DataService.
    *
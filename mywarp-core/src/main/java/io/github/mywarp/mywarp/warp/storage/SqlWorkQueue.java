@@ -0,0 +1,564 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.warp.storage;
+
+import com.google.common.base.MoreObjects;
+import io.github.mywarp.mywarp.util.MyWarpLogger;
+import org.slf4j.Logger;
+
+import javax.annotation.Nullable;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A bounded {@link java.util.concurrent.ExecutorService} that executes queries on a database one after another, in
+ * the order they were submitted.
+ *
+ * <p>If a task fails because of a transient {@link SQLException}, e.g. because the connection to the database was
+ * lost, the task is retried with an exponential backoff. Once a task fails repeatedly, the circuit is considered open
+ * until a task succeeds again. A task is given up after {@link #MAX_ATTEMPTS} failed attempts: a {@link SpillableTask}
+ * is spilled, so that it can be retried later on, all other tasks are logged and dropped. While the circuit is open,
+ * a spillable task is spilled after its first failed attempt. Tasks that fail for any other reason are logged and
+ * dropped.</p>
+ *
+ * <p>Reads, i.e. tasks submitted via {@link CompletableFuture#supplyAsync(Supplier, Executor)} and similar methods,
+ * are rejected immediately if the queue is full or the circuit is open, so that the caller does not wait for a
+ * database that is not available. Use {@link #supplyAsync(Supplier, Executor)} to receive the rejection as a failed
+ * future. If the queue is full, the configured {@link OverflowPolicy} decides how all other tasks are handled. A task
+ * that would block is rejected once it has waited for {@link #MAX_BLOCKING_NANOS}.</p>
+ */
+public class SqlWorkQueue extends AbstractExecutorService {
+
+  private static final Logger log = MyWarpLogger.getLogger(SqlWorkQueue.class);
+
+  private static final long INITIAL_BACKOFF_MILLIS = 250;
+  private static final long MAX_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+  private static final int CIRCUIT_THRESHOLD = 5;
+  /**
+   * The number of times a task that fails with a transient exception is executed before it is given up.
+   */
+  private static final int MAX_ATTEMPTS = 8;
+  private static final long THROUGHPUT_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+  /**
+   * The maximum time a task may block the submitting thread, which is usually the server's main thread. This is a
+   * single tick.
+   */
+  private static final long MAX_BLOCKING_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+  private final int capacity;
+  private final OverflowPolicy overflowPolicy;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+  private final Condition terminated = lock.newCondition();
+  private final Deque<QueuedTask> queue = new ArrayDeque<>();
+  private final Thread worker;
+
+  @Nullable
+  private QueuedTask current;
+  private boolean shutdown;
+  private boolean isTerminated;
+
+  private long completedCount;
+  private long failedCount;
+  private long retryCount;
+  private long coalescedCount;
+  private long spilledCount;
+  private long rejectedCount;
+  private long windowStart = System.nanoTime();
+  private long windowCount;
+  private double throughput;
+
+  private volatile boolean circuitOpen;
+
+  /**
+   * Creates an instance that holds up to the given number of tasks, applying the given {@code overflowPolicy} once
+   * the queue is full. The worker thread is started immediately.
+   *
+   * @param capacity       the maximum number of queued tasks
+   * @param overflowPolicy the policy applied when the queue is full
+   */
+  public SqlWorkQueue(int capacity, OverflowPolicy overflowPolicy) {
+    checkArgument(capacity > 0, "capacity must be positive");
+    this.capacity = capacity;
+    this.overflowPolicy = overflowPolicy;
+
+    worker = new Thread(this::work, "MyWarp SQL Worker");
+    worker.start();
+  }
+
+  /**
+   * Executes the given {@code supplier} on the given {@code executor}, like {@link
+   * CompletableFuture#supplyAsync(Supplier, Executor)}. If the executor rejects the task, the returned future fails
+   * with the {@link RejectedExecutionException} instead of it being thrown to the caller.
+   *
+   * @param supplier the supplier
+   * @param executor the executor
+   * @param <T>      the type of the supplied value
+   * @return a future that completes with the supplied value
+   */
+  public static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, Executor executor) {
+    try {
+      return CompletableFuture.supplyAsync(supplier, executor);
+    } catch (RejectedExecutionException e) {
+      CompletableFuture<T> ret = new CompletableFuture<>();
+      ret.completeExceptionally(e);
+      return ret;
+    }
+  }
+
+  /**
+   * Executes the given {@code runnable} on the given {@code executor}, like {@link
+   * CompletableFuture#runAsync(Runnable, Executor)}. If the executor rejects the task, the returned future fails with
+   * the {@link RejectedExecutionException} instead of it being thrown to the caller.
+   *
+   * @param runnable the runnable
+   * @param executor the executor
+   * @return a future that completes once the runnable has been executed
+   */
+  public static CompletableFuture<Void> runAsync(Runnable runnable, Executor executor) {
+    return supplyAsync(() -> {
+      runnable.run();
+      return null;
+    }, executor);
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    // reads never block, their callers are notified via the future
+    boolean read = command instanceof CompletableFuture.AsynchronousCompletionTask
+                   && !(command instanceof SpillableTask) && !(command instanceof CoalescingTask);
+    long remaining = MAX_BLOCKING_NANOS;
+    lock.lock();
+    try {
+      while (true) {
+        if (shutdown) {
+          throw new RejectedExecutionException("The queue is shut down.");
+        }
+        if (Thread.currentThread() == worker) {
+          break;
+        }
+        if (read && circuitOpen) {
+          rejectedCount++;
+          throw new RejectedExecutionException("The database is unreachable.");
+        }
+        if (queue.size() < capacity) {
+          break;
+        }
+        if (overflowPolicy == OverflowPolicy.COALESCE && command instanceof CoalescingTask) {
+          CoalescingTask queued = findQueued(((CoalescingTask) command).getCoalescingKey());
+          if (queued != null) {
+            coalescedCount++;
+            queued.coalesce((CoalescingTask) command);
+            return;
+          }
+        }
+        if (overflowPolicy == OverflowPolicy.SPILL && command instanceof SpillableTask) {
+          spilledCount++;
+          ((SpillableTask) command).spill();
+          return;
+        }
+        if (read || remaining <= 0) {
+          rejectedCount++;
+          throw new RejectedExecutionException(String.format("The queue is full (%d tasks).", capacity));
+        }
+        remaining = notFull.awaitNanos(remaining);
+      }
+      queue.addLast(new QueuedTask(command));
+      notEmpty.signal();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RejectedExecutionException("Interrupted while waiting for the queue.", e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Nullable
+  private CoalescingTask findQueued(Object coalescingKey) {
+    for (QueuedTask queued : queue) {
+      if (queued.task instanceof CoalescingTask && Objects.equals(((CoalescingTask) queued.task).getCoalescingKey(),
+                                                                  coalescingKey)) {
+        return (CoalescingTask) queued.task;
+      }
+    }
+    return null;
+  }
+
+  private void work() {
+    while (true) {
+      QueuedTask task;
+      lock.lock();
+      try {
+        while (queue.isEmpty() && !shutdown) {
+          notEmpty.awaitUninterruptibly();
+        }
+        task = queue.pollFirst();
+        if (task == null) {
+          isTerminated = true;
+          terminated.signalAll();
+          return;
+        }
+        current = task;
+        notFull.signal();
+      } finally {
+        lock.unlock();
+      }
+
+      boolean succeeded = runWithRetry(task.task);
+
+      lock.lock();
+      try {
+        current = null;
+        if (succeeded) {
+          completedCount++;
+        } else {
+          failedCount++;
+        }
+        updateThroughput();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private boolean runWithRetry(Runnable task) {
+    long backoff = INITIAL_BACKOFF_MILLIS;
+    int attempts = 0;
+    // while the database is unreachable, spillable tasks are retried later on instead of blocking all others
+    int maxAttempts = circuitOpen && task instanceof SpillableTask ? 1 : MAX_ATTEMPTS;
+
+    while (true) {
+      try {
+        task.run();
+        if (circuitOpen) {
+          circuitOpen = false;
+          log.info("The database is reachable again, resuming {} queued queries.", getDepth());
+        }
+        return true;
+      } catch (RuntimeException e) {
+        if (!isTransient(e)) {
+          log.error("Failed to execute a query on the database, it will be skipped.", e);
+          return false;
+        }
+        attempts++;
+        if (attempts >= maxAttempts) {
+          giveUp(task, attempts, e);
+          return false;
+        }
+        if (attempts >= CIRCUIT_THRESHOLD && !circuitOpen) {
+          circuitOpen = true;
+          log.warn(String.format("The database seems to be unreachable, %d queued queries are paused until it is "
+                                 + "reachable again.", getDepth()), e);
+        } else if (!circuitOpen) {
+          log.debug(String.format("Query failed temporarily, retrying in %d ms.", backoff), e);
+        }
+      }
+
+      lock.lock();
+      try {
+        retryCount++;
+      } finally {
+        lock.unlock();
+      }
+
+      try {
+        Thread.sleep(backoff);
+      } catch (InterruptedException e) {
+        log.warn("Interrupted while waiting to retry a failed query, it will be skipped.");
+        return false;
+      }
+      backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+    }
+  }
+
+  private void giveUp(Runnable task, int attempts, RuntimeException e) {
+    if (!(task instanceof SpillableTask)) {
+      log.error(String.format("Failed to execute a query on the database %d times, it will be skipped.", attempts), e);
+      return;
+    }
+    log.debug(String.format("Failed to execute a query on the database %d times, spilling it.", attempts), e);
+    lock.lock();
+    try {
+      spilledCount++;
+    } finally {
+      lock.unlock();
+    }
+    ((SpillableTask) task).spill();
+  }
+
+  /**
+   * Returns whether the given {@code throwable} is caused by a transient {@link SQLException}, so that the failed task
+   * will be retried.
+   *
+   * @param throwable the throwable
+   * @return {@code true} if the cause is transient
+   */
+  static boolean isTransient(Throwable throwable) {
+    for (Throwable t = throwable; t != null; t = t.getCause()) {
+      if (t instanceof SQLTransientException || t instanceof SQLRecoverableException
+          || t instanceof SQLNonTransientConnectionException) {
+        return true;
+      }
+      if (t instanceof SQLException) {
+        String state = ((SQLException) t).getSQLState();
+        // connection exceptions and transaction rollbacks, e.g. deadlocks
+        if (state != null && (state.startsWith("08") || state.startsWith("40"))) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private void updateThroughput() {
+    windowCount++;
+    long now = System.nanoTime();
+    long elapsed = now - windowStart;
+    if (elapsed >= THROUGHPUT_WINDOW_NANOS) {
+      throughput = windowCount / (elapsed / (double) TimeUnit.SECONDS.toNanos(1));
+      windowStart = now;
+      windowCount = 0;
+    }
+  }
+
+  /**
+   * Gets the number of tasks that are queued or currently executed.
+   *
+   * @return the number of tasks
+   */
+  public int getDepth() {
+    lock.lock();
+    try {
+      return queue.size() + (current != null ? 1 : 0);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the time that has passed since the oldest task that is queued or currently executed was submitted. If there
+   * is no such task, {@link Duration#ZERO} is returned.
+   *
+   * @return the age of the oldest task
+   */
+  public Duration getOldestTaskAge() {
+    lock.lock();
+    try {
+      QueuedTask oldest = current != null ? current : queue.peekFirst();
+      if (oldest == null) {
+        return Duration.ZERO;
+      }
+      return Duration.ofNanos(System.nanoTime() - oldest.submitted);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of tasks executed per second, measured over the last completed measuring window.
+   *
+   * @return the number of tasks per second
+   */
+  public double getThroughput() {
+    lock.lock();
+    try {
+      return throughput;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns whether the circuit is open, i.e. whether executing tasks is paused because the database seems to be
+   * unreachable.
+   *
+   * @return {@code true} if the circuit is open
+   */
+  public boolean isCircuitOpen() {
+    return circuitOpen;
+  }
+
+  @Override
+  public void shutdown() {
+    lock.lock();
+    try {
+      shutdown = true;
+      notEmpty.signalAll();
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    lock.lock();
+    try {
+      shutdown = true;
+      List<Runnable> remaining = new ArrayList<>(queue.size());
+      for (QueuedTask task : queue) {
+        remaining.add(task.task);
+      }
+      queue.clear();
+      worker.interrupt();
+      notEmpty.signalAll();
+      notFull.signalAll();
+      return remaining;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean isShutdown() {
+    lock.lock();
+    try {
+      return shutdown;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean isTerminated() {
+    lock.lock();
+    try {
+      return isTerminated;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lock();
+    try {
+      while (!isTerminated) {
+        if (nanos <= 0) {
+          return false;
+        }
+        nanos = terminated.awaitNanos(nanos);
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public String toString() {
+    lock.lock();
+    try {
+      return MoreObjects.toStringHelper(this).add("depth", queue.size() + (current != null ? 1 : 0))
+          .add("capacity", capacity).add("overflowPolicy", overflowPolicy).add("circuitOpen", circuitOpen)
+          .add("completed", completedCount).add("failed", failedCount).add("retried", retryCount)
+          .add("coalesced", coalescedCount).add("spilled", spilledCount).add("rejected", rejectedCount)
+          .add("throughput", throughput).toString();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Determines how a {@link SqlWorkQueue} handles tasks submitted while the queue is full.
+   */
+  public enum OverflowPolicy {
+    /**
+     * The submitting thread blocks until the queue has space, for up to a single tick.
+     */
+    BLOCK,
+    /**
+     * A {@link CoalescingTask} is dropped if a task with the same key is already queued. Other tasks block.
+     */
+    COALESCE,
+    /**
+     * A {@link SpillableTask} is spilled instead of queued. Other tasks block.
+     */
+    SPILL
+  }
+
+  /**
+   * A task that can be coalesced with other queued tasks with the same key under {@link OverflowPolicy#COALESCE}.
+   *
+   * <p>Tasks with the same key must be interchangeable, so that executing an already queued task has the same effect
+   * as executing the new one.</p>
+   */
+  public interface CoalescingTask extends Runnable {
+
+    /**
+     * Gets the key that identifies interchangeable tasks.
+     *
+     * @return the key
+     */
+    Object getCoalescingKey();
+
+    /**
+     * Called when the given {@code other} task is dropped, because this task is already queued with the same key.
+     * This task will be executed in place of the other one.
+     *
+     * @param other the dropped task
+     */
+    default void coalesce(CoalescingTask other) {
+    }
+  }
+
+  /**
+   * A task that can be persisted elsewhere instead of being queued under {@link OverflowPolicy#SPILL}, or once it
+   * has failed too often.
+   */
+  public interface SpillableTask extends Runnable {
+
+    /**
+     * Spills this task. Once this method is called, the task will not be executed by the queue.
+     */
+    void spill();
+  }
+
+  private static final class QueuedTask {
+
+    private final Runnable task;
+    private final long submitted = System.nanoTime();
+
+    private QueuedTask(Runnable task) {
+      this.task = task;
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.warp.storage;
+
+import com.google.common.base.MoreObjects;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * A cheap summary of the contents of a {@link WarpStorage}.
+ *
+ * <p>Two fingerprints of the same storage are equal if no warps have been modified in between. Visit counts are an
+ * exception: they change on every teleport, so they are not covered, and copies may hold outdated visit counts.
+ * Fingerprints are used to validate copies of stored warps, such as a {@link WarpSnapshot}, without reading all stored
+ * warps.</p>
+ */
+public final class StorageFingerprint {
+
+  /**
+   * The number of bytes a fingerprint occupies when written to a {@link ByteBuffer}.
+   */
+  static final int BYTES = 7 * Long.BYTES;
+
+  private final long warpCount;
+  private final long maxWarpKey;
+  private final long playerCount;
+  private final long worldCount;
+  private final long groupCount;
+  private final long invitationCount;
+  private final long revision;
+
+  /**
+   * Creates an instance.
+   *
+   * @param warpCount       the number of stored warps
+   * @param maxWarpKey      the highest key of all stored warps
+   * @param playerCount     the number of stored players
+   * @param worldCount      the number of stored worlds
+   * @param groupCount      the number of stored groups
+   * @param invitationCount the number of stored invitations
+   * @param revision        a value that changes on every modification except of visit counts, e.g. the ID of the
+   *                        latest recorded change
+   */
+  public StorageFingerprint(long warpCount, long maxWarpKey, long playerCount, long worldCount, long groupCount,
+      long invitationCount, long revision) {
+    this.warpCount = warpCount;
+    this.maxWarpKey = maxWarpKey;
+    this.playerCount = playerCount;
+    this.worldCount = worldCount;
+    this.groupCount = groupCount;
+    this.invitationCount = invitationCount;
+    this.revision = revision;
+  }
+
+  /**
+   * Reads a fingerprint from the given {@code buffer}.
+   *
+   * @param buffer the buffer
+   * @return the fingerprint
+   */
+  static StorageFingerprint read(ByteBuffer buffer) {
+    return new StorageFingerprint(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong(),
+        buffer.getLong(), buffer.getLong(), buffer.getLong());
+  }
+
+  /**
+   * Writes this fingerprint to the given {@code buffer}.
+   *
+   * @param buffer the buffer
+   */
+  void write(ByteBuffer buffer) {
+    buffer.putLong(warpCount).putLong(maxWarpKey).putLong(playerCount).putLong(worldCount).putLong(groupCount)
+        .putLong(invitationCount).putLong(revision);
+  }
+
+  /**
+   * Gets the number of stored warps.
+   *
+   * @return the number of warps
+   */
+  public long getWarpCount() {
+    return warpCount;
+  }
+
+  /**
+   * Gets the revision of the storage, a value that changes on every modification except of visit counts.
+   *
+   * @return the revision
+   */
+  public long getRevision() {
+    return revision;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    StorageFingerprint that = (StorageFingerprint) o;
+    return warpCount == that.warpCount && maxWarpKey == that.maxWarpKey && playerCount == that.playerCount
+        && worldCount == that.worldCount && groupCount == that.groupCount && invitationCount == that.invitationCount
+        && revision == that.revision;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(warpCount, maxWarpKey, playerCount, worldCount, groupCount, invitationCount, revision);
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this).add("warpCount", warpCount).add("maxWarpKey", maxWarpKey)
+        .add("playerCount", playerCount).add("worldCount", worldCount).add("groupCount", groupCount)
+        .add("invitationCount", invitationCount).add("revision", revision).toString();
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.warp.storage;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Set;
+
+/**
+ * Changes of stored warps, as recorded in the change-log of a {@link WarpStorage}.
+ *
+ * <p>Changes are identified by increasing IDs, which might become visible out of order. Changes made by other
+ * instances that share the same storage are reported separately from changes made by the instance that reads
+ * them.</p>
+ */
+public final class WarpChanges {
+
+  private final long latestChangeId;
+  private final ImmutableSet<Long> changeIds;
+  private final ImmutableSet<String> foreignChanges;
+  private final ImmutableSet<String> ownChanges;
+  private final boolean incomplete;
+
+  /**
+   * Creates an instance.
+   *
+   * @param latestChangeId the ID of the latest change covered by this instance
+   * @param changeIds      the IDs of all changes covered by this instance
+   * @param foreignChanges the names of warps changed by other instances
+   * @param ownChanges     the names of warps changed by this instance
+   * @param incomplete     whether more changes are available after {@code latestChangeId}
+   */
+  WarpChanges(long latestChangeId, Set<Long> changeIds, Set<String> foreignChanges, Set<String> ownChanges,
+      boolean incomplete) {
+    this.latestChangeId = latestChangeId;
+    this.changeIds = ImmutableSet.copyOf(changeIds);
+    this.foreignChanges = ImmutableSet.copyOf(foreignChanges);
+    this.ownChanges = ImmutableSet.copyOf(ownChanges);
+    this.incomplete = incomplete;
+  }
+
+  /**
+   * Gets the ID of the latest change covered by this instance.
+   *
+   * @return the ID of the latest change
+   */
+  public long getLatestChangeId() {
+    return latestChangeId;
+  }
+
+  /**
+   * Gets the IDs of all changes covered by this instance, including changes that were read because their IDs were
+   * missing before.
+   *
+   * @return the IDs of all changes
+   */
+  public ImmutableSet<Long> getChangeIds() {
+    return changeIds;
+  }
+
+  /**
+   * Gets the names of all warps that have been changed by other instances.
+   *
+   * @return the names of warps changed by other instances
+   */
+  public ImmutableSet<String> getForeignChanges() {
+    return foreignChanges;
+  }
+
+  /**
+   * Gets the names of all warps that have been changed by the instance that reads the changes.
+   *
+   * @return the names of warps changed by this instance
+   */
+  public ImmutableSet<String> getOwnChanges() {
+    return ownChanges;
+  }
+
+  /**
+   * Returns whether more changes are available after the {@link #getLatestChangeId() latest change} of this instance.
+   *
+   * @return {@code true} if more changes are available
+   */
+  public boolean isIncomplete() {
+    return incomplete;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this).add("latestChangeId", latestChangeId).add("changeIds", changeIds)
+        .add("foreignChanges", foreignChanges).add("ownChanges", ownChanges).add("incomplete", incomplete).toString();
+  }
+}
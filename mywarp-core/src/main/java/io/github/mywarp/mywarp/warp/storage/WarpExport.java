@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.warp.storage;
+
+import io.github.mywarp.mywarp.util.playermatcher.GroupPlayerMatcher;
+import io.github.mywarp.mywarp.util.playermatcher.PlayerMatcher;
+import io.github.mywarp.mywarp.util.playermatcher.UuidPlayerMatcher;
+import io.github.mywarp.mywarp.warp.Warp;
+
+import javax.annotation.Nullable;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports the warps of a {@link WarpStorage} to a file, either as <a href="http://jsonlines.org/">JSON Lines</a> or
+ * as CSV.
+ *
+ * <p>Warps are streamed from the storage via {@link WarpStorage#forEachWarp(Consumer)} and
+ * written one after the other, so the memory footprint does not depend on the number of exported warps. The export is
+ * written to a temporary file that only replaces the target file once it is complete.</p>
+ */
+public final class WarpExport {
+
+  /**
+   * The number of exported warps after which progress is reported.
+   */
+  private static final int PROGRESS_INTERVAL = 10000;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final String[] CSV_HEADER =
+      {"name", "creator", "world", "x", "y", "z", "pitch", "yaw", "type", "creationDate", "visits", "welcomeMessage",
+          "invitedPlayers", "invitedGroups"};
+
+  private final WarpStorage storage;
+  private final Format format;
+  private final boolean compressed;
+
+  private WarpExport(WarpStorage storage, Format format, boolean compressed) {
+    this.storage = storage;
+    this.format = format;
+    this.compressed = compressed;
+  }
+
+  /**
+   * Creates an export of all warps stored in the given {@code storage}.
+   *
+   * @param storage    the storage to read warps from
+   * @param format     the format of the export
+   * @param compressed whether the export should be compressed using gzip
+   * @return the export
+   */
+  public static WarpExport of(WarpStorage storage, Format format, boolean compressed) {
+    return new WarpExport(storage, format, compressed);
+  }
+
+  /**
+   * Writes all warps to the given {@code file}, replacing it if it exists.
+   *
+   * <p>This method blocks until all warps are written. It reads from the storage and should therefore be called on
+   * the executor that executes queries on the storage, never on the game's thread.</p>
+   *
+   * @param file     the file to write to
+   * @param progress receives the number of warps written so far, in regular intervals
+   * @return the number of exported warps
+   * @throws IOException if the file cannot be written
+   */
+  public int writeTo(Path file, IntConsumer progress) throws IOException {
+    Path directory = file.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+
+    int count;
+    try {
+      try (Writer writer = newWriter(temp)) {
+        if (format == Format.CSV) {
+          writeCsvRow(writer, CSV_HEADER);
+        }
+        count = storage.forEachWarp(new WarpWriter(writer, progress));
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+    return count;
+  }
+
+  private Writer newWriter(Path file) throws IOException {
+    OutputStream out = Files.newOutputStream(file);
+    if (compressed) {
+      out = new GZIPOutputStream(out, BUFFER_SIZE);
+    }
+    return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+  }
+
+  private void write(Writer writer, Warp warp) throws IOException {
+    List<String> players = new ArrayList<>();
+    List<String> groups = new ArrayList<>();
+    for (PlayerMatcher invitation : warp.getInvitations()) {
+      if (invitation instanceof UuidPlayerMatcher) {
+        players.add(((UuidPlayerMatcher) invitation).getCriteria().toString());
+      } else if (invitation instanceof GroupPlayerMatcher) {
+        groups.add(((GroupPlayerMatcher) invitation).getCriteria());
+      }
+    }
+
+    switch (format) {
+      case JSON_LINES:
+        writeJson(writer, warp, players, groups);
+        break;
+      case CSV:
+        writeCsvRow(writer, warp.getName(), warp.getCreator().toString(), warp.getWorldIdentifier().toString(),
+                    Double.toString(warp.getPosition().getX()), Double.toString(warp.getPosition().getY()),
+                    Double.toString(warp.getPosition().getZ()), Float.toString(warp.getRotation().getX()),
+                    Float.toString(warp.getRotation().getY()), warp.getType().name(),
+                    warp.getCreationDate().toString(), Integer.toString(warp.getVisits()),
+                    warp.getWelcomeMessage(), String.join(";", players), String.join(";", groups));
+        break;
+      default:
+        throw new AssertionError(format);
+    }
+  }
+
+  private static void writeJson(Writer writer, Warp warp, List<String> players, List<String> groups)
+      throws IOException {
+    writer.write("{\"name\":");
+    writeJsonString(writer, warp.getName());
+    writer.write(",\"creator\":\"");
+    writer.write(warp.getCreator().toString());
+    writer.write("\",\"world\":\"");
+    writer.write(warp.getWorldIdentifier().toString());
+    writer.write("\",\"x\":");
+    writer.write(Double.toString(warp.getPosition().getX()));
+    writer.write(",\"y\":");
+    writer.write(Double.toString(warp.getPosition().getY()));
+    writer.write(",\"z\":");
+    writer.write(Double.toString(warp.getPosition().getZ()));
+    writer.write(",\"pitch\":");
+    writer.write(Float.toString(warp.getRotation().getX()));
+    writer.write(",\"yaw\":");
+    writer.write(Float.toString(warp.getRotation().getY()));
+    writer.write(",\"type\":\"");
+    writer.write(warp.getType().name());
+    writer.write("\",\"creationDate\":\"");
+    writer.write(warp.getCreationDate().toString());
+    writer.write("\",\"visits\":");
+    writer.write(Integer.toString(warp.getVisits()));
+    writer.write(",\"welcomeMessage\":");
+    writeJsonString(writer, warp.getWelcomeMessage());
+    writer.write(",\"invitedPlayers\":");
+    writeJsonArray(writer, players);
+    writer.write(",\"invitedGroups\":");
+    writeJsonArray(writer, groups);
+    writer.write("}\n");
+  }
+
+  private static void writeJsonArray(Writer writer, List<String> values) throws IOException {
+    writer.write('[');
+    for (int i = 0; i < values.size(); i++) {
+      if (i > 0) {
+        writer.write(',');
+      }
+      writeJsonString(writer, values.get(i));
+    }
+    writer.write(']');
+  }
+
+  private static void writeJsonString(Writer writer, @Nullable String value) throws IOException {
+    if (value == null) {
+      writer.write("null");
+      return;
+    }
+    writer.write('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          writer.write("\\\"");
+          break;
+        case '\\':
+          writer.write("\\\\");
+          break;
+        case '\n':
+          writer.write("\\n");
+          break;
+        case '\r':
+          writer.write("\\r");
+          break;
+        case '\t':
+          writer.write("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            writer.write(String.format("\\u%04x", (int) c));
+          } else {
+            writer.write(c);
+          }
+      }
+    }
+    writer.write('"');
+  }
+
+  private static void writeCsvRow(Writer writer, @Nullable String... values) throws IOException {
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        writer.write(',');
+      }
+      String value = values[i] != null ? values[i] : "";
+      // quote values as defined by RFC 4180
+      if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+      } else {
+        writer.write(value);
+      }
+    }
+    writer.write("\r\n");
+  }
+
+  /**
+   * The format of an export.
+   */
+  public enum Format {
+    /**
+     * One JSON object per warp and line.
+     */
+    JSON_LINES("jsonl"),
+    /**
+     * One comma-separated row per warp, with a header row.
+     */
+    CSV("csv");
+
+    private final String extension;
+
+    Format(String extension) {
+      this.extension = extension;
+    }
+
+    /**
+     * Gets the extension of files in this format, without a leading dot.
+     *
+     * @return the file extension
+     */
+    public String getExtension() {
+      return extension;
+    }
+  }
+
+  /**
+   * Writes each warp it receives and reports the progress.
+   */
+  private class WarpWriter implements Consumer<Warp> {
+
+    private final Writer writer;
+    private final IntConsumer progress;
+    private int written;
+
+    WarpWriter(Writer writer, IntConsumer progress) {
+      this.writer = writer;
+      this.progress = progress;
+    }
+
+    @Override
+    public void accept(Warp warp) {
+      try {
+        write(writer, warp);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      if (++written % PROGRESS_INTERVAL == 0) {
+        progress.accept(written);
+      }
+    }
+  }
+}
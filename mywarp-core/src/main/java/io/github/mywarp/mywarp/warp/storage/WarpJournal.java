@@ -0,0 +1,575 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.warp.storage;
+
+import com.google.common.collect.ImmutableList;
+import io.github.mywarp.mywarp.util.MyWarpLogger;
+import io.github.mywarp.mywarp.util.playermatcher.GroupPlayerMatcher;
+import io.github.mywarp.mywarp.util.playermatcher.PlayerMatcher;
+import io.github.mywarp.mywarp.util.playermatcher.UuidPlayerMatcher;
+import io.github.mywarp.mywarp.warp.Warp;
+import org.slf4j.Logger;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of writes to a {@link WarpStorage}.
+ *
+ * <p>Writes are appended to the journal before they are handed to the storage and are acknowledged once the storage
+ * has executed them. Acknowledgements are recorded in the journal too. Once all appended writes are acknowledged, the
+ * journal is truncated. If acknowledged entries take up more than {@value #COMPACTION_THRESHOLD_BYTES} bytes while
+ * other entries are still outstanding, the journal is compacted so that it only contains the outstanding entries.
+ * Writes that remain outstanding, e.g. because the server crashed or the storage was unreachable, can be replayed on
+ * the next start using {@link #replay(WarpStorage)}. Writes that the storage cannot execute at all can be moved to a
+ * separate file using {@link #deadLetter(long)}, so that they do not keep the journal from being truncated.</p>
+ *
+ * <p>Appending only writes to the file, forcing the written entries to the underlying device is done by
+ * {@link #sync(long)}. As a single call forces all entries appended so far, concurrent calls are grouped
+ * naturally.</p>
+ *
+ * <p>Each entry consists of its length, a CRC32 checksum, the {@link Operation}, the sequence number, the affected
+ * warps in the format used by {@link WarpSnapshot} and the affected invitation (if any). An acknowledgement only
+ * consists of the sequence number of the acknowledged entry. A partially written entry at the end of the journal is
+ * ignored.</p>
+ */
+public final class WarpJournal implements AutoCloseable {
+
+  private static final Logger log = MyWarpLogger.getLogger(WarpJournal.class);
+
+  private static final byte NO_INVITATION = 0;
+  private static final byte UUID_INVITATION = 1;
+  private static final byte GROUP_INVITATION = 2;
+
+  /**
+   * Marks acknowledgements, operations are stored by their ordinal.
+   */
+  private static final byte ACKNOWLEDGEMENT = -1;
+
+  /**
+   * Length and checksum.
+   */
+  private static final int ENTRY_HEADER_BYTES = Integer.BYTES + Long.BYTES;
+  private static final long COMPACTION_THRESHOLD_BYTES = 1024 * 1024;
+
+  private final Path file;
+  private final Path deadLetterFile;
+  // entries that are not yet acknowledged, by their sequence number
+  private final NavigableMap<Long, Position> outstanding = new TreeMap<>();
+
+  private FileChannel channel;
+  private long size;
+  private long outstandingBytes;
+  private long appended;
+  private long synced;
+
+  private WarpJournal(Path file, FileChannel channel) throws IOException {
+    this.file = file;
+    this.deadLetterFile = file.resolveSibling(file.getFileName() + ".failed");
+    this.channel = channel;
+    this.size = channel.size();
+  }
+
+  /**
+   * Opens the journal stored in the given {@code file}, creating the file if it does not exist.
+   *
+   * @param file the file
+   * @return the journal
+   * @throws IOException if the file cannot be opened
+   */
+  public static WarpJournal open(Path file) throws IOException {
+    return new WarpJournal(file, openChannel(file));
+  }
+
+  private static FileChannel openChannel(Path file) throws IOException {
+    return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+  }
+
+  /**
+   * Appends the given write to this journal.
+   *
+   * <p>The entry is written to the file, but not forced to the underlying device. Call {@link #sync(long)} with the
+   * returned sequence number to do so.</p>
+   *
+   * @param operation  the operation
+   * @param warps      the affected warps
+   * @param invitation the affected invitation or {@code null} if the operation does not affect invitations
+   * @return the sequence number of the appended entry
+   * @throws IOException if writing to the file fails
+   */
+  public synchronized long append(Operation operation, Collection<Warp> warps, @Nullable PlayerMatcher invitation)
+      throws IOException {
+    ByteBuffer encodedWarps = WarpSnapshot.encodeWarps(warps);
+    byte[] encodedInvitation = new byte[0];
+    byte invitationType = NO_INVITATION;
+    if (invitation instanceof UuidPlayerMatcher) {
+      UUID uuid = ((UuidPlayerMatcher) invitation).getCriteria();
+      encodedInvitation =
+          ByteBuffer.allocate(2 * Long.BYTES).putLong(uuid.getMostSignificantBits())
+              .putLong(uuid.getLeastSignificantBits()).array();
+      invitationType = UUID_INVITATION;
+    } else if (invitation instanceof GroupPlayerMatcher) {
+      encodedInvitation = ((GroupPlayerMatcher) invitation).getCriteria().getBytes(StandardCharsets.UTF_8);
+      invitationType = GROUP_INVITATION;
+    }
+
+    long sequence = appended + 1;
+    int payloadLength =
+        Byte.BYTES + Long.BYTES + encodedWarps.remaining() + Byte.BYTES + encodedInvitation.length;
+    ByteBuffer entry = ByteBuffer.allocate(ENTRY_HEADER_BYTES + payloadLength);
+    entry.position(ENTRY_HEADER_BYTES);
+    entry.put((byte) operation.ordinal()).putLong(sequence).put(encodedWarps).put(invitationType)
+        .put(encodedInvitation);
+
+    Position position = write(entry);
+    appended = sequence;
+    outstanding.put(sequence, position);
+    outstandingBytes += position.length;
+    return sequence;
+  }
+
+  /**
+   * Writes the given entry at the end of the file. The payload must start at {@link #ENTRY_HEADER_BYTES}, the header
+   * is filled in by this method.
+   */
+  private Position write(ByteBuffer entry) throws IOException {
+    ByteBuffer payload = entry.duplicate();
+    payload.position(ENTRY_HEADER_BYTES);
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    entry.putInt(0, entry.capacity() - ENTRY_HEADER_BYTES).putLong(Integer.BYTES, crc.getValue());
+    entry.rewind();
+
+    long offset = size;
+    while (entry.hasRemaining()) {
+      offset += channel.write(entry, offset);
+    }
+    Position position = new Position(size, offset - size);
+    size = offset;
+    return position;
+  }
+
+  /**
+   * Forces all entries appended so far to the underlying device.
+   *
+   * @throws IOException if forcing fails
+   */
+  public void sync() throws IOException {
+    long sequence;
+    synchronized (this) {
+      sequence = appended;
+    }
+    sync(sequence);
+  }
+
+  /**
+   * Forces all entries up to and including the one with the given {@code sequence} number to the underlying device.
+   *
+   * <p>If the entry has already been forced by a previous call, this method returns immediately. Otherwise all
+   * entries appended so far are forced at once.</p>
+   *
+   * @param sequence the sequence number
+   * @throws IOException if forcing fails
+   */
+  public void sync(long sequence) throws IOException {
+    long target;
+    FileChannel current;
+    synchronized (this) {
+      if (synced >= sequence) {
+        return;
+      }
+      target = appended;
+      current = channel;
+    }
+    // appending is not blocked while the entries are forced
+    current.force(false);
+    synchronized (this) {
+      synced = Math.max(synced, target);
+    }
+  }
+
+  /**
+   * Acknowledges the entry with the given {@code sequence} number, because the storage has executed it. Entries may
+   * be acknowledged in any order.
+   *
+   * <p>If all appended entries are acknowledged, the journal is truncated. Otherwise the acknowledgement is appended,
+   * so that the entry is not replayed on the next start. Entries that are never acknowledged, e.g. because the
+   * server stopped before the storage executed them, remain in the journal and are replayed on the next start.</p>
+   *
+   * @param sequence the sequence number
+   * @throws IOException if writing, truncating or compacting the file fails
+   */
+  public synchronized void commit(long sequence) throws IOException {
+    Position position = outstanding.remove(sequence);
+    if (position == null) {
+      return;
+    }
+    outstandingBytes -= position.length;
+
+    if (outstanding.isEmpty()) {
+      channel.truncate(0);
+      size = 0;
+      outstandingBytes = 0;
+    } else if (size - outstandingBytes >= COMPACTION_THRESHOLD_BYTES) {
+      compact();
+    } else {
+      ByteBuffer acknowledgement = ByteBuffer.allocate(ENTRY_HEADER_BYTES + Byte.BYTES + Long.BYTES);
+      acknowledgement.position(ENTRY_HEADER_BYTES);
+      acknowledgement.put(ACKNOWLEDGEMENT).putLong(sequence);
+      write(acknowledgement);
+    }
+  }
+
+  /**
+   * Moves the outstanding entry with the given {@code sequence} number to a separate file next to the journal and
+   * acknowledges it, e.g. because the storage cannot execute it. The entry is never replayed.
+   *
+   * <p>If no such entry is outstanding, this method does nothing.</p>
+   *
+   * @param sequence the sequence number
+   * @throws IOException if reading the entry or writing the separate file fails
+   */
+  public synchronized void deadLetter(long sequence) throws IOException {
+    Position position = outstanding.get(sequence);
+    if (position == null) {
+      return;
+    }
+    try (FileChannel out = FileChannel.open(deadLetterFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                            StandardOpenOption.APPEND)) {
+      long transferred = 0;
+      while (transferred < position.length) {
+        transferred += channel.transferTo(position.offset + transferred, position.length - transferred, out);
+      }
+      out.force(false);
+    }
+    log.warn("Moved a journal entry that cannot be executed to '{}'.", deadLetterFile);
+    commit(sequence);
+  }
+
+  /**
+   * Rewrites the journal so that it only contains outstanding entries. The compacted journal is written to a
+   * temporary file that replaces the journal once it is complete, so a crash never loses outstanding entries.
+   *
+   * @throws IOException if compacting fails
+   */
+  private void compact() throws IOException {
+    Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+    List<Position> positions = new ArrayList<>(outstanding.size());
+    long compactedSize = 0;
+
+    try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                            StandardOpenOption.TRUNCATE_EXISTING)) {
+      for (Position position : outstanding.values()) {
+        long transferred = 0;
+        while (transferred < position.length) {
+          transferred +=
+              channel.transferTo(position.offset + transferred, position.length - transferred, out);
+        }
+        positions.add(new Position(compactedSize, position.length));
+        compactedSize += position.length;
+      }
+      out.force(false);
+    }
+    // open files cannot be replaced on every platform
+    channel.close();
+    try {
+      Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      channel = openChannel(file);
+    }
+
+    // entries are only moved once the compacted journal is in place
+    int i = 0;
+    for (Map.Entry<Long, Position> entry : outstanding.entrySet()) {
+      entry.setValue(positions.get(i++));
+    }
+    log.debug("Compacted the journal from {} to {} bytes.", size, compactedSize);
+    size = compactedSize;
+    outstandingBytes = compactedSize;
+  }
+
+  /**
+   * Replays all entries of this journal that were not acknowledged on the given {@code storage} and truncates the
+   * journal afterwards.
+   *
+   * <p>This method must be called before any entries are appended. Entries are replayed in order on the calling thread.
+   * Warps that the storage already contains are not added again. An entry that fails is logged and skipped.</p>
+   *
+   * @param storage the storage
+   * @return the number of replayed entries
+   * @throws IOException if reading or truncating the file fails
+   */
+  public synchronized int replay(WarpStorage storage) throws IOException {
+    ByteBuffer contents = ByteBuffer.wrap(Files.readAllBytes(file));
+    List<Entry> entries = new ArrayList<>();
+    Set<Long> acknowledged = new HashSet<>();
+
+    while (contents.remaining() >= ENTRY_HEADER_BYTES) {
+      int payloadLength = contents.getInt();
+      long checksum = contents.getLong();
+      if (payloadLength <= 0 || payloadLength > contents.remaining()) {
+        break;
+      }
+      ByteBuffer payload = contents.slice();
+      payload.limit(payloadLength);
+      contents.position(contents.position() + payloadLength);
+
+      CRC32 crc = new CRC32();
+      crc.update(payload.duplicate());
+      if (crc.getValue() != checksum) {
+        break;
+      }
+
+      if (payload.get(0) == ACKNOWLEDGEMENT) {
+        acknowledged.add(payload.getLong(Byte.BYTES));
+        continue;
+      }
+      try {
+        entries.add(Entry.decode(payload));
+      } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+        log.warn("Skipping malformed journal entry.", e);
+      }
+    }
+
+    if (contents.hasRemaining()) {
+      log.warn("Ignoring {} bytes of incomplete or corrupted entries at the end of '{}'.", contents.remaining(), file);
+    }
+
+    int replayed = 0;
+    for (Entry entry : entries) {
+      if (acknowledged.contains(entry.sequence)) {
+        continue;
+      }
+      try {
+        entry.apply(storage);
+      } catch (RuntimeException e) {
+        log.warn(String.format("Failed to replay journal entry %s for %d warp(s), it will be skipped.",
+                               entry.operation, entry.warps.size()), e);
+      }
+      replayed++;
+    }
+    channel.truncate(0);
+    channel.force(false);
+    size = 0;
+    return replayed;
+  }
+
+  /**
+   * Replays the outstanding entry with the given {@code sequence} number on the given {@code storage}, e.g. because
+   * it was not handed to the storage when it was appended. The entry is not acknowledged by this method.
+   *
+   * <p>If no such entry is outstanding, this method does nothing. Exceptions thrown by the storage are passed on.</p>
+   *
+   * @param sequence the sequence number
+   * @param storage  the storage
+   * @throws IOException if reading the entry fails
+   */
+  public void replay(long sequence, WarpStorage storage) throws IOException {
+    Entry entry;
+    synchronized (this) {
+      Position position = outstanding.get(sequence);
+      if (position == null) {
+        return;
+      }
+      ByteBuffer contents = ByteBuffer.allocate((int) position.length);
+      while (contents.hasRemaining()) {
+        if (channel.read(contents, position.offset + contents.position()) < 0) {
+          throw new IOException("Unexpected end of the journal.");
+        }
+      }
+      contents.position(ENTRY_HEADER_BYTES);
+      try {
+        entry = Entry.decode(contents.slice());
+      } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+        throw new IOException("Malformed journal entry.", e);
+      }
+    }
+    entry.apply(storage);
+  }
+
+  @Nullable
+  private static PlayerMatcher decodeInvitation(ByteBuffer payload) {
+    switch (payload.get()) {
+      case UUID_INVITATION:
+        return new UuidPlayerMatcher(new UUID(payload.getLong(), payload.getLong()));
+      case GROUP_INVITATION:
+        byte[] encoded = new byte[payload.remaining()];
+        payload.get(encoded);
+        return new GroupPlayerMatcher(new String(encoded, StandardCharsets.UTF_8));
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Forces all appended entries to the underlying device and closes this journal. Entries that are not yet
+   * acknowledged remain in the file.
+   *
+   * @throws IOException if forcing or closing fails
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      channel.force(false);
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * The position of an entry in the journal file.
+   */
+  private static final class Position {
+
+    private final long offset;
+    private final long length;
+
+    private Position(long offset, long length) {
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  /**
+   * A decoded entry.
+   */
+  private static final class Entry {
+
+    private final Operation operation;
+    private final long sequence;
+    private final ImmutableList<Warp> warps;
+    @Nullable
+    private final PlayerMatcher invitation;
+
+    private Entry(Operation operation, long sequence, ImmutableList<Warp> warps, @Nullable PlayerMatcher invitation) {
+      this.operation = operation;
+      this.sequence = sequence;
+      this.warps = warps;
+      this.invitation = invitation;
+    }
+
+    private static Entry decode(ByteBuffer payload) {
+      Operation operation = Operation.values()[payload.get()];
+      long sequence = payload.getLong();
+      ImmutableList<Warp> warps = WarpSnapshot.decodeWarps(payload);
+      return new Entry(operation, sequence, warps, decodeInvitation(payload));
+    }
+
+    private void apply(WarpStorage storage) {
+      operation.apply(storage, warps, invitation);
+    }
+  }
+
+  /**
+   * A write operation of a {@link WarpStorage}.
+   */
+  public enum Operation {
+    ADD_WARPS {
+      @Override
+      void apply(WarpStorage storage, Collection<Warp> warps, @Nullable PlayerMatcher invitation) {
+        // the warps might have been added before the write was acknowledged, newer data must not be replaced
+        Set<String> existing =
+            storage.getWarps(warps.stream().map(Warp::getName).collect(Collectors.toList())).stream()
+                .map(Warp::getName).collect(Collectors.toSet());
+        List<Warp> missing = warps.stream().filter(warp -> !existing.contains(warp.getName()))
+            .collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+          storage.addWarps(missing);
+        }
+      }
+    },
+    REMOVE_WARPS {
+      @Override
+      void apply(WarpStorage storage, Collection<Warp> warps, @Nullable PlayerMatcher invitation) {
+        storage.removeWarps(warps);
+      }
+    },
+    ADD_INVITATION {
+      @Override
+      void apply(WarpStorage storage, Collection<Warp> warps, @Nullable PlayerMatcher invitation) {
+        warps.forEach(warp -> storage.addInvitation(warp, invitation));
+      }
+    },
+    REMOVE_INVITATION {
+      @Override
+      void apply(WarpStorage storage, Collection<Warp> warps, @Nullable PlayerMatcher invitation) {
+        warps.forEach(warp -> storage.removeInvitation(warp, invitation));
+      }
+    },
+    UPDATE_CREATOR {
+      @Override
+      void apply(WarpStorage storage, Collection<Warp> warps, @Nullable PlayerMatcher invitation) {
+        warps.forEach(storage::updateCreator);
+      }
+    },
+    UPDATE_LOCATION {
+      @Override
+      void apply(WarpStorage storage, Collection<Warp> warps, @Nullable PlayerMatcher invitation) {
+        warps.forEach(storage::updateLocation);
+      }
+    },
+    UPDATE_TYPE {
+      @Override
+      void apply(WarpStorage storage, Collection<Warp> warps, @Nullable PlayerMatcher invitation) {
+        warps.forEach(storage::updateType);
+      }
+    },
+    UPDATE_VISITS {
+      @Override
+      void apply(WarpStorage storage, Collection<Warp> warps, @Nullable PlayerMatcher invitation) {
+        warps.forEach(storage::updateVisits);
+      }
+    },
+    UPDATE_WELCOME_MESSAGE {
+      @Override
+      void apply(WarpStorage storage, Collection<Warp> warps, @Nullable PlayerMatcher invitation) {
+        warps.forEach(storage::updateWelcomeMessage);
+      }
+    };
+
+    /**
+     * Applies this operation on the given {@code storage}.
+     *
+     * @param storage    the storage
+     * @param warps      the affected warps
+     * @param invitation the affected invitation, if any
+     */
+    abstract void apply(WarpStorage storage, Collection<Warp> warps, @Nullable PlayerMatcher invitation);
+  }
+}
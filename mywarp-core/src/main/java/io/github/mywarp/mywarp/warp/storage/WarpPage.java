@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.warp.storage;
+
+import com.google.common.collect.ImmutableList;
+import io.github.mywarp.mywarp.warp.Warp;
+
+import java.util.List;
+
+/**
+ * The result of a {@link WarpQuery}: the warps of the requested page and the total number of matching warps.
+ */
+public final class WarpPage {
+
+  private final ImmutableList<Warp> warps;
+  private final int total;
+
+  /**
+   * Creates an instance.
+   *
+   * @param warps the warps of the requested page, in order
+   * @param total the total number of warps matching the query, regardless of the page
+   */
+  public WarpPage(List<Warp> warps, int total) {
+    this.warps = ImmutableList.copyOf(warps);
+    this.total = total;
+  }
+
+  /**
+   * Gets the warps of the requested page, in the order requested by the query.
+   *
+   * @return the warps
+   */
+  public ImmutableList<Warp> getWarps() {
+    return warps;
+  }
+
+  /**
+   * Gets the total number of warps matching the query, regardless of the page.
+   *
+   * @return the total number of matching warps
+   */
+  public int getTotal() {
+    return total;
+  }
+}
@@ -0,0 +1,385 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.warp.storage;
+
+import com.flowpowered.math.vector.Vector3d;
+import com.google.common.collect.ImmutableSet;
+import io.github.mywarp.mywarp.warp.Warp;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Describes a filtered, ordered and paged selection of warps that can be evaluated by a {@link WarpStorage} in a
+ * single query, instead of testing every warp in memory.
+ *
+ * <p>Instances are immutable and created by a {@link Builder}. All criteria are combined with a logical AND.</p>
+ */
+public final class WarpQuery {
+
+  @Nullable
+  private final UUID creator;
+  @Nullable
+  private final String nameContains;
+  @Nullable
+  private final ImmutableSet<UUID> worlds;
+  private final ImmutableSet<UUID> excludedWorlds;
+  @Nullable
+  private final UUID nearWorld;
+  @Nullable
+  private final Vector3d nearPosition;
+  private final double radius;
+  private final boolean restricted;
+  @Nullable
+  private final UUID viewer;
+  private final ImmutableSet<String> viewerGroups;
+  private final Order order;
+  private final int offset;
+  private final int limit;
+
+  private WarpQuery(Builder builder) {
+    this.creator = builder.creator;
+    this.nameContains = builder.nameContains;
+    this.worlds = builder.worlds != null ? ImmutableSet.copyOf(builder.worlds) : null;
+    this.excludedWorlds = ImmutableSet.copyOf(builder.excludedWorlds);
+    this.nearWorld = builder.nearWorld;
+    this.nearPosition = builder.nearPosition;
+    this.radius = builder.radius;
+    this.restricted = builder.restricted;
+    this.viewer = builder.viewer;
+    this.viewerGroups = ImmutableSet.copyOf(builder.viewerGroups);
+    this.order = builder.order;
+    this.offset = builder.offset;
+    this.limit = builder.limit;
+  }
+
+  /**
+   * Creates a new builder.
+   *
+   * @return a new builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Gets the unique identifier of the player who must have created matching warps.
+   *
+   * @return the creator's identifier, if matching warps are restricted to a single creator
+   */
+  public Optional<UUID> getCreator() {
+    return Optional.ofNullable(creator);
+  }
+
+  /**
+   * Gets the String that the names of matching warps must contain, ignoring the case.
+   *
+   * @return the String, if matching warps are restricted by their name
+   */
+  public Optional<String> getNameContains() {
+    return Optional.ofNullable(nameContains);
+  }
+
+  /**
+   * Gets the identifiers of the worlds matching warps must be located in.
+   *
+   * @return the worlds, if matching warps are restricted to certain worlds
+   */
+  public Optional<ImmutableSet<UUID>> getWorlds() {
+    return Optional.ofNullable(worlds);
+  }
+
+  /**
+   * Gets the identifiers of the worlds matching warps must <b>not</b> be located in.
+   *
+   * @return the excluded worlds
+   */
+  public ImmutableSet<UUID> getExcludedWorlds() {
+    return excludedWorlds;
+  }
+
+  /**
+   * Gets the identifier of the world matching warps must be located in, if matching warps must be within {@link
+   * #getRadius()} around {@link #getNearPosition()}.
+   *
+   * @return the world's identifier, if matching warps are restricted to an area
+   */
+  public Optional<UUID> getNearWorld() {
+    return Optional.ofNullable(nearWorld);
+  }
+
+  /**
+   * Gets the center of the area matching warps must be located in. Only set if {@link #getNearWorld()} is present.
+   *
+   * @return the center
+   */
+  @Nullable
+  public Vector3d getNearPosition() {
+    return nearPosition;
+  }
+
+  /**
+   * Gets the radius of the area matching warps must be located in. Only valid if {@link #getNearWorld()} is present.
+   *
+   * @return the radius
+   */
+  public double getRadius() {
+    return radius;
+  }
+
+  /**
+   * Returns whether matching warps are restricted to warps that are public, created by {@link #getViewer()} or that
+   * {@link #getViewer()} or one of {@link #getViewerGroups()} is invited to.
+   *
+   * @return {@code true} if matching warps are restricted by their visibility
+   */
+  public boolean isRestricted() {
+    return restricted;
+  }
+
+  /**
+   * Gets the unique identifier of the player who views matching warps. Only used if {@link #isRestricted()} is
+   * {@code true}.
+   *
+   * @return the viewer's identifier, if the viewer is a player
+   */
+  public Optional<UUID> getViewer() {
+    return Optional.ofNullable(viewer);
+  }
+
+  /**
+   * Gets the identifiers of the groups of the player who views matching warps. Only used if {@link #isRestricted()} is
+   * {@code true}.
+   *
+   * @return the viewer's groups
+   */
+  public ImmutableSet<String> getViewerGroups() {
+    return viewerGroups;
+  }
+
+  /**
+   * Gets the order of matching warps.
+   *
+   * @return the order
+   */
+  public Order getOrder() {
+    return order;
+  }
+
+  /**
+   * Gets the number of matching warps that are skipped.
+   *
+   * @return the offset
+   */
+  public int getOffset() {
+    return offset;
+  }
+
+  /**
+   * Gets the maximum number of matching warps returned.
+   *
+   * @return the limit
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * The orders in which matching warps can be returned. Each order is also a Comparator that orders warps the same
+   * way, ties are broken by the name.
+   */
+  public enum Order implements Comparator<Warp> {
+    /**
+     * Orders warps alphabetically by their name.
+     */
+    NAME(Comparator.comparing(Warp::getName)),
+    /**
+     * Orders warps by their creation date, oldest first.
+     */
+    CREATION_DATE(Comparator.comparing(Warp::getCreationDate)),
+    /**
+     * Orders warps by their number of visits, least visited first.
+     */
+    VISITS(Comparator.comparing(Warp::getVisits)),
+    /**
+     * Orders warps by their number of visits, most visited first.
+     */
+    MOST_VISITED(Comparator.comparing(Warp::getVisits, Comparator.reverseOrder()));
+
+    private final Comparator<Warp> comparator;
+
+    Order(Comparator<Warp> comparator) {
+      this.comparator = comparator.thenComparing(Warp::getName);
+    }
+
+    @Override
+    public int compare(Warp first, Warp second) {
+      return comparator.compare(first, second);
+    }
+  }
+
+  /**
+   * Builds {@link WarpQuery} instances.
+   */
+  public static final class Builder {
+
+    @Nullable
+    private UUID creator;
+    @Nullable
+    private String nameContains;
+    @Nullable
+    private Set<UUID> worlds;
+    private final Set<UUID> excludedWorlds = new HashSet<>();
+    @Nullable
+    private UUID nearWorld;
+    @Nullable
+    private Vector3d nearPosition;
+    private double radius;
+    private boolean restricted;
+    @Nullable
+    private UUID viewer;
+    private Set<String> viewerGroups = ImmutableSet.of();
+    private Order order = Order.NAME;
+    private int offset;
+    private int limit = Integer.MAX_VALUE;
+
+    private Builder() {
+    }
+
+    /**
+     * Restricts matching warps to warps created by the player of the given unique identifier.
+     *
+     * @param creator the creator's identifier
+     * @return this Builder for chaining
+     */
+    public Builder createdBy(UUID creator) {
+      this.creator = checkNotNull(creator);
+      return this;
+    }
+
+    /**
+     * Restricts matching warps to warps whose name contains the given String, ignoring the case.
+     *
+     * @param nameContains the String
+     * @return this Builder for chaining
+     */
+    public Builder nameContains(String nameContains) {
+      this.nameContains = checkNotNull(nameContains);
+      return this;
+    }
+
+    /**
+     * Restricts matching warps to warps located in one of the worlds with the given identifiers.
+     *
+     * @param worlds the worlds' identifiers
+     * @return this Builder for chaining
+     */
+    public Builder inWorlds(Collection<UUID> worlds) {
+      this.worlds = new HashSet<>(worlds);
+      return this;
+    }
+
+    /**
+     * Excludes warps located in one of the worlds with the given identifiers. Calling this method several times
+     * excludes the worlds of all calls.
+     *
+     * @param worlds the worlds' identifiers
+     * @return this Builder for chaining
+     */
+    public Builder excludeWorlds(Collection<UUID> worlds) {
+      this.excludedWorlds.addAll(worlds);
+      return this;
+    }
+
+    /**
+     * Restricts matching warps to warps located within the given radius around the given position.
+     *
+     * @param world    the identifier of the world of the position
+     * @param position the position
+     * @param radius   the radius
+     * @return this Builder for chaining
+     */
+    public Builder near(UUID world, Vector3d position, double radius) {
+      checkArgument(radius >= 0, "The radius must not be negative.");
+      this.nearWorld = checkNotNull(world);
+      this.nearPosition = checkNotNull(position);
+      this.radius = radius;
+      return this;
+    }
+
+    /**
+     * Restricts matching warps to warps that are public, created by the given viewer or that the given viewer or one
+     * of the given groups is invited to.
+     *
+     * @param viewer the viewer's identifier - may be {@code null} if the viewer is not a player
+     * @param groups the identifiers of the viewer's groups
+     * @return this Builder for chaining
+     */
+    public Builder viewableBy(@Nullable UUID viewer, Set<String> groups) {
+      this.restricted = true;
+      this.viewer = viewer;
+      this.viewerGroups = checkNotNull(groups);
+      return this;
+    }
+
+    /**
+     * Sets the order of matching warps.
+     *
+     * @param order the order
+     * @return this Builder for chaining
+     */
+    public Builder orderBy(Order order) {
+      this.order = checkNotNull(order);
+      return this;
+    }
+
+    /**
+     * Skips the given number of matching warps and returns at most {@code limit} of the following ones.
+     *
+     * @param offset the number of matching warps to skip
+     * @param limit  the maximum number of warps to return
+     * @return this Builder for chaining
+     */
+    public Builder page(int offset, int limit) {
+      checkArgument(offset >= 0, "The offset must not be negative.");
+      checkArgument(limit > 0, "The limit must be positive.");
+      this.offset = offset;
+      this.limit = limit;
+      return this;
+    }
+
+    /**
+     * Builds a WarpQuery with the values of this Builder.
+     *
+     * @return the WarpQuery
+     */
+    public WarpQuery build() {
+      return new WarpQuery(this);
+    }
+  }
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.warp.storage;
+
+import com.flowpowered.math.vector.Vector2f;
+import com.flowpowered.math.vector.Vector3d;
+import com.google.common.collect.ImmutableList;
+import io.github.mywarp.mywarp.util.MyWarpLogger;
+import io.github.mywarp.mywarp.util.playermatcher.GroupPlayerMatcher;
+import io.github.mywarp.mywarp.util.playermatcher.PlayerMatcher;
+import io.github.mywarp.mywarp.util.playermatcher.UuidPlayerMatcher;
+import io.github.mywarp.mywarp.warp.Warp;
+import io.github.mywarp.mywarp.warp.WarpBuilder;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * A binary snapshot of warps, together with the {@link StorageFingerprint} of the storage the warps were read from.
+ *
+ * <p>Snapshots allow to make warps available immediately on startup, without reading them from the storage. Callers
+ * are expected to validate a snapshot by comparing its fingerprint with the current fingerprint of the storage.</p>
+ *
+ * <p>The file format is versioned and checksummed. After a fixed header, the file contains the fingerprint, a table
+ * of all unique IDs and all strings used by the warps, one fixed-width record per warp and a table of
+ * invitations referenced by the records. Files are read using a memory-mapped {@link FileChannel}.</p>
+ */
+public final class WarpSnapshot {
+
+  private static final Logger log = MyWarpLogger.getLogger(WarpSnapshot.class);
+
+  private static final int MAGIC = 0x4D575350;
+  private static final int VERSION = 1;
+
+  /**
+   * Magic, version, checksum and body length.
+   */
+  private static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+  /**
+   * Name, creator, world, type, position, rotation, creation date, visits, welcome message and invitation range.
+   */
+  private static final int RECORD_BYTES =
+      3 * Integer.BYTES + Byte.BYTES + 3 * Double.BYTES + 2 * Float.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES
+          + Integer.BYTES + 2 * Integer.BYTES;
+
+  private final ImmutableList<Warp> warps;
+  private final StorageFingerprint fingerprint;
+
+  private WarpSnapshot(ImmutableList<Warp> warps, StorageFingerprint fingerprint) {
+    this.warps = warps;
+    this.fingerprint = fingerprint;
+  }
+
+  /**
+   * Reads the snapshot stored in the given {@code file}.
+   *
+   * <p>If the file does not exist, was written by an incompatible version or is corrupted, an empty Optional is
+   * returned.</p>
+   *
+   * @param file the file
+   * @return an Optional with the snapshot
+   */
+  public static Optional<WarpSnapshot> read(Path file) {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_BYTES + StorageFingerprint.BYTES || size > Integer.MAX_VALUE) {
+        throw new IOException("Invalid file size: " + size);
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+      if (buffer.getInt() != MAGIC) {
+        throw new IOException("Not a warp snapshot.");
+      }
+      int version = buffer.getInt();
+      if (version != VERSION) {
+        log.info("Ignoring warp snapshot with unsupported version {}.", version);
+        return Optional.empty();
+      }
+      long checksum = buffer.getLong();
+      int bodyLength = buffer.getInt();
+      if (bodyLength != size - HEADER_BYTES) {
+        throw new IOException("Invalid body length: " + bodyLength);
+      }
+
+      ByteBuffer body = buffer.slice();
+      CRC32 crc = new CRC32();
+      crc.update(body.duplicate());
+      if (crc.getValue() != checksum) {
+        throw new IOException("Checksum mismatch.");
+      }
+
+      return Optional.of(decode(body));
+    } catch (NoSuchFileException e) {
+      return Optional.empty();
+    } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+      log.warn(String.format("Failed to read warp snapshot '%s', it will be ignored.", file), e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Captures the given {@code warps} so that they can be written as a snapshot later.
+   *
+   * <p>All values are copied when this method is called, so the returned instance is not affected by later changes
+   * of the given warps.</p>
+   *
+   * @param warps the warps
+   * @return the captured warps
+   */
+  public static Capture capture(Collection<Warp> warps) {
+    return new Capture(encodeWarps(warps), warps.size());
+  }
+
+  /**
+   * Encodes the given {@code warps} in the format used by snapshots, without any header or fingerprint.
+   *
+   * @param warps the warps
+   * @return a buffer with the encoded warps, ready to be read
+   * @see #decodeWarps(ByteBuffer)
+   */
+  static ByteBuffer encodeWarps(Collection<Warp> warps) {
+    Map<UUID, Integer> uuids = new LinkedHashMap<>();
+    Map<String, Integer> strings = new LinkedHashMap<>();
+
+    ByteBuffer records = ByteBuffer.allocate(warps.size() * RECORD_BYTES);
+    List<Integer> invitations = new ArrayList<>();
+
+    for (Warp warp : warps) {
+      Vector3d position = warp.getPosition();
+      Vector2f rotation = warp.getRotation();
+      Instant creationDate = warp.getCreationDate();
+      ImmutableList<PlayerMatcher> warpInvitations = warp.getInvitations().asList();
+
+      records.putInt(intern(strings, warp.getName()));
+      records.putInt(intern(uuids, warp.getCreator()));
+      records.putInt(intern(uuids, warp.getWorldIdentifier()));
+      records.put((byte) warp.getType().ordinal());
+      records.putDouble(position.getX()).putDouble(position.getY()).putDouble(position.getZ());
+      records.putFloat(rotation.getX()).putFloat(rotation.getY());
+      records.putLong(creationDate.getEpochSecond()).putInt(creationDate.getNano());
+      records.putInt(warp.getVisits());
+      records.putInt(intern(strings, warp.getWelcomeMessage()));
+      records.putInt(invitations.size()).putInt(warpInvitations.size());
+
+      for (PlayerMatcher invitation : warpInvitations) {
+        if (invitation instanceof UuidPlayerMatcher) {
+          invitations.add(intern(uuids, ((UuidPlayerMatcher) invitation).getCriteria()));
+        } else if (invitation instanceof GroupPlayerMatcher) {
+          // group invitations are stored as the complement of the string index
+          invitations.add(~intern(strings, ((GroupPlayerMatcher) invitation).getCriteria()));
+        } else {
+          assert false;
+        }
+      }
+    }
+
+    List<byte[]> encodedStrings = new ArrayList<>(strings.size());
+    int stringBytes = 0;
+    for (String string : strings.keySet()) {
+      byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+      encodedStrings.add(encoded);
+      stringBytes += Integer.BYTES + encoded.length;
+    }
+
+    ByteBuffer body = ByteBuffer.allocate(
+        Integer.BYTES + uuids.size() * 2 * Long.BYTES + Integer.BYTES + stringBytes + Integer.BYTES + records.capacity()
+            + Integer.BYTES + invitations.size() * Integer.BYTES);
+
+    body.putInt(uuids.size());
+    for (UUID uuid : uuids.keySet()) {
+      body.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+    }
+    body.putInt(encodedStrings.size());
+    for (byte[] encoded : encodedStrings) {
+      body.putInt(encoded.length).put(encoded);
+    }
+    body.putInt(warps.size());
+    records.flip();
+    body.put(records);
+    body.putInt(invitations.size());
+    for (int invitation : invitations) {
+      body.putInt(invitation);
+    }
+    body.flip();
+    return body;
+  }
+
+  private static <T> int intern(Map<T, Integer> table, T value) {
+    return table.computeIfAbsent(value, v -> table.size());
+  }
+
+  private static WarpSnapshot decode(ByteBuffer body) {
+    StorageFingerprint fingerprint = StorageFingerprint.read(body);
+    return new WarpSnapshot(decodeWarps(body), fingerprint);
+  }
+
+  /**
+   * Decodes warps previously encoded by {@link #encodeWarps(Collection)}, starting at the current position of the
+   * given {@code body}. Once this method returns, the buffer is positioned after the encoded warps.
+   *
+   * @param body the buffer
+   * @return the decoded warps
+   */
+  static ImmutableList<Warp> decodeWarps(ByteBuffer body) {
+    UUID[] uuids = new UUID[body.getInt()];
+    for (int i = 0; i < uuids.length; i++) {
+      uuids[i] = new UUID(body.getLong(), body.getLong());
+    }
+
+    String[] strings = new String[body.getInt()];
+    for (int i = 0; i < strings.length; i++) {
+      byte[] encoded = new byte[body.getInt()];
+      body.get(encoded);
+      strings[i] = new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    int warpCount = body.getInt();
+    ByteBuffer records = body.slice();
+    records.limit(warpCount * RECORD_BYTES);
+    body.position(body.position() + warpCount * RECORD_BYTES);
+
+    int[] invitations = new int[body.getInt()];
+    body.asIntBuffer().get(invitations);
+    body.position(body.position() + invitations.length * Integer.BYTES);
+
+    Warp.Type[] types = Warp.Type.values();
+    ImmutableList.Builder<Warp> warps = ImmutableList.builder();
+
+    for (int i = 0; i < warpCount; i++) {
+      String name = strings[records.getInt()];
+      UUID creator = uuids[records.getInt()];
+      UUID world = uuids[records.getInt()];
+      Warp.Type type = types[records.get()];
+      Vector3d position = new Vector3d(records.getDouble(), records.getDouble(), records.getDouble());
+      Vector2f rotation = new Vector2f(records.getFloat(), records.getFloat());
+      Instant creationDate = Instant.ofEpochSecond(records.getLong(), records.getInt());
+      int visits = records.getInt();
+      String welcomeMessage = strings[records.getInt()];
+      int invitationOffset = records.getInt();
+      int invitationCount = records.getInt();
+
+      WarpBuilder builder = new WarpBuilder(name, creator, world, position, rotation);
+      builder.setType(type);
+      builder.setCreationDate(creationDate);
+      builder.setVisits(visits);
+      builder.setWelcomeMessage(welcomeMessage);
+
+      for (int j = invitationOffset; j < invitationOffset + invitationCount; j++) {
+        int invitation = invitations[j];
+        if (invitation >= 0) {
+          builder.addInvitation(new UuidPlayerMatcher(uuids[invitation]));
+        } else {
+          builder.addInvitation(new GroupPlayerMatcher(strings[~invitation]));
+        }
+      }
+      warps.add(builder.build());
+    }
+    return warps.build();
+  }
+
+  /**
+   * Gets all warps contained in this snapshot.
+   *
+   * @return all warps
+   */
+  public ImmutableList<Warp> getWarps() {
+    return warps;
+  }
+
+  /**
+   * Gets the fingerprint of the storage at the time this snapshot was written.
+   *
+   * @return the fingerprint
+   */
+  public StorageFingerprint getFingerprint() {
+    return fingerprint;
+  }
+
+  /**
+   * Warps captured for a snapshot.
+   *
+   * @see #capture(Collection)
+   */
+  public static final class Capture {
+
+    private final ByteBuffer body;
+    private final int warpCount;
+
+    private Capture(ByteBuffer body, int warpCount) {
+      this.body = body;
+      this.warpCount = warpCount;
+    }
+
+    /**
+     * Gets the number of captured warps.
+     *
+     * @return the number of warps
+     */
+    public int getWarpCount() {
+      return warpCount;
+    }
+
+    /**
+     * Writes the captured warps as snapshot to the given {@code file}, together with the given {@code fingerprint}.
+     *
+     * <p>The snapshot is written to a temporary file first that then replaces the given {@code file}, so an existing
+     * snapshot is never left in a partially written state.</p>
+     *
+     * @param file        the file
+     * @param fingerprint the fingerprint of the storage that matches the captured warps
+     * @throws IOException if writing fails
+     */
+    public void write(Path file, StorageFingerprint fingerprint) throws IOException {
+      ByteBuffer contents = ByteBuffer.allocate(HEADER_BYTES + StorageFingerprint.BYTES + body.remaining());
+      contents.position(HEADER_BYTES);
+      fingerprint.write(contents);
+      contents.put(body.duplicate());
+
+      ByteBuffer checked = contents.duplicate();
+      checked.position(HEADER_BYTES);
+      CRC32 crc = new CRC32();
+      crc.update(checked);
+
+      contents.putInt(0, MAGIC);
+      contents.putInt(Integer.BYTES, VERSION);
+      contents.putLong(2 * Integer.BYTES, crc.getValue());
+      contents.putInt(2 * Integer.BYTES + Long.BYTES, contents.capacity() - HEADER_BYTES);
+      contents.rewind();
+
+      Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+      try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING)) {
+        while (contents.hasRemaining()) {
+          channel.write(contents);
+        }
+        channel.force(true);
+      }
+      Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+  }
+}
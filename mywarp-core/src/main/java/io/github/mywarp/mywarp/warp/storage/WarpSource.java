@@ -19,9 +19,14 @@
 
 package io.github.mywarp.mywarp.warp.storage;
 
+import com.google.common.collect.Lists;
 import io.github.mywarp.mywarp.warp.Warp;
 
+import javax.annotation.Nullable;
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Indicates that an implementation stores {@code Warp}s that can be read.
@@ -35,4 +40,49 @@ public interface WarpSource {
    */
   List<Warp> getWarps();
 
+  /**
+   * Passes all readable {@code Warp}s whose name comes after the given {@code afterName} to the given {@code
+   * consumer}, in chunks ordered by name.
+   *
+   * <p>This allows callers to process large sources in parts and to resume from the name of the last {@code Warp} they
+   * processed. If {@code consumer} throws an exception, no further chunks are read and the exception is rethrown. The
+   * order of names is defined by the implementation, but is the same for all calls on the same source.</p>
+   *
+   * <p>The default implementation reads all {@code Warp}s via {@link #getWarps()}. Implementations should override
+   * it to read the {@code Warp}s chunk by chunk.</p>
+   *
+   * @param afterName the name after which {@code Warp}s should be passed, or {@code null} to pass all {@code Warp}s
+   * @param consumer  the consumer that receives each chunk
+   * @return the number of {@code Warp}s passed to {@code consumer}
+   */
+  default int forEachChunk(@Nullable String afterName, Consumer<? super List<Warp>> consumer) {
+    List<Warp> warps = getWarps().stream().filter(warp -> afterName == null || warp.getName().compareTo(afterName) > 0)
+        .sorted(Comparator.comparing(Warp::getName)).collect(Collectors.toList());
+    Lists.partition(warps, 1000).forEach(consumer);
+    return warps.size();
+  }
+
+  /**
+   * Passes all readable {@code Warp}s whose name comes after the given {@code afterName} to the given {@code
+   * consumer}, in chunks ordered by name, and the names of entries that cannot be converted into {@code Warp}s to the
+   * given {@code unconvertedConsumer}.
+   *
+   * <p>This method behaves like {@link #forEachChunk(String, Consumer)}, but chunks end before each entry that cannot
+   * be converted. The name of such an entry is passed to {@code unconvertedConsumer} after all {@code Warp}s that come
+   * before it and before all {@code Warp}s that come after it have been passed to {@code consumer}.</p>
+   *
+   * <p>The default implementation calls {@link #forEachChunk(String, Consumer)}, as all entries can be converted.
+   * Implementations that may encounter entries that cannot be converted should override it.</p>
+   *
+   * @param afterName           the name after which {@code Warp}s should be passed, or {@code null} to pass all
+   *                            {@code Warp}s
+   * @param consumer            the consumer that receives each chunk
+   * @param unconvertedConsumer the consumer that receives the name of each entry that cannot be converted
+   * @return the number of {@code Warp}s passed to {@code consumer}
+   */
+  default int forEachChunk(@Nullable String afterName, Consumer<? super List<Warp>> consumer,
+                           Consumer<? super String> unconvertedConsumer) {
+    return forEachChunk(afterName, consumer);
+  }
+
 }
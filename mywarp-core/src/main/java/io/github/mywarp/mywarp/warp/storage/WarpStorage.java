@@ -22,6 +22,12 @@ package io.github.mywarp.mywarp.warp.storage;
 import io.github.mywarp.mywarp.util.playermatcher.PlayerMatcher;
 import io.github.mywarp.mywarp.warp.Warp;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
 /**
  * A connection to a data storage, e.g. a rational database.
  */
@@ -34,6 +40,16 @@ public interface WarpStorage extends WarpSource {
    */
   void addWarp(Warp warp);
 
+  /**
+   * Adds all given {@code Warp}s to the underlying data storage.
+   *
+   * <p>Implementations should add all {@code Warp}s as one unit, which is considerably faster than calling {@link
+   * #addWarp(Warp)} for every single {@code Warp}.</p>
+   *
+   * @param warps the {@code Warp}s to add
+   */
+  void addWarps(Collection<Warp> warps);
+
   /**
    * Removes the given {@code Warp} from the underlying data storage.
    *
@@ -41,6 +57,105 @@ public interface WarpStorage extends WarpSource {
    */
   void removeWarp(Warp warp);
 
+  /**
+   * Removes all given {@code Warp}s from the underlying data storage.
+   *
+   * @param warps the {@code Warp}s to remove
+   */
+  void removeWarps(Collection<Warp> warps);
+
+  /**
+   * Gets a {@link StorageFingerprint} of the current contents of the underlying data storage.
+   *
+   * <p>Computing the fingerprint is expected to be considerably cheaper than reading all {@code Warp}s.</p>
+   *
+   * @return the fingerprint
+   */
+  StorageFingerprint getFingerprint();
+
+  /**
+   * Gets all {@code Warp}s with the given names from the underlying data storage. Names of warps that are not stored
+   * are ignored.
+   *
+   * @param names the names of the {@code Warp}s
+   * @return a list of the {@code Warp}s with the given names
+   */
+  List<Warp> getWarps(Collection<String> names);
+
+  /**
+   * Gets the names of all {@code Warp}s stored in the underlying data storage.
+   *
+   * <p>Unlike {@link #getWarps()}, this method does not read any other values, so it is considerably cheaper for large
+   * numbers of {@code Warp}s.</p>
+   *
+   * @return a list of the names of all stored {@code Warp}s
+   */
+  List<String> getWarpNames();
+
+  /**
+   * Gets the page of {@code Warp}s that match the given query from the underlying data storage, together with the total
+   * number of matching {@code Warp}s.
+   *
+   * <p>Implementations should evaluate the query without reading all stored {@code Warp}s.</p>
+   *
+   * @param query the query
+   * @return the requested page of matching {@code Warp}s
+   */
+  WarpPage getWarps(WarpQuery query);
+
+  /**
+   * Gets the identifiers of all groups that are invited to at least one {@code Warp} stored in the underlying data
+   * storage.
+   *
+   * @return the identifiers of all invited groups
+   */
+  Set<String> getInvitedGroups();
+
+  /**
+   * Passes all {@code Warp}s stored in the underlying data storage to the given {@code consumer}, one after the other.
+   *
+   * <p>Unlike {@link #getWarps()}, implementations should not hold all {@code Warp}s in memory at once, so that
+   * memory consumption does not grow with the number of stored {@code Warp}s.</p>
+   *
+   * @param consumer the consumer that receives each {@code Warp}
+   * @return the number of {@code Warp}s passed to {@code consumer}
+   */
+  int forEachWarp(Consumer<? super Warp> consumer);
+
+  /**
+   * Gets the changes recorded after the change with the given ID and the changes with the given
+   * {@code missingChangeIds}, limited to the given number of changes.
+   *
+   * <p>Every write to the underlying data storage is recorded in a change-log that is shared by all instances that
+   * use the same data storage, so that they can pick up changes made by others. IDs are assigned when a change is
+   * recorded, but changes only become visible once the recording transaction commits. As concurrent transactions may
+   * commit out of order, a change might become visible after a change with a higher ID has already been read. Callers
+   * should therefore pass the IDs that were skipped so far as {@code missingChangeIds}, until they show up or are
+   * considered lost. Visit counts are not recorded.</p>
+   *
+   * @param afterChangeId    the ID of the change after which changes should be returned
+   * @param missingChangeIds the IDs of changes at or before {@code afterChangeId} that have not been read yet
+   * @param limit            the maximum number of changes
+   * @return the changes
+   */
+  WarpChanges getChanges(long afterChangeId, Collection<Long> missingChangeIds, int limit);
+
+  /**
+   * Gets the ID of the latest change recorded in the change-log or {@code 0} if the change-log is empty.
+   *
+   * @return the ID of the latest change
+   * @see #getChanges(long, Collection, int)
+   */
+  long getLatestChangeId();
+
+  /**
+   * Removes all changes that were recorded before the given {@code Instant} from the change-log.
+   *
+   * @param before the {@code Instant}
+   * @see #getChanges(long, Collection, int)
+   */
+  void pruneChanges(Instant before);
+
   /**
    * Adds the given playermatcher to the given {@code Warp}.
    *
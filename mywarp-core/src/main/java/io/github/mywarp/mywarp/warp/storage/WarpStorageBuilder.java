@@ -27,33 +27,53 @@ import org.flywaydb.core.api.FlywayException;
 import org.flywaydb.core.api.configuration.FluentConfiguration;
 import org.flywaydb.core.api.logging.Log;
 import org.flywaydb.core.api.logging.LogFactory;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Name;
+import org.jooq.Record;
+import org.jooq.Record2;
 import org.jooq.SQLDialect;
+import org.jooq.Table;
 import org.jooq.conf.MappedSchema;
 import org.jooq.conf.RenderMapping;
 import org.jooq.conf.Settings;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
 import org.jooq.impl.DefaultConfiguration;
 import org.jooq.tools.jdbc.JDBCUtils;
 import org.slf4j.Logger;
 
 import javax.annotation.Nullable;
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
 import static org.jooq.SQLDialect.*;
+import static org.jooq.impl.DSL.count;
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.name;
+import static org.jooq.impl.DSL.table;
 
 /**
  * Builds {@link WarpStorage} instances.
  */
 public class WarpStorageBuilder {
 
+  private static final Logger log = MyWarpLogger.getLogger(WarpStorageBuilder.class);
   private static final Map<SQLDialect, String>
       SUPPORTED_DIALECTS =
       ImmutableMap.<SQLDialect, String>builder().put(H2, "h2").put(MARIADB, "mysql").put(MYSQL, "mysql")
           .put(SQLITE, "sqlite").build();
   private static final String MIGRATION_PATH = "classpath:migrations/";
   private static final String FLYWAY_TABLE_NAME = "schema_version";
+  private static final String MANIFEST_PATH = "migrations/manifest.properties";
+  private static final int MAX_NAME_LENGTH = 32;
 
   private final DataSource dataSource;
   private final SQLDialect dialect;
@@ -114,6 +134,25 @@ public class WarpStorageBuilder {
     };
   }
 
+  /**
+   * Opens the embedded key-value storage in the given file, creating the file if it does not exist.
+   *
+   * <p>The returned storage does not require a database, but can only be used by a single instance at once. It is
+   * {@link java.io.Closeable} and must be closed once it is no longer used.</p>
+   *
+   * @param file the file warps are stored in
+   * @return a WarpStorage instance
+   * @throws TableInitializationException if the file cannot be opened, e.g. because it is already in use
+   */
+  public static WarpStorage buildEmbedded(Path file) throws TableInitializationException {
+    try {
+      return MvStoreWarpStorage.open(file);
+    } catch (IllegalStateException e) {
+      // MVStoreException in later versions of H2
+      throw new TableInitializationException(e);
+    }
+  }
+
   /**
    * Returns a builder that will build instaces and attempt to initialize the SQL tables as expected.
    *
@@ -148,7 +187,9 @@ public class WarpStorageBuilder {
     }
 
     //Initialize the tables, fail on error.
-    if (initTables) {
+    if (initTables && isSchemaCurrent()) {
+      log.debug("The database schema is up to date, skipping migrations.");
+    } else if (initTables) {
       LogFactory.setFallbackLogCreator(WarpStorageBuilder::logger);
 
       FluentConfiguration
@@ -162,6 +203,10 @@ public class WarpStorageBuilder {
         //REVIEW use default placeholders? https://flywaydb.org/documentation/placeholders
       }
 
+      if (dialect == H2) {
+        renameDuplicateWarps();
+      }
+
       Flyway flyway = flywayConfig.load();
       try {
         flyway.migrate();
@@ -175,6 +220,82 @@ public class WarpStorageBuilder {
     return new JooqWarpStorage(new DefaultConfiguration().set(dialect).set(settings()).set(dataSource));
   }
 
+  /**
+   * Returns whether the latest migration applied to the database equals the latest migration listed in the manifest
+   * that is generated when building MyWarp. This check is considerably cheaper than letting Flyway scan and validate
+   * all migrations. If the check fails for any reason, {@code false} is returned.
+   */
+  private boolean isSchemaCurrent() {
+    @Nullable String expected = readManifest().getProperty(SUPPORTED_DIALECTS.get(dialect));
+    if (expected == null) {
+      return false;
+    }
+
+    Name table = schema != null ? name(schema, FLYWAY_TABLE_NAME) : name(FLYWAY_TABLE_NAME);
+    try (Connection conn = dataSource.getConnection()) {
+      // @formatter:off
+      Record2<String, Boolean> latest = DSL.using(conn, dialect)
+          .select(field(name("version"), String.class), field(name("success"), Boolean.class))
+          .from(table(table))
+          .orderBy(field(name("installed_rank")).desc())
+          .limit(1)
+          .fetchOne();
+      // @formatter:on
+      return latest != null && latest.value2() && expected.equals(latest.value1());
+    } catch (SQLException | DataAccessException e) {
+      // e.g. if the table does not exist yet
+      log.debug("Failed to read the applied migrations, migrations will be run.", e);
+      return false;
+    }
+  }
+
+  /**
+   * Renames warps whose names are not unique, so that the unique index on warp names can be created. H2 databases that
+   * were created by earlier versions do not enforce unique names. The oldest warp keeps its name, all others are
+   * renamed and logged.
+   */
+  private void renameDuplicateWarps() throws SQLException {
+    Table<Record> warp = table(schema != null ? name(schema, "warp") : name("warp"));
+    Field<Long> warpId = field(name("warp_id"), Long.class);
+    Field<String> warpName = field(name("name"), String.class);
+
+    try (Connection conn = dataSource.getConnection()) {
+      DSLContext create = DSL.using(conn, dialect);
+      List<String> duplicates;
+      try {
+        duplicates = create.select(warpName).from(warp).groupBy(warpName).having(count().gt(1)).fetch(warpName);
+      } catch (DataAccessException e) {
+        // e.g. if the table does not exist yet
+        log.debug("Failed to read duplicate warp names, assuming there are none.", e);
+        return;
+      }
+
+      for (String duplicate : duplicates) {
+        List<Long> ids = create.select(warpId).from(warp).where(warpName.eq(duplicate)).orderBy(warpId).fetch(warpId);
+        for (Long id : ids.subList(1, ids.size())) {
+          String suffix = "-" + id;
+          String renamed = duplicate.substring(0, Math.min(duplicate.length(), MAX_NAME_LENGTH - suffix.length()))
+                           + suffix;
+          create.update(warp).set(warpName, renamed).where(warpId.eq(id)).execute();
+          log.warn("The warp '{}' (ID {}) has been renamed to '{}', because another warp has the same name.", duplicate,
+              id, renamed);
+        }
+      }
+    }
+  }
+
+  private static Properties readManifest() {
+    Properties manifest = new Properties();
+    try (InputStream in = WarpStorageBuilder.class.getClassLoader().getResourceAsStream(MANIFEST_PATH)) {
+      if (in != null) {
+        manifest.load(in);
+      }
+    } catch (IOException e) {
+      log.warn("Failed to read the migration manifest.", e);
+    }
+    return manifest;
+  }
+
   private String migrationPath(SQLDialect dialect) throws UnsupportedDialectException {
     if (SUPPORTED_DIALECTS.containsKey(dialect)) {
       return MIGRATION_PATH + SUPPORTED_DIALECTS.get(dialect);
@@ -189,4 +310,18 @@ public class WarpStorageBuilder {
     return new Settings().withRenderMapping(new RenderMapping().withSchemata(
         new MappedSchema().withInput(Tables.WARP.getSchema().getName()).withOutput(schema)));
   }
+
+  /**
+   * The kinds of storage backends warps can be stored in.
+   */
+  public enum Backend {
+    /**
+     * A relational database that is accessed via JDBC.
+     */
+    SQL,
+    /**
+     * An embedded key-value store in a single file.
+     */
+    EMBEDDED
+  }
 }
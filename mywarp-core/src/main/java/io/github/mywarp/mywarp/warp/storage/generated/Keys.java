@@ -30,6 +30,7 @@ import org.jooq.Record;
 import org.jooq.UniqueKey;
 import org.jooq.impl.AbstractKeys;
 import org.jooq.types.UInteger;
+import org.jooq.types.ULong;
 
 import javax.annotation.Generated;
 
@@ -48,6 +49,7 @@ public class Keys {
   public static final Identity<Record, UInteger> IDENTITY_GROUP = Identities0.IDENTITY_GROUP;
   public static final Identity<Record, UInteger> IDENTITY_PLAYER = Identities0.IDENTITY_PLAYER;
   public static final Identity<Record, UInteger> IDENTITY_WARP = Identities0.IDENTITY_WARP;
+  public static final Identity<Record, ULong> IDENTITY_WARP_CHANGE = Identities0.IDENTITY_WARP_CHANGE;
   public static final Identity<Record, UInteger> IDENTITY_WORLD = Identities0.IDENTITY_WORLD;
 
   // -------------------------------------------------------------------------
@@ -60,6 +62,7 @@ public class Keys {
   public static final UniqueKey<Record> KEY_PLAYER_PLAYER_UUID_UQ = UniqueKeys0.KEY_PLAYER_PLAYER_UUID_UQ;
   public static final UniqueKey<Record> KEY_WARP_PRIMARY = UniqueKeys0.KEY_WARP_PRIMARY;
   public static final UniqueKey<Record> KEY_WARP_WARP_NAME_UQ = UniqueKeys0.KEY_WARP_WARP_NAME_UQ;
+  public static final UniqueKey<Record> KEY_WARP_CHANGE_PRIMARY = UniqueKeys0.KEY_WARP_CHANGE_PRIMARY;
   public static final UniqueKey<Record> KEY_WARP_GROUP_MAP_PRIMARY = UniqueKeys0.KEY_WARP_GROUP_MAP_PRIMARY;
   public static final UniqueKey<Record> KEY_WARP_PLAYER_MAP_PRIMARY = UniqueKeys0.KEY_WARP_PLAYER_MAP_PRIMARY;
   public static final UniqueKey<Record> KEY_WORLD_PRIMARY = UniqueKeys0.KEY_WORLD_PRIMARY;
@@ -87,6 +90,9 @@ public class Keys {
     public static Identity<Record, UInteger> IDENTITY_GROUP = createIdentity(Group.GROUP, Group.GROUP.GROUP_ID);
     public static Identity<Record, UInteger> IDENTITY_PLAYER = createIdentity(Player.PLAYER, Player.PLAYER.PLAYER_ID);
     public static Identity<Record, UInteger> IDENTITY_WARP = createIdentity(Warp.WARP, Warp.WARP.WARP_ID);
+    public static Identity<Record, ULong>
+        IDENTITY_WARP_CHANGE =
+        createIdentity(WarpChange.WARP_CHANGE, WarpChange.WARP_CHANGE.CHANGE_ID);
     public static Identity<Record, UInteger> IDENTITY_WORLD = createIdentity(World.WORLD, World.WORLD.WORLD_ID);
   }
 
@@ -100,6 +106,9 @@ public class Keys {
         createUniqueKey(Player.PLAYER, Player.PLAYER.UUID);
     public static final UniqueKey<Record> KEY_WARP_PRIMARY = createUniqueKey(Warp.WARP, Warp.WARP.WARP_ID);
     public static final UniqueKey<Record> KEY_WARP_WARP_NAME_UQ = createUniqueKey(Warp.WARP, Warp.WARP.NAME);
+    public static final UniqueKey<Record>
+        KEY_WARP_CHANGE_PRIMARY =
+        createUniqueKey(WarpChange.WARP_CHANGE, WarpChange.WARP_CHANGE.CHANGE_ID);
     public static final UniqueKey<Record>
         KEY_WARP_GROUP_MAP_PRIMARY =
         createUniqueKey(WarpGroupMap.WARP_GROUP_MAP, WarpGroupMap.WARP_GROUP_MAP.WARP_ID,
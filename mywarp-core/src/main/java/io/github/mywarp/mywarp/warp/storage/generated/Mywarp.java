@@ -63,7 +63,7 @@ public class Mywarp extends SchemaImpl {
   }
 
   private final List<Table<?>> getTables0() {
-    return Arrays.<Table<?>>asList(Group.GROUP, Player.PLAYER, Warp.WARP, WarpGroupMap.WARP_GROUP_MAP,
-        WarpPlayerMap.WARP_PLAYER_MAP, World.WORLD);
+    return Arrays.<Table<?>>asList(Group.GROUP, Player.PLAYER, Warp.WARP, WarpChange.WARP_CHANGE,
+        WarpGroupMap.WARP_GROUP_MAP, WarpPlayerMap.WARP_PLAYER_MAP, World.WORLD);
   }
 }
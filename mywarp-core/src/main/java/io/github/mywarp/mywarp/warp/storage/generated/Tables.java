@@ -51,6 +51,11 @@ public class Tables {
    */
   public static final Warp WARP = Warp.WARP;
 
+  /**
+   * The table mywarp.warp_change
+   */
+  public static final WarpChange WARP_CHANGE = WarpChange.WARP_CHANGE;
+
   /**
    * The table mywarp.warp_group_map
    */
@@ -0,0 +1,9 @@
+-- -----------------------------------------------------
+-- Table "${schema}"."revision"
+-- -----------------------------------------------------
+CREATE TABLE "${schema}"."revision" (
+  "revision_id" INT PRIMARY KEY,
+  "counter"     BIGINT NOT NULL DEFAULT '0'
+);
+
+INSERT INTO "${schema}"."revision" ("revision_id", "counter") VALUES (1, 0);
@@ -0,0 +1,11 @@
+-- -----------------------------------------------------
+-- Table "${schema}"."warp_change"
+-- -----------------------------------------------------
+CREATE TABLE "${schema}"."warp_change" (
+  "change_id"  IDENTITY,
+  "warp_name"  VARCHAR(32) NOT NULL,
+  "origin"     UUID        NOT NULL,
+  "changed_at" DATETIME    NOT NULL
+);
+
+CREATE INDEX "warp_change_changed_at_idx" ON "${schema}"."warp_change" ("changed_at");
@@ -0,0 +1,8 @@
+-- -----------------------------------------------------
+-- Table "${schema}"."warp"
+-- -----------------------------------------------------
+-- Unlike the other dialects, H2 never had a unique index on the name, although almost every statement looks up warps
+-- by their name. Duplicate names are renamed before the migrations run (see WarpStorageBuilder), if any remain, the
+-- index cannot be created and the migration fails.
+CREATE UNIQUE INDEX "warp_name_uq"
+  ON "${schema}"."warp" ("name");
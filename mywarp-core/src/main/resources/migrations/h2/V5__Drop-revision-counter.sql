@@ -0,0 +1,6 @@
+-- -----------------------------------------------------
+-- Table "${schema}"."revision"
+-- -----------------------------------------------------
+-- Every write updated the single row of this table, which serialized all writes. The ID of the latest change in
+-- "warp_change" is used instead.
+DROP TABLE "${schema}"."revision";
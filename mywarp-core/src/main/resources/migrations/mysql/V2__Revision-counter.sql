@@ -0,0 +1,11 @@
+-- -----------------------------------------------------
+-- Table `${schema}`.`revision`
+-- -----------------------------------------------------
+CREATE TABLE `${schema}`.`revision` (
+  `revision_id` INT UNSIGNED NOT NULL,
+  `counter`     BIGINT       NOT NULL DEFAULT 0,
+  PRIMARY KEY (`revision_id`)
+)
+  ENGINE = InnoDB;
+
+INSERT INTO `${schema}`.`revision` (`revision_id`, `counter`) VALUES (1, 0);
@@ -0,0 +1,13 @@
+-- -----------------------------------------------------
+-- Table `${schema}`.`warp_change`
+-- -----------------------------------------------------
+CREATE TABLE `${schema}`.`warp_change` (
+  `change_id`  BIGINT UNSIGNED NOT NULL AUTO_INCREMENT,
+  `warp_name`  VARCHAR(32)
+               CHARACTER SET 'utf8mb4' COLLATE 'utf8mb4_bin' NOT NULL,
+  `origin`     VARCHAR(36)     NOT NULL,
+  `changed_at` DATETIME        NOT NULL,
+  PRIMARY KEY (`change_id`),
+  INDEX `warp_change_changed_at_idx` (`changed_at`)
+)
+  ENGINE = InnoDB;
@@ -0,0 +1,13 @@
+-- -----------------------------------------------------
+-- Table `${schema}`.`warp_player_map`
+-- -----------------------------------------------------
+-- The primary key starts with `warp_id`, so it already covers every lookup by warp and the foreign key.
+ALTER TABLE `${schema}`.`warp_player_map`
+  DROP INDEX `warp_player_map_warp_id_idx`;
+
+-- -----------------------------------------------------
+-- Table `${schema}`.`warp_group_map`
+-- -----------------------------------------------------
+-- The primary key starts with `warp_id`, so it already covers every lookup by warp and the foreign key.
+ALTER TABLE `${schema}`.`warp_group_map`
+  DROP INDEX `warp_group_map_warp_id_idx`;
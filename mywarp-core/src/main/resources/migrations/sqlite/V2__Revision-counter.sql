@@ -0,0 +1,9 @@
+-- -----------------------------------------------------
+-- Table "revision"
+-- -----------------------------------------------------
+CREATE TABLE "revision" (
+  "revision_id" INTEGER PRIMARY KEY NOT NULL CHECK ("revision_id" >= 0),
+  "counter"     INTEGER             NOT NULL DEFAULT 0
+);
+
+INSERT INTO "revision" ("revision_id", "counter") VALUES (1, 0);
@@ -0,0 +1,11 @@
+-- -----------------------------------------------------
+-- Table "warp_change"
+-- -----------------------------------------------------
+CREATE TABLE "warp_change" (
+  "change_id"  INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL CHECK ("change_id" >= 0),
+  "warp_name"  VARCHAR(32)                       NOT NULL,
+  "origin"     VARCHAR(36)                       NOT NULL,
+  "changed_at" DATETIME                          NOT NULL
+);
+
+CREATE INDEX "warp_change_changed_at_idx" ON "warp_change" ("changed_at");
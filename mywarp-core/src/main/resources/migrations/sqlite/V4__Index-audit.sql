@@ -0,0 +1,14 @@
+-- -----------------------------------------------------
+-- Table "warp_player_map"
+-- -----------------------------------------------------
+-- The primary key starts with "warp_id", so it already covers every lookup by warp.
+DROP INDEX IF EXISTS "warp_player_map.warp_player_map_warp_id_idx";
+
+-- -----------------------------------------------------
+-- Table "warp_group_map"
+-- -----------------------------------------------------
+-- The primary key starts with "warp_id", so it already covers every lookup by warp.
+DROP INDEX IF EXISTS "warp_group_map.warp_group_map_warp_id_idx";
+
+-- let the query planner pick up the remaining indexes
+ANALYZE;
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.github.mywarp.mywarp.warp.storage;
+
+import org.h2.jdbcx.JdbcDataSource;
+
+import javax.sql.DataSource;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A {@link SqlDataService} that connects to a fresh in-memory H2 database. The database is kept until the JVM exits, so
+ * several storages can be built on the same instance.
+ */
+final class H2DataService implements SqlDataService {
+
+  private final String jdbcUrl;
+  private final JdbcDataSource dataSource = new JdbcDataSource();
+  private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+  H2DataService() {
+    this("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+  }
+
+  private H2DataService(String jdbcUrl) {
+    this.jdbcUrl = jdbcUrl;
+    dataSource.setURL(jdbcUrl);
+  }
+
+  @Override
+  public String getJdbcUrl() {
+    return jdbcUrl;
+  }
+
+  @Override
+  public DataSource getDataSource() {
+    return dataSource;
+  }
+
+  @Override
+  public Optional<String> getDatabase() {
+    return Optional.of("mywarp");
+  }
+
+  @Override
+  public ExecutorService getExecutorService() {
+    return executorService;
+  }
+
+  @Override
+  public SqlDataService duplicate() {
+    return new H2DataService(jdbcUrl);
+  }
+
+  @Override
+  public void close() {
+    executorService.shutdownNow();
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.warp.storage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the migrations of the H2 schema.
+ */
+public class H2MigrationTest {
+
+  private H2DataService dataService;
+
+  @Before
+  public void setUp() throws Exception {
+    dataService = new H2DataService();
+    WarpStorageBuilder.using(dataService).initTables().build();
+  }
+
+  @After
+  public void tearDown() {
+    dataService.close();
+  }
+
+  private String explain(String query) throws SQLException {
+    try (Connection conn = dataService.getDataSource().getConnection(); Statement statement = conn.createStatement();
+         ResultSet result = statement.executeQuery("EXPLAIN " + query)) {
+      assertTrue(result.next());
+      return result.getString(1);
+    }
+  }
+
+  private void execute(String sql) throws SQLException {
+    try (Connection conn = dataService.getDataSource().getConnection(); Statement statement = conn.createStatement()) {
+      statement.execute(sql);
+    }
+  }
+
+  private List<String> warpNames() throws SQLException {
+    List<String> ret = new ArrayList<>();
+    try (Connection conn = dataService.getDataSource().getConnection(); Statement statement = conn.createStatement();
+         ResultSet result = statement.executeQuery("SELECT \"name\" FROM \"mywarp\".\"warp\" ORDER BY \"warp_id\"")) {
+      while (result.next()) {
+        ret.add(result.getString(1));
+      }
+    }
+    return ret;
+  }
+
+  private void insertWarp(String name) throws SQLException {
+    execute("INSERT INTO \"mywarp\".\"warp\" (\"name\", \"x\", \"y\", \"z\", \"pitch\", \"yaw\", \"creation_date\", "
+            + "\"type\") VALUES ('" + name + "', 0, 0, 0, 0, 0, CURRENT_TIMESTAMP, 0)");
+  }
+
+  @Test
+  public void lookupsUseIndexes() throws SQLException {
+    String warp = explain("SELECT * FROM \"mywarp\".\"warp\" WHERE \"name\" = 'spawn'");
+    assertTrue(warp, warp.contains("warp_name_uq"));
+
+    String player = explain("SELECT * FROM \"mywarp\".\"player\" WHERE \"uuid\" = RANDOM_UUID()");
+    assertFalse(player, player.contains("tableScan"));
+
+    String group = explain("SELECT * FROM \"mywarp\".\"group\" WHERE \"name\" = 'admins'");
+    assertFalse(group, group.contains("tableScan"));
+
+    String change = explain("SELECT * FROM \"mywarp\".\"warp_change\" WHERE \"changed_at\" < CURRENT_TIMESTAMP");
+    assertTrue(change, change.contains("warp_change_changed_at_idx"));
+  }
+
+  @Test
+  public void duplicateNamesAreRenamed() throws Exception {
+    // revert V4, as databases created by earlier versions did not enforce unique names
+    execute("DROP INDEX \"mywarp\".\"warp_name_uq\"");
+    execute("DELETE FROM \"mywarp\".\"schema_version\" WHERE \"version\" = '4'");
+    insertWarp("spawn");
+    insertWarp("spawn");
+    insertWarp("market");
+
+    WarpStorageBuilder.using(dataService).initTables().build();
+
+    List<String> names = warpNames();
+    assertEquals("spawn", names.get(0));
+    assertTrue(names.get(1), names.get(1).startsWith("spawn-"));
+    assertEquals("market", names.get(2));
+    assertTrue(explain("SELECT * FROM \"mywarp\".\"warp\" WHERE \"name\" = 'spawn'").contains("warp_name_uq"));
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.github.mywarp.mywarp.warp.storage;
+
+import com.flowpowered.math.vector.Vector2f;
+import com.flowpowered.math.vector.Vector3d;
+import com.google.common.collect.ImmutableSet;
+import io.github.mywarp.mywarp.warp.Warp;
+import io.github.mywarp.mywarp.warp.WarpBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the change-log of {@link JooqWarpStorage} with two instances that share the same database.
+ */
+public class JooqWarpStorageChangeTest {
+
+  private static final ImmutableSet<Long> NONE = ImmutableSet.of();
+
+  private H2DataService dataService;
+  private WarpStorage first;
+  private WarpStorage second;
+
+  @Before
+  public void setUp() throws Exception {
+    dataService = new H2DataService();
+    first = WarpStorageBuilder.using(dataService).initTables().build();
+    second = WarpStorageBuilder.using(dataService).initTables().build();
+  }
+
+  @After
+  public void tearDown() {
+    dataService.close();
+  }
+
+  private static Warp warp(String name) {
+    return new WarpBuilder(name, UUID.randomUUID(), UUID.randomUUID(), Vector3d.ZERO, Vector2f.ZERO).build();
+  }
+
+  @Test
+  public void changesAreSeenByTheOtherInstance() {
+    long before = second.getLatestChangeId();
+    first.addWarp(warp("spawn"));
+
+    WarpChanges seenBySecond = second.getChanges(before, NONE, 100);
+    assertTrue(seenBySecond.getForeignChanges().contains("spawn"));
+    assertFalse(seenBySecond.getOwnChanges().contains("spawn"));
+
+    WarpChanges seenByFirst = first.getChanges(before, NONE, 100);
+    assertTrue(seenByFirst.getOwnChanges().contains("spawn"));
+    assertFalse(seenByFirst.getForeignChanges().contains("spawn"));
+
+    assertEquals(1, second.getWarps().size());
+  }
+
+  @Test
+  public void changesAreSeenAfterTheLatestChangeOnly() {
+    first.addWarp(warp("spawn"));
+    long seen = second.getLatestChangeId();
+    first.addWarp(warp("market"));
+
+    WarpChanges changes = second.getChanges(seen, NONE, 100);
+    assertEquals(1, changes.getForeignChanges().size());
+    assertTrue(changes.getForeignChanges().contains("market"));
+    assertTrue(changes.getLatestChangeId() > seen);
+  }
+
+  @Test
+  public void pruningRemovesOldChanges() {
+    first.addWarp(warp("spawn"));
+    first.addWarp(warp("market"));
+
+    long latest = second.getLatestChangeId();
+    second.pruneChanges(Instant.now().plusSeconds(60));
+
+    // the latest change is kept, as it is part of the fingerprint
+    assertEquals(latest, second.getLatestChangeId());
+    assertEquals(ImmutableSet.of("market"), second.getChanges(0, NONE, 100).getForeignChanges());
+    // pruning only affects the change-log
+    assertEquals(2, second.getWarps().size());
+  }
+
+  @Test
+  public void missingChangesAreReadAgain() {
+    first.addWarp(warp("spawn"));
+    long skipped = second.getLatestChangeId();
+    first.addWarp(warp("market"));
+    long latest = second.getLatestChangeId();
+
+    // as if the change of 'spawn' had not been visible when 'market' was read
+    WarpChanges changes = second.getChanges(latest, ImmutableSet.of(skipped), 100);
+    assertEquals(ImmutableSet.of(skipped), changes.getChangeIds());
+    assertEquals(ImmutableSet.of("spawn"), changes.getForeignChanges());
+    assertEquals(latest, changes.getLatestChangeId());
+  }
+
+  @Test
+  public void visitsAreNotRecorded() {
+    first.addWarp(warp("spawn"));
+    StorageFingerprint fingerprint = second.getFingerprint();
+    long latest = second.getLatestChangeId();
+
+    first.updateVisits(
+        new WarpBuilder("spawn", UUID.randomUUID(), UUID.randomUUID(), Vector3d.ZERO, Vector2f.ZERO).setVisits(10)
+            .build());
+
+    assertEquals(latest, second.getLatestChangeId());
+    assertEquals(fingerprint, second.getFingerprint());
+    assertEquals(10, second.getWarps().get(0).getVisits());
+  }
+}
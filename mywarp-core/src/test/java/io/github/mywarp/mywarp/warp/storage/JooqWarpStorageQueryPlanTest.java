@@ -0,0 +1,301 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.warp.storage;
+
+import com.flowpowered.math.vector.Vector2f;
+import com.flowpowered.math.vector.Vector3d;
+import io.github.mywarp.mywarp.util.playermatcher.GroupPlayerMatcher;
+import io.github.mywarp.mywarp.util.playermatcher.UuidPlayerMatcher;
+import io.github.mywarp.mywarp.warp.Warp;
+import io.github.mywarp.mywarp.warp.WarpBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the statements rendered by {@link JooqWarpStorage} are answered using indexes, on H2 and on SQLite.
+ *
+ * <p>Statements are recorded while the storage runs and explained afterwards, with the same bind values.</p>
+ */
+@RunWith(Parameterized.class)
+public class JooqWarpStorageQueryPlanTest {
+
+  private static final int WARPS = 50;
+
+  private final Supplier<SqlDataService> dataServiceFactory;
+  private final boolean sqlite;
+  private final List<RecordedStatement> recorded = new ArrayList<>();
+
+  private SqlDataService dataService;
+  private WarpStorage storage;
+  private UUID creator;
+
+  /**
+   * Creates an instance.
+   *
+   * @param dialect            the name of the dialect
+   * @param dataServiceFactory creates the data service of the dialect
+   */
+  public JooqWarpStorageQueryPlanTest(String dialect, Supplier<SqlDataService> dataServiceFactory) {
+    this.dataServiceFactory = dataServiceFactory;
+    this.sqlite = dialect.equals("SQLite");
+  }
+
+  /**
+   * Gets the dialects to test.
+   *
+   * @return the name and the data service factory of each dialect
+   */
+  @Parameterized.Parameters(name = "{0}")
+  public static Collection<Object[]> dialects() {
+    Supplier<SqlDataService> h2 = H2DataService::new;
+    Supplier<SqlDataService> sqlite = SqliteDataService::new;
+    return Arrays.asList(new Object[]{"H2", h2}, new Object[]{"SQLite", sqlite});
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    dataService = dataServiceFactory.get();
+    storage = WarpStorageBuilder.using(new RecordingDataService(dataService)).initTables().build();
+
+    // every warp has its own creator and world, so that lookups by either are selective
+    List<Warp> warps = new ArrayList<>();
+    for (int i = 0; i < WARPS; i++) {
+      warps.add(new WarpBuilder(String.format("warp%02d", i), UUID.randomUUID(), UUID.randomUUID(), Vector3d.ZERO,
+                                Vector2f.ZERO)
+                    .addInvitation(new UuidPlayerMatcher(UUID.randomUUID()), new GroupPlayerMatcher("group" + i))
+                    .build());
+    }
+    creator = warps.get(0).getCreator();
+    storage.addWarps(warps);
+    recorded.clear();
+  }
+
+  @After
+  public void tearDown() {
+    dataService.close();
+  }
+
+  @Test
+  public void chunksAreReadByName() throws Exception {
+    storage.forEachChunk("warp47", chunk -> {
+    });
+
+    List<RecordedStatement> selects = selects();
+    assertFalse(selects.isEmpty());
+    for (RecordedStatement select : selects) {
+      assertUsesIndex(select, "warp", "warp_name_uq", "name");
+    }
+  }
+
+  @Test
+  public void changesAreReadByChangeId() throws Exception {
+    storage.getChanges(WARPS / 2, Collections.emptySet(), 100);
+
+    List<RecordedStatement> selects = selects();
+    assertEquals(1, selects.size());
+    assertUsesIndex(selects.get(0), "warp_change", "PRIMARY_KEY", "rowid");
+  }
+
+  @Test
+  public void pagesOfACreatorAreReadByCreator() throws Exception {
+    storage.getWarps(WarpQuery.builder().createdBy(creator).orderBy(WarpQuery.Order.NAME).page(0, 10).build());
+
+    // the number of matching warps, the names of the page and the warps of the page
+    List<RecordedStatement> selects = selects();
+    assertEquals(3, selects.size());
+    assertUsesIndex(selects.get(0), "warp", "warp_player_id_idx", "player_id");
+    assertUsesIndex(selects.get(1), "warp", "warp_player_id_idx", "player_id");
+    assertUsesIndex(selects.get(2), "warp", "warp_name_uq", "name");
+  }
+
+  private List<RecordedStatement> selects() {
+    return recorded.stream().filter(s -> s.sql.trim().toLowerCase(Locale.ROOT).startsWith("select"))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Asserts that the given {@code table} is read using an index. On H2, the plan must name the given {@code h2Index}.
+   * On SQLite, the table must be searched by the given {@code sqliteColumn}.
+   */
+  private void assertUsesIndex(RecordedStatement statement, String table, String h2Index, String sqliteColumn)
+      throws Exception {
+    String plan = explain(statement);
+    if (sqlite) {
+      Pattern search =
+          Pattern.compile("(?m)^SEARCH (TABLE )?" + table + " USING .*\\(" + sqliteColumn + "[=<>]");
+      assertTrue(statement.sql + "\n" + plan, search.matcher(plan).find());
+    } else {
+      assertTrue(statement.sql + "\n" + plan, plan.contains(h2Index));
+    }
+  }
+
+  private String explain(RecordedStatement statement) throws Exception {
+    String prefix = sqlite ? "EXPLAIN QUERY PLAN " : "EXPLAIN ";
+    try (Connection conn = dataService.getDataSource().getConnection();
+         PreparedStatement explain = conn.prepareStatement(prefix + statement.sql)) {
+      for (Bind bind : statement.binds) {
+        bind.method.invoke(explain, bind.args);
+      }
+
+      // SQLite returns one row per step, the description is in the fourth column
+      StringBuilder plan = new StringBuilder();
+      try (ResultSet result = explain.executeQuery()) {
+        while (result.next()) {
+          plan.append(result.getString(sqlite ? 4 : 1)).append('\n');
+        }
+      }
+      return plan.toString();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T proxy(Class<T> type, T target, ResultMapper mapper) {
+    return (T) Proxy.newProxyInstance(JooqWarpStorageQueryPlanTest.class.getClassLoader(), new Class<?>[]{type},
+                                      (proxy, method, args) -> {
+                                        try {
+                                          return mapper.map(method, args, method.invoke(target, args));
+                                        } catch (InvocationTargetException e) {
+                                          throw e.getCause();
+                                        }
+                                      });
+  }
+
+  /**
+   * Maps the result of a method called on a proxy.
+   */
+  private interface ResultMapper {
+
+    Object map(Method method, Object[] args, Object result);
+  }
+
+  /**
+   * A statement that was prepared by the storage, with the bind values set on it.
+   */
+  private static class RecordedStatement {
+
+    private final String sql;
+    private final List<Bind> binds = new ArrayList<>();
+
+    private RecordedStatement(String sql) {
+      this.sql = sql;
+    }
+  }
+
+  /**
+   * A call that set a bind value on a statement.
+   */
+  private static class Bind {
+
+    private final Method method;
+    private final Object[] args;
+
+    private Bind(Method method, Object[] args) {
+      this.method = method;
+      this.args = args;
+    }
+  }
+
+  /**
+   * Records every statement prepared on connections of the delegate's DataSource.
+   */
+  private class RecordingDataService implements SqlDataService {
+
+    private final SqlDataService delegate;
+
+    private RecordingDataService(SqlDataService delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public String getJdbcUrl() {
+      return delegate.getJdbcUrl();
+    }
+
+    @Override
+    public DataSource getDataSource() {
+      return proxy(DataSource.class, delegate.getDataSource(),
+                   (method, args, result) -> method.getName().equals("getConnection") ? record((Connection) result)
+                                                                                      : result);
+    }
+
+    private Connection record(Connection connection) {
+      return proxy(Connection.class, connection, (method, args, result) -> {
+        if (!method.getName().equals("prepareStatement")) {
+          return result;
+        }
+        RecordedStatement statement = new RecordedStatement((String) args[0]);
+        recorded.add(statement);
+        return proxy(PreparedStatement.class, (PreparedStatement) result, (m, a, r) -> {
+          if (m.getName().startsWith("set") && a != null && a.length >= 2 && a[0] instanceof Integer) {
+            statement.binds.add(new Bind(m, a));
+          }
+          return r;
+        });
+      });
+    }
+
+    @Override
+    public Optional<String> getDatabase() {
+      return delegate.getDatabase();
+    }
+
+    @Override
+    public ExecutorService getExecutorService() {
+      return delegate.getExecutorService();
+    }
+
+    @Override
+    public SqlDataService duplicate() {
+      return delegate.duplicate();
+    }
+
+    @Override
+    public void close() {
+      delegate.close();
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.warp.storage;
+
+import com.flowpowered.math.vector.Vector2f;
+import com.flowpowered.math.vector.Vector3d;
+import com.google.common.collect.ImmutableList;
+import io.github.mywarp.mywarp.warp.Warp;
+import io.github.mywarp.mywarp.warp.WarpBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link MvStoreWarpStorage}.
+ */
+public class MvStoreWarpStorageTest {
+
+  private static final UUID CREATOR = UUID.randomUUID();
+  private static final UUID WORLD = UUID.randomUUID();
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path file;
+  private MvStoreWarpStorage storage;
+
+  @Before
+  public void setUp() throws Exception {
+    file = folder.getRoot().toPath().resolve("warps.mv.db");
+    storage = MvStoreWarpStorage.open(file);
+  }
+
+  @After
+  public void tearDown() {
+    storage.close();
+  }
+
+  private static Warp warp(String name, UUID creator, UUID world, Vector3d position) {
+    return new WarpBuilder(name, creator, world, position, Vector2f.ZERO).build();
+  }
+
+  private static Warp warp(String name) {
+    return warp(name, CREATOR, WORLD, Vector3d.ZERO);
+  }
+
+  private static List<String> names(WarpPage page) {
+    return page.getWarps().stream().map(Warp::getName).collect(Collectors.toList());
+  }
+
+  @Test
+  public void duplicatesAreIgnoredWhenAddingSeveralWarps() {
+    storage.addWarp(warp("spawn"));
+    storage.addWarps(Arrays.asList(warp("market"), warp("spawn", UUID.randomUUID(), WORLD, Vector3d.ZERO),
+                                   warp("harbour")));
+
+    assertEquals(Arrays.asList("harbour", "market", "spawn"), storage.getWarpNames());
+    // the stored warp is kept
+    assertEquals(CREATOR, storage.getWarps(ImmutableList.of("spawn")).get(0).getCreator());
+  }
+
+  @Test
+  public void changeIdNeverDecreases() {
+    long initial = storage.getLatestChangeId();
+    storage.addWarp(warp("spawn"));
+    long afterAdd = storage.getLatestChangeId();
+    assertTrue(afterAdd > initial);
+
+    storage.removeWarp(warp("spawn"));
+    long afterRemove = storage.getLatestChangeId();
+    assertTrue(afterRemove > afterAdd);
+
+    storage.close();
+    storage = MvStoreWarpStorage.open(file);
+    assertEquals(afterRemove, storage.getLatestChangeId());
+    assertEquals(afterRemove, storage.getChanges(0, ImmutableList.of(), 100).getLatestChangeId());
+  }
+
+  @Test
+  public void queriesUseTheIndexes() {
+    UUID otherCreator = UUID.randomUUID();
+    UUID otherWorld = UUID.randomUUID();
+    storage.addWarps(Arrays.asList(warp("spawn"), warp("market", otherCreator, WORLD, new Vector3d(100, 0, 0)),
+                                   warp("harbour", otherCreator, otherWorld, Vector3d.ZERO)));
+
+    assertEquals(Arrays.asList("harbour", "market"),
+                 names(storage.getWarps(WarpQuery.builder().createdBy(otherCreator).build())));
+    assertEquals(Arrays.asList("market", "spawn"),
+                 names(storage.getWarps(WarpQuery.builder().inWorlds(ImmutableList.of(WORLD)).build())));
+    assertEquals(Arrays.asList("spawn"),
+                 names(storage.getWarps(WarpQuery.builder().near(WORLD, Vector3d.ZERO, 10).build())));
+
+    storage.updateLocation(warp("spawn", CREATOR, otherWorld, Vector3d.ZERO));
+    assertEquals(Arrays.asList("harbour", "spawn"),
+                 names(storage.getWarps(WarpQuery.builder().inWorlds(ImmutableList.of(otherWorld)).build())));
+  }
+
+  @Test
+  public void pagesAreReadInTheOrderOfNames() {
+    storage.addWarps(Arrays.asList(warp("d"), warp("b"), warp("a"), warp("c"), warp("e")));
+
+    WarpPage page = storage.getWarps(WarpQuery.builder().page(1, 2).build());
+    assertEquals(Arrays.asList("b", "c"), names(page));
+    assertEquals(5, page.getTotal());
+
+    assertEquals(Arrays.asList("e"), names(storage.getWarps(WarpQuery.builder().page(4, 10).build())));
+    assertTrue(storage.getWarps(WarpQuery.builder().page(5, 10).build()).getWarps().isEmpty());
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.mywarp.mywarp.warp.storage;
+
+import org.sqlite.SQLiteDataSource;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A {@link SqlDataService} that connects to a fresh SQLite database in a temporary file. The file is deleted once the
+ * instance that created it is closed.
+ */
+final class SqliteDataService implements SqlDataService {
+
+  private final File file;
+  private final boolean ownsFile;
+  private final SQLiteDataSource dataSource = new SQLiteDataSource();
+  private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+  SqliteDataService() {
+    this(createTempFile(), true);
+  }
+
+  private SqliteDataService(File file, boolean ownsFile) {
+    this.file = file;
+    this.ownsFile = ownsFile;
+    dataSource.setUrl(getJdbcUrl());
+  }
+
+  private static File createTempFile() {
+    try {
+      return File.createTempFile("mywarp", ".db");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public String getJdbcUrl() {
+    return "jdbc:sqlite:" + file.getAbsolutePath();
+  }
+
+  @Override
+  public DataSource getDataSource() {
+    return dataSource;
+  }
+
+  @Override
+  public Optional<String> getDatabase() {
+    return Optional.empty();
+  }
+
+  @Override
+  public ExecutorService getExecutorService() {
+    return executorService;
+  }
+
+  @Override
+  public SqlDataService duplicate() {
+    return new SqliteDataService(file, false);
+  }
+
+  @Override
+  public void close() {
+    executorService.shutdownNow();
+    if (ownsFile && !file.delete()) {
+      file.deleteOnExit();
+    }
+  }
+}
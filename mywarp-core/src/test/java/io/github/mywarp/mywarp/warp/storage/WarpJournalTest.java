@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2011 - 2022, MyWarp team and contributors
+ *
+ * This file is part of MyWarp.
+ *
+ * MyWarp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MyWarp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MyWarp. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.github.mywarp.mywarp.warp.storage;
+
+import com.flowpowered.math.vector.Vector2f;
+import com.flowpowered.math.vector.Vector3d;
+import com.google.common.collect.ImmutableList;
+import io.github.mywarp.mywarp.warp.Warp;
+import io.github.mywarp.mywarp.warp.WarpBuilder;
+import io.github.mywarp.mywarp.warp.storage.WarpJournal.Operation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link WarpJournal}.
+ */
+public class WarpJournalTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private H2DataService dataService;
+  private WarpStorage storage;
+  private Path file;
+  private WarpJournal journal;
+
+  @Before
+  public void setUp() throws Exception {
+    dataService = new H2DataService();
+    storage = WarpStorageBuilder.using(dataService).initTables().build();
+    file = folder.getRoot().toPath().resolve("warps.journal");
+    journal = WarpJournal.open(file);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    journal.close();
+    dataService.close();
+  }
+
+  private static Warp warp(String name, int visits) {
+    return new WarpBuilder(name, UUID.randomUUID(), UUID.randomUUID(), Vector3d.ZERO, Vector2f.ZERO).setVisits(visits)
+        .build();
+  }
+
+  private void reopen() throws Exception {
+    journal.close();
+    journal = WarpJournal.open(file);
+  }
+
+  @Test
+  public void acknowledgedEntriesAreNotReplayed() throws Exception {
+    long spawn = journal.append(Operation.ADD_WARPS, ImmutableList.of(warp("spawn", 0)), null);
+    journal.append(Operation.ADD_WARPS, ImmutableList.of(warp("market", 0)), null);
+    journal.commit(spawn);
+    reopen();
+
+    assertEquals(1, journal.replay(storage));
+    assertEquals(Arrays.asList("market"), storage.getWarpNames());
+  }
+
+  @Test
+  public void replayedAddsDoNotReplaceStoredWarps() throws Exception {
+    storage.addWarp(warp("spawn", 5));
+    journal.append(Operation.ADD_WARPS, ImmutableList.of(warp("spawn", 0), warp("market", 0)), null);
+    reopen();
+
+    assertEquals(1, journal.replay(storage));
+    assertEquals(Arrays.asList("market", "spawn"), storage.getWarpNames());
+    assertEquals(5, storage.getWarps(ImmutableList.of("spawn")).get(0).getVisits());
+  }
+
+  @Test
+  public void deadLetteredEntriesAreMovedOutOfTheJournal() throws Exception {
+    long spawn = journal.append(Operation.ADD_WARPS, ImmutableList.of(warp("spawn", 0)), null);
+    long market = journal.append(Operation.ADD_WARPS, ImmutableList.of(warp("market", 0)), null);
+    journal.deadLetter(spawn);
+    journal.commit(market);
+
+    // all entries are handled, so the journal is truncated
+    assertEquals(0, Files.size(file));
+    assertTrue(Files.size(file.resolveSibling("warps.journal.failed")) > 0);
+    reopen();
+    assertEquals(0, journal.replay(storage));
+  }
+}